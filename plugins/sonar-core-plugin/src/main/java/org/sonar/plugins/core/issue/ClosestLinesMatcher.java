@@ -0,0 +1,237 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.core.issue.db.IssueDto;
+
+import javax.annotation.CheckForNull;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Maps issues of a same rule between pairs of lines, the closest lines first. Ties are resolved by order
+ * of lines in reference, then in source.
+ * <p/>
+ * It is equivalent to sorting all the pairs of lines and to mapping issues of each pair in turn, but only
+ * pairs of lines which both still have unmatched issues are considered. For each line of reference, only
+ * the closest lines of source on each side are candidates, so tracking is O(n log n) instead of quadratic.
+ */
+class ClosestLinesMatcher {
+
+  private final Map<Integer, Line<IssueDto>> lastLines = Maps.newLinkedHashMap();
+  private final Map<Integer, Line<DefaultIssue>> newLines = Maps.newLinkedHashMap();
+
+  /**
+   * @param order position of the line amongst lines of reference
+   */
+  void addLastIssue(int line, int order, IssueDto issue) {
+    line(lastLines, line, order).issues.add(issue);
+  }
+
+  /**
+   * @param order position of the line amongst lines of source
+   */
+  void addNewIssue(int line, int order, DefaultIssue issue) {
+    line(newLines, line, order).issues.add(issue);
+  }
+
+  void map(IssueTrackingResult result) {
+    List<Line<DefaultIssue>> sortedNewLines = Lists.newArrayList(newLines.values());
+    Collections.sort(sortedNewLines, LINE_NUMBER_COMPARATOR);
+    Candidates candidates = new Candidates(sortedNewLines);
+
+    PriorityQueue<LinePair> pairs = new PriorityQueue<LinePair>(Math.max(1, lastLines.size()), LINE_PAIR_COMPARATOR);
+    for (Line<IssueDto> lastLine : lastLines.values()) {
+      offer(pairs, candidates.closest(lastLine));
+    }
+    while (!pairs.isEmpty()) {
+      LinePair pair = pairs.poll();
+      Line<DefaultIssue> newLine = sortedNewLines.get(pair.newIndex);
+      if (newLine.issues.isEmpty()) {
+        // issues of this line have been mapped to another line in the meantime
+        offer(pairs, candidates.closest(pair.lastLine));
+      } else {
+        while (!pair.lastLine.issues.isEmpty() && !newLine.issues.isEmpty()) {
+          result.setMatch(newLine.issues.poll(), pair.lastLine.issues.poll());
+        }
+        if (newLine.issues.isEmpty()) {
+          candidates.remove(pair.newIndex);
+        }
+        if (!pair.lastLine.issues.isEmpty()) {
+          offer(pairs, candidates.closest(pair.lastLine));
+        }
+      }
+    }
+  }
+
+  private static void offer(PriorityQueue<LinePair> pairs, @CheckForNull LinePair pair) {
+    if (pair != null) {
+      pairs.offer(pair);
+    }
+  }
+
+  private static <T> Line<T> line(Map<Integer, Line<T>> lines, int number, int order) {
+    Line<T> line = lines.get(number);
+    if (line == null) {
+      line = new Line<T>(number, order);
+      lines.put(number, line);
+    }
+    return line;
+  }
+
+  private static class Line<T> {
+    final int number;
+    final int order;
+    final Deque<T> issues = new ArrayDeque<T>();
+
+    Line(int number, int order) {
+      this.number = number;
+      this.order = order;
+    }
+  }
+
+  private static class LinePair {
+    final Line<IssueDto> lastLine;
+    final int newIndex;
+    final int newOrder;
+    final int distance;
+
+    LinePair(Line<IssueDto> lastLine, int newIndex, int newOrder, int distance) {
+      this.lastLine = lastLine;
+      this.newIndex = newIndex;
+      this.newOrder = newOrder;
+      this.distance = distance;
+    }
+  }
+
+  /**
+   * Lines of source sorted by number, from which lines without unmatched issues are removed.
+   * Removed lines are skipped with path compression, as in a disjoint-set forest.
+   */
+  private static class Candidates {
+    private final List<Line<DefaultIssue>> lines;
+    private final int[] numbers;
+    // next[i] leads to the first remaining index >= i, or to lines.size()
+    private final int[] next;
+    // previous[i] leads to 1 + the last remaining index < i, or to 0
+    private final int[] previous;
+
+    Candidates(List<Line<DefaultIssue>> lines) {
+      this.lines = lines;
+      int size = lines.size();
+      numbers = new int[size];
+      next = new int[size + 1];
+      previous = new int[size + 1];
+      for (int i = 0; i < size; i++) {
+        numbers[i] = lines.get(i).number;
+      }
+      for (int i = 0; i <= size; i++) {
+        next[i] = i;
+        previous[i] = i;
+      }
+    }
+
+    void remove(int index) {
+      next[index] = index + 1;
+      previous[index + 1] = index;
+    }
+
+    @CheckForNull
+    LinePair closest(Line<IssueDto> lastLine) {
+      int position = lowerBound(lastLine.number);
+      int after = find(next, position);
+      int before = find(previous, position) - 1;
+      LinePair closest = null;
+      if (before >= 0) {
+        closest = pair(lastLine, before);
+      }
+      if (after < lines.size()) {
+        LinePair pair = pair(lastLine, after);
+        if (closest == null || LINE_PAIR_COMPARATOR.compare(pair, closest) < 0) {
+          closest = pair;
+        }
+      }
+      return closest;
+    }
+
+    private LinePair pair(Line<IssueDto> lastLine, int index) {
+      Line<DefaultIssue> line = lines.get(index);
+      return new LinePair(lastLine, index, line.order, Math.abs(line.number - lastLine.number));
+    }
+
+    private int lowerBound(int number) {
+      int low = 0;
+      int high = numbers.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (numbers[middle] < number) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    private static int find(int[] parents, int index) {
+      int root = index;
+      while (parents[root] != root) {
+        root = parents[root];
+      }
+      int i = index;
+      while (parents[i] != root) {
+        int parent = parents[i];
+        parents[i] = root;
+        i = parent;
+      }
+      return root;
+    }
+  }
+
+  private static final Comparator<Line<DefaultIssue>> LINE_NUMBER_COMPARATOR = new Comparator<Line<DefaultIssue>>() {
+    @Override
+    public int compare(Line<DefaultIssue> o1, Line<DefaultIssue> o2) {
+      return o1.number - o2.number;
+    }
+  };
+
+  private static final Comparator<LinePair> LINE_PAIR_COMPARATOR = new Comparator<LinePair>() {
+    @Override
+    public int compare(LinePair o1, LinePair o2) {
+      if (o1.distance != o2.distance) {
+        return o1.distance - o2.distance;
+      }
+      if (o1.lastLine.order != o2.lastLine.order) {
+        return o1.lastLine.order - o2.lastLine.order;
+      }
+      return o1.newOrder - o2.newOrder;
+    }
+  };
+
+}
@@ -22,6 +22,7 @@ package org.sonar.plugins.core.issue;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -34,11 +35,15 @@ import org.sonar.plugins.core.issue.tracking.FileHashes;
 import org.sonar.plugins.core.issue.tracking.IssueTrackingBlocksRecognizer;
 import org.sonar.plugins.core.issue.tracking.RollingFileHashes;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 
@@ -157,30 +162,96 @@ public class IssueTracking implements BatchExtension {
       }
     }
 
-    // Check if remaining number of lines exceeds threshold
-    if (lastIssuesByLines.keySet().size() * newIssuesByLines.keySet().size() < 250000) {
-      List<LinePair> possibleLinePairs = Lists.newArrayList();
-      for (Integer oldLine : lastIssuesByLines.keySet()) {
-        for (Integer newLine : newIssuesByLines.keySet()) {
-          int weight = rec.computeLengthOfMaximalBlock(oldLine, newLine);
-          possibleLinePairs.add(new LinePair(oldLine, newLine, weight));
+    mapLinesOfSameBlocks(hashedReference, hashedSource, rec, lastIssuesByLines, newIssuesByLines, result);
+    mapClosestLines(lastIssuesByLines, newIssuesByLines, result);
+  }
+
+  /**
+   * Maps issues between lines with the same hash, the lines in the longest block of identical lines first.
+   * Pairs of lines with different hashes are left to {@link #mapClosestLines(Multimap, Multimap, IssueTrackingResult)}.
+   */
+  private void mapLinesOfSameBlocks(FileHashes hashedReference, FileHashes hashedSource, IssueTrackingBlocksRecognizer rec,
+    Multimap<Integer, IssueDto> lastIssuesByLines, Multimap<Integer, DefaultIssue> newIssuesByLines, IssueTrackingResult result) {
+    List<Integer> newLines = Lists.newArrayList(newIssuesByLines.keySet());
+    Multimap<String, Integer> newLineOrdersByHash = ArrayListMultimap.create();
+    for (int order = 0; order < newLines.size(); order++) {
+      newLineOrdersByHash.put(hashedSource.getHash(newLines.get(order)), order);
+    }
+
+    List<LinePair> possibleLinePairs = Lists.newArrayList();
+    int lastOrder = 0;
+    for (Integer oldLine : lastIssuesByLines.keySet()) {
+      for (Integer newOrder : newLineOrdersByHash.get(hashedReference.getHash(oldLine))) {
+        int newLine = newLines.get(newOrder);
+        int weight = rec.computeLengthOfMaximalBlock(oldLine, newLine);
+        possibleLinePairs.add(new LinePair(oldLine, newLine, weight, lastOrder, newOrder));
+      }
+      lastOrder++;
+    }
+    Collections.sort(possibleLinePairs, LINE_PAIR_COMPARATOR);
+    for (LinePair linePair : possibleLinePairs) {
+      // High probability that lineA has been moved to lineB, so we can map all Issues on lineA to all Issues on lineB
+      map(newIssuesByLines.get(linePair.lineB), lastIssuesByLines.get(linePair.lineA), result);
+    }
+  }
+
+  /**
+   * Maps remaining issues of same rule between lines, the closest lines first.
+   */
+  private void mapClosestLines(Multimap<Integer, IssueDto> lastIssuesByLines, Multimap<Integer, DefaultIssue> newIssuesByLines, IssueTrackingResult result) {
+    Map<RuleKey, ClosestLinesMatcher> matchersByRule = Maps.newLinkedHashMap();
+    int order = 0;
+    for (Integer line : lastIssuesByLines.keySet()) {
+      for (IssueDto lastIssue : lastIssuesByLines.get(line)) {
+        if (isNotAlreadyMapped(lastIssue, result)) {
+          matcher(matchersByRule, lastIssue.getRuleKey()).addLastIssue(line, order, lastIssue);
         }
       }
-      Collections.sort(possibleLinePairs, LINE_PAIR_COMPARATOR);
-      for (LinePair linePair : possibleLinePairs) {
-        // High probability that lineA has been moved to lineB, so we can map all Issues on lineA to all Issues on lineB
-        map(newIssuesByLines.get(linePair.lineB), lastIssuesByLines.get(linePair.lineA), result);
+      order++;
+    }
+    order = 0;
+    for (Integer line : newIssuesByLines.keySet()) {
+      for (DefaultIssue newIssue : newIssuesByLines.get(line)) {
+        if (isNotAlreadyMapped(newIssue, result)) {
+          matcher(matchersByRule, newIssue.ruleKey()).addNewIssue(line, order, newIssue);
+        }
       }
+      order++;
+    }
+    // Issues of different rules are never mapped together, so rules are independent
+    for (ClosestLinesMatcher matcher : matchersByRule.values()) {
+      matcher.map(result);
+    }
+  }
+
+  private static ClosestLinesMatcher matcher(Map<RuleKey, ClosestLinesMatcher> matchersByRule, RuleKey ruleKey) {
+    ClosestLinesMatcher matcher = matchersByRule.get(ruleKey);
+    if (matcher == null) {
+      matcher = new ClosestLinesMatcher();
+      matchersByRule.put(ruleKey, matcher);
     }
+    return matcher;
   }
 
   private void mapIssuesOnSameRule(Collection<DefaultIssue> newIssues, IssueTrackingResult result) {
+    // Unmatched issues are indexed by the fields compared by each of the following passes. Indexed issues
+    // keep their order, and those matched in the meantime are skipped.
+    Map<List<Object>, Deque<IssueDto>> byChecksumAndMessage = Maps.newHashMap();
+    Map<List<Object>, Deque<IssueDto>> byLineAndMessage = Maps.newHashMap();
+    Map<List<Object>, Deque<IssueDto>> byChecksum = Maps.newHashMap();
+    for (IssueDto lastIssue : result.unmatched()) {
+      RuleKey ruleKey = lastIssue.getRuleKey();
+      index(byChecksumAndMessage, lastIssue, ruleKey, lastIssue.getChecksum(), lastIssue.getMessage());
+      index(byLineAndMessage, lastIssue, ruleKey, lastIssue.getLine(), lastIssue.getMessage());
+      index(byChecksum, lastIssue, ruleKey, lastIssue.getChecksum());
+    }
+
     // Try then to match issues on same rule with same message and with same checksum
     for (DefaultIssue newIssue : newIssues) {
       if (isNotAlreadyMapped(newIssue, result)) {
         mapIssue(
           newIssue,
-          findLastIssueWithSameChecksumAndMessage(newIssue, result.unmatchedByKeyForRule(newIssue.ruleKey()).values()),
+          firstNotAlreadyMapped(byChecksumAndMessage, result, newIssue.ruleKey(), newIssue.checksum(), newIssue.message()),
           result);
       }
     }
@@ -190,7 +261,7 @@ public class IssueTracking implements BatchExtension {
       if (isNotAlreadyMapped(newIssue, result)) {
         mapIssue(
           newIssue,
-          findLastIssueWithSameLineAndMessage(newIssue, result.unmatchedByKeyForRule(newIssue.ruleKey()).values()),
+          firstNotAlreadyMapped(byLineAndMessage, result, newIssue.ruleKey(), newIssue.line(), newIssue.message()),
           result);
       }
     }
@@ -201,12 +272,37 @@ public class IssueTracking implements BatchExtension {
       if (isNotAlreadyMapped(newIssue, result)) {
         mapIssue(
           newIssue,
-          findLastIssueWithSameChecksum(newIssue, result.unmatchedByKeyForRule(newIssue.ruleKey()).values()),
+          firstNotAlreadyMapped(byChecksum, result, newIssue.ruleKey(), newIssue.checksum()),
           result);
       }
     }
   }
 
+  private static void index(Map<List<Object>, Deque<IssueDto>> index, IssueDto lastIssue, Object... fields) {
+    List<Object> key = Arrays.asList(fields);
+    Deque<IssueDto> lastIssues = index.get(key);
+    if (lastIssues == null) {
+      lastIssues = new ArrayDeque<IssueDto>();
+      index.put(key, lastIssues);
+    }
+    lastIssues.add(lastIssue);
+  }
+
+  @CheckForNull
+  private IssueDto firstNotAlreadyMapped(Map<List<Object>, Deque<IssueDto>> index, IssueTrackingResult result, Object... fields) {
+    Deque<IssueDto> lastIssues = index.get(Arrays.asList(fields));
+    if (lastIssues != null) {
+      while (!lastIssues.isEmpty()) {
+        IssueDto lastIssue = lastIssues.peekFirst();
+        if (isNotAlreadyMapped(lastIssue, result)) {
+          return lastIssue;
+        }
+        lastIssues.pollFirst();
+      }
+    }
+    return null;
+  }
+
   private void map(Collection<DefaultIssue> newIssues, Collection<IssueDto> lastIssues, IssueTrackingResult result) {
     for (DefaultIssue newIssue : newIssues) {
       if (isNotAlreadyMapped(newIssue, result)) {
@@ -240,33 +336,6 @@ public class IssueTracking implements BatchExtension {
     return lastIssuesByLines;
   }
 
-  private IssueDto findLastIssueWithSameChecksum(DefaultIssue newIssue, Collection<IssueDto> lastIssues) {
-    for (IssueDto pastIssue : lastIssues) {
-      if (isSameChecksum(newIssue, pastIssue)) {
-        return pastIssue;
-      }
-    }
-    return null;
-  }
-
-  private IssueDto findLastIssueWithSameLineAndMessage(DefaultIssue newIssue, Collection<IssueDto> lastIssues) {
-    for (IssueDto pastIssue : lastIssues) {
-      if (isSameLine(newIssue, pastIssue) && isSameMessage(newIssue, pastIssue)) {
-        return pastIssue;
-      }
-    }
-    return null;
-  }
-
-  private IssueDto findLastIssueWithSameChecksumAndMessage(DefaultIssue newIssue, Collection<IssueDto> lastIssues) {
-    for (IssueDto pastIssue : lastIssues) {
-      if (isSameChecksum(newIssue, pastIssue) && isSameMessage(newIssue, pastIssue)) {
-        return pastIssue;
-      }
-    }
-    return null;
-  }
-
   private IssueDto findLastIssueWithSameLineAndChecksum(DefaultIssue newIssue, IssueTrackingResult result) {
     Collection<IssueDto> sameRuleAndSameLineAndSameChecksum = result.unmatchedForRuleAndForLineAndForChecksum(newIssue.ruleKey(), newIssue.line(), newIssue.checksum());
     if (!sameRuleAndSameLineAndSameChecksum.isEmpty()) {
@@ -276,25 +345,13 @@ public class IssueTracking implements BatchExtension {
   }
 
   private boolean isNotAlreadyMapped(IssueDto pastIssue, IssueTrackingResult result) {
-    return result.unmatched().contains(pastIssue);
+    return result.isUnmatched(pastIssue);
   }
 
   private boolean isNotAlreadyMapped(DefaultIssue newIssue, IssueTrackingResult result) {
     return !result.isMatched(newIssue);
   }
 
-  private boolean isSameChecksum(DefaultIssue newIssue, IssueDto pastIssue) {
-    return Objects.equal(pastIssue.getChecksum(), newIssue.checksum());
-  }
-
-  private boolean isSameLine(DefaultIssue newIssue, IssueDto pastIssue) {
-    return Objects.equal(pastIssue.getLine(), newIssue.line());
-  }
-
-  private boolean isSameMessage(DefaultIssue newIssue, IssueDto pastIssue) {
-    return Objects.equal(newIssue.message(), pastIssue.getMessage());
-  }
-
   private void mapIssue(DefaultIssue issue, @Nullable IssueDto ref, IssueTrackingResult result) {
     if (ref != null) {
       result.setMatch(issue, ref);
@@ -310,11 +367,16 @@ public class IssueTracking implements BatchExtension {
     int lineA;
     int lineB;
     int weight;
+    // positions of lines amongst lines with issues, which resolve ties
+    int orderA;
+    int orderB;
 
-    public LinePair(int lineA, int lineB, int weight) {
+    public LinePair(int lineA, int lineB, int weight, int orderA, int orderB) {
       this.lineA = lineA;
       this.lineB = lineB;
       this.weight = weight;
+      this.orderA = orderA;
+      this.orderB = orderB;
     }
   }
 
@@ -331,9 +393,12 @@ public class IssueTracking implements BatchExtension {
       int weightDiff = o2.weight - o1.weight;
       if (weightDiff != 0) {
         return weightDiff;
-      } else {
-        return Math.abs(o1.lineA - o1.lineB) - Math.abs(o2.lineA - o2.lineB);
       }
+      int distanceDiff = Math.abs(o1.lineA - o1.lineB) - Math.abs(o2.lineA - o2.lineB);
+      if (distanceDiff != 0) {
+        return distanceDiff;
+      }
+      return o1.orderA != o2.orderA ? (o1.orderA - o2.orderA) : (o1.orderB - o2.orderB);
     }
   };
 
@@ -32,10 +32,12 @@ import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 class IssueTrackingResult {
-  private final Map<String, IssueDto> unmatchedByKey = new HashMap<String, IssueDto>();
+  // unmatched issues are kept in the order they are added, so that tracking does not depend on hash codes of keys
+  private final Map<String, IssueDto> unmatchedByKey = new LinkedHashMap<String, IssueDto>();
   private final Map<RuleKey, Map<String, IssueDto>> unmatchedByRuleAndKey = new HashMap<RuleKey, Map<String, IssueDto>>();
   private final Map<RuleKey, Map<Integer, Multimap<String, IssueDto>>> unmatchedByRuleAndLineAndChecksum =
     new HashMap<RuleKey, Map<Integer, Multimap<String, IssueDto>>>();
@@ -45,6 +47,10 @@ class IssueTrackingResult {
     return unmatchedByKey.values();
   }
 
+  boolean isUnmatched(IssueDto issue) {
+    return unmatchedByKey.get(issue.getKee()) == issue;
+  }
+
   Map<String, IssueDto> unmatchedByKeyForRule(RuleKey ruleKey) {
     return unmatchedByRuleAndKey.containsKey(ruleKey) ? unmatchedByRuleAndKey.get(ruleKey) : Collections.<String, IssueDto>emptyMap();
   }
@@ -82,7 +88,7 @@ class IssueTrackingResult {
     unmatchedByKey.put(i.getKee(), i);
     RuleKey ruleKey = RuleKey.of(i.getRuleRepo(), i.getRule());
     if (!unmatchedByRuleAndKey.containsKey(ruleKey)) {
-      unmatchedByRuleAndKey.put(ruleKey, new HashMap<String, IssueDto>());
+      unmatchedByRuleAndKey.put(ruleKey, new LinkedHashMap<String, IssueDto>());
       unmatchedByRuleAndLineAndChecksum.put(ruleKey, new HashMap<Integer, Multimap<String, IssueDto>>());
     }
     unmatchedByRuleAndKey.get(ruleKey).put(i.getKee(), i);
@@ -19,13 +19,22 @@
  */
 package org.sonar.plugins.core.issue.tracking;
 
+import com.google.common.collect.Maps;
+
 import javax.annotation.Nullable;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 public class IssueTrackingBlocksRecognizer {
 
   private final FileHashes a;
   private final FileHashes b;
 
+  // Blocks already computed, by diagonal (line in b minus line in a), then by first line in a.
+  // Each line pair of a block has the same maximal block, so it is computed once.
+  private final Map<Integer, TreeMap<Integer, Integer>> lastLinesOfBlocksByDiagonal = Maps.newHashMap();
+
   public IssueTrackingBlocksRecognizer(FileHashes a, FileHashes b) {
     this.a = a;
     this.b = b;
@@ -47,23 +56,32 @@ public class IssueTrackingBlocksRecognizer {
     if (!a.getHash(startA).equals(b.getHash(startB))) {
       return 0;
     }
-    int length = 0;
+    TreeMap<Integer, Integer> lastLinesOfBlocks = lastLinesOfBlocksByDiagonal.get(startB - startA);
+    if (lastLinesOfBlocks == null) {
+      lastLinesOfBlocks = new TreeMap<Integer, Integer>();
+      lastLinesOfBlocksByDiagonal.put(startB - startA, lastLinesOfBlocks);
+    }
+    Map.Entry<Integer, Integer> block = lastLinesOfBlocks.floorEntry(startA);
+    if (block != null && block.getValue() >= startA) {
+      return block.getValue() - block.getKey() + 1;
+    }
+
     int ai = startA;
     int bi = startB;
     while (ai <= a.length() && bi <= b.length() && a.getHash(ai).equals(b.getHash(bi))) {
       ai++;
       bi++;
-      length++;
     }
+    int lastA = ai - 1;
     ai = startA;
     bi = startB;
     while (ai > 0 && bi > 0 && a.getHash(ai).equals(b.getHash(bi))) {
       ai--;
       bi--;
-      length++;
     }
-    // Note that position (startA, startB) was counted twice
-    return length - 1;
+    int firstA = ai + 1;
+    lastLinesOfBlocks.put(firstA, lastA);
+    return lastA - firstA + 1;
   }
 
 }
@@ -38,6 +38,7 @@ import org.sonar.api.resources.Scopes;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.technicaldebt.batch.Characteristic;
+import org.sonar.batch.components.PastMeasures;
 import org.sonar.batch.components.PastMeasuresLoader;
 import org.sonar.batch.components.PastSnapshot;
 import org.sonar.batch.components.TimeMachineConfiguration;
@@ -55,6 +56,7 @@ public class VariationDecorator implements Decorator {
   private MetricFinder metricFinder;
   private PastMeasuresLoader pastMeasuresLoader;
   private RuleFinder ruleFinder;
+  private final Map<PastSnapshot, PastMeasures> pastMeasuresBySnapshot = Maps.newIdentityHashMap();
 
   public VariationDecorator(PastMeasuresLoader pastMeasuresLoader, MetricFinder metricFinder, TimeMachineConfiguration timeMachineConfiguration, RuleFinder ruleFinder) {
     this(pastMeasuresLoader, metricFinder, timeMachineConfiguration.getProjectPastSnapshots(), ruleFinder);
@@ -96,16 +98,35 @@ public class VariationDecorator implements Decorator {
   }
 
   private void computeVariation(Resource resource, DecoratorContext context, PastSnapshot pastSnapshot) {
-    List<Object[]> pastMeasures = pastMeasuresLoader.getPastMeasures(resource, pastSnapshot);
-    compareWithPastMeasures(context, pastSnapshot.getIndex(), pastMeasures);
+    PastMeasures pastMeasures;
+    int resourceId;
+    if (resource.getId() != null) {
+      resourceId = resource.getId();
+      pastMeasures = pastMeasuresBySnapshot.get(pastSnapshot);
+      if (pastMeasures == null) {
+        // past measures of all the resources of the module are loaded at once
+        pastMeasures = pastMeasuresLoader.loadPastMeasures(pastSnapshot);
+        pastMeasuresBySnapshot.put(pastSnapshot, pastMeasures);
+      }
+    } else {
+      resourceId = 0;
+      pastMeasures = toPastMeasures(pastMeasuresLoader.getPastMeasures(resource, pastSnapshot));
+    }
+    compareWithPastMeasures(context, pastSnapshot.getIndex(), resourceId, pastMeasures);
   }
 
-  private void compareWithPastMeasures(DecoratorContext context, int index, List<Object[]> pastMeasures) {
-    Map<MeasureKey, Object[]> pastMeasuresByKey = Maps.newHashMap();
-    for (Object[] pastMeasure : pastMeasures) {
-      pastMeasuresByKey.put(new MeasureKey(pastMeasure), pastMeasure);
+  private static PastMeasures toPastMeasures(List<Object[]> rows) {
+    PastMeasures pastMeasures = new PastMeasures();
+    for (Object[] row : rows) {
+      if (PastMeasuresLoader.hasValue(row)) {
+        pastMeasures.add(0, PastMeasuresLoader.getMetricId(row), PastMeasuresLoader.getCharacteristicId(row), PastMeasuresLoader.getPersonId(row),
+          PastMeasuresLoader.getRuleId(row), PastMeasuresLoader.getValue(row));
+      }
     }
+    return pastMeasures;
+  }
 
+  private void compareWithPastMeasures(DecoratorContext context, int index, int resourceId, PastMeasures pastMeasures) {
     // for each measure, search equivalent past measure
     for (Measure measure : context.getMeasures(MeasuresFilters.all())) {
       // compare with past measure
@@ -128,16 +149,16 @@ public class VariationDecorator implements Decorator {
         }
       }
 
-      Object[] pastMeasure = pastMeasuresByKey.get(new MeasureKey(metricId, characteristicId, personId, ruleId));
-      if (updateVariation(measure, pastMeasure, index)) {
+      Double pastValue = pastMeasures.getValue(resourceId, metricId, characteristicId, personId, ruleId);
+      if (updateVariation(measure, pastValue, index)) {
         context.saveMeasure(measure);
       }
     }
   }
 
-  boolean updateVariation(Measure measure, Object[] pastMeasure, int index) {
-    if (pastMeasure != null && PastMeasuresLoader.hasValue(pastMeasure) && measure.getValue() != null) {
-      double variation = measure.getValue() - PastMeasuresLoader.getValue(pastMeasure);
+  boolean updateVariation(Measure measure, @Nullable Double pastValue, int index) {
+    if (pastValue != null && measure.getValue() != null) {
+      double variation = measure.getValue() - pastValue;
       measure.setVariation(index, variation);
       return true;
     }
@@ -148,58 +169,4 @@ public class VariationDecorator implements Decorator {
   public String toString() {
     return getClass().getSimpleName();
   }
-
-  static final class MeasureKey {
-    int metricId;
-    Integer characteristicId;
-    Integer personId;
-    Integer ruleId;
-
-    MeasureKey(Object[] pastFields) {
-      metricId = PastMeasuresLoader.getMetricId(pastFields);
-      characteristicId = PastMeasuresLoader.getCharacteristicId(pastFields);
-      personId = PastMeasuresLoader.getPersonId(pastFields);
-      ruleId = PastMeasuresLoader.getRuleId(pastFields);
-    }
-
-    MeasureKey(int metricId, @Nullable Integer characteristicId, @Nullable Integer personId, @Nullable Integer ruleId) {
-      this.metricId = metricId;
-      this.characteristicId = characteristicId;
-      this.personId = personId;
-      this.ruleId = ruleId;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      MeasureKey that = (MeasureKey) o;
-      if (metricId != that.metricId) {
-        return false;
-      }
-      if (characteristicId != null ? !characteristicId.equals(that.characteristicId) : that.characteristicId != null) {
-        return false;
-      }
-      if (personId != null ? !personId.equals(that.personId) : that.personId != null) {
-        return false;
-      }
-      if (ruleId != null ? !ruleId.equals(that.ruleId) : that.ruleId != null) {
-        return false;
-      }
-      return true;
-    }
-
-    @Override
-    public int hashCode() {
-      int result = metricId;
-      result = 31 * result + (characteristicId != null ? characteristicId.hashCode() : 0);
-      result = 31 * result + (personId != null ? personId.hashCode() : 0);
-      result = 31 * result + (ruleId != null ? ruleId.hashCode() : 0);
-      return result;
-    }
-  }
 }
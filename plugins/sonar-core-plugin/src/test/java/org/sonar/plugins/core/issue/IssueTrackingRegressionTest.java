@@ -0,0 +1,184 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import org.junit.Test;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.db.IssueDto;
+import org.sonar.plugins.core.issue.tracking.FileHashes;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tracking of issues between the lines of small edited files. Past issues have no checksum, so that they are matched by their lines only.
+ */
+public class IssueTrackingRegressionTest {
+
+  private static final RuleKey RULE = RuleKey.of("squid", "AvoidCycle");
+  private static final RuleKey OTHER_RULE = RuleKey.of("pmd", "UnusedLocalVariable");
+
+  IssueTracking tracking = new IssueTracking();
+  long lastIssueId = 0;
+
+  @Test
+  public void issue_follows_line_moved_by_insertion() {
+    String[] reference = {"class A {", "void a() {", "foo();", "}", "}"};
+    String[] source = {"import B;", "", "class A {", "void a() {", "foo();", "}", "}"};
+    IssueDto lastIssue = lastIssue(3, RULE);
+    DefaultIssue newIssueOnImport = newIssue(source, 1, RULE);
+    DefaultIssue newIssueOnMovedLine = newIssue(source, 5, RULE);
+
+    IssueTrackingResult result = track(reference, source, Arrays.asList(lastIssue), Arrays.asList(newIssueOnImport, newIssueOnMovedLine));
+
+    assertThat(result.matching(newIssueOnImport)).isNull();
+    assertThat(result.matching(newIssueOnMovedLine)).isSameAs(lastIssue);
+  }
+
+  @Test
+  public void issue_follows_line_with_unique_context_rather_than_closest_line() {
+    String[] reference = new String[20];
+    for (int i = 0; i < reference.length; i++) {
+      reference[i] = "line" + (i + 1);
+    }
+    // lines 12 to 20 are moved at the beginning of file
+    String[] source = new String[20];
+    System.arraycopy(reference, 11, source, 0, 9);
+    System.arraycopy(reference, 0, source, 9, 11);
+    IssueDto lastIssue = lastIssue(6, RULE);
+    DefaultIssue newIssueOnSameLine = newIssue(source, 6, RULE);
+    DefaultIssue newIssueOnMovedLine = newIssue(source, 15, RULE);
+
+    IssueTrackingResult result = track(reference, source, Arrays.asList(lastIssue), Arrays.asList(newIssueOnSameLine, newIssueOnMovedLine));
+
+    assertThat(result.matching(newIssueOnSameLine)).isNull();
+    assertThat(result.matching(newIssueOnMovedLine)).isSameAs(lastIssue);
+  }
+
+  @Test
+  public void repeated_line_is_matched_in_longest_block() {
+    String[] reference = {"class A {", "void a() {", "return null;", "}", "void b() {", "b();", "}", "}"};
+    // method c() is inserted before a()
+    String[] source = {"class A {", "void c() {", "return null;", "}", "void a() {", "return null;", "}", "void b() {", "b();", "}", "}"};
+    IssueDto lastIssue = lastIssue(3, RULE);
+    DefaultIssue newIssueInC = newIssue(source, 3, RULE);
+    DefaultIssue newIssueInA = newIssue(source, 6, RULE);
+
+    IssueTrackingResult result = track(reference, source, Arrays.asList(lastIssue), Arrays.asList(newIssueInC, newIssueInA));
+
+    assertThat(result.matching(newIssueInC)).isNull();
+    assertThat(result.matching(newIssueInA)).isSameAs(lastIssue);
+  }
+
+  @Test
+  public void blocks_of_same_length_are_matched_by_closest_lines() {
+    String[] reference = {"class A {", "void a() {", "log();", "}", "}"};
+    // method a() is duplicated, both copies are in a block of 4 lines of the reference
+    String[] source = {"class A {", "void a() {", "log();", "}", "void a() {", "log();", "}", "}"};
+    IssueDto lastIssue = lastIssue(3, RULE);
+    DefaultIssue newIssueInCopy = newIssue(source, 6, RULE);
+    DefaultIssue newIssueInOriginal = newIssue(source, 3, RULE);
+
+    IssueTrackingResult result = track(reference, source, Arrays.asList(lastIssue), Arrays.asList(newIssueInCopy, newIssueInOriginal));
+
+    assertThat(result.matching(newIssueInCopy)).isNull();
+    assertThat(result.matching(newIssueInOriginal)).isSameAs(lastIssue);
+  }
+
+  @Test
+  public void issues_on_modified_lines_are_matched_by_closest_lines() {
+    String[] reference = {"a();", "b();", "c();", "d();", "e();"};
+    String[] source = {"a();", "b(1);", "c();", "d(1);", "e();"};
+    IssueDto lastIssueOnB = lastIssue(2, RULE);
+    IssueDto lastIssueOnD = lastIssue(4, RULE);
+    DefaultIssue newIssueOnE = newIssue(source, 5, RULE);
+    DefaultIssue newIssueOnD = newIssue(source, 4, RULE);
+    DefaultIssue newIssueOnB = newIssue(source, 2, RULE);
+
+    IssueTrackingResult result = track(reference, source, Arrays.asList(lastIssueOnB, lastIssueOnD), Arrays.asList(newIssueOnE, newIssueOnD, newIssueOnB));
+
+    assertThat(result.matching(newIssueOnE)).isNull();
+    assertThat(result.matching(newIssueOnD)).isSameAs(lastIssueOnD);
+    assertThat(result.matching(newIssueOnB)).isSameAs(lastIssueOnB);
+  }
+
+  @Test
+  public void issues_of_several_rules_on_same_line_are_matched_by_rule() {
+    String[] reference = {"class A {", "int i;", "void a(int j) {", "}", "}"};
+    String[] source = {"class A {", "int i;", "int k;", "int l;", "void a(int j) {", "}", "}"};
+    IssueDto lastIssue = lastIssue(3, RULE);
+    IssueDto otherLastIssue = lastIssue(3, OTHER_RULE);
+    DefaultIssue otherNewIssue = newIssue(source, 5, OTHER_RULE);
+    DefaultIssue newIssue = newIssue(source, 5, RULE);
+    DefaultIssue secondNewIssue = newIssue(source, 5, RULE);
+
+    IssueTrackingResult result = track(reference, source, Arrays.asList(lastIssue, otherLastIssue), Arrays.asList(otherNewIssue, newIssue, secondNewIssue));
+
+    assertThat(result.matching(otherNewIssue)).isSameAs(otherLastIssue);
+    assertThat(result.matching(newIssue)).isSameAs(lastIssue);
+    assertThat(result.matching(secondNewIssue)).isNull();
+  }
+
+  @Test
+  public void lines_are_not_compared_without_reference_hashes() {
+    String[] source = {"class A {", "", "void a() {", "foo();", "}", "}"};
+    IssueDto lastIssue = lastIssue(3, RULE);
+    DefaultIssue newIssueOnMovedLine = newIssue(source, 4, RULE);
+    DefaultIssue newIssueOnSameLine = newIssue(source, 3, RULE);
+
+    IssueTrackingResult result = track(null, source, Arrays.asList(lastIssue), Arrays.asList(newIssueOnMovedLine, newIssueOnSameLine));
+
+    assertThat(result.matching(newIssueOnMovedLine)).isNull();
+    assertThat(result.matching(newIssueOnSameLine)).isSameAs(lastIssue);
+  }
+
+  private IssueTrackingResult track(@Nullable String[] reference, String[] source, List<IssueDto> lastIssues, List<DefaultIssue> newIssues) {
+    SourceHashHolder sourceHashHolder = mock(SourceHashHolder.class);
+    when(sourceHashHolder.getHashedReference()).thenReturn(reference != null ? FileHashes.create(reference) : null);
+    when(sourceHashHolder.getHashedSource()).thenReturn(FileHashes.create(source));
+    IssueTrackingResult result = new IssueTrackingResult();
+    tracking.mapIssues(newIssues, lastIssues, sourceHashHolder, result);
+    return result;
+  }
+
+  private IssueDto lastIssue(int line, RuleKey ruleKey) {
+    IssueDto issue = new IssueDto();
+    Long id = lastIssueId++;
+    issue.setId(id);
+    issue.setKee("last" + id);
+    issue.setLine(line);
+    issue.setMessage("message");
+    issue.setRuleKey(ruleKey.repository(), ruleKey.rule());
+    issue.setStatus(Issue.STATUS_OPEN);
+    return issue;
+  }
+
+  private static DefaultIssue newIssue(String[] source, int line, RuleKey ruleKey) {
+    return new DefaultIssue().setLine(line).setMessage("message").setRuleKey(ruleKey).setChecksum(source[line - 1]).setStatus(Issue.STATUS_OPEN);
+  }
+}
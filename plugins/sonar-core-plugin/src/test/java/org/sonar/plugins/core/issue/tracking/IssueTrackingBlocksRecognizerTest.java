@@ -33,6 +33,17 @@ public class IssueTrackingBlocksRecognizerTest {
     assertThat(compute(t("bcde"), t("abcde"), 3, 4)).isEqualTo(4);
   }
 
+  @Test
+  public void same_block_for_each_pair_of_lines_of_block() {
+    IssueTrackingBlocksRecognizer rec = new IssueTrackingBlocksRecognizer(t("abcxde"), t("zabcde"));
+    assertThat(rec.computeLengthOfMaximalBlock(2, 3)).isEqualTo(3);
+    assertThat(rec.computeLengthOfMaximalBlock(1, 2)).isEqualTo(3);
+    assertThat(rec.computeLengthOfMaximalBlock(3, 4)).isEqualTo(3);
+    assertThat(rec.computeLengthOfMaximalBlock(4, 4)).isEqualTo(0);
+    assertThat(rec.computeLengthOfMaximalBlock(6, 6)).isEqualTo(2);
+    assertThat(rec.computeLengthOfMaximalBlock(5, 5)).isEqualTo(2);
+  }
+
   private static int compute(FileHashes a, FileHashes b, int ai, int bi) {
     IssueTrackingBlocksRecognizer rec = new IssueTrackingBlocksRecognizer(a, b);
     return rec.computeLengthOfMaximalBlock(ai, bi);
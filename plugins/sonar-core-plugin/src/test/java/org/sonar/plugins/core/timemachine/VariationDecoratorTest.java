@@ -33,6 +33,7 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
+import org.sonar.batch.components.PastMeasures;
 import org.sonar.batch.components.PastMeasuresLoader;
 import org.sonar.batch.components.PastSnapshot;
 import org.sonar.batch.components.TimeMachineConfiguration;
@@ -42,7 +43,9 @@ import java.util.Arrays;
 import java.util.Date;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -144,6 +147,45 @@ public class VariationDecoratorTest extends AbstractDbUnitTestCase {
     assertThat(violations.getVariation1()).isEqualTo(20.0);
   }
 
+  @Test
+  public void shouldLoadPastMeasuresOnceForAllResources() {
+    Resource dir1 = new Directory("org/foo").setId(1);
+    Resource dir2 = new Directory("org/bar").setId(2);
+
+    PastMeasuresLoader pastMeasuresLoader = mock(PastMeasuresLoader.class);
+    PastSnapshot pastSnapshot1 = new PastSnapshot("days", new Date()).setIndex(1);
+    PastSnapshot pastSnapshot2 = new PastSnapshot("days", new Date()).setIndex(2);
+
+    PastMeasures pastMeasures1 = new PastMeasures();
+    pastMeasures1.add(1, NCLOC_ID, null, null, null, 180.0);
+    pastMeasures1.add(2, NCLOC_ID, null, null, null, 50.0);
+    when(pastMeasuresLoader.loadPastMeasures(pastSnapshot1)).thenReturn(pastMeasures1);
+    PastMeasures pastMeasures2 = new PastMeasures();
+    pastMeasures2.add(2, NCLOC_ID, null, null, null, 30.0);
+    when(pastMeasuresLoader.loadPastMeasures(pastSnapshot2)).thenReturn(pastMeasures2);
+
+    VariationDecorator decorator = new VariationDecorator(pastMeasuresLoader, mock(MetricFinder.class), Arrays.asList(pastSnapshot1, pastSnapshot2), mock(RuleFinder.class));
+
+    DecoratorContext context1 = mock(DecoratorContext.class);
+    Measure ncloc1 = newMeasure(NCLOC, 200.0);
+    when(context1.getMeasures(Matchers.<MeasuresFilter>anyObject())).thenReturn(Arrays.asList(ncloc1));
+    decorator.decorate(dir1, context1);
+
+    DecoratorContext context2 = mock(DecoratorContext.class);
+    Measure ncloc2 = newMeasure(NCLOC, 60.0);
+    when(context2.getMeasures(Matchers.<MeasuresFilter>anyObject())).thenReturn(Arrays.asList(ncloc2));
+    decorator.decorate(dir2, context2);
+
+    verify(pastMeasuresLoader, times(1)).loadPastMeasures(pastSnapshot1);
+    verify(pastMeasuresLoader, times(1)).loadPastMeasures(pastSnapshot2);
+    verify(pastMeasuresLoader, never()).getPastMeasures(any(Resource.class), any(PastSnapshot.class));
+
+    assertThat(ncloc1.getVariation1()).isEqualTo(20.0);
+    assertThat(ncloc1.getVariation2()).isNull();
+    assertThat(ncloc2.getVariation1()).isEqualTo(10.0);
+    assertThat(ncloc2.getVariation2()).isEqualTo(30.0);
+  }
+
   private Measure newMeasure(Metric metric, double value) {
     return new Measure(metric, value);
   }
@@ -0,0 +1,299 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cpd;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DeprecatedDefaultInputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.SonarException;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.detector.suffixarray.SuffixArrayCloneDetectionAlgorithm;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.plugins.cpd.index.SonarDuplicationsIndex;
+
+import javax.annotation.CheckForNull;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Chunks files into blocks and detects duplications of several files concurrently. Blocks are inserted into the index
+ * and results are saved in the order of files by the calling thread, so that neither the index nor the sensor context
+ * need to be thread-safe for writes.
+ */
+class CpdExecutor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CpdExecutor.class);
+
+  /**
+   * Number of threads used to detect duplications. Default is the number of available processors.
+   */
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+
+  /**
+   * Limit of time to analyse one file (in seconds).
+   */
+  private static final int TIMEOUT = 5 * 60;
+
+  /**
+   * Maximum number of pending files per thread, in order to bound the number of results kept in memory.
+   */
+  private static final int PENDING_FILES_PER_THREAD = 4;
+
+  /**
+   * Algorithm used to detect duplications.
+   */
+  enum Algorithm {
+    SUFFIX_TREE("suffixTree") {
+      @Override
+      List<CloneGroup> detect(SonarDuplicationsIndex index, Collection<Block> fileBlocks) {
+        return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+      }
+    },
+
+    /**
+     * Same results as {@link #SUFFIX_TREE}, but with memory consumption, which is linear in the size of file.
+     * Intended for languages with very large (usually generated) files.
+     */
+    SUFFIX_ARRAY("suffixArray") {
+      @Override
+      List<CloneGroup> detect(SonarDuplicationsIndex index, Collection<Block> fileBlocks) {
+        return SuffixArrayCloneDetectionAlgorithm.detect(index, fileBlocks);
+      }
+    };
+
+    private final String key;
+
+    Algorithm(String key) {
+      this.key = key;
+    }
+
+    abstract List<CloneGroup> detect(SonarDuplicationsIndex index, Collection<Block> fileBlocks);
+  }
+
+  private final int threads;
+  private final long timeoutMillis;
+  private final Algorithm algorithm;
+
+  CpdExecutor(Settings settings, String languageKey) {
+    this(threads(settings), TimeUnit.SECONDS.toMillis(TIMEOUT), algorithm(settings, languageKey));
+  }
+
+  @VisibleForTesting
+  CpdExecutor(int threads, long timeoutMillis) {
+    this(threads, timeoutMillis, Algorithm.SUFFIX_TREE);
+  }
+
+  @VisibleForTesting
+  CpdExecutor(int threads, long timeoutMillis, Algorithm algorithm) {
+    this.threads = threads;
+    this.timeoutMillis = timeoutMillis;
+    this.algorithm = algorithm;
+  }
+
+  private static int threads(Settings settings) {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Key of property, which defines algorithm for given language - "suffixTree" (default) or "suffixArray".
+   */
+  static String algorithmProperty(String languageKey) {
+    return "sonar.cpd." + languageKey + ".algorithm";
+  }
+
+  private static Algorithm algorithm(Settings settings, String languageKey) {
+    String key = settings.getString(algorithmProperty(languageKey));
+    if (key == null) {
+      return Algorithm.SUFFIX_TREE;
+    }
+    for (Algorithm algorithm : Algorithm.values()) {
+      if (algorithm.key.equals(key)) {
+        return algorithm;
+      }
+    }
+    throw MessageException.of("Unknown algorithm of detection of duplications '" + key + "' in property " + algorithmProperty(languageKey));
+  }
+
+  int threads() {
+    return threads;
+  }
+
+  Algorithm algorithm() {
+    return algorithm;
+  }
+
+  /**
+   * Converts a file into blocks. Called concurrently by several threads, unless the index is populated by
+   * {@link #populateSequentially(SonarDuplicationsIndex, List, Chunker)}.
+   */
+  interface Chunker {
+    @CheckForNull
+    List<Block> chunk(InputFile inputFile, String resourceEffectiveKey);
+  }
+
+  /**
+   * Files are chunked by the calling thread, for chunkers which are not thread-safe.
+   */
+  void populateSequentially(SonarDuplicationsIndex index, List<InputFile> sourceFiles, Chunker chunker) {
+    for (InputFile inputFile : sourceFiles) {
+      LOG.debug("Populating index from {}", inputFile);
+      List<Block> blocks = chunker.chunk(inputFile, ((DeprecatedDefaultInputFile) inputFile).key());
+      if (blocks != null) {
+        index.insert(inputFile, blocks);
+      }
+    }
+  }
+
+  void populate(SonarDuplicationsIndex index, List<InputFile> sourceFiles, final Chunker chunker) {
+    ExecutorService executorService = newExecutorService();
+    try {
+      Deque<Future<List<Block>>> pendingChunks = new ArrayDeque<Future<List<Block>>>();
+      Deque<InputFile> pendingFiles = new ArrayDeque<InputFile>();
+      Iterator<InputFile> files = sourceFiles.iterator();
+      while (files.hasNext() || !pendingFiles.isEmpty()) {
+        while (files.hasNext() && pendingFiles.size() < threads * PENDING_FILES_PER_THREAD) {
+          final InputFile inputFile = files.next();
+          pendingFiles.add(inputFile);
+          pendingChunks.add(executorService.submit(new Callable<List<Block>>() {
+            @Override
+            public List<Block> call() {
+              LOG.debug("Populating index from {}", inputFile);
+              return chunker.chunk(inputFile, ((DeprecatedDefaultInputFile) inputFile).key());
+            }
+          }));
+        }
+        InputFile inputFile = pendingFiles.poll();
+        List<Block> blocks = waitFor(inputFile, pendingChunks.poll());
+        if (blocks != null) {
+          index.insert(inputFile, blocks);
+        }
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @CheckForNull
+  private static List<Block> waitFor(InputFile inputFile, Future<List<Block>> chunks) {
+    try {
+      return chunks.get();
+    } catch (InterruptedException e) {
+      throw new SonarException("Fail to populate index from " + inputFile, e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  void execute(SonarDuplicationsIndex index, SensorContext context, List<InputFile> sourceFiles, Predicate<CloneGroup> filter) {
+    ExecutorService executorService = newExecutorService();
+    try {
+      Deque<Task> pendingTasks = new ArrayDeque<Task>();
+      Iterator<InputFile> files = sourceFiles.iterator();
+      while (files.hasNext() || !pendingTasks.isEmpty()) {
+        while (files.hasNext() && pendingTasks.size() < threads * PENDING_FILES_PER_THREAD) {
+          Task task = new Task(index, files.next(), algorithm);
+          task.future = executorService.submit(task);
+          pendingTasks.add(task);
+        }
+        Task task = pendingTasks.poll();
+        List<CloneGroup> clones = waitFor(task);
+        JavaCpdEngine.save(context, task.inputFile, clones == null ? null : Iterables.filter(clones, filter));
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private ExecutorService newExecutorService() {
+    return Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("CPD-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  /**
+   * Waits for the result of the task. The timeout applies from the moment the task starts, not from the moment it is submitted.
+   */
+  @CheckForNull
+  private List<CloneGroup> waitFor(Task task) {
+    while (true) {
+      long startTime = task.startTime;
+      long remaining = startTime == 0L ? timeoutMillis : (startTime + timeoutMillis - System.currentTimeMillis());
+      try {
+        return task.future.get(Math.max(remaining, 0L), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        if (task.startTime != 0L && System.currentTimeMillis() - task.startTime >= timeoutMillis) {
+          task.future.cancel(true);
+          LOG.warn("Timeout during detection of duplications for " + task.inputFile, e);
+          return null;
+        }
+      } catch (InterruptedException e) {
+        throw new SonarException("Fail during detection of duplication for " + task.inputFile, e);
+      } catch (ExecutionException e) {
+        throw new SonarException("Fail during detection of duplication for " + task.inputFile, e);
+      }
+    }
+  }
+
+  private static class Task implements Callable<List<CloneGroup>> {
+    private final SonarDuplicationsIndex index;
+    private final InputFile inputFile;
+    private final Algorithm algorithm;
+    private Future<List<CloneGroup>> future;
+    private volatile long startTime = 0L;
+
+    Task(SonarDuplicationsIndex index, InputFile inputFile, Algorithm algorithm) {
+      this.index = index;
+      this.inputFile = inputFile;
+      this.algorithm = algorithm;
+    }
+
+    @Override
+    public List<CloneGroup> call() {
+      startTime = System.currentTimeMillis();
+      LOG.debug("Detection of duplications for {}", inputFile);
+      String resourceEffectiveKey = ((DeprecatedDefaultInputFile) inputFile).key();
+      Collection<Block> fileBlocks = index.getByInputFile(inputFile, resourceEffectiveKey);
+      return algorithm.detect(index, fileBlocks);
+    }
+  }
+}
@@ -21,7 +21,6 @@ package org.sonar.plugins.cpd;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,11 +29,9 @@ import org.sonar.api.batch.CpdMapping;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.fs.internal.DeprecatedDefaultInputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
-import org.sonar.api.utils.SonarException;
 import org.sonar.batch.duplication.BlockCache;
 import org.sonar.duplications.DuplicationPredicates;
 import org.sonar.duplications.block.Block;
@@ -46,23 +43,12 @@ import org.sonar.plugins.cpd.index.SonarDuplicationsIndex;
 
 import javax.annotation.Nullable;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 public class DefaultCpdEngine extends CpdEngine {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultCpdEngine.class);
 
-  /**
-   * Limit of time to analyse one file (in seconds).
-   */
-  private static final int TIMEOUT = 5 * 60;
-
   private final IndexFactory indexFactory;
   private final CpdMappings mappings;
   private final FileSystem fs;
@@ -105,54 +91,35 @@ public class DefaultCpdEngine extends CpdEngine {
     CpdMapping mapping = mappings.getMapping(languageKey);
 
     // Create index
+    CpdExecutor executor = new CpdExecutor(settings, languageKey);
     SonarDuplicationsIndex index = indexFactory.create(project, languageKey);
-    populateIndex(languageKey, sourceFiles, mapping, index);
+    executor.populateSequentially(index, sourceFiles, new BridgeChunker(mapping, getBlockSize(languageKey)));
 
     // Detect
     Predicate<CloneGroup> minimumTokensPredicate = DuplicationPredicates.numberOfUnitsNotLessThan(getMinimumTokens(languageKey));
-
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
-    try {
-      for (InputFile inputFile : sourceFiles) {
-        LOG.debug("Detection of duplications for {}", inputFile);
-        String resourceEffectiveKey = ((DeprecatedDefaultInputFile) inputFile).key();
-        Collection<Block> fileBlocks = index.getByInputFile(inputFile, resourceEffectiveKey);
-
-        Iterable<CloneGroup> filtered;
-        try {
-          List<CloneGroup> duplications = executorService.submit(new JavaCpdEngine.Task(index, fileBlocks)).get(TIMEOUT, TimeUnit.SECONDS);
-          filtered = Iterables.filter(duplications, minimumTokensPredicate);
-        } catch (TimeoutException e) {
-          filtered = null;
-          LOG.warn("Timeout during detection of duplications for " + inputFile, e);
-        } catch (InterruptedException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        } catch (ExecutionException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        }
-
-        JavaCpdEngine.save(context, inputFile, filtered);
-      }
-    } finally {
-      executorService.shutdown();
-    }
+    executor.execute(index, context, sourceFiles, minimumTokensPredicate);
   }
 
-  private void populateIndex(String languageKey, List<InputFile> sourceFiles, CpdMapping mapping, SonarDuplicationsIndex index) {
-    TokenizerBridge bridge = null;
-    if (mapping != null) {
-      bridge = new TokenizerBridge(mapping.getTokenizer(), fs.encoding().name(), getBlockSize(languageKey));
+  /**
+   * Tokenizers provided by plugins are not expected to be thread-safe, and {@link CpdMapping#getTokenizer()} may return
+   * the same instance on each call, so files are chunked by a single thread.
+   */
+  private class BridgeChunker implements CpdExecutor.Chunker {
+    private final TokenizerBridge bridge;
+
+    BridgeChunker(@Nullable CpdMapping mapping, int blockSize) {
+      this.bridge = mapping != null ? new TokenizerBridge(mapping.getTokenizer(), fs.encoding().name(), blockSize) : null;
     }
-    for (InputFile inputFile : sourceFiles) {
-      LOG.debug("Populating index from {}", inputFile);
-      String resourceEffectiveKey = ((DeprecatedDefaultInputFile) inputFile).key();
+
+    @Override
+    public List<Block> chunk(InputFile inputFile, String resourceEffectiveKey) {
       FileBlocks fileBlocks = blockCache.byComponent(resourceEffectiveKey);
       if (fileBlocks != null) {
-        index.insert(inputFile, fileBlocks.blocks());
+        return fileBlocks.blocks();
       } else if (bridge != null) {
-        List<Block> blocks2 = bridge.chunk(resourceEffectiveKey, inputFile.file());
-        index.insert(inputFile, blocks2);
+        return bridge.chunk(resourceEffectiveKey, inputFile.file());
       }
+      return null;
     }
   }
 
@@ -20,6 +20,7 @@
 
 package org.sonar.plugins.cpd;
 
+import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
@@ -29,7 +30,6 @@ import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.fs.internal.DeprecatedDefaultInputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.duplication.DuplicationBuilder;
 import org.sonar.api.batch.sensor.duplication.internal.DefaultDuplicationBuilder;
@@ -39,11 +39,11 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.api.utils.SonarException;
+import org.sonar.batch.duplication.BlockCache;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.BlockChunker;
-import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.block.FileBlocks;
 import org.sonar.duplications.index.CloneGroup;
-import org.sonar.duplications.index.CloneIndex;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.duplications.java.JavaStatementBuilder;
 import org.sonar.duplications.java.JavaTokenProducer;
@@ -59,13 +59,12 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.Collection;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.*;
 
 public class JavaCpdEngine extends CpdEngine {
 
@@ -73,25 +72,22 @@ public class JavaCpdEngine extends CpdEngine {
 
   private static final int BLOCK_SIZE = 10;
 
-  /**
-   * Limit of time to analyse one file (in seconds).
-   */
-  private static final int TIMEOUT = 5 * 60;
-
   private final IndexFactory indexFactory;
   private final FileSystem fs;
   private final Settings settings;
   private final Project project;
+  private final BlockCache blockCache;
 
-  public JavaCpdEngine(@Nullable Project project, IndexFactory indexFactory, FileSystem fs, Settings settings) {
+  public JavaCpdEngine(@Nullable Project project, IndexFactory indexFactory, FileSystem fs, Settings settings, BlockCache blockCache) {
     this.project = project;
     this.indexFactory = indexFactory;
     this.fs = fs;
     this.settings = settings;
+    this.blockCache = blockCache;
   }
 
-  public JavaCpdEngine(IndexFactory indexFactory, FileSystem fs, Settings settings) {
-    this(null, indexFactory, fs, settings);
+  public JavaCpdEngine(IndexFactory indexFactory, FileSystem fs, Settings settings, BlockCache blockCache) {
+    this(null, indexFactory, fs, settings, blockCache);
   }
 
   @Override
@@ -112,81 +108,66 @@ public class JavaCpdEngine extends CpdEngine {
     if (sourceFiles.isEmpty()) {
       return;
     }
-    SonarDuplicationsIndex index = createIndex(project, languageKey, sourceFiles);
-    detect(index, context, sourceFiles);
+    CpdExecutor executor = new CpdExecutor(settings, languageKey);
+    SonarDuplicationsIndex index = createIndex(executor, project, languageKey, sourceFiles);
+    detect(executor, index, context, sourceFiles);
   }
 
-  private SonarDuplicationsIndex createIndex(@Nullable Project project, String language, Iterable<InputFile> sourceFiles) {
-    final SonarDuplicationsIndex index = indexFactory.create(project, language);
+  private SonarDuplicationsIndex createIndex(CpdExecutor executor, @Nullable Project project, String language, List<InputFile> sourceFiles) {
+    SonarDuplicationsIndex index = indexFactory.create(project, language);
+    executor.populate(index, sourceFiles, new JavaChunker(fs.encoding(), blockCache));
+    return index;
+  }
 
-    TokenChunker tokenChunker = JavaTokenProducer.build();
-    StatementChunker statementChunker = JavaStatementBuilder.build();
-    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+  /**
+   * Token and statement chunkers are not thread-safe, so each thread gets its own instances.
+   */
+  private static class JavaChunker implements CpdExecutor.Chunker {
+    private final Charset encoding;
+    private final BlockCache blockCache;
+    private final BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+    private final ThreadLocal<TokenChunker> tokenChunker = new ThreadLocal<TokenChunker>() {
+      @Override
+      protected TokenChunker initialValue() {
+        return JavaTokenProducer.build();
+      }
+    };
+    private final ThreadLocal<StatementChunker> statementChunker = new ThreadLocal<StatementChunker>() {
+      @Override
+      protected StatementChunker initialValue() {
+        return JavaStatementBuilder.build();
+      }
+    };
 
-    for (InputFile inputFile : sourceFiles) {
-      LOG.debug("Populating index from {}", inputFile);
-      String resourceEffectiveKey = ((DeprecatedDefaultInputFile) inputFile).key();
+    JavaChunker(Charset encoding, BlockCache blockCache) {
+      this.encoding = encoding;
+      this.blockCache = blockCache;
+    }
 
-      List<Statement> statements;
+    @Override
+    public List<Block> chunk(InputFile inputFile, String resourceEffectiveKey) {
+      // blocks may have been computed by a sensor
+      FileBlocks fileBlocks = blockCache.byComponent(resourceEffectiveKey);
+      if (fileBlocks != null) {
+        return fileBlocks.blocks();
+      }
 
+      List<Statement> statements;
       Reader reader = null;
       try {
-        reader = new InputStreamReader(new FileInputStream(inputFile.file()), fs.encoding());
-        statements = statementChunker.chunk(tokenChunker.chunk(reader));
+        reader = new InputStreamReader(new FileInputStream(inputFile.file()), encoding);
+        statements = statementChunker.get().chunk(tokenChunker.get().chunk(reader));
       } catch (FileNotFoundException e) {
         throw new SonarException("Cannot find file " + inputFile.file(), e);
       } finally {
         IOUtils.closeQuietly(reader);
       }
-
-      List<Block> blocks = blockChunker.chunk(resourceEffectiveKey, statements);
-      index.insert(inputFile, blocks);
-    }
-
-    return index;
-  }
-
-  private void detect(SonarDuplicationsIndex index, org.sonar.api.batch.sensor.SensorContext context, List<InputFile> sourceFiles) {
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
-    try {
-      for (InputFile inputFile : sourceFiles) {
-        LOG.debug("Detection of duplications for {}", inputFile);
-        String resourceEffectiveKey = ((DeprecatedDefaultInputFile) inputFile).key();
-
-        Collection<Block> fileBlocks = index.getByInputFile(inputFile, resourceEffectiveKey);
-
-        List<CloneGroup> clones;
-        try {
-          clones = executorService.submit(new Task(index, fileBlocks)).get(TIMEOUT, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-          clones = null;
-          LOG.warn("Timeout during detection of duplications for " + inputFile, e);
-        } catch (InterruptedException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        } catch (ExecutionException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        }
-
-        save(context, inputFile, clones);
-      }
-    } finally {
-      executorService.shutdown();
+      return blockChunker.chunk(resourceEffectiveKey, statements);
     }
   }
 
-  static class Task implements Callable<List<CloneGroup>> {
-    private final CloneIndex index;
-    private final Collection<Block> fileBlocks;
-
-    public Task(CloneIndex index, Collection<Block> fileBlocks) {
-      this.index = index;
-      this.fileBlocks = fileBlocks;
-    }
-
-    @Override
-    public List<CloneGroup> call() {
-      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
-    }
+  private void detect(CpdExecutor executor, SonarDuplicationsIndex index, org.sonar.api.batch.sensor.SensorContext context, List<InputFile> sourceFiles) {
+    executor.execute(index, context, sourceFiles, Predicates.<CloneGroup>alwaysTrue());
   }
 
   static void save(org.sonar.api.batch.sensor.SensorContext context, InputFile inputFile, @Nullable Iterable<CloneGroup> duplications) {
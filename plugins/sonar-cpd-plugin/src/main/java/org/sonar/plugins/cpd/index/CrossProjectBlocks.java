@@ -0,0 +1,178 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cpd.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.DataUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blocks of other projects, packed into flat arrays and sorted by hash. Hashes are stored as longs and resource keys
+ * are replaced by int ids. Only hashes of 8 bytes, as produced by the block chunkers, are supported.
+ * <p>
+ * Blocks must be added by a single thread, then {@link #sort()} must be called. Queries can then be executed concurrently.
+ * </p>
+ */
+class CrossProjectBlocks {
+
+  private static final int HASH_LENGTH = 8;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final Map<String, Integer> resourceIdsByKey = Maps.newHashMap();
+  private final List<String> resourceKeys = Lists.newArrayList();
+
+  private long[] hashes = new long[INITIAL_CAPACITY];
+  private int[] resourceIds = new int[INITIAL_CAPACITY];
+  private int[] indexesInFile = new int[INITIAL_CAPACITY];
+  private int[] startLines = new int[INITIAL_CAPACITY];
+  private int[] endLines = new int[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /**
+   * @return false if hash is not supported
+   */
+  boolean add(String hexHash, String resourceKey, int indexInFile, int startLine, int endLine) {
+    if (hexHash.length() != HASH_LENGTH * 2) {
+      return false;
+    }
+    ensureCapacity();
+    hashes[size] = parseHex(hexHash);
+    resourceIds[size] = resourceId(resourceKey);
+    indexesInFile[size] = indexInFile;
+    startLines[size] = startLine;
+    endLines[size] = endLine;
+    size++;
+    return true;
+  }
+
+  void sort() {
+    DataUtils.sort(byHash);
+  }
+
+  int size() {
+    return size;
+  }
+
+  Collection<Block> getByHash(ByteArray hash) {
+    byte[] bytes = hash.getBytes();
+    if (bytes.length != HASH_LENGTH) {
+      return Collections.emptyList();
+    }
+    long value = 0L;
+    for (byte b : bytes) {
+      value = (value << 8) | (b & 0xFF);
+    }
+
+    // lower bound of hash
+    int index = 0;
+    int upper = size;
+    while (index < upper) {
+      int mid = (index + upper) >>> 1;
+      if (hashes[mid] < value) {
+        index = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    if (index == size || hashes[index] != value) {
+      return Collections.emptyList();
+    }
+
+    List<Block> result = Lists.newArrayList();
+    Block.Builder builder = Block.builder();
+    while (index < size && hashes[index] == value) {
+      result.add(builder
+        .setResourceId(resourceKeys.get(resourceIds[index]))
+        .setBlockHash(hash)
+        .setIndexInFile(indexesInFile[index])
+        .setLines(startLines[index], endLines[index])
+        .build());
+      index++;
+    }
+    return result;
+  }
+
+  private int resourceId(String resourceKey) {
+    Integer id = resourceIdsByKey.get(resourceKey);
+    if (id == null) {
+      id = resourceKeys.size();
+      resourceKeys.add(resourceKey);
+      resourceIdsByKey.put(resourceKey, id);
+    }
+    return id;
+  }
+
+  private void ensureCapacity() {
+    if (size < hashes.length) {
+      return;
+    }
+    int newCapacity = (hashes.length * 3) / 2 + 1;
+    hashes = Arrays.copyOf(hashes, newCapacity);
+    resourceIds = Arrays.copyOf(resourceIds, newCapacity);
+    indexesInFile = Arrays.copyOf(indexesInFile, newCapacity);
+    startLines = Arrays.copyOf(startLines, newCapacity);
+    endLines = Arrays.copyOf(endLines, newCapacity);
+  }
+
+  private static long parseHex(String hexHash) {
+    long value = 0L;
+    for (int i = 0; i < hexHash.length(); i++) {
+      value = (value << 4) | Character.digit(hexHash.charAt(i), 16);
+    }
+    return value;
+  }
+
+  private static void swap(int[] array, int i, int j) {
+    int tmp = array[i];
+    array[i] = array[j];
+    array[j] = tmp;
+  }
+
+  private final DataUtils.Sortable byHash = new DataUtils.Sortable() {
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void swap(int i, int j) {
+      long tmp = hashes[i];
+      hashes[i] = hashes[j];
+      hashes[j] = tmp;
+      CrossProjectBlocks.swap(resourceIds, i, j);
+      CrossProjectBlocks.swap(indexesInFile, i, j);
+      CrossProjectBlocks.swap(startLines, i, j);
+      CrossProjectBlocks.swap(endLines, i, j);
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      return hashes[i] < hashes[j];
+    }
+  };
+}
@@ -20,7 +20,8 @@
 package org.sonar.plugins.cpd.index;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.database.DatabaseSession;
@@ -35,23 +36,20 @@ import org.sonar.duplications.block.ByteArray;
 import javax.persistence.Query;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 public class DbDuplicationsIndex {
 
   private static final String RESOURCE_ID = "resourceId";
   private static final String LAST = "last";
 
-  private final Map<ByteArray, Collection<Block>> cache = Maps.newHashMap();
-
   private final int currentProjectSnapshotId;
   private final Integer lastSnapshotId;
   private final String languageKey;
   private final DuplicationDao dao;
   private final DatabaseSession session;
   private final ResourceCache resourceCache;
+  private volatile CrossProjectBlocks blocks;
 
   public DbDuplicationsIndex(Project currentProject, DuplicationDao dao,
     String language, DatabaseSession session, ResourceCache resourceCache) {
@@ -76,43 +74,39 @@ public class DbDuplicationsIndex {
     return resourceCache.get(((DefaultInputFile) inputFile).key()).snapshotId();
   }
 
-  public void prepareCache(InputFile inputFile) {
-    int resourceSnapshotId = getSnapshotIdFor(inputFile);
-    List<DuplicationUnitDto> units = dao.selectCandidates(resourceSnapshotId, lastSnapshotId, languageKey);
-    cache.clear();
-    // TODO Godin: maybe remove conversion of units to blocks?
-    for (DuplicationUnitDto unit : units) {
-      String hash = unit.getHash();
-      String resourceKey = unit.getResourceKey();
-      int indexInFile = unit.getIndexInFile();
-      int startLine = unit.getStartLine();
-      int endLine = unit.getEndLine();
-
-      // TODO Godin: in fact we could work directly with id instead of key - this will allow to decrease memory consumption
-      Block block = Block.builder()
-        .setResourceId(resourceKey)
-        .setBlockHash(new ByteArray(hash))
-        .setIndexInFile(indexInFile)
-        .setLines(startLine, endLine)
-        .build();
-
-      // Group blocks by hash
-      Collection<Block> sameHash = cache.get(block.getBlockHash());
-      if (sameHash == null) {
-        sameHash = Lists.newArrayList();
-        cache.put(block.getBlockHash(), sameHash);
+  /**
+   * Blocks of other projects are loaded on first call, for the whole module in a single query. All the blocks
+   * of the module must have been inserted before.
+   */
+  public Collection<Block> getByHash(ByteArray hash) {
+    return crossProjectBlocks().getByHash(hash);
+  }
+
+  private CrossProjectBlocks crossProjectBlocks() {
+    CrossProjectBlocks result = blocks;
+    if (result == null) {
+      synchronized (this) {
+        result = blocks;
+        if (result == null) {
+          result = loadCrossProjectBlocks();
+          blocks = result;
+        }
       }
-      sameHash.add(block);
     }
+    return result;
   }
 
-  public Collection<Block> getByHash(ByteArray hash) {
-    Collection<Block> result = cache.get(hash);
-    if (result != null) {
-      return result;
-    } else {
-      return Collections.emptyList();
-    }
+  private CrossProjectBlocks loadCrossProjectBlocks() {
+    final CrossProjectBlocks result = new CrossProjectBlocks();
+    dao.selectModuleCandidates(currentProjectSnapshotId, lastSnapshotId, languageKey, new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext context) {
+        DuplicationUnitDto unit = (DuplicationUnitDto) context.getResultObject();
+        result.add(unit.getHash(), unit.getResourceKey(), unit.getIndexInFile(), unit.getStartLine(), unit.getEndLine());
+      }
+    });
+    result.sort();
+    return result;
   }
 
   public void insert(InputFile inputFile, Collection<Block> blocks) {
@@ -53,9 +53,6 @@ public class SonarDuplicationsIndex extends AbstractCloneIndex {
   }
 
   public Collection<Block> getByInputFile(InputFile inputFile, String resourceKey) {
-    if (db != null) {
-      db.prepareCache(inputFile);
-    }
     return mem.getByResourceId(resourceKey);
   }
 
@@ -0,0 +1,320 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cpd;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DeprecatedDefaultInputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorStorage;
+import org.sonar.api.batch.sensor.duplication.DuplicationBuilder;
+import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
+import org.sonar.api.batch.sensor.duplication.internal.DefaultDuplicationBuilder;
+import org.sonar.api.batch.sensor.measure.Measure;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.SonarException;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.plugins.cpd.index.SonarDuplicationsIndex;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CpdExecutorTest {
+
+  @Test
+  public void threads_default_to_available_processors() {
+    assertThat(new CpdExecutor(new Settings(), "java").threads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+    assertThat(new CpdExecutor(new Settings().setProperty(CpdExecutor.THREADS_PROPERTY, 3), "java").threads()).isEqualTo(3);
+  }
+
+  @Test
+  public void algorithm_is_selected_per_language() {
+    Settings settings = new Settings().setProperty("sonar.cpd.js.algorithm", "suffixArray");
+
+    assertThat(new CpdExecutor(settings, "java").algorithm()).isEqualTo(CpdExecutor.Algorithm.SUFFIX_TREE);
+    assertThat(new CpdExecutor(settings, "js").algorithm()).isEqualTo(CpdExecutor.Algorithm.SUFFIX_ARRAY);
+
+    settings.setProperty("sonar.cpd.java.algorithm", "suffixTree");
+    assertThat(new CpdExecutor(settings, "java").algorithm()).isEqualTo(CpdExecutor.Algorithm.SUFFIX_TREE);
+  }
+
+  @Test
+  public void fail_on_unknown_algorithm() {
+    try {
+      new CpdExecutor(new Settings().setProperty("sonar.cpd.java.algorithm", "foo"), "java");
+      fail();
+    } catch (MessageException e) {
+      assertThat(e.getMessage()).contains("'foo'").contains("sonar.cpd.java.algorithm");
+    }
+  }
+
+  @Test
+  public void suffix_array_saves_same_duplications_as_suffix_tree() {
+    Corpus corpus = new Corpus(200, 100, new Random(1));
+
+    List<SavedDuplications> suffixTree = detect(corpus, 2, CpdExecutor.Algorithm.SUFFIX_TREE);
+    List<SavedDuplications> suffixArray = detect(corpus, 2, CpdExecutor.Algorithm.SUFFIX_ARRAY);
+
+    assertThat(suffixTree).isNotEmpty();
+    assertThat(suffixArray).hasSize(suffixTree.size());
+    for (int i = 0; i < suffixTree.size(); i++) {
+      // groups might be saved in a different order
+      assertThat(suffixArray.get(i).inputFile).isEqualTo(suffixTree.get(i).inputFile);
+      assertThat(suffixArray.get(i).groups).hasSize(suffixTree.get(i).groups.size());
+      assertThat(suffixArray.get(i).groups).containsOnly(suffixTree.get(i).groups.toArray());
+    }
+  }
+
+  @Test
+  public void results_do_not_depend_on_number_of_threads() {
+    Corpus corpus = new Corpus(30, 50, new Random(1));
+
+    List<SavedDuplications> sequential = detect(corpus, 1);
+    List<SavedDuplications> parallel = detect(corpus, 4);
+
+    assertThat(sequential).isNotEmpty();
+    assertThat(parallel).isEqualTo(sequential);
+  }
+
+  @Test
+  public void timeout_applies_per_file() {
+    final InputFile slowFile = new DeprecatedDefaultInputFile("foo", "src/Slow.java");
+    InputFile otherFile = new DeprecatedDefaultInputFile("foo", "src/Other.java");
+    SonarDuplicationsIndex index = mock(SonarDuplicationsIndex.class);
+    when(index.getByInputFile(any(InputFile.class), anyString())).thenAnswer(new Answer<Collection<Block>>() {
+      @Override
+      public Collection<Block> answer(InvocationOnMock invocation) throws Throwable {
+        if (invocation.getArguments()[0] == slowFile) {
+          Thread.sleep(5000L);
+        }
+        return Collections.emptyList();
+      }
+    });
+    SensorContext context = mock(SensorContext.class);
+
+    long start = System.currentTimeMillis();
+    new CpdExecutor(2, 200L).execute(index, context, Lists.newArrayList(slowFile, otherFile), Predicates.<CloneGroup>alwaysTrue());
+
+    assertThat(System.currentTimeMillis() - start).isLessThan(5000L);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void populate_index_in_order_of_files() {
+    List<InputFile> files = Lists.newArrayList();
+    for (int i = 0; i < 50; i++) {
+      files.add(new DeprecatedDefaultInputFile("foo", "src/File" + i + ".java"));
+    }
+    SonarDuplicationsIndex index = mock(SonarDuplicationsIndex.class);
+
+    new CpdExecutor(4, 60000L).populate(index, files, new CpdExecutor.Chunker() {
+      @Override
+      public List<Block> chunk(InputFile inputFile, String resourceEffectiveKey) {
+        if (inputFile.relativePath().endsWith("7.java")) {
+          // nothing to index
+          return null;
+        }
+        return Collections.singletonList(Block.builder()
+          .setResourceId(resourceEffectiveKey)
+          .setBlockHash(new ByteArray(resourceEffectiveKey.hashCode()))
+          .setIndexInFile(0)
+          .setLines(1, 10)
+          .build());
+      }
+    });
+
+    InOrder inOrder = inOrder(index);
+    for (InputFile file : files) {
+      if (file.relativePath().endsWith("7.java")) {
+        verify(index, never()).insert(eq(file), anyListOf(Block.class));
+      } else {
+        inOrder.verify(index).insert(eq(file), anyListOf(Block.class));
+      }
+    }
+  }
+
+  @Test
+  public void populate_index_sequentially_on_calling_thread() {
+    List<InputFile> files = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      files.add(new DeprecatedDefaultInputFile("foo", "src/File" + i + ".java"));
+    }
+    SonarDuplicationsIndex index = mock(SonarDuplicationsIndex.class);
+    final Thread callingThread = Thread.currentThread();
+
+    new CpdExecutor(4, 60000L).populateSequentially(index, files, new CpdExecutor.Chunker() {
+      @Override
+      public List<Block> chunk(InputFile inputFile, String resourceEffectiveKey) {
+        assertThat(Thread.currentThread()).isSameAs(callingThread);
+        return Collections.singletonList(Block.builder()
+          .setResourceId(resourceEffectiveKey)
+          .setBlockHash(new ByteArray(resourceEffectiveKey.hashCode()))
+          .setIndexInFile(0)
+          .setLines(1, 10)
+          .build());
+      }
+    });
+
+    InOrder inOrder = inOrder(index);
+    for (InputFile file : files) {
+      inOrder.verify(index).insert(eq(file), anyListOf(Block.class));
+    }
+  }
+
+  @Test
+  public void fail_to_populate_index() {
+    SonarDuplicationsIndex index = mock(SonarDuplicationsIndex.class);
+    InputFile file = new DeprecatedDefaultInputFile("foo", "src/Foo.java");
+
+    try {
+      new CpdExecutor(2, 60000L).populate(index, Lists.newArrayList(file), new CpdExecutor.Chunker() {
+        @Override
+        public List<Block> chunk(InputFile inputFile, String resourceEffectiveKey) {
+          throw new SonarException("Cannot find file " + inputFile.relativePath());
+        }
+      });
+      fail();
+    } catch (SonarException e) {
+      assertThat(e.getMessage()).isEqualTo("Cannot find file src/Foo.java");
+    }
+  }
+
+  private static List<SavedDuplications> detect(Corpus corpus, int threads) {
+    return detect(corpus, threads, CpdExecutor.Algorithm.SUFFIX_TREE);
+  }
+
+  private static List<SavedDuplications> detect(Corpus corpus, int threads, CpdExecutor.Algorithm algorithm) {
+    final List<SavedDuplications> saved = Lists.newArrayList();
+    final SensorStorage storage = mock(SensorStorage.class);
+    SensorContext context = mock(SensorContext.class);
+    when(context.newMeasure()).then(new Answer<Measure>() {
+      @Override
+      public Measure answer(InvocationOnMock invocation) throws Throwable {
+        return new DefaultMeasure(storage);
+      }
+    });
+    when(context.duplicationBuilder(any(InputFile.class))).then(new Answer<DuplicationBuilder>() {
+      @Override
+      public DuplicationBuilder answer(InvocationOnMock invocation) throws Throwable {
+        return new DefaultDuplicationBuilder((InputFile) invocation.getArguments()[0]);
+      }
+    });
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        saved.add(new SavedDuplications((InputFile) invocation.getArguments()[0], (List<DuplicationGroup>) invocation.getArguments()[1]));
+        return null;
+      }
+    }).when(context).saveDuplications(any(InputFile.class), anyListOf(DuplicationGroup.class));
+
+    new CpdExecutor(threads, 60000L, algorithm).execute(corpus.index, context, corpus.files, Predicates.<CloneGroup>alwaysTrue());
+    return saved;
+  }
+
+  /**
+   * Synthetic files made of random blocks, where some sequences of blocks are copied in several files.
+   */
+  static class Corpus {
+    final List<InputFile> files = Lists.newArrayList();
+    final SonarDuplicationsIndex index = new SonarDuplicationsIndex();
+
+    Corpus(int fileCount, int blocksPerFile, Random random) {
+      List<ByteArray> sharedHashes = Lists.newArrayList();
+      for (int i = 0; i < 20; i++) {
+        sharedHashes.add(new ByteArray(random.nextLong()));
+      }
+      for (int f = 0; f < fileCount; f++) {
+        DeprecatedDefaultInputFile file = new DeprecatedDefaultInputFile("foo", "src/File" + f + ".java");
+        file.setLines(blocksPerFile + 10);
+        List<Block> blocks = Lists.newArrayList();
+        for (int b = 0; b < blocksPerFile; b++) {
+          ByteArray hash;
+          if (b < sharedHashes.size() && f % 3 == 0) {
+            hash = sharedHashes.get(b);
+          } else {
+            hash = new ByteArray(random.nextLong());
+          }
+          blocks.add(Block.builder()
+            .setResourceId(file.key())
+            .setBlockHash(hash)
+            .setIndexInFile(b)
+            .setLines(b + 1, b + 10)
+            .setUnit(b, b + 10)
+            .build());
+        }
+        index.insert(file, blocks);
+        files.add(file);
+      }
+    }
+  }
+
+  private static class SavedDuplications {
+    private final InputFile inputFile;
+    private final List<DuplicationGroup> groups;
+
+    SavedDuplications(InputFile inputFile, List<DuplicationGroup> groups) {
+      this.inputFile = inputFile;
+      this.groups = groups;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SavedDuplications)) {
+        return false;
+      }
+      SavedDuplications other = (SavedDuplications) o;
+      return inputFile.equals(other.inputFile) && groups.equals(other.groups);
+    }
+
+    @Override
+    public int hashCode() {
+      return inputFile.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return inputFile + "=" + groups;
+    }
+  }
+}
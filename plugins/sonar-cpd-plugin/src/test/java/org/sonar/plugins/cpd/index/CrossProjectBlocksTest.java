@@ -0,0 +1,88 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cpd.index;
+
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+
+import java.util.Collection;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CrossProjectBlocksTest {
+
+  @Test
+  public void should_group_blocks_by_hash() {
+    CrossProjectBlocks blocks = new CrossProjectBlocks();
+    blocks.add("ffffffffffffffff", "bar", 2, 5, 8);
+    blocks.add("0000000000000001", "foo", 0, 1, 4);
+    blocks.add("ffffffffffffffff", "foo", 3, 6, 9);
+    blocks.add("7fffffffffffffff", "baz", 1, 2, 3);
+    blocks.sort();
+
+    assertThat(blocks.size()).isEqualTo(4);
+
+    Collection<Block> result = blocks.getByHash(new ByteArray("ffffffffffffffff"));
+    assertThat(result).hasSize(2);
+    assertThat(result).containsOnly(
+      Block.builder().setResourceId("bar").setBlockHash(new ByteArray("ffffffffffffffff")).setIndexInFile(2).setLines(5, 8).build(),
+      Block.builder().setResourceId("foo").setBlockHash(new ByteArray("ffffffffffffffff")).setIndexInFile(3).setLines(6, 9).build());
+
+    Block block = blocks.getByHash(new ByteArray("0000000000000001")).iterator().next();
+    assertThat(block.getResourceId()).isEqualTo("foo");
+    assertThat(block.getIndexInFile()).isEqualTo(0);
+    assertThat(block.getStartLine()).isEqualTo(1);
+    assertThat(block.getEndLine()).isEqualTo(4);
+
+    assertThat(blocks.getByHash(new ByteArray("7fffffffffffffff"))).hasSize(1);
+  }
+
+  @Test
+  public void should_return_empty_for_unknown_hash() {
+    CrossProjectBlocks blocks = new CrossProjectBlocks();
+    assertThat(blocks.getByHash(new ByteArray("0000000000000001"))).isEmpty();
+
+    blocks.add("0000000000000002", "foo", 0, 1, 4);
+    blocks.sort();
+    assertThat(blocks.getByHash(new ByteArray("0000000000000001"))).isEmpty();
+    assertThat(blocks.getByHash(new ByteArray("0000000000000003"))).isEmpty();
+    assertThat(blocks.getByHash(new ByteArray("aa"))).isEmpty();
+  }
+
+  @Test
+  public void should_ignore_unsupported_hashes() {
+    CrossProjectBlocks blocks = new CrossProjectBlocks();
+    assertThat(blocks.add("aa", "foo", 0, 1, 4)).isFalse();
+    assertThat(blocks.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_grow() {
+    CrossProjectBlocks blocks = new CrossProjectBlocks();
+    for (int i = 0; i < 5000; i++) {
+      blocks.add(String.format("%016x", (long) (i % 100)), "file" + (i % 7), i, i, i + 1);
+    }
+    blocks.sort();
+    assertThat(blocks.size()).isEqualTo(5000);
+    assertThat(blocks.getByHash(new ByteArray(String.format("%016x", 42L)))).hasSize(50);
+  }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.scm.git;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.scm.BlameLine;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Blame of the files of a Git repository, as computed during previous analyses. It is stored in the
+ * SonarQube user home (scm/git/<hash of work tree path>/blame.bin) rather than in the Git directory, which
+ * can be read-only or even be a file (worktrees, submodules).
+ */
+class GitBlameCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GitBlameCache.class);
+
+  private static final int VERSION = 2;
+
+  private final File workTree;
+  private final File file;
+  private final Map<String, Entry> entriesByPath = new ConcurrentHashMap<String, Entry>();
+
+  private GitBlameCache(File workTree, @Nullable File file) {
+    this.workTree = workTree;
+    this.file = file;
+  }
+
+  @CheckForNull
+  Entry get(String path) {
+    return entriesByPath.get(path);
+  }
+
+  void put(String path, Entry entry) {
+    entriesByPath.put(path, entry);
+  }
+
+  int size() {
+    return entriesByPath.size();
+  }
+
+  /**
+   * Location of the cache of a repository in the user home
+   */
+  static File file(File userHome, File workTree) {
+    return new File(new File(userHome, "scm/git/" + DigestUtils.md5Hex(workTree.getAbsolutePath())), "blame.bin");
+  }
+
+  /**
+   * @param file if null, then blame is not persisted
+   */
+  static GitBlameCache load(@Nullable File file, File workTree) {
+    GitBlameCache cache = new GitBlameCache(workTree, file);
+    if (file != null && file.exists()) {
+      try {
+        cache.read();
+      } catch (IOException e) {
+        LOG.warn("Fail to read Git blame cache " + cache.file + ". It will be rebuilt.", e);
+        cache.entriesByPath.clear();
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Writes the cache. Blame of the files that do not exist anymore is dropped. The cache is written to a temporary
+   * file which is then renamed, so that concurrent analyses of the same repository don't write to the same file.
+   */
+  void save() {
+    if (file == null) {
+      return;
+    }
+    File tmpFile = null;
+    DataOutputStream output = null;
+    try {
+      file.getParentFile().mkdirs();
+      tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      output = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile))));
+      write(output);
+      output.close();
+      output = null;
+      if (file.exists() && !file.delete()) {
+        throw new IOException("Fail to delete " + file);
+      }
+      if (!tmpFile.renameTo(file)) {
+        throw new IOException("Fail to rename " + tmpFile + " to " + file);
+      }
+    } catch (IOException e) {
+      LOG.warn("Fail to write Git blame cache " + file, e);
+    } finally {
+      Closeables.closeQuietly(output);
+      if (tmpFile != null) {
+        tmpFile.delete();
+      }
+    }
+  }
+
+  private void write(DataOutputStream output) throws IOException {
+    Map<String, Entry> entries = Maps.newHashMap();
+    for (Map.Entry<String, Entry> entry : entriesByPath.entrySet()) {
+      if (new File(workTree, entry.getKey()).exists()) {
+        entries.put(entry.getKey(), entry.getValue());
+      }
+    }
+    output.writeInt(VERSION);
+    output.writeUTF(workTree.getAbsolutePath());
+    output.writeInt(entries.size());
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      output.writeUTF(entry.getKey());
+      entry.getValue().write(output);
+    }
+  }
+
+  private void read() throws IOException {
+    DataInputStream input = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+    try {
+      if (input.readInt() != VERSION || !workTree.getAbsolutePath().equals(input.readUTF())) {
+        return;
+      }
+      int size = input.readInt();
+      for (int i = 0; i < size; i++) {
+        String path = input.readUTF();
+        entriesByPath.put(path, Entry.read(input));
+      }
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Blame of a file at a given commit
+   */
+  static class Entry {
+    private final String commit;
+    private final String blob;
+    private final List<BlameLine> lines;
+
+    Entry(String commit, String blob, List<BlameLine> lines) {
+      this.commit = commit;
+      this.blob = blob;
+      this.lines = Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Sha1 of the commit that was blamed
+     */
+    String commit() {
+      return commit;
+    }
+
+    /**
+     * Sha1 of the blamed content of the file
+     */
+    String blob() {
+      return blob;
+    }
+
+    List<BlameLine> lines() {
+      return lines;
+    }
+
+    /**
+     * Lines usually refer to a few revisions only, so each revision is written once then lines
+     * are written as indexes of revisions.
+     */
+    private void write(DataOutputStream output) throws IOException {
+      output.writeUTF(commit);
+      output.writeUTF(blob);
+      Map<BlameLine, Integer> indexes = Maps.newLinkedHashMap();
+      for (BlameLine line : lines) {
+        if (!indexes.containsKey(line)) {
+          indexes.put(line, indexes.size());
+        }
+      }
+      output.writeInt(indexes.size());
+      for (BlameLine line : indexes.keySet()) {
+        output.writeUTF(line.revision());
+        output.writeLong(line.date().getTime());
+        output.writeUTF(line.author() != null ? line.author() : "");
+      }
+      output.writeInt(lines.size());
+      for (BlameLine line : lines) {
+        output.writeInt(indexes.get(line));
+      }
+    }
+
+    private static Entry read(DataInputStream input) throws IOException {
+      String commit = input.readUTF();
+      String blob = input.readUTF();
+      int revisions = input.readInt();
+      List<BlameLine> distinctLines = new ArrayList<BlameLine>(revisions);
+      for (int i = 0; i < revisions; i++) {
+        String revision = input.readUTF();
+        Date date = new Date(input.readLong());
+        String author = input.readUTF();
+        distinctLines.add(new BlameLine().revision(revision).date(date).author(author.isEmpty() ? null : author));
+      }
+      int size = input.readInt();
+      List<BlameLine> lines = new ArrayList<BlameLine>(size);
+      for (int i = 0; i < size; i++) {
+        lines.add(distinctLines.get(input.readInt()));
+      }
+      return new Entry(commit, blob, lines);
+    }
+  }
+}
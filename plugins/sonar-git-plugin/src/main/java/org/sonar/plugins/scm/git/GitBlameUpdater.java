@@ -0,0 +1,145 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.scm.git;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.sonar.api.batch.scm.BlameLine;
+
+import javax.annotation.CheckForNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Updates the blame of a file computed at a previous commit, by replaying the changes of the commits
+ * that touched the file since then. Only changed lines are attributed to new commits, other lines keep
+ * their previous blame.
+ * <p/>
+ * Merges are not supported, so the caller is expected to fall back on a complete blame when
+ * no result is returned.
+ */
+class GitBlameUpdater {
+
+  // Same algorithm and comparator than JGit blame executed with -w option
+  private static final DiffAlgorithm DIFF = new HistogramDiff();
+  private static final RawTextComparator COMPARATOR = RawTextComparator.WS_IGNORE_ALL;
+
+  private final Repository repo;
+
+  GitBlameUpdater(Repository repo) {
+    this.repo = repo;
+  }
+
+  /**
+   * @param previous blame of the file at a commit which is an ancestor of head
+   * @param headBlob id of the content of the file at head
+   * @return the blame of the file at head, or null if it can't be deduced from the previous blame
+   */
+  @CheckForNull
+  List<BlameLine> update(String path, GitBlameCache.Entry previous, RevCommit head, ObjectId headBlob) throws IOException {
+    if (previous.blob().equals(headBlob.name())) {
+      return previous.lines();
+    }
+    ObjectId blob = ObjectId.fromString(previous.blob());
+    RawText text = rawText(blob);
+    if (text.size() != previous.lines().size()) {
+      return null;
+    }
+
+    List<BlameLine> lines = previous.lines();
+    RevWalk walk = new RevWalk(repo);
+    try {
+      walk.setTreeFilter(AndTreeFilter.create(PathFilter.create(path), TreeFilter.ANY_DIFF));
+      walk.sort(RevSort.TOPO);
+      walk.sort(RevSort.REVERSE, true);
+      walk.markStart(walk.parseCommit(head));
+      walk.markUninteresting(walk.parseCommit(ObjectId.fromString(previous.commit())));
+      for (RevCommit commit : walk) {
+        if (commit.getParentCount() > 1) {
+          return null;
+        }
+        ObjectId commitBlob = blobId(repo, commit, path);
+        if (commitBlob == null) {
+          // file deleted then restored
+          return null;
+        }
+        RawText commitText = rawText(commitBlob);
+        lines = apply(lines, DIFF.diff(COMPARATOR, text, commitText), commitText.size(), commit);
+        blob = commitBlob;
+        text = commitText;
+      }
+    } finally {
+      walk.release();
+    }
+    return blob.equals(headBlob) ? lines : null;
+  }
+
+  /**
+   * Id of the content of the file in the given commit, or null if the file does not exist in the commit.
+   */
+  @CheckForNull
+  static ObjectId blobId(Repository repo, RevCommit commit, String path) throws IOException {
+    TreeWalk treeWalk = TreeWalk.forPath(repo, path, commit.getTree());
+    if (treeWalk == null) {
+      return null;
+    }
+    try {
+      return treeWalk.getObjectId(0);
+    } finally {
+      treeWalk.release();
+    }
+  }
+
+  private RawText rawText(ObjectId blob) throws IOException {
+    return new RawText(repo.open(blob, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+  }
+
+  private static List<BlameLine> apply(List<BlameLine> lines, EditList edits, int newSize, RevCommit commit) {
+    PersonIdent author = commit.getAuthorIdent();
+    List<BlameLine> result = new ArrayList<BlameLine>(newSize);
+    int index = 0;
+    for (Edit edit : edits) {
+      result.addAll(lines.subList(index, edit.getBeginA()));
+      for (int i = edit.getBeginB(); i < edit.getEndB(); i++) {
+        result.add(new BlameLine().revision(commit.getName()).date(author.getWhen()).author(author.getEmailAddress()));
+      }
+      index = edit.getEndA();
+    }
+    result.addAll(lines.subList(index, lines.size()));
+    return result;
+  }
+}
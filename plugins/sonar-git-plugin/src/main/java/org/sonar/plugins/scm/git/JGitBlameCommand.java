@@ -19,36 +19,89 @@
  */
 package org.sonar.plugins.scm.git;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.scm.BlameCommand;
 import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+/**
+ * Blame is computed in parallel by a thread pool which is shared by all the modules. When the previous
+ * blame of a file is available in {@link GitBlameCache}, then only the changes since the previously
+ * blamed commit are applied.
+ */
 public class JGitBlameCommand extends BlameCommand {
 
   private static final Logger LOG = LoggerFactory.getLogger(JGitBlameCommand.class);
 
   private final PathResolver pathResolver;
+  private final File userHome;
+  private final Map<File, GitBlameCache> cachesByWorkTree = Maps.newHashMap();
+  private ExecutorService executorService;
+
+  public JGitBlameCommand(PathResolver pathResolver, Settings settings) {
+    this(pathResolver, userHome(settings));
+  }
 
-  public JGitBlameCommand(PathResolver pathResolver) {
+  /**
+   * @param userHome directory of the persistent cache. If null, then all files are completely blamed on each analysis
+   */
+  @VisibleForTesting
+  JGitBlameCommand(PathResolver pathResolver, @Nullable File userHome) {
     this.pathResolver = pathResolver;
+    this.userHome = userHome;
+  }
+
+  /**
+   * Same resolution of the user home as the file cache of the batch
+   */
+  private static File userHome(Settings settings) {
+    String path = settings.getString("sonar.userHome");
+    if (path == null) {
+      path = System.getenv("SONAR_USER_HOME");
+    }
+    if (path == null) {
+      path = System.getProperty("user.home") + File.separator + ".sonar";
+    }
+    return new File(path);
   }
 
   @Override
@@ -58,14 +111,139 @@ public class JGitBlameCommand extends BlameCommand {
     try {
       Git git = Git.wrap(repo);
       File gitBaseDir = repo.getWorkTree();
-      ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() + 1);
-      List<Future<Void>> tasks = submitTasks(input, output, git, gitBaseDir, executorService);
+      GitBlameCache cache = cache(repo);
+      RevCommit head = parseHead(repo);
+      List<String> paths = Lists.newArrayList();
+      for (InputFile inputFile : input.filesToBlame()) {
+        paths.add(pathResolver.relativePath(gitBaseDir, inputFile.file()));
+      }
+      Set<String> reusableCommits = reusableCommits(repo, head, cache, paths);
+      Map<String, ObjectId> committedBlobIds = committedBlobIds(repo, head, paths);
+      BlameContext context = new BlameContext(git, gitBaseDir, cache, head, reusableCommits, committedBlobIds);
+      List<Future<Void>> tasks = submitTasks(input, output, context, executorService());
       waitForTaskToComplete(tasks);
     } finally {
       repo.close();
     }
   }
 
+  /**
+   * Called by the container at the end of the analysis
+   */
+  public synchronized void stop() {
+    if (executorService != null) {
+      executorService.shutdown();
+      executorService = null;
+    }
+    for (GitBlameCache cache : cachesByWorkTree.values()) {
+      cache.save();
+    }
+    cachesByWorkTree.clear();
+  }
+
+  private synchronized ExecutorService executorService() {
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() + 1, new ThreadFactoryBuilder()
+        .setNameFormat("GitBlame-%d")
+        .setDaemon(true)
+        .build());
+    }
+    return executorService;
+  }
+
+  private synchronized GitBlameCache cache(Repository repo) {
+    File workTree = repo.getWorkTree();
+    GitBlameCache cache = cachesByWorkTree.get(workTree);
+    if (cache == null) {
+      cache = GitBlameCache.load(userHome != null ? GitBlameCache.file(userHome, workTree) : null, workTree);
+      cachesByWorkTree.put(workTree, cache);
+    }
+    return cache;
+  }
+
+  @CheckForNull
+  private static RevCommit parseHead(Repository repo) {
+    RevWalk walk = new RevWalk(repo);
+    try {
+      ObjectId headId = repo.resolve(Constants.HEAD);
+      return headId != null ? walk.parseCommit(headId) : null;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read HEAD of Git repository", e);
+    } finally {
+      walk.release();
+    }
+  }
+
+  /**
+   * Previously blamed commits that are ancestors of HEAD. Blame of other commits, for example
+   * on another branch, is ignored.
+   */
+  private static Set<String> reusableCommits(Repository repo, @Nullable RevCommit head, GitBlameCache cache, Collection<String> paths) {
+    if (head == null) {
+      return Collections.emptySet();
+    }
+    Set<String> commits = Sets.newHashSet();
+    for (String path : paths) {
+      GitBlameCache.Entry entry = cache.get(path);
+      if (entry != null) {
+        commits.add(entry.commit());
+      }
+    }
+    Set<String> reusableCommits = Sets.newHashSet();
+    RevWalk walk = new RevWalk(repo);
+    try {
+      for (String commit : commits) {
+        try {
+          if (walk.isMergedInto(walk.parseCommit(ObjectId.fromString(commit)), walk.parseCommit(head))) {
+            reusableCommits.add(commit);
+          }
+        } catch (IOException e) {
+          // for example commit dropped by a rebase
+          LOG.debug("Previous Git blame of commit " + commit + " can't be reused", e);
+        }
+        walk.reset();
+      }
+    } finally {
+      walk.release();
+    }
+    return reusableCommits;
+  }
+
+  /**
+   * Ids of the contents in HEAD of the files which have no local changes. As for "git status", the working tree is
+   * compared through the index, so that the conversion of line endings (core.autocrlf) is applied and the id of the
+   * index is reused when the file has not been touched since it was staged.
+   */
+  @VisibleForTesting
+  static Map<String, ObjectId> committedBlobIds(Repository repo, @Nullable RevCommit head, Collection<String> paths) {
+    Map<String, ObjectId> blobIds = Maps.newHashMap();
+    if (head == null || paths.isEmpty()) {
+      return blobIds;
+    }
+    TreeWalk treeWalk = new TreeWalk(repo);
+    try {
+      treeWalk.setRecursive(true);
+      treeWalk.setFilter(PathFilterGroup.createFromStrings(paths));
+      treeWalk.addTree(head.getTree());
+      int dirCacheTree = treeWalk.addTree(new DirCacheIterator(repo.readDirCache()));
+      FileTreeIterator workingTree = new FileTreeIterator(repo);
+      int workingTreeTree = treeWalk.addTree(workingTree);
+      workingTree.setDirCacheIterator(treeWalk, dirCacheTree);
+      while (treeWalk.next()) {
+        WorkingTreeIterator workingFile = treeWalk.getTree(workingTreeTree, WorkingTreeIterator.class);
+        ObjectId headBlobId = treeWalk.getObjectId(0);
+        if (treeWalk.getRawMode(0) != 0 && workingFile != null && headBlobId.equals(workingFile.getEntryObjectId())) {
+          blobIds.put(treeWalk.getPathString(), headBlobId);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to compare the working tree with HEAD", e);
+    } finally {
+      treeWalk.release();
+    }
+    return blobIds;
+  }
+
   private void waitForTaskToComplete(List<Future<Void>> tasks) {
     for (Future<Void> task : tasks) {
       try {
@@ -79,10 +257,10 @@ public class JGitBlameCommand extends BlameCommand {
     }
   }
 
-  private List<Future<Void>> submitTasks(BlameInput input, BlameOutput output, Git git, File gitBaseDir, ExecutorService executorService) {
+  private List<Future<Void>> submitTasks(BlameInput input, BlameOutput output, BlameContext context, ExecutorService executorService) {
     List<Future<Void>> tasks = new ArrayList<Future<Void>>();
     for (InputFile inputFile : input.filesToBlame()) {
-      tasks.add(submitTask(output, git, gitBaseDir, inputFile, executorService));
+      tasks.add(submitTask(output, context, inputFile, executorService));
     }
     return tasks;
   }
@@ -98,18 +276,42 @@ public class JGitBlameCommand extends BlameCommand {
     }
   }
 
-  private Future<Void> submitTask(final BlameOutput output, final Git git, final File gitBaseDir, final InputFile inputFile, ExecutorService executorService) {
+  private Future<Void> submitTask(final BlameOutput output, final BlameContext context, final InputFile inputFile, ExecutorService executorService) {
     return executorService.submit(new Callable<Void>() {
       @Override
-      public Void call() throws GitAPIException {
-        blame(output, git, gitBaseDir, inputFile);
+      public Void call() throws GitAPIException, IOException {
+        blame(output, context, inputFile);
         return null;
       }
     });
   }
 
-  private void blame(BlameOutput output, Git git, File gitBaseDir, InputFile inputFile) throws GitAPIException {
-    String filename = pathResolver.relativePath(gitBaseDir, inputFile.file());
+  private void blame(BlameOutput output, BlameContext context, InputFile inputFile) throws GitAPIException, IOException {
+    String filename = pathResolver.relativePath(context.gitBaseDir, inputFile.file());
+    Repository repo = context.git.getRepository();
+    ObjectId blobId = context.committedBlobIds.get(filename);
+    List<BlameLine> lines = null;
+    if (blobId != null) {
+      GitBlameCache.Entry previous = context.cache.get(filename);
+      if (previous != null && context.reusableCommits.contains(previous.commit())) {
+        lines = new GitBlameUpdater(repo).update(filename, previous, context.head, blobId);
+      }
+    }
+    if (lines == null) {
+      lines = blame(context.git, filename, inputFile);
+    }
+    if (blobId != null) {
+      context.cache.put(filename, new GitBlameCache.Entry(context.head.getName(), blobId.getName(), lines));
+    }
+    if (lines.size() == inputFile.lines() - 1) {
+      // SONARPLUGINS-3097 Git do not report blame on last empty line
+      lines = new ArrayList<BlameLine>(lines);
+      lines.add(lines.get(lines.size() - 1));
+    }
+    output.blameResult(inputFile, lines);
+  }
+
+  private List<BlameLine> blame(Git git, String filename, InputFile inputFile) throws GitAPIException {
     org.eclipse.jgit.blame.BlameResult blameResult = git.blame()
       // Equivalent to -w command line option
       .setTextComparator(RawTextComparator.WS_IGNORE_ALL)
@@ -124,11 +326,26 @@ public class JGitBlameCommand extends BlameCommand {
       lines.add(new org.sonar.api.batch.scm.BlameLine().date(blameResult.getSourceAuthor(i).getWhen()).revision(blameResult.getSourceCommit(i).getName())
         .author(blameResult.getSourceAuthor(i).getEmailAddress()));
     }
-    if (lines.size() == inputFile.lines() - 1) {
-      // SONARPLUGINS-3097 Git do not report blame on last empty line
-      lines.add(lines.get(lines.size() - 1));
+    return lines;
+  }
+
+  private static class BlameContext {
+    private final Git git;
+    private final File gitBaseDir;
+    private final GitBlameCache cache;
+    private final RevCommit head;
+    private final Set<String> reusableCommits;
+    private final Map<String, ObjectId> committedBlobIds;
+
+    BlameContext(Git git, File gitBaseDir, GitBlameCache cache, @Nullable RevCommit head, Set<String> reusableCommits,
+      Map<String, ObjectId> committedBlobIds) {
+      this.git = git;
+      this.gitBaseDir = gitBaseDir;
+      this.cache = cache;
+      this.head = head;
+      this.reusableCommits = reusableCommits;
+      this.committedBlobIds = committedBlobIds;
     }
-    output.blameResult(inputFile, lines);
   }
 
 }
@@ -23,6 +23,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 
 import java.io.File;
@@ -44,7 +45,7 @@ public class GitScmProviderTest {
 
   @Test
   public void returnImplem() {
-    JGitBlameCommand jblameCommand = new JGitBlameCommand(new PathResolver());
+    JGitBlameCommand jblameCommand = new JGitBlameCommand(new PathResolver(), new Settings());
     GitScmProvider gitScmProvider = new GitScmProvider(jblameCommand);
 
     assertThat(gitScmProvider.blameCommand()).isEqualTo(jblameCommand);
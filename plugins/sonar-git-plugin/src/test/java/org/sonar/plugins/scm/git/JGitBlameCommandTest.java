@@ -22,11 +22,17 @@ package org.sonar.plugins.scm.git;
 import com.google.common.io.Closeables;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
@@ -36,16 +42,23 @@ import org.sonar.api.batch.scm.BlameLine;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.utils.DateUtils;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.TimeZone;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -75,7 +88,7 @@ public class JGitBlameCommandTest {
     File projectDir = temp.newFolder();
     javaUnzip(new File("test-repos/dummy-git.zip"), projectDir);
 
-    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver());
+    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver(), temp.newFolder());
 
     File baseDir = new File(projectDir, "dummy-git");
     fs.setBaseDir(baseDir);
@@ -125,7 +138,7 @@ public class JGitBlameCommandTest {
     File projectDir = temp.newFolder();
     javaUnzip(new File("test-repos/dummy-git-nested.zip"), projectDir);
 
-    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver());
+    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver(), temp.newFolder());
 
     File baseDir = new File(projectDir, "dummy-git-nested/dummy-project");
     fs.setBaseDir(baseDir);
@@ -175,7 +188,7 @@ public class JGitBlameCommandTest {
     File projectDir = temp.newFolder();
     javaUnzip(new File("test-repos/dummy-git.zip"), projectDir);
 
-    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver());
+    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver(), temp.newFolder());
 
     File baseDir = new File(projectDir, "dummy-git");
     fs.setBaseDir(baseDir);
@@ -200,7 +213,7 @@ public class JGitBlameCommandTest {
     File projectDir = temp.newFolder();
     javaUnzip(new File("test-repos/dummy-git.zip"), projectDir);
 
-    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver());
+    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver(), temp.newFolder());
 
     File baseDir = new File(projectDir, "dummy-git");
     fs.setBaseDir(baseDir);
@@ -224,6 +237,86 @@ public class JGitBlameCommandTest {
     jGitBlameCommand.blame(input, blameResult);
   }
 
+  @Test
+  public void incremental_blame_is_equal_to_full_blame() throws Exception {
+    File baseDir = temp.newFolder();
+    fs.setBaseDir(baseDir);
+    Git git = Git.init().setDirectory(baseDir).call();
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < 10; i++) {
+      lines.add("line " + i);
+    }
+    commit(git, baseDir, lines, "john", 1);
+
+    File userHome = temp.newFolder();
+    assertThat(blame(baseDir, lines, userHome)).isEqualTo(blame(baseDir, lines, null));
+    // cache is stored in the user home and no temporary file is left
+    File cacheFile = GitBlameCache.file(userHome, baseDir);
+    assertThat(cacheFile.getParentFile().list()).containsOnly("blame.bin");
+    assertThat(new File(baseDir, ".git/sonar")).doesNotExist();
+
+    lines.set(2, "updated by jane");
+    lines.add(5, "added by jane");
+    commit(git, baseDir, lines, "jane", 2);
+    lines.remove(0);
+    lines.add("added by bob");
+    commit(git, baseDir, lines, "bob", 3);
+
+    List<BlameLine> incremental = blame(baseDir, lines, userHome);
+    assertThat(incremental).isEqualTo(blame(baseDir, lines, null));
+    assertThat(incremental.get(1).author()).isEqualTo("jane@sonarsource.com");
+    assertThat(incremental.get(4).author()).isEqualTo("jane@sonarsource.com");
+    assertThat(incremental.get(10).author()).isEqualTo("bob@sonarsource.com");
+    git.getRepository().close();
+  }
+
+  @Test
+  public void committed_content_is_compared_after_conversion_of_line_endings() throws Exception {
+    File baseDir = temp.newFolder();
+    Git git = Git.init().setDirectory(baseDir).call();
+    git.getRepository().getConfig().setString("core", null, "autocrlf", "true");
+    git.getRepository().getConfig().save();
+    commit(git, baseDir, Arrays.asList("line 1", "line 2"), "john", 1);
+    File file = new File(baseDir, DUMMY_JAVA);
+    List<String> paths = Arrays.asList(DUMMY_JAVA);
+
+    // file checked out with Windows line endings
+    FileUtils.write(file, "line 1\r\nline 2\r\n");
+    file.setLastModified(file.lastModified() + 10000L);
+    RevCommit head = new RevWalk(git.getRepository()).parseCommit(git.getRepository().resolve(Constants.HEAD));
+    assertThat(JGitBlameCommand.committedBlobIds(git.getRepository(), head, paths)).hasSize(1);
+
+    // local change
+    FileUtils.write(file, "line 1\r\nupdated line 2\r\n");
+    file.setLastModified(file.lastModified() + 10000L);
+    assertThat(JGitBlameCommand.committedBlobIds(git.getRepository(), head, paths)).isEmpty();
+    git.getRepository().close();
+  }
+
+  private List<BlameLine> blame(File baseDir, List<String> lines, @Nullable File userHome) {
+    DefaultInputFile inputFile = new DefaultInputFile("foo", DUMMY_JAVA)
+      .setFile(new File(baseDir, DUMMY_JAVA))
+      .setLines(lines.size());
+    when(input.filesToBlame()).thenReturn(Arrays.<InputFile>asList(inputFile));
+    BlameOutput blameResult = mock(BlameOutput.class);
+
+    JGitBlameCommand jGitBlameCommand = new JGitBlameCommand(new PathResolver(), userHome);
+    jGitBlameCommand.blame(input, blameResult);
+    jGitBlameCommand.stop();
+
+    ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+    verify(blameResult).blameResult(eq(inputFile), captor.capture());
+    return captor.getValue();
+  }
+
+  private static void commit(Git git, File baseDir, List<String> lines, String author, int minutes) throws Exception {
+    File file = new File(baseDir, DUMMY_JAVA);
+    FileUtils.writeLines(file, lines);
+    git.add().addFilepattern(DUMMY_JAVA).call();
+    PersonIdent ident = new PersonIdent(author, author + "@sonarsource.com", new Date(minutes * 60000L), TimeZone.getTimeZone("UTC"));
+    git.commit().setAuthor(ident).setCommitter(ident).setMessage("commit by " + author).call();
+  }
+
   private static void javaUnzip(File zip, File toDir) {
     try {
       ZipFile zipFile = new ZipFile(zip);
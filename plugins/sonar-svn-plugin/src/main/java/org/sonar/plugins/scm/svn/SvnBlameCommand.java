@@ -33,14 +33,14 @@ import org.sonar.api.utils.command.StreamConsumer;
 import org.sonar.api.utils.command.StringStreamConsumer;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 public class SvnBlameCommand extends BlameCommand {
 
@@ -57,30 +57,50 @@ public class SvnBlameCommand extends BlameCommand {
     this.configuration = configuration;
   }
 
+  /**
+   * Files are blamed by a fixed number of threads. Tasks are submitted as the previous ones complete,
+   * so that the queue does not hold all the files of the project and so that the first failure
+   * stops the analysis.
+   */
   @Override
   public void blame(final BlameInput input, final BlameOutput output) {
     FileSystem fs = input.fileSystem();
     LOG.debug("Working directory: " + fs.baseDir().getAbsolutePath());
-    ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() + 1);
-    List<Future<Void>> tasks = new ArrayList<Future<Void>>();
-    for (InputFile inputFile : input.filesToBlame()) {
-      tasks.add(submitTask(fs, output, executorService, inputFile));
+    int nbThreads = Runtime.getRuntime().availableProcessors() + 1;
+    ExecutorService executorService = Executors.newFixedThreadPool(nbThreads);
+    try {
+      CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executorService);
+      int maxPendingTasks = nbThreads * 2;
+      int pendingTasks = 0;
+      for (InputFile inputFile : input.filesToBlame()) {
+        if (pendingTasks == maxPendingTasks) {
+          waitForTaskToComplete(completionService);
+          pendingTasks--;
+        }
+        submitTask(fs, output, completionService, inputFile);
+        pendingTasks++;
+      }
+      for (; pendingTasks > 0; pendingTasks--) {
+        waitForTaskToComplete(completionService);
+      }
+    } finally {
+      executorService.shutdownNow();
     }
+  }
 
-    for (Future<Void> task : tasks) {
-      try {
-        task.get();
-      } catch (ExecutionException e) {
-        // Unwrap ExecutionException
-        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
-      } catch (InterruptedException e) {
-        throw new IllegalStateException(e);
-      }
+  private static void waitForTaskToComplete(CompletionService<Void> completionService) {
+    try {
+      completionService.take().get();
+    } catch (ExecutionException e) {
+      // Unwrap ExecutionException
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
     }
   }
 
-  private Future<Void> submitTask(final FileSystem fs, final BlameOutput result, ExecutorService executorService, final InputFile inputFile) {
-    return executorService.submit(new Callable<Void>() {
+  private void submitTask(final FileSystem fs, final BlameOutput result, CompletionService<Void> completionService, final InputFile inputFile) {
+    completionService.submit(new Callable<Void>() {
       @Override
       public Void call() {
         blame(fs, inputFile, result);
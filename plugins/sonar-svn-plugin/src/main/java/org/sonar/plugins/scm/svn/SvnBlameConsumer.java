@@ -49,11 +49,16 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Parses the output of "svn blame --xml" line by line, as it is produced by the command.
+ */
 public class SvnBlameConsumer implements StreamConsumer {
 
   private static final Logger LOG = LoggerFactory.getLogger(SvnBlameConsumer.class);
@@ -75,6 +80,11 @@ public class SvnBlameConsumer implements StreamConsumer {
 
   private List<BlameLine> lines = new ArrayList<BlameLine>();
 
+  /**
+   * The same revisions are usually reported on many lines
+   */
+  private final Map<String, Date> datesByString = new HashMap<String, Date>();
+
   private final String filename;
 
   public SvnBlameConsumer(String filename) {
@@ -95,7 +105,7 @@ public class SvnBlameConsumer implements StreamConsumer {
   @Override
   public void consumeLine(String line) {
     Matcher matcher;
-    if ((matcher = LINE_PATTERN.matcher(line)).find()) {
+    if (line.contains("line-number=") && (matcher = LINE_PATTERN.matcher(line)).find()) {
       String lineNumberStr = matcher.group(1);
       lineNumber = Integer.parseInt(lineNumberStr);
       insideCommitSection = false;
@@ -105,22 +115,22 @@ public class SvnBlameConsumer implements StreamConsumer {
     } else if (line.contains("<merged")) {
       insideMergedSection = true;
       insideCommitSection = false;
-    } else if ((matcher = REVISION_PATTERN.matcher(line)).find()) {
+    } else if (line.contains("revision=") && (matcher = REVISION_PATTERN.matcher(line)).find()) {
       if (insideCommitSection) {
         committerRevision = matcher.group(1);
       } else if (insideMergedSection) {
         authorRevision = matcher.group(1);
       }
-    } else if ((matcher = AUTHOR_PATTERN.matcher(line)).find()) {
+    } else if (line.contains("<author>") && (matcher = AUTHOR_PATTERN.matcher(line)).find()) {
       if (insideCommitSection) {
         committer = matcher.group(1);
       } else if (insideMergedSection) {
         author = matcher.group(1);
       }
-    } else if ((matcher = DATE_PATTERN.matcher(line)).find()) {
+    } else if (line.contains("<date>") && (matcher = DATE_PATTERN.matcher(line)).find()) {
       String date = matcher.group(1);
       String time = matcher.group(2);
-      Date dateTime = parseDateTime(date + " " + time);
+      Date dateTime = cachedDateTime(date + " " + time);
       if (insideCommitSection) {
         committerDate = dateTime;
       } else if (insideMergedSection) {
@@ -143,6 +153,19 @@ public class SvnBlameConsumer implements StreamConsumer {
     }
   }
 
+  @CheckForNull
+  private Date cachedDateTime(String dateTimeStr) {
+    Date date;
+    if (datesByString.containsKey(dateTimeStr)) {
+      date = datesByString.get(dateTimeStr);
+    } else {
+      date = parseDateTime(dateTimeStr);
+      datesByString.put(dateTimeStr, date);
+    }
+    // Date is mutable, so it is not shared between lines
+    return date != null ? new Date(date.getTime()) : null;
+  }
+
   @CheckForNull
   protected Date parseDateTime(String dateTimeStr) {
     try {
@@ -43,8 +43,13 @@ import org.sonar.api.utils.command.StreamConsumer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -230,6 +235,87 @@ public class SvnBlameCommandTest {
     new SvnBlameCommand(commandExecutor, mock(SvnConfiguration.class)).blame(input, result);
   }
 
+  @Test
+  public void blame_many_files_with_bounded_concurrency() throws IOException {
+    final int nbLines = 100;
+    List<InputFile> inputFiles = new ArrayList<InputFile>();
+    for (int i = 0; i < 200; i++) {
+      DefaultInputFile inputFile = new DefaultInputFile("foo", "src/foo" + i + ".xoo").setLines(nbLines);
+      fs.add(inputFile);
+      inputFiles.add(inputFile);
+    }
+
+    // a file is submitted when it is read from the input, and it is blamed when its result is written to the output
+    final AtomicInteger submittedFiles = new AtomicInteger();
+    final AtomicInteger blamedFiles = new AtomicInteger();
+    final AtomicInteger maxPendingFiles = new AtomicInteger();
+    CommandExecutor commandExecutor = mock(CommandExecutor.class);
+    when(commandExecutor.execute(any(Command.class), any(StreamConsumer.class), any(StreamConsumer.class), anyLong())).thenAnswer(new Answer<Integer>() {
+
+      @Override
+      public Integer answer(InvocationOnMock invocation) throws Throwable {
+        StreamConsumer outConsumer = (StreamConsumer) invocation.getArguments()[1];
+        outConsumer.consumeLine("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        outConsumer.consumeLine("<blame>");
+        for (int line = 1; line <= nbLines; line++) {
+          outConsumer.consumeLine("<entry");
+          outConsumer.consumeLine("   line-number=\"" + line + "\">");
+          outConsumer.consumeLine("<commit");
+          outConsumer.consumeLine("   revision=\"" + (line % 10) + "\">");
+          outConsumer.consumeLine("<author>david</author>");
+          outConsumer.consumeLine("<date>2009-08-31T22:32:17.0" + (line % 10) + "Z</date>");
+          outConsumer.consumeLine("</commit>");
+          outConsumer.consumeLine("</entry>");
+        }
+        outConsumer.consumeLine("</blame>");
+        Thread.sleep(1);
+        return 0;
+      }
+    });
+    final Iterator<InputFile> files = inputFiles.iterator();
+    when(input.filesToBlame()).thenReturn(new Iterable<InputFile>() {
+      @Override
+      public Iterator<InputFile> iterator() {
+        return new Iterator<InputFile>() {
+          @Override
+          public boolean hasNext() {
+            return files.hasNext();
+          }
+
+          @Override
+          public InputFile next() {
+            int pending = submittedFiles.incrementAndGet() - blamedFiles.get();
+            maxPendingFiles.set(Math.max(maxPendingFiles.get(), pending));
+            return files.next();
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    });
+
+    final Map<InputFile, List<BlameLine>> blameByFile = new ConcurrentHashMap<InputFile, List<BlameLine>>();
+    BlameOutput result = new BlameOutput() {
+      @Override
+      public void blameResult(InputFile file, List<BlameLine> lines) {
+        blameByFile.put(file, lines);
+        blamedFiles.incrementAndGet();
+      }
+    };
+    new SvnBlameCommand(commandExecutor, mock(SvnConfiguration.class)).blame(input, result);
+
+    assertThat(blameByFile).hasSize(200);
+    List<BlameLine> lines = blameByFile.get(inputFiles.get(42));
+    assertThat(lines).hasSize(nbLines);
+    assertThat(lines.get(0)).isEqualTo(new BlameLine().date(DateUtils.parseDateTime("2009-08-31T22:32:17+0000")).revision("1").author("david"));
+    assertThat(lines.get(0).date()).isNotSameAs(lines.get(10).date());
+    int nbThreads = Runtime.getRuntime().availableProcessors() + 1;
+    assertThat(maxPendingFiles.get()).isLessThanOrEqualTo(2 * nbThreads);
+  }
+
   @Test
   public void testAllParams() {
     CommandExecutor commandExecutor = mock(CommandExecutor.class);
@@ -0,0 +1,116 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
+import org.sonar.batch.bootstrap.BootstrapProperties;
+import org.sonar.batch.bootstrap.TempFolderProvider;
+import org.sonar.server.benchmark.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CacheBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkCache");
+
+  final static int OPERATIONS = 64000;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  Caches caches;
+
+  @Before
+  public void start() throws Exception {
+    BootstrapProperties bootstrapProps = new BootstrapProperties(ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.newFolder().getAbsolutePath()));
+    caches = new Caches(new TempFolderProvider().provide(bootstrapProps), new Settings());
+    caches.start();
+  }
+
+  @After
+  public void stop() {
+    caches.stop();
+  }
+
+  @Test
+  public void put_and_get_with_increasing_number_of_threads() throws Exception {
+    for (int threads : new int[] {1, 4, 16}) {
+      long period = putAndGet(threads);
+      LOGGER.info(String.format("%d threads: %d puts and %d gets in %d ms (%d operations/second)",
+        threads, OPERATIONS, OPERATIONS, period, 2000L * OPERATIONS / period));
+      benchmark.expectLessThanOrEqualTo(String.format("Time to put and get %d values with %d threads", OPERATIONS, threads), period, 5000L);
+    }
+  }
+
+  private long putAndGet(int threads) throws Exception {
+    final Cache<String> cache = caches.createCache("benchmark" + threads);
+    final int operationsPerThread = OPERATIONS / threads;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          int found = 0;
+          for (int i = 0; i < operationsPerThread; i++) {
+            cache.put(thread, i, "value" + i);
+          }
+          for (int i = 0; i < operationsPerThread; i++) {
+            if (cache.get(thread, i) != null) {
+              found++;
+            }
+          }
+          return found;
+        }
+      });
+    }
+
+    long start = System.currentTimeMillis();
+    int found = 0;
+    for (Future<Integer> future : executor.invokeAll(tasks)) {
+      found += future.get();
+    }
+    long period = Math.max(1L, System.currentTimeMillis() - start);
+    executor.shutdown();
+
+    assertThat(found).isEqualTo(OPERATIONS);
+    return period;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.db.IssueDto;
+import org.sonar.plugins.core.issue.tracking.FileHashes;
+import org.sonar.server.benchmark.Benchmark;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * In the package of {@link IssueTracking}, because {@link IssueTrackingResult} is package-private
+ */
+public class IssueTrackingBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkIssueTracking");
+
+  final static int LINES = 10000;
+  final static int DISTINCT_LINES = 2000;
+  final static int ISSUES = 10000;
+
+  private static final RuleKey[] RULES = {RuleKey.of("squid", "AvoidCycle"), RuleKey.of("squid", "NullDeref"), RuleKey.of("pmd", "UnusedLocalVariable")};
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  private final Random random = new Random(1);
+
+  @Test
+  public void track_issues_of_large_file() {
+    String[] reference = generateLines();
+    String[] source = edit(reference);
+    List<IssueDto> lastIssues = generateLastIssues(reference);
+    List<DefaultIssue> newIssues = generateNewIssues(source);
+
+    long start = System.currentTimeMillis();
+    IssueTrackingResult result = new IssueTracking().track(new FixedSourceHashHolder(reference, source), lastIssues, newIssues);
+    long period = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d issues tracked in %d ms, %d matched", ISSUES, period, result.matched().size()));
+
+    assertThat(result.matched().size()).isGreaterThan(ISSUES / 2);
+    benchmark.expectLessThanOrEqualTo("Time to track issues of large file", period, 2000L);
+  }
+
+  private String[] generateLines() {
+    String[] lines = new String[LINES];
+    for (int i = 0; i < LINES; i++) {
+      lines[i] = "line" + random.nextInt(DISTINCT_LINES);
+    }
+    return lines;
+  }
+
+  /**
+   * One line in 20 is deleted, one in 20 is modified and one in 20 is inserted
+   */
+  private String[] edit(String[] lines) {
+    List<String> edited = Lists.newArrayList();
+    for (String line : lines) {
+      if (random.nextInt(20) == 0) {
+        edited.add("inserted" + random.nextInt(5));
+      }
+      if (random.nextInt(20) == 0) {
+        edited.add("modified" + random.nextInt(5));
+      } else if (random.nextInt(20) != 0) {
+        edited.add(line);
+      }
+    }
+    return edited.toArray(new String[edited.size()]);
+  }
+
+  private List<IssueDto> generateLastIssues(String[] reference) {
+    List<IssueDto> issues = Lists.newArrayList();
+    for (int i = 0; i < ISSUES; i++) {
+      int line = 1 + random.nextInt(reference.length);
+      RuleKey ruleKey = RULES[random.nextInt(RULES.length)];
+      IssueDto issue = new IssueDto();
+      issue.setId((long) i);
+      issue.setKee("last" + i);
+      issue.setLine(line);
+      issue.setMessage("message" + random.nextInt(3));
+      issue.setRuleKey(ruleKey.repository(), ruleKey.rule());
+      issue.setChecksum(reference[line - 1]);
+      issue.setStatus(Issue.STATUS_OPEN);
+      issues.add(issue);
+    }
+    return issues;
+  }
+
+  private List<DefaultIssue> generateNewIssues(String[] source) {
+    List<DefaultIssue> issues = Lists.newArrayList();
+    for (int i = 0; i < ISSUES; i++) {
+      issues.add(new DefaultIssue()
+        .setKey("new" + i)
+        .setLine(1 + random.nextInt(source.length))
+        .setMessage("message" + random.nextInt(3))
+        .setRuleKey(RULES[random.nextInt(RULES.length)])
+        .setStatus(Issue.STATUS_OPEN));
+    }
+    return issues;
+  }
+
+  /**
+   * Line hashes are given instead of being read from the file and from the previous analysis
+   */
+  private static class FixedSourceHashHolder extends SourceHashHolder {
+    private final FileHashes reference;
+    private final FileHashes source;
+
+    FixedSourceHashHolder(String[] reference, String[] source) {
+      super(null, null);
+      this.reference = FileHashes.create(reference);
+      this.source = FileHashes.create(source);
+    }
+
+    @Override
+    public FileHashes getHashedReference() {
+      return reference;
+    }
+
+    @Override
+    public FileHashes getHashedSource() {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cpd;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DeprecatedDefaultInputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorStorage;
+import org.sonar.api.batch.sensor.duplication.DuplicationBuilder;
+import org.sonar.api.batch.sensor.duplication.internal.DefaultDuplicationBuilder;
+import org.sonar.api.batch.sensor.measure.Measure;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.plugins.cpd.index.SonarDuplicationsIndex;
+import org.sonar.server.benchmark.Benchmark;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In the package of {@link CpdExecutor}, because it is package-private
+ */
+public class CpdExecutorBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkCpd");
+
+  final static int FILES = 3000;
+  final static int BLOCKS_PER_FILE = 200;
+  final static int SHARED_BLOCKS = 20;
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  private final List<InputFile> files = Lists.newArrayList();
+  private final SonarDuplicationsIndex index = new SonarDuplicationsIndex();
+
+  @Test
+  public void detect_duplications_with_increasing_number_of_threads() {
+    generateCorpus(new Random(1));
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= processors; threads *= 2) {
+      long period = detect(threads);
+      LOGGER.info(String.format("%d threads: %d files in %d ms", threads, FILES, period));
+      benchmark.expectLessThanOrEqualTo(String.format("Time to detect duplications with %d threads", threads), period, 20000L);
+    }
+  }
+
+  private long detect(int threads) {
+    SensorContext context = mock(SensorContext.class);
+    final SensorStorage storage = mock(SensorStorage.class);
+    when(context.newMeasure()).then(new Answer<Measure>() {
+      @Override
+      public Measure answer(InvocationOnMock invocation) throws Throwable {
+        return new DefaultMeasure(storage);
+      }
+    });
+    when(context.duplicationBuilder(any(InputFile.class))).then(new Answer<DuplicationBuilder>() {
+      @Override
+      public DuplicationBuilder answer(InvocationOnMock invocation) throws Throwable {
+        return new DefaultDuplicationBuilder((InputFile) invocation.getArguments()[0]);
+      }
+    });
+
+    long start = System.currentTimeMillis();
+    new CpdExecutor(threads, 60000L).execute(index, context, files, Predicates.<CloneGroup>alwaysTrue());
+    return System.currentTimeMillis() - start;
+  }
+
+  /**
+   * One file out of three starts with the same blocks, other blocks are unique
+   */
+  private void generateCorpus(Random random) {
+    List<ByteArray> sharedHashes = Lists.newArrayList();
+    for (int i = 0; i < SHARED_BLOCKS; i++) {
+      sharedHashes.add(new ByteArray(random.nextLong()));
+    }
+    for (int f = 0; f < FILES; f++) {
+      DeprecatedDefaultInputFile file = new DeprecatedDefaultInputFile("foo", "src/File" + f + ".java");
+      file.setLines(BLOCKS_PER_FILE + 10);
+      List<Block> blocks = Lists.newArrayList();
+      for (int b = 0; b < BLOCKS_PER_FILE; b++) {
+        ByteArray hash = b < SHARED_BLOCKS && f % 3 == 0 ? sharedHashes.get(b) : new ByteArray(random.nextLong());
+        blocks.add(Block.builder()
+          .setResourceId(file.key())
+          .setBlockHash(hash)
+          .setIndexInFile(b)
+          .setLines(b + 1, b + 10)
+          .setUnit(b, b + 10)
+          .build());
+      }
+      index.insert(file, blocks);
+      files.add(file);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.scm.BlameCommand;
+import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.config.Settings;
+import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.plugins.scm.git.JGitBlameCommand;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class GitBlameBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkGitBlame");
+
+  final static int FILES = 200;
+  final static int LINES_BY_FILE = 300;
+  final static int COMMITS = 100;
+  final static int NEW_COMMITS = 20;
+  final static int FILES_BY_COMMIT = 10;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  private final Random random = new Random(42);
+  private int commits = 0;
+
+  @Test
+  public void blame_files_changed_since_previous_analysis() throws Exception {
+    File baseDir = temp.newFolder();
+    Git git = Git.init().setDirectory(baseDir).call();
+    List<List<String>> files = generateHistory(git, baseDir);
+
+    // first analysis, blame is stored in the user home
+    File userHome = temp.newFolder();
+    long start = System.currentTimeMillis();
+    blame(baseDir, files, userHome);
+    long period = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d files blamed in %d ms, without previous blame", FILES, period));
+
+    for (int i = 0; i < NEW_COMMITS; i++) {
+      commit(git, baseDir, files);
+    }
+
+    start = System.currentTimeMillis();
+    Map<InputFile, List<BlameLine>> incrementalBlame = blame(baseDir, files, userHome);
+    long incrementalPeriod = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d files blamed in %d ms, %d commits after previous blame", FILES, incrementalPeriod, NEW_COMMITS));
+
+    start = System.currentTimeMillis();
+    Map<InputFile, List<BlameLine>> fullBlame = blame(baseDir, files, temp.newFolder());
+    period = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d files blamed in %d ms, without previous blame", FILES, period));
+    git.getRepository().close();
+
+    assertThat(incrementalBlame).isEqualTo(fullBlame);
+    benchmark.expectLessThanOrEqualTo("Time to blame files with previous blame", incrementalPeriod, period / 2);
+  }
+
+  /**
+   * Files are created by the first commit, then each commit updates, inserts and removes lines in some files
+   */
+  private List<List<String>> generateHistory(Git git, File baseDir) throws Exception {
+    List<List<String>> files = Lists.newArrayList();
+    for (int file = 0; file < FILES; file++) {
+      List<String> lines = Lists.newArrayList();
+      for (int line = 0; line < LINES_BY_FILE; line++) {
+        lines.add("line " + line + " of file " + file);
+      }
+      files.add(lines);
+      FileUtils.writeLines(new File(baseDir, path(file)), lines);
+    }
+    git.add().addFilepattern(".").call();
+    commit(git, "author0");
+
+    for (int i = 1; i < COMMITS; i++) {
+      commit(git, baseDir, files);
+    }
+    return files;
+  }
+
+  private void commit(Git git, File baseDir, List<List<String>> files) throws Exception {
+    for (int i = 0; i < FILES_BY_COMMIT; i++) {
+      int file = random.nextInt(FILES);
+      List<String> lines = files.get(file);
+      for (int change = 0; change < 5; change++) {
+        int line = random.nextInt(lines.size());
+        switch (random.nextInt(3)) {
+          case 0:
+            lines.add(line, "line inserted by commit " + commits);
+            break;
+          case 1:
+            lines.remove(line);
+            break;
+          default:
+            lines.set(line, "line updated by commit " + commits);
+        }
+      }
+      FileUtils.writeLines(new File(baseDir, path(file)), lines);
+      git.add().addFilepattern(path(file)).call();
+    }
+    commit(git, "author" + random.nextInt(10));
+  }
+
+  private void commit(Git git, String author) throws Exception {
+    PersonIdent ident = new PersonIdent(author, author + "@sonarsource.com", new Date(commits * 60000L), TimeZone.getTimeZone("UTC"));
+    git.commit().setAuthor(ident).setCommitter(ident).setMessage("commit " + commits).call();
+    commits++;
+  }
+
+  private static String path(int file) {
+    return "src/dir" + (file % 10) + "/File" + file + ".java";
+  }
+
+  private Map<InputFile, List<BlameLine>> blame(File baseDir, List<List<String>> files, File userHome) {
+    final DefaultFileSystem fs = new DefaultFileSystem();
+    fs.setBaseDir(baseDir);
+    final List<InputFile> inputFiles = Lists.newArrayList();
+    for (int file = 0; file < FILES; file++) {
+      inputFiles.add(new DefaultInputFile("foo", path(file))
+        .setFile(new File(baseDir, path(file)))
+        .setLines(files.get(file).size() + 1));
+    }
+    final Map<InputFile, List<BlameLine>> result = new ConcurrentHashMap<InputFile, List<BlameLine>>();
+
+    Settings settings = new Settings().setProperty("sonar.userHome", userHome.getAbsolutePath());
+    JGitBlameCommand blameCommand = new JGitBlameCommand(new PathResolver(), settings);
+    blameCommand.blame(new BlameCommand.BlameInput() {
+      @Override
+      public FileSystem fileSystem() {
+        return fs;
+      }
+
+      @Override
+      public Iterable<InputFile> filesToBlame() {
+        return inputFiles;
+      }
+    }, new BlameCommand.BlameOutput() {
+      @Override
+      public void blameResult(InputFile file, List<BlameLine> lines) {
+        result.put(file, lines);
+      }
+    });
+    blameCommand.stop();
+    assertThat(result).hasSize(FILES);
+    return result;
+  }
+}
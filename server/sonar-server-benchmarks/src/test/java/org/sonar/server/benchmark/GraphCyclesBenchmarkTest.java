@@ -0,0 +1,96 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.graph.CycleDetector;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.IncrementalCyclesAndFESSolver;
+import org.sonar.graph.StringEdge;
+
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class GraphCyclesBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkGraph");
+
+  final static int TANGLES = 4;
+  final static int VERTICES_BY_TANGLE = 100;
+  final static int EDGES_BY_VERTEX = 3;
+  final static int ACYCLIC_VERTICES = 2000;
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  @Test
+  public void search_cycles_and_feedback_edges_of_dense_graph() {
+    DirectedGraph<String, StringEdge> graph = generateGraph();
+
+    long start = System.currentTimeMillis();
+    IncrementalCyclesAndFESSolver<String> solver = new IncrementalCyclesAndFESSolver<String>(graph, graph.getVertices());
+    long period = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d cycles and %d feedback edges (weight %d) found in %d ms, %d calls to search cycles",
+      solver.getCycles().size(), solver.getFeedbackEdgeSet().size(), solver.getWeightOfFeedbackEdgeSet(), period, solver.getSearchCyclesCalls()));
+
+    assertThat(new CycleDetector<String>(graph, solver.getFeedbackEdgeSet()).detectCycles()).isEmpty();
+    benchmark.expectLessThanOrEqualTo("Time to search cycles and feedback edges", period, 5000L);
+  }
+
+  /**
+   * Independent tangles, each one having random edges between its vertices, linked together by a single edge, plus
+   * acyclic vertices
+   */
+  private DirectedGraph<String, StringEdge> generateGraph() {
+    Random random = new Random(42);
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    for (int tangle = 0; tangle < TANGLES; tangle++) {
+      for (int from = 0; from < VERTICES_BY_TANGLE; from++) {
+        // guarantees that the tangle is strongly connected
+        graph.addEdge(tangle + ":" + from, tangle + ":" + ((from + 1) % VERTICES_BY_TANGLE), 1 + random.nextInt(5));
+        for (int i = 1; i < EDGES_BY_VERTEX; i++) {
+          int to = random.nextInt(VERTICES_BY_TANGLE);
+          if (to != from && !graph.hasEdge(tangle + ":" + from, tangle + ":" + to)) {
+            graph.addEdge(tangle + ":" + from, tangle + ":" + to, 1 + random.nextInt(5));
+          }
+        }
+      }
+      if (tangle > 0) {
+        graph.addEdge((tangle - 1) + ":0", tangle + ":0");
+      }
+    }
+    // vertices which can't reach a cycle, some of them depending on the tangles
+    for (int i = 0; i < ACYCLIC_VERTICES; i++) {
+      String vertex = "acyclic:" + i;
+      graph.addVertex(vertex);
+      if (i > 0) {
+        graph.addEdge(vertex, "acyclic:" + random.nextInt(i));
+      }
+      if (i % 10 == 0) {
+        graph.addEdge(random.nextInt(TANGLES) + ":" + random.nextInt(VERTICES_BY_TANGLE), vertex);
+      }
+    }
+    return graph;
+  }
+}
@@ -35,6 +35,7 @@ import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.internal.Uuids;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.issue.IssueQuery;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
 import org.sonar.server.issue.index.IssueAuthorizationDao;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueDoc;
@@ -59,6 +60,7 @@ public class IssueIndexBenchmarkTest {
   final static int PROJECTS = 100;
   final static int FILES_PER_PROJECT = 100;
   final static int ISSUES_PER_FILE = 100;
+  final static int GROUPS = 20;
 
   @Rule
   public ServerTester tester = new ServerTester();
@@ -76,6 +78,9 @@ public class IssueIndexBenchmarkTest {
 
     // execute some queries
     benchmarkQueries();
+
+    // compare requests with and without cache of authorized projects
+    benchmarkAuthorizationFilter();
   }
 
   private void indexAuthorizations() {
@@ -85,6 +90,7 @@ public class IssueIndexBenchmarkTest {
     for (int i = 0; i < PROJECTS; i++) {
       IssueAuthorizationDao.Dto authorization = new IssueAuthorizationDao.Dto("PROJECT" + i, System.currentTimeMillis());
       authorization.addGroup("sonar-users");
+      authorization.addGroup("group" + (i % GROUPS));
       authorization.addUser("admin");
       authorizations.add(authorization);
     }
@@ -134,6 +140,32 @@ public class IssueIndexBenchmarkTest {
     // TODO assertions
   }
 
+  private void benchmarkAuthorizationFilter() {
+    List<String> groups = Lists.newArrayList("sonar-users");
+    for (int i = 0; i < GROUPS; i++) {
+      groups.add("group" + i);
+    }
+    MockUserSession.set().setLogin("guy").setUserGroups(groups.toArray(new String[groups.size()]));
+    IssueAuthorizationCache cache = tester.get(IssueAuthorizationCache.class);
+    IssueQuery query = IssueQuery.builder().build();
+
+    long uncachedPeriod = 0L;
+    long cachedPeriod = 0L;
+    for (int i = 0; i < 10; i++) {
+      cache.clear();
+      uncachedPeriod += search(query);
+      cachedPeriod += search(query);
+    }
+    LOGGER.info("Request with {} groups: {} ms without cache of authorized projects, {} ms with cache", groups.size(), uncachedPeriod / 10, cachedPeriod / 10);
+    benchmark.expectLessThanOrEqualTo("Time to search with cache of authorized projects", cachedPeriod, uncachedPeriod);
+  }
+
+  private long search(IssueQuery query) {
+    long start = System.currentTimeMillis();
+    tester.get(IssueIndex.class).search(query, new QueryContext());
+    return System.currentTimeMillis() - start;
+  }
+
   private void benchmarkQuery(String label, IssueQuery query) {
     IssueIndex index = tester.get(IssueIndex.class);
     for (int i = 0; i < 10; i++) {
@@ -0,0 +1,135 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.server.rule.RuleParamType;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.core.persistence.DbSession;
+import org.sonar.core.qualityprofile.db.QualityProfileDto;
+import org.sonar.core.rule.RuleDto;
+import org.sonar.core.rule.RuleParamDto;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.qualityprofile.BulkChangeResult;
+import org.sonar.server.qualityprofile.QProfileName;
+import org.sonar.server.qualityprofile.QProfileService;
+import org.sonar.server.qualityprofile.QProfileTesting;
+import org.sonar.server.rule.RuleTesting;
+import org.sonar.server.rule.index.RuleQuery;
+import org.sonar.server.tester.ServerTester;
+import org.sonar.server.user.MockUserSession;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class QProfileBulkActivationBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkQProfiles");
+
+  final static int RULES = 500;
+  final static int INHERITANCE_DEPTH = 10;
+
+  @Rule
+  public ServerTester tester = new ServerTester();
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  @Test
+  public void bulk_activate_rules_on_deep_inheritance_tree() throws Exception {
+    insertRules();
+    String rootKey = insertProfiles();
+
+    MockUserSession.set().setLogin("admin").setGlobalPermissions(GlobalPermissions.QUALITY_PROFILE_ADMIN);
+    QProfileService service = tester.get(QProfileService.class);
+    RuleQuery query = new RuleQuery().setRepositories(Arrays.asList("bench"));
+
+    // 1. activation on the whole tree
+    long start = System.currentTimeMillis();
+    BulkChangeResult result = service.bulkActivate(query, rootKey, Severity.MAJOR);
+    long period = System.currentTimeMillis() - start;
+    assertThat(result.countSucceeded()).isEqualTo(RULES);
+    assertThat(result.getChanges()).hasSize(RULES * INHERITANCE_DEPTH);
+    LOGGER.info(String.format("%d rules activated on %d profiles in %d ms", RULES, INHERITANCE_DEPTH, period));
+    benchmark.expectLessThanOrEqualTo("Time to bulk activate rules on inheritance tree", period, 20000L);
+
+    // 2. change of severity, propagated to the whole tree
+    start = System.currentTimeMillis();
+    result = service.bulkActivate(query, rootKey, Severity.BLOCKER);
+    period = System.currentTimeMillis() - start;
+    assertThat(result.getChanges()).hasSize(RULES * INHERITANCE_DEPTH);
+    LOGGER.info(String.format("%d rules updated on %d profiles in %d ms", RULES, INHERITANCE_DEPTH, period));
+    benchmark.expectLessThanOrEqualTo("Time to bulk update rules on inheritance tree", period, 15000L);
+
+    // 3. nothing to change
+    start = System.currentTimeMillis();
+    result = service.bulkActivate(query, rootKey, Severity.BLOCKER);
+    period = System.currentTimeMillis() - start;
+    assertThat(result.getChanges()).isEmpty();
+    LOGGER.info(String.format("%d rules unchanged on %d profiles in %d ms", RULES, INHERITANCE_DEPTH, period));
+    benchmark.expectLessThanOrEqualTo("Time to bulk activate already active rules", period, 2000L);
+  }
+
+  private void insertRules() {
+    DbClient db = tester.get(DbClient.class);
+    DbSession session = db.openSession(false);
+    try {
+      for (int i = 0; i < RULES; i++) {
+        RuleDto rule = RuleTesting.newDto(RuleKey.of("bench", "r" + i)).setLanguage("xoo");
+        db.ruleDao().insert(session, rule);
+        db.ruleDao().addRuleParam(session, rule, RuleParamDto.createFor(rule)
+          .setName("max").setDefaultValue("10").setType(RuleParamType.INTEGER.type()));
+      }
+      session.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  /**
+   * Chain of profiles, each one inheriting from the previous one. Returns the key of the root profile.
+   */
+  private String insertProfiles() {
+    DbClient db = tester.get(DbClient.class);
+    DbSession session = db.openSession(false);
+    try {
+      String parentKey = null;
+      String rootKey = null;
+      for (int i = 0; i < INHERITANCE_DEPTH; i++) {
+        QualityProfileDto profile = QProfileTesting.newDto(new QProfileName("xoo", "P" + i), "XOO_P" + i).setParentKee(parentKey);
+        db.qualityProfileDao().insert(session, profile);
+        parentKey = profile.getKey();
+        if (rootKey == null) {
+          rootKey = parentKey;
+        }
+      }
+      session.commit();
+      return rootKey;
+    } finally {
+      session.close();
+    }
+  }
+}
@@ -19,6 +19,9 @@
  */
 package org.sonar.server.benchmark;
 
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
@@ -28,13 +31,17 @@ import org.slf4j.LoggerFactory;
 import org.sonar.api.utils.internal.Uuids;
 import org.sonar.core.persistence.DbTester;
 import org.sonar.core.source.db.FileSourceDao;
+import org.sonar.core.source.db.FileSourceDataCodec;
 import org.sonar.core.source.db.FileSourceDto;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.source.index.SourceLineResultSetIterator;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -52,7 +59,13 @@ public class SourceDbBenchmarkTest {
 
   @Test
   public void benchmark() throws Exception {
-    prepareFileSources();
+    prepareFileSources(false);
+    scrollRows();
+  }
+
+  @Test
+  public void benchmark_binary_data() throws Exception {
+    prepareFileSources(true);
     scrollRows();
   }
 
@@ -85,12 +98,43 @@ public class SourceDbBenchmarkTest {
     }
   }
 
-  private void prepareFileSources() throws IOException {
+  private void prepareFileSources(boolean binary) throws IOException {
     LOGGER.info("Populate table FILE_SOURCES");
     FileSourceDao dao = new FileSourceDao(dbTester.myBatis());
+    byte[] binaryData = binary ? encodeBinaryData() : null;
     for (int i = 0; i < NUMBER_OF_FILES; i++) {
-      dao.insert(newFileSourceDto());
+      FileSourceDto dto = newFileSourceDto();
+      if (binary) {
+        dto.setData(null).setBinaryData(binaryData);
+      }
+      dao.insert(dto);
+    }
+  }
+
+  private byte[] encodeBinaryData() throws IOException {
+    String csv = IOUtils.toString(getClass().getResourceAsStream("SourceDbBenchmarkTest/data.txt"));
+    List<String[]> lines = new ArrayList<String[]>();
+    CSVParser parser = new CSVParser(new StringReader(csv), CSVFormat.DEFAULT);
+    try {
+      for (CSVRecord record : parser) {
+        String[] values = new String[record.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = record.get(i);
+        }
+        lines.add(values);
+      }
+    } finally {
+      parser.close();
     }
+
+    long start = System.currentTimeMillis();
+    byte[] binaryData = FileSourceDataCodec.encode(lines);
+    long encoded = System.currentTimeMillis();
+    FileSourceDataCodec.decode(binaryData);
+    long decoded = System.currentTimeMillis();
+    LOGGER.info(String.format("Binary data is %d bytes long (CSV is %d chars). Encoded in %d ms, decoded in %d ms",
+      binaryData.length, csv.length(), encoded - start, decoded - encoded));
+    return binaryData;
   }
 
   private FileSourceDto newFileSourceDto() throws IOException {
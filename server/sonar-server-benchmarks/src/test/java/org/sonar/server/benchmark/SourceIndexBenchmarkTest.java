@@ -37,6 +37,7 @@ import org.sonar.server.tester.ServerTester;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -48,6 +49,7 @@ import static org.fest.assertions.Assertions.assertThat;
  *   <li>throughput of indexing of documents</li>
  *   <li>size of ES data directory</li>
  *   <li>time to request index</li>
+ *   <li>throughput of re-indexing of files with removed lines</li>
  * </ul>
  */
 public class SourceIndexBenchmarkTest {
@@ -55,6 +57,7 @@ public class SourceIndexBenchmarkTest {
   private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkSourceIndexing");
   private static final long FILES = 1000L;
   private static final int LINES_PER_FILE = 3220;
+  private static final long FILES_PER_PROJECT = 500L;
 
   @Rule
   public ServerTester tester = new ServerTester();
@@ -69,6 +72,9 @@ public class SourceIndexBenchmarkTest {
 
     // execute some queries
     benchmarkQueries();
+
+    // re-index files which lines have been removed
+    benchmarkLineRemovals();
   }
 
   private void benchmarkIndexing() {
@@ -109,6 +115,30 @@ public class SourceIndexBenchmarkTest {
     // TODO assertions
   }
 
+  private void benchmarkLineRemovals() {
+    SourceLineIndexer indexer = tester.get(SourceLineIndexer.class);
+
+    // before: lines are removed with one delete-by-query per file
+    int linesPerFile = LINES_PER_FILE - 10;
+    long start = System.currentTimeMillis();
+    indexer.index(new SourceIterator(FILES, linesPerFile));
+    long period = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d files re-indexed with delete-by-query in %d ms (%d docs/second)", FILES, period, 1000L * FILES * linesPerFile / period));
+
+    // after: lines are removed with bulk delete requests
+    linesPerFile = LINES_PER_FILE - 20;
+    start = System.currentTimeMillis();
+    Map<String, Integer> lineCounts = Maps.newHashMap();
+    for (int project = 0; project < FILES / FILES_PER_PROJECT; project++) {
+      lineCounts.putAll(indexer.loadLineCountsOfProject("PROJECT" + project));
+    }
+    indexer.index(new SourceIterator(FILES, linesPerFile), lineCounts);
+    period = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d files re-indexed with bulk deletes in %d ms (%d docs/second)", FILES, period, 1000L * FILES * linesPerFile / period));
+
+    assertThat(tester.get(SourceLineIndex.class).getLines("FILE1", 1, LINES_PER_FILE)).hasSize(linesPerFile);
+  }
+
   private static class SourceIterator implements Iterator<SourceLineResultSetIterator.SourceFile> {
     private final long nbFiles;
     private final int nbLinesPerFile;
@@ -154,7 +184,7 @@ public class SourceIndexBenchmarkTest {
         file.addLine(line);
       }
       count.incrementAndGet();
-      if (count.get() % 500 == 0) {
+      if (count.get() % FILES_PER_PROJECT == 0) {
         currentProject++;
       }
       return file;
@@ -0,0 +1,186 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.computation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.platform.Server;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.core.computation.db.AnalysisReportDto;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.core.persistence.DbSession;
+import org.sonar.core.persistence.DbTester;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.server.activity.ActivityService;
+import org.sonar.server.component.ComponentTesting;
+import org.sonar.server.component.db.ComponentDao;
+import org.sonar.server.computation.db.AnalysisReportDao;
+import org.sonar.server.computation.step.ComputationStep;
+import org.sonar.server.computation.step.ComputationStepRegistry;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.issue.IssueReferentialsCache;
+import org.sonar.server.benchmark.Benchmark;
+import org.sonar.server.user.MockUserSession;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives hundreds of reports through {@link ComputationService} with several workers. In the package of
+ * {@link AnalysisReportTaskLauncher} because the constructor defining the number of workers is package-private.
+ */
+public class AnalysisReportTaskLauncherBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkComputation");
+
+  private static final int PROJECTS = 20;
+  private static final int REPORTS_PER_PROJECT = 15;
+  private static final int WORKERS = 4;
+
+  @Rule
+  public DbTester db = new DbTester();
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  private AnalysisReportQueue queue;
+  private ComputationStatistics statistics;
+  private AnalysisReportTaskLauncher sut;
+
+  private final ConcurrentMap<String, AtomicInteger> runningReportsByProject = new ConcurrentHashMap<String, AtomicInteger>();
+  private final AtomicInteger runningReports = new AtomicInteger();
+  private final AtomicInteger maxRunningReports = new AtomicInteger();
+  private final AtomicInteger maxRunningReportsOfSameProject = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    db.truncateTables();
+    DbClient dbClient = new DbClient(db.database(), db.myBatis(), new AnalysisReportDao(System2.INSTANCE, mock(TempFolder.class)),
+      new ComponentDao(System2.INSTANCE));
+    MockUserSession.set().setLogin("ci").setGlobalPermissions(GlobalPermissions.SCAN_EXECUTION);
+
+    queue = new AnalysisReportQueue(dbClient, System2.INSTANCE);
+    statistics = new ComputationStatistics();
+
+    ComputationStep step = mock(ComputationStep.class);
+    when(step.getDescription()).thenReturn("Fake step");
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        ComputeEngineContext context = (ComputeEngineContext) invocation.getArguments()[1];
+        simulateProcessing(context.getProject().key());
+        return null;
+      }
+    }).when(step).execute(any(DbSession.class), any(ComputeEngineContext.class));
+    ComputationStepRegistry stepRegistry = mock(ComputationStepRegistry.class);
+    when(stepRegistry.steps()).thenReturn(Arrays.asList(step));
+
+    ComputationService service = new ComputationService(dbClient, stepRegistry, mock(ActivityService.class), mock(IssueReferentialsCache.class));
+    sut = new AnalysisReportTaskLauncher(service, queue, statistics, System2.INSTANCE, WORKERS, 0, 50, TimeUnit.MILLISECONDS);
+
+    DbSession session = dbClient.openSession(false);
+    try {
+      for (int i = 0; i < PROJECTS; i++) {
+        dbClient.componentDao().insert(session, ComponentTesting.newProjectDto().setKey(projectKey(i)));
+      }
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    sut.stop();
+    MockUserSession.set();
+  }
+
+  @Test
+  public void process_all_reports_concurrently_but_one_at_a_time_per_project() throws Exception {
+    long start = System.currentTimeMillis();
+    sut.onServerStart(mock(Server.class));
+    for (int report = 0; report < REPORTS_PER_PROJECT; report++) {
+      for (int project = 0; project < PROJECTS; project++) {
+        queue.add(projectKey(project), (long) report, null);
+        sut.startAnalysisTaskNow();
+      }
+    }
+
+    long timeout = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2);
+    while (statistics.processedReports() < PROJECTS * REPORTS_PER_PROJECT && System.currentTimeMillis() < timeout) {
+      Thread.sleep(50L);
+    }
+    long period = System.currentTimeMillis() - start;
+    LOGGER.info(String.format("%d reports processed by %d workers in %d ms", statistics.processedReports(), WORKERS, period));
+
+    assertThat(statistics.processedReports()).isEqualTo(PROJECTS * REPORTS_PER_PROJECT);
+    assertThat(maxRunningReportsOfSameProject.get()).isEqualTo(1);
+    assertThat(maxRunningReports.get()).isGreaterThan(1).isLessThanOrEqualTo(WORKERS);
+    assertThat(statistics.workers().size()).isGreaterThan(1).isLessThanOrEqualTo(WORKERS);
+    for (ComputationStatistics.WorkerStatistics worker : statistics.workers()) {
+      assertThat(worker.failedReports()).isEqualTo(0L);
+    }
+    assertThat(queue.all()).isEmpty();
+    benchmark.expectLessThanOrEqualTo("Time to process reports", period, 30000L);
+  }
+
+  private void simulateProcessing(String projectKey) throws InterruptedException {
+    AtomicInteger runningReportsOfProject = runningReportsByProject.putIfAbsent(projectKey, new AtomicInteger());
+    if (runningReportsOfProject == null) {
+      runningReportsOfProject = runningReportsByProject.get(projectKey);
+    }
+    updateMax(maxRunningReportsOfSameProject, runningReportsOfProject.incrementAndGet());
+    updateMax(maxRunningReports, runningReports.incrementAndGet());
+    try {
+      Thread.sleep(5L);
+    } finally {
+      runningReports.decrementAndGet();
+      runningReportsOfProject.decrementAndGet();
+    }
+  }
+
+  private static void updateMax(AtomicInteger max, int value) {
+    int current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  private static String projectKey(int index) {
+    return "PROJECT_" + index;
+  }
+}
@@ -28,6 +28,7 @@ import org.sonar.core.persistence.MyBatis;
 import org.sonar.core.purge.IdUuidPair;
 import org.sonar.core.purge.PurgeDao;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.source.index.SourceLineIndexer;
@@ -39,14 +40,16 @@ public class ComponentCleanerService implements ServerComponent {
   private final IssueAuthorizationIndexer issueAuthorizationIndexer;
   private final IssueIndexer issueIndexer;
   private final SourceLineIndexer sourceLineIndexer;
+  private final IssueReferentialsCache issueReferentials;
 
   public ComponentCleanerService(DbClient dbClient, PurgeDao purgeDao, IssueAuthorizationIndexer issueAuthorizationIndexer, IssueIndexer issueIndexer,
-    SourceLineIndexer sourceLineIndexer) {
+    SourceLineIndexer sourceLineIndexer, IssueReferentialsCache issueReferentials) {
     this.dbClient = dbClient;
     this.purgeDao = purgeDao;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.issueIndexer = issueIndexer;
     this.sourceLineIndexer = sourceLineIndexer;
+    this.issueReferentials = issueReferentials;
   }
 
   public void delete(String projectKey) {
@@ -60,6 +63,7 @@ public class ComponentCleanerService implements ServerComponent {
       dbSession.commit();
 
       deleteFromIndices(project.uuid());
+      issueReferentials.clearComponents();
     } finally {
       MyBatis.closeQuietly(dbSession);
     }
@@ -32,6 +32,7 @@ import org.sonar.core.preview.PreviewCache;
 import org.sonar.core.resource.ResourceKeyUpdaterDao;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.user.UserSession;
 
 import javax.annotation.CheckForNull;
@@ -49,11 +50,13 @@ public class ComponentService implements ServerComponent {
 
   private final ResourceKeyUpdaterDao resourceKeyUpdaterDao;
   private final PreviewCache previewCache;
+  private final IssueReferentialsCache issueReferentials;
 
-  public ComponentService(DbClient dbClient, ResourceKeyUpdaterDao resourceKeyUpdaterDao, PreviewCache previewCache) {
+  public ComponentService(DbClient dbClient, ResourceKeyUpdaterDao resourceKeyUpdaterDao, PreviewCache previewCache, IssueReferentialsCache issueReferentials) {
     this.dbClient = dbClient;
     this.resourceKeyUpdaterDao = resourceKeyUpdaterDao;
     this.previewCache = previewCache;
+    this.issueReferentials = issueReferentials;
   }
 
   public ComponentDto getByKey(String key) {
@@ -102,6 +105,7 @@ public class ComponentService implements ServerComponent {
       ComponentDto projectOrModule = getByKey(projectOrModuleKey);
       resourceKeyUpdaterDao.updateKey(projectOrModule.getId(), newKey);
       session.commit();
+      issueReferentials.clearComponents();
 
       previewCache.reportResourceModification(newKey);
 
@@ -131,6 +135,7 @@ public class ComponentService implements ServerComponent {
 
       resourceKeyUpdaterDao.bulkUpdateKey(project.getId(), stringToReplace, replacementString);
       session.commit();
+      issueReferentials.clearComponents();
 
       ComponentDto newProject = dbClient.componentDao().getById(project.getId(), session);
       previewCache.reportResourceModification(newProject.key());
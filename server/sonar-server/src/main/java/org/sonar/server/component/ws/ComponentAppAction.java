@@ -48,6 +48,7 @@ import org.sonar.core.properties.PropertyQuery;
 import org.sonar.core.timemachine.Periods;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.issue.IssueService;
 import org.sonar.server.issue.RulesAggregation;
 import org.sonar.server.rule.Rule;
@@ -83,8 +84,10 @@ public class ComponentAppAction implements RequestHandler {
   private final Periods periods;
   private final Durations durations;
   private final I18n i18n;
+  private final IssueReferentialsCache referentials;
 
-  public ComponentAppAction(DbClient dbClient, IssueService issueService, Views views, RuleService ruleService, Periods periods, Durations durations, I18n i18n) {
+  public ComponentAppAction(DbClient dbClient, IssueService issueService, Views views, RuleService ruleService, Periods periods, Durations durations, I18n i18n,
+    IssueReferentialsCache referentials) {
     this.dbClient = dbClient;
     this.issueService = issueService;
     this.views = views;
@@ -92,6 +95,7 @@ public class ComponentAppAction implements RequestHandler {
     this.periods = periods;
     this.durations = durations;
     this.i18n = i18n;
+    this.referentials = referentials;
   }
 
   void define(WebService.NewController controller) {
@@ -171,7 +175,7 @@ public class ComponentAppAction implements RequestHandler {
     json.prop("q", component.qualifier());
 
     ComponentDto parentProject = nullableComponentById(component.parentProjectId(), session);
-    ComponentDto project = dbClient.componentDao().getByUuid(session, component.projectUuid());
+    ComponentDto project = referentials.componentByUuid(session, component.projectUuid());
 
     // Do not display parent project if parent project and project are the same
     boolean displayParentProject = parentProject != null && !parentProject.getId().equals(project.getId());
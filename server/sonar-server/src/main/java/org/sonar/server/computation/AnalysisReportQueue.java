@@ -34,8 +34,11 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.core.computation.db.AnalysisReportDto.Status.PENDING;
@@ -45,6 +48,13 @@ public class AnalysisReportQueue implements ServerComponent {
   private final AnalysisReportDao dao;
   private final System2 system2;
 
+  /**
+   * Keys of the projects whose report is currently booked by a worker of this server. Guarantees that
+   * at most one report per project is processed at a time, while reports of different projects can be
+   * booked concurrently.
+   */
+  private final Set<String> projectsInProgress = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
   public AnalysisReportQueue(DbClient dbClient, System2 system2) {
     this.dbClient = dbClient;
     this.dao = dbClient.analysisReportDao();
@@ -94,27 +104,49 @@ public class AnalysisReportQueue implements ServerComponent {
       session.commit();
     } finally {
       MyBatis.closeQuietly(session);
+      projectsInProgress.remove(report.getProjectKey());
     }
   }
 
   /**
+   * Can be called concurrently by several workers. A report is never booked if another report
+   * of the same project is already being processed.
+   *
    * @return a booked analysis report if one is available, null otherwise
    */
   @CheckForNull
-  public synchronized AnalysisReportDto bookNextAvailable() {
+  public AnalysisReportDto bookNextAvailable() {
     DbSession session = dbClient.openSession(false);
     try {
-      AnalysisReportDto nextAvailableReport = dao.getNextAvailableReport(session);
-      if (nextAvailableReport == null) {
-        return null;
+      for (AnalysisReportDto availableReport : dao.findAvailableReports(session)) {
+        AnalysisReportDto report = tryToBook(session, availableReport);
+        if (report != null) {
+          return report;
+        }
       }
+      return null;
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
 
-      AnalysisReportDto report = dao.bookAnalysisReport(session, nextAvailableReport);
-      session.commit();
+  @CheckForNull
+  private AnalysisReportDto tryToBook(DbSession session, AnalysisReportDto availableReport) {
+    String projectKey = availableReport.getProjectKey();
+    if (!projectsInProgress.add(projectKey)) {
+      return null;
+    }
 
+    AnalysisReportDto report = null;
+    try {
+      AnalysisReportDto bookedReport = dao.bookAnalysisReport(session, availableReport);
+      session.commit();
+      report = bookedReport;
       return report;
     } finally {
-      MyBatis.closeQuietly(session);
+      if (report == null) {
+        projectsInProgress.remove(projectKey);
+      }
     }
   }
 
@@ -22,30 +22,45 @@ package org.sonar.server.computation;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.utils.System2;
 import org.sonar.core.computation.db.AnalysisReportDto;
 
+/**
+ * Processes the available reports until the queue does not provide any more of them.
+ */
 public class AnalysisReportTask implements Runnable {
   private static final Logger LOG = LoggerFactory.getLogger(AnalysisReportTask.class);
 
   private final AnalysisReportQueue queue;
   private final ComputationService service;
+  private final ComputationStatistics statistics;
+  private final System2 system;
 
-  public AnalysisReportTask(AnalysisReportQueue queue, ComputationService service) {
+  public AnalysisReportTask(AnalysisReportQueue queue, ComputationService service, ComputationStatistics statistics, System2 system) {
     this.queue = queue;
     this.service = service;
+    this.statistics = statistics;
+    this.system = system;
   }
 
   @Override
   public void run() {
     AnalysisReportDto report = queue.bookNextAvailable();
-    if (report != null) {
-      try {
-        service.analyzeReport(report);
-      } catch (Exception exception) {
-        LOG.error(String.format("Analysis of report %s failed", report), exception);
-      } finally {
-        removeSilentlyFromQueue(report);
-      }
+    while (report != null) {
+      analyze(report);
+      report = Thread.currentThread().isInterrupted() ? null : queue.bookNextAvailable();
+    }
+  }
+
+  private void analyze(AnalysisReportDto report) {
+    long start = system.now();
+    try {
+      service.analyzeReport(report);
+    } catch (Exception exception) {
+      LOG.error(String.format("Analysis of report %s failed", report), exception);
+    } finally {
+      statistics.onReportProcessed(report, system.now() - start);
+      removeSilentlyFromQueue(report);
     }
   }
 
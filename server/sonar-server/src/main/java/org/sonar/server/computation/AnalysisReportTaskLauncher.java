@@ -26,46 +26,64 @@ import org.picocontainer.Startable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.ServerComponent;
+import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
 import org.sonar.api.platform.ServerStartHandler;
+import org.sonar.api.utils.System2;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Runs a pool of workers processing the analysis reports. Workers poll the queue periodically and are
+ * also woken up as soon as a new report is submitted. Reports of different projects are processed
+ * concurrently.
+ */
 public class AnalysisReportTaskLauncher implements Startable, ServerComponent, ServerStartHandler {
 
   public static final String ANALYSIS_REPORT_THREAD_NAME_PREFIX = "ar-";
+  public static final String WORKER_COUNT_PROPERTY = "sonar.computeEngine.workerCount";
+  public static final int DEFAULT_WORKER_COUNT = 1;
   private static final Logger LOG = LoggerFactory.getLogger(AnalysisReportTaskLauncher.class);
 
   private final ComputationService service;
   private final AnalysisReportQueue queue;
+  private final ComputationStatistics statistics;
+  private final System2 system;
   private final ScheduledExecutorService executorService;
+  private final int workerCount;
+  private final AtomicInteger pendingWakeUps = new AtomicInteger();
 
   private final long delayBetweenTasks;
   private final long delayForFirstStart;
   private final TimeUnit timeUnit;
 
-  public AnalysisReportTaskLauncher(ComputationService service, AnalysisReportQueue queue) {
-    this.service = service;
-    this.queue = queue;
-    this.executorService = Executors.newSingleThreadScheduledExecutor(threadFactoryWithSpecificNameForLogging());
-
-    this.delayBetweenTasks = 10;
-    this.delayForFirstStart = 0;
-    this.timeUnit = TimeUnit.SECONDS;
+  public AnalysisReportTaskLauncher(ComputationService service, AnalysisReportQueue queue, ComputationStatistics statistics, Settings settings,
+    System2 system) {
+    this(service, queue, statistics, system, workerCount(settings), 0, 10, TimeUnit.SECONDS);
   }
 
   @VisibleForTesting
-  AnalysisReportTaskLauncher(ComputationService service, AnalysisReportQueue queue, long delayForFirstStart, long delayBetweenTasks, TimeUnit timeUnit) {
+  AnalysisReportTaskLauncher(ComputationService service, AnalysisReportQueue queue, ComputationStatistics statistics, System2 system,
+    int workerCount, long delayForFirstStart, long delayBetweenTasks, TimeUnit timeUnit) {
+    this.service = service;
     this.queue = queue;
-    this.executorService = Executors.newSingleThreadScheduledExecutor(threadFactoryWithSpecificNameForLogging());
+    this.statistics = statistics;
+    this.system = system;
+    this.workerCount = workerCount;
+    this.executorService = Executors.newScheduledThreadPool(workerCount, threadFactoryWithSpecificNameForLogging());
 
     this.delayBetweenTasks = delayBetweenTasks;
     this.delayForFirstStart = delayForFirstStart;
     this.timeUnit = timeUnit;
-    this.service = service;
+  }
+
+  private static int workerCount(Settings settings) {
+    int count = settings.getInt(WORKER_COUNT_PROPERTY);
+    return count > 0 ? count : DEFAULT_WORKER_COUNT;
   }
 
   /**
@@ -87,13 +105,37 @@ public class AnalysisReportTaskLauncher implements Startable, ServerComponent, S
     LOG.info("AnalysisReportTaskLauncher gracefully stopped");
   }
 
+  public int workerCount() {
+    return workerCount;
+  }
+
+  /**
+   * Wakes up an idle worker. Wake-ups are not accumulated beyond the number of workers, as a single
+   * task processes all the reports available in the queue.
+   */
   public void startAnalysisTaskNow() {
-    executorService.execute(new AnalysisReportTask(queue, service));
+    if (pendingWakeUps.incrementAndGet() > workerCount) {
+      pendingWakeUps.decrementAndGet();
+      return;
+    }
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        pendingWakeUps.decrementAndGet();
+        newTask().run();
+      }
+    });
   }
 
   @Override
   public void onServerStart(Server server) {
-    executorService.scheduleAtFixedRate(new AnalysisReportTask(queue, service), delayForFirstStart, delayBetweenTasks, timeUnit);
-    LOG.info("AnalysisReportTaskLauncher started");
+    for (int i = 0; i < workerCount; i++) {
+      executorService.scheduleWithFixedDelay(newTask(), delayForFirstStart, delayBetweenTasks, timeUnit);
+    }
+    LOG.info(String.format("AnalysisReportTaskLauncher started with %d worker(s)", workerCount));
+  }
+
+  private AnalysisReportTask newTask() {
+    return new AnalysisReportTask(queue, service, statistics, system);
   }
 }
@@ -35,6 +35,7 @@ import org.sonar.server.activity.ActivityService;
 import org.sonar.server.computation.step.ComputationStep;
 import org.sonar.server.computation.step.ComputationStepRegistry;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.issue.IssueReferentialsCache;
 
 import java.util.Date;
 
@@ -49,11 +50,14 @@ public class ComputationService implements ServerComponent {
   private final DbClient dbClient;
   private final ComputationStepRegistry stepRegistry;
   private final ActivityService activityService;
+  private final IssueReferentialsCache issueReferentials;
 
-  public ComputationService(DbClient dbClient, ComputationStepRegistry stepRegistry, ActivityService activityService) {
+  public ComputationService(DbClient dbClient, ComputationStepRegistry stepRegistry, ActivityService activityService,
+    IssueReferentialsCache issueReferentials) {
     this.dbClient = dbClient;
     this.stepRegistry = stepRegistry;
     this.activityService = activityService;
+    this.issueReferentials = issueReferentials;
   }
 
   public void analyzeReport(AnalysisReportDto report) {
@@ -81,6 +85,8 @@ public class ComputationService implements ServerComponent {
       logActivity(session, report, project);
       session.commit();
       MyBatis.closeQuietly(session);
+      // names, paths or keys of components may have changed
+      issueReferentials.clearComponents();
       profiler.stop();
     }
   }
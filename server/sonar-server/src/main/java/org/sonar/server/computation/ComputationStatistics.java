@@ -0,0 +1,114 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.computation;
+
+import com.google.common.collect.ImmutableList;
+import org.sonar.api.ServerComponent;
+import org.sonar.core.computation.db.AnalysisReportDto;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and wait time of the analysis report workers since server startup.
+ *
+ * @since 5.1
+ */
+public class ComputationStatistics implements ServerComponent {
+
+  private final ConcurrentMap<String, WorkerStatistics> workers = new ConcurrentHashMap<String, WorkerStatistics>();
+
+  /**
+   * Must be called by the worker thread that processed the report.
+   */
+  public void onReportProcessed(AnalysisReportDto report, long processingTimeInMs) {
+    WorkerStatistics worker = workerStatistics(Thread.currentThread().getName());
+    worker.processedReports.incrementAndGet();
+    worker.processingTimeInMs.addAndGet(processingTimeInMs);
+    if (report.getStatus() == AnalysisReportDto.Status.FAILED) {
+      worker.failedReports.incrementAndGet();
+    }
+    if (report.getCreatedAt() != null && report.getStartedAt() != null) {
+      worker.waitingTimeInMs.addAndGet(Math.max(0L, report.getStartedAt().getTime() - report.getCreatedAt().getTime()));
+    }
+  }
+
+  public Collection<WorkerStatistics> workers() {
+    return ImmutableList.copyOf(workers.values());
+  }
+
+  public long processedReports() {
+    long count = 0L;
+    for (WorkerStatistics worker : workers.values()) {
+      count += worker.processedReports();
+    }
+    return count;
+  }
+
+  private WorkerStatistics workerStatistics(String workerName) {
+    WorkerStatistics worker = workers.get(workerName);
+    if (worker == null) {
+      WorkerStatistics newWorker = new WorkerStatistics(workerName);
+      worker = workers.putIfAbsent(workerName, newWorker);
+      if (worker == null) {
+        worker = newWorker;
+      }
+    }
+    return worker;
+  }
+
+  public static class WorkerStatistics {
+    private final String name;
+    private final AtomicLong processedReports = new AtomicLong();
+    private final AtomicLong failedReports = new AtomicLong();
+    private final AtomicLong processingTimeInMs = new AtomicLong();
+    private final AtomicLong waitingTimeInMs = new AtomicLong();
+
+    private WorkerStatistics(String name) {
+      this.name = name;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public long processedReports() {
+      return processedReports.get();
+    }
+
+    public long failedReports() {
+      return failedReports.get();
+    }
+
+    public long processingTimeInMs() {
+      return processingTimeInMs.get();
+    }
+
+    /**
+     * Cumulated time between the submission of the reports and the beginning of their processing
+     */
+    public long waitingTimeInMs() {
+      return waitingTimeInMs.get();
+    }
+  }
+}
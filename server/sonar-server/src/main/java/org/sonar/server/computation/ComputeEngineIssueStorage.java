@@ -73,15 +73,18 @@ class ComputeEngineIssueStorage extends IssueStorage {
       issueMapper.update(dto);
 
     } else {
-      int count = issueMapper.updateIfBeforeSelectedDate(dto);
-      if (count == 0) {
-        // End-user and scan changed the issue at the same time.
-        // See https://jira.codehaus.org/browse/SONAR-4309
-        conflictResolver.resolve(issue, issueMapper);
-      }
+      // Conflicts are detected afterwards, see resolveConflicts()
+      issueMapper.updateIfBeforeSelectedDate(dto);
     }
   }
 
+  @Override
+  protected void resolveConflicts(DbSession session, long now, List<DefaultIssue> updatedIssues) {
+    // End-user and scan changed the same issues at the same time.
+    // See https://jira.codehaus.org/browse/SONAR-4309
+    conflictResolver.resolve(updatedIssues, now, session.getMapper(IssueMapper.class));
+  }
+
   @VisibleForTesting
   long componentId(DbSession session, DefaultIssue issue) {
     if (issue.componentId() != null) {
@@ -87,7 +87,7 @@ public class AnalysisReportDao extends BaseDao<AnalysisReportMapper, AnalysisRep
   }
 
   public AnalysisReportDto getNextAvailableReport(DbSession session) {
-    List<AnalysisReportDto> reports = mapper(session).selectNextAvailableReport(PENDING, WORKING);
+    List<AnalysisReportDto> reports = findAvailableReports(session);
 
     if (reports.isEmpty()) {
       return null;
@@ -96,6 +96,13 @@ public class AnalysisReportDao extends BaseDao<AnalysisReportMapper, AnalysisRep
     return reports.get(0);
   }
 
+  /**
+   * Pending reports of projects that have no report being processed, oldest first.
+   */
+  public List<AnalysisReportDto> findAvailableReports(DbSession session) {
+    return mapper(session).selectNextAvailableReport(PENDING, WORKING);
+  }
+
   @VisibleForTesting
   AnalysisReportDto getById(DbSession session, Long id) {
     return mapper(session).selectById(id);
@@ -39,7 +39,7 @@ public class IndexProjectIssuesStep implements ComputationStep {
   @Override
   public void execute(DbSession session, ComputeEngineContext context) {
     authorizationIndexer.index();
-    indexer.index();
+    indexer.indexProject(context.getProject().uuid());
   }
 
   @Override
@@ -28,12 +28,14 @@ public class AnalysisReportWebService implements WebService {
   private final ActiveAnalysisReportsAction activeAnalysisReportsAction;
   private final IsAnalysisReportQueueEmptyAction isAnalysisReportQueueEmptyAction;
   private final AnalysisReportHistorySearchAction historySearchAction;
+  private final StatisticsAction statisticsAction;
 
   public AnalysisReportWebService(ActiveAnalysisReportsAction activeReports, IsAnalysisReportQueueEmptyAction isAnalysisReportQueueEmptyAction,
-    AnalysisReportHistorySearchAction historySearchAction) {
+    AnalysisReportHistorySearchAction historySearchAction, StatisticsAction statisticsAction) {
     this.activeAnalysisReportsAction = activeReports;
     this.isAnalysisReportQueueEmptyAction = isAnalysisReportQueueEmptyAction;
     this.historySearchAction = historySearchAction;
+    this.statisticsAction = statisticsAction;
   }
 
   @Override
@@ -45,6 +47,7 @@ public class AnalysisReportWebService implements WebService {
     activeAnalysisReportsAction.define(controller);
     isAnalysisReportQueueEmptyAction.define(controller);
     historySearchAction.define(controller);
+    statisticsAction.define(controller);
 
     controller.done();
   }
@@ -0,0 +1,98 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.computation.ws;
+
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.RequestHandler;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.computation.db.AnalysisReportDto;
+import org.sonar.server.computation.AnalysisReportQueue;
+import org.sonar.server.computation.AnalysisReportTaskLauncher;
+import org.sonar.server.computation.ComputationStatistics;
+
+import java.util.List;
+
+/**
+ * @since 5.1
+ */
+public class StatisticsAction implements RequestHandler {
+  private final AnalysisReportQueue queue;
+  private final AnalysisReportTaskLauncher launcher;
+  private final ComputationStatistics statistics;
+
+  public StatisticsAction(AnalysisReportQueue queue, AnalysisReportTaskLauncher launcher, ComputationStatistics statistics) {
+    this.queue = queue;
+    this.launcher = launcher;
+    this.statistics = statistics;
+  }
+
+  void define(WebService.NewController controller) {
+    controller
+      .createAction("stats")
+      .setDescription("Size of the analysis report queue and throughput of the workers since server startup")
+      .setSince("5.1")
+      .setInternal(true)
+      .setHandler(this);
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    JsonWriter json = response.newJsonWriter().beginObject();
+    writeQueue(queue.all(), json);
+    writeWorkers(json);
+    json.endObject();
+    json.close();
+  }
+
+  private void writeQueue(List<AnalysisReportDto> reports, JsonWriter json) {
+    int pending = 0;
+    int working = 0;
+    for (AnalysisReportDto report : reports) {
+      if (report.getStatus() == AnalysisReportDto.Status.PENDING) {
+        pending++;
+      } else if (report.getStatus() == AnalysisReportDto.Status.WORKING) {
+        working++;
+      }
+    }
+    json.name("queue").beginObject()
+      .prop("pending", pending)
+      .prop("working", working)
+      .endObject();
+  }
+
+  private void writeWorkers(JsonWriter json) {
+    json.prop("workerCount", launcher.workerCount());
+    json.name("workers").beginArray();
+    for (ComputationStatistics.WorkerStatistics worker : statistics.workers()) {
+      long processed = worker.processedReports();
+      json.beginObject()
+        .prop("name", worker.name())
+        .prop("processed", processed)
+        .prop("failed", worker.failedReports())
+        .prop("avgProcessingTimeMs", processed == 0L ? 0L : (worker.processingTimeInMs() / processed))
+        .prop("avgWaitingTimeMs", processed == 0L ? 0L : (worker.waitingTimeInMs() / processed))
+        .endObject();
+    }
+    json.endArray();
+  }
+}
@@ -26,7 +26,9 @@ import org.codehaus.staxmate.SMInputFactory;
 import org.codehaus.staxmate.in.SMHierarchicCursor;
 import org.codehaus.staxmate.in.SMInputCursor;
 import org.sonar.api.ServerComponent;
+import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
 import org.sonar.core.component.ComponentDto;
+import org.sonar.core.duplication.DuplicationsDataCodec;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.server.component.db.ComponentDao;
 
@@ -56,6 +58,20 @@ public class DuplicationsParser implements ServerComponent {
     Map<String, ComponentDto> componentsByKey = newHashMap();
     List<Block> blocks = newArrayList();
     if (duplicationsData != null) {
+      if (DuplicationsDataCodec.isBinaryText(duplicationsData)) {
+        for (DuplicationGroup group : DuplicationsDataCodec.decodeText(duplicationsData)) {
+          List<Duplication> duplications = newArrayList();
+          duplications.add(createDuplication(componentsByKey, group.originBlock(), session));
+          for (DuplicationGroup.Block duplicate : group.duplicates()) {
+            duplications.add(createDuplication(componentsByKey, duplicate, session));
+          }
+          Collections.sort(duplications, new DuplicationComparator(component));
+          blocks.add(new Block(duplications));
+        }
+        Collections.sort(blocks, new BlockComparator());
+        return blocks;
+      }
+      // format of versions prior to 5.1
       try {
         SMInputFactory inputFactory = initStax();
         SMHierarchicCursor root = inputFactory.rootElementCursor(new StringReader(duplicationsData));
@@ -83,13 +99,21 @@ public class DuplicationsParser implements ServerComponent {
     return blocks;
   }
 
+  private Duplication createDuplication(Map<String, ComponentDto> componentsByKey, DuplicationGroup.Block block, DbSession session) {
+    return createDuplication(componentsByKey, block.startLine(), block.length(), block.resourceKey(), session);
+  }
+
   private Duplication createDuplication(Map<String, ComponentDto> componentsByKey, String from, String size, String componentKey, DbSession session) {
+    return createDuplication(componentsByKey, Integer.valueOf(from), Integer.valueOf(size), componentKey, session);
+  }
+
+  private Duplication createDuplication(Map<String, ComponentDto> componentsByKey, int from, int size, String componentKey, DbSession session) {
     ComponentDto component = componentsByKey.get(componentKey);
     if (component == null) {
       component = componentDao.getNullableByKey(session, componentKey);
       componentsByKey.put(componentKey, component);
     }
-    return new Duplication(component, Integer.valueOf(from), Integer.valueOf(size));
+    return new Duplication(component, from, size);
   }
 
   private static SMInputFactory initStax() {
@@ -43,6 +43,8 @@ import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchScrollRequestBuilder;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.Priority;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.metrics.max.Max;
@@ -196,9 +198,16 @@ public class EsClient implements Startable {
 
 
   public long getLastUpdatedAt(String indexName, String typeName) {
+    return getLastUpdatedAt(indexName, typeName, FilterBuilders.matchAllFilter());
+  }
+
+  /**
+   * Same as {@link #getLastUpdatedAt(String, String)} but restricted to the documents matching the given filter
+   */
+  public long getLastUpdatedAt(String indexName, String typeName, FilterBuilder filter) {
     SearchRequestBuilder request = prepareSearch(indexName)
       .setTypes(typeName)
-      .setQuery(QueryBuilders.matchAllQuery())
+      .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), filter))
       .setSize(0)
       .addAggregation(AggregationBuilders.max("latest").field("updatedAt"));
 
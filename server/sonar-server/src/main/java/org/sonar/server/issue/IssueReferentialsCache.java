@@ -0,0 +1,239 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import org.sonar.api.ServerComponent;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.user.User;
+import org.sonar.api.user.UserFinder;
+import org.sonar.core.component.ComponentDto;
+import org.sonar.core.persistence.DbSession;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.rule.Rule;
+import org.sonar.server.rule.RuleService;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Short-lived cache of the reference data displayed with issues : components by UUID, rules by key
+ * and users by login. It is shared by the web services that list or show issues, which are requested
+ * very frequently by dashboards and the Issues page.
+ * <p/>
+ * Entries expire after {@link #TTL_IN_MS} and each map is bounded to {@link #MAX_ENTRIES}, so a change
+ * that is not explicitly notified through one of the clear methods is visible after at most a few seconds.
+ * Missing values are never cached. Components are mutable, so each request gets its own copy.
+ */
+public class IssueReferentialsCache implements ServerComponent {
+
+  static final long TTL_IN_MS = 30000L;
+  static final int MAX_ENTRIES = 10000;
+
+  private final DbClient dbClient;
+  private final RuleService ruleService;
+  private final UserFinder userFinder;
+
+  private final Map<String, ComponentDto> componentsByUuid;
+  private final Map<RuleKey, Rule> rulesByKey;
+  private final Map<String, User> usersByLogin;
+
+  public IssueReferentialsCache(DbClient dbClient, RuleService ruleService, UserFinder userFinder) {
+    this(dbClient, ruleService, userFinder, TTL_IN_MS);
+  }
+
+  @VisibleForTesting
+  IssueReferentialsCache(DbClient dbClient, RuleService ruleService, UserFinder userFinder, long ttlInMs) {
+    this.dbClient = dbClient;
+    this.ruleService = ruleService;
+    this.userFinder = userFinder;
+    this.componentsByUuid = newCache(ttlInMs);
+    this.rulesByKey = newCache(ttlInMs);
+    this.usersByLogin = newCache(ttlInMs);
+  }
+
+  private static <K, V> Map<K, V> newCache(long ttlInMs) {
+    return new MapMaker()
+      .maximumSize(MAX_ENTRIES)
+      .expireAfterWrite(ttlInMs, TimeUnit.MILLISECONDS)
+      .makeMap();
+  }
+
+  /**
+   * Components found by UUID. Unknown UUIDs are ignored.
+   */
+  public Map<String, ComponentDto> componentsByUuid(DbSession session, Collection<String> uuids) {
+    Map<String, ComponentDto> result = newHashMap();
+    List<String> missingUuids = Lists.newArrayList();
+    for (String uuid : uuids) {
+      ComponentDto component = componentsByUuid.get(uuid);
+      if (component == null) {
+        missingUuids.add(uuid);
+      } else {
+        result.put(uuid, copy(component));
+      }
+    }
+    if (!missingUuids.isEmpty()) {
+      for (ComponentDto component : dbClient.componentDao().getByUuids(session, missingUuids)) {
+        componentsByUuid.put(component.uuid(), copy(component));
+        result.put(component.uuid(), component);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @throws org.sonar.server.exceptions.NotFoundException if the component does not exist
+   */
+  public ComponentDto componentByUuid(DbSession session, String uuid) {
+    ComponentDto component = componentsByUuid.get(uuid);
+    if (component == null) {
+      component = dbClient.componentDao().getByUuid(session, uuid);
+      componentsByUuid.put(uuid, copy(component));
+      return component;
+    }
+    return copy(component);
+  }
+
+  /**
+   * Rules found by key. Unknown keys are ignored.
+   */
+  public Map<RuleKey, Rule> rulesByKey(Collection<RuleKey> keys) {
+    Map<RuleKey, Rule> result = newHashMap();
+    List<RuleKey> missingKeys = Lists.newArrayList();
+    for (RuleKey key : keys) {
+      Rule rule = rulesByKey.get(key);
+      if (rule == null) {
+        missingKeys.add(key);
+      } else {
+        result.put(key, rule);
+      }
+    }
+    if (!missingKeys.isEmpty()) {
+      for (Rule rule : ruleService.getByKeys(missingKeys)) {
+        rulesByKey.put(rule.key(), rule);
+        result.put(rule.key(), rule);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @throws org.sonar.server.exceptions.NotFoundException if the rule does not exist
+   */
+  public Rule ruleByKey(RuleKey key) {
+    Rule rule = rulesByKey.get(key);
+    if (rule == null) {
+      rule = ruleService.getNonNullByKey(key);
+      rulesByKey.put(key, rule);
+    }
+    return rule;
+  }
+
+  /**
+   * Users found by login. Unknown logins are ignored.
+   */
+  public Map<String, User> usersByLogin(Collection<String> logins) {
+    Map<String, User> result = newHashMap();
+    List<String> missingLogins = Lists.newArrayList();
+    for (String login : logins) {
+      User user = usersByLogin.get(login);
+      if (user == null) {
+        missingLogins.add(login);
+      } else {
+        result.put(login, user);
+      }
+    }
+    if (!missingLogins.isEmpty()) {
+      for (User user : userFinder.findByLogins(missingLogins)) {
+        usersByLogin.put(user.login(), user);
+        result.put(user.login(), user);
+      }
+    }
+    return result;
+  }
+
+  @CheckForNull
+  public User userByLogin(String login) {
+    User user = usersByLogin.get(login);
+    if (user == null) {
+      user = userFinder.findByLogin(login);
+      if (user != null) {
+        usersByLogin.put(login, user);
+      }
+    }
+    return user;
+  }
+
+  public void clearComponents() {
+    componentsByUuid.clear();
+  }
+
+  public void clearRules() {
+    rulesByKey.clear();
+  }
+
+  public void clearUsers() {
+    usersByLogin.clear();
+  }
+
+  public void clear() {
+    clearComponents();
+    clearRules();
+    clearUsers();
+  }
+
+  private static ComponentDto copy(ComponentDto component) {
+    return new ComponentDto()
+      .setId(component.getId())
+      .setUuid(component.uuid())
+      .setKey(component.key())
+      .setScope(component.scope())
+      .setQualifier(component.qualifier())
+      .setProjectUuid(component.projectUuid())
+      .setModuleUuid(component.moduleUuid())
+      .setModuleUuidPath(component.moduleUuidPath())
+      .setPath(component.path())
+      .setDeprecatedKey(component.deprecatedKey())
+      .setName(component.name())
+      .setLongName(component.longName())
+      .setLanguage(component.language())
+      .setParentProjectId(component.parentProjectId())
+      .setEnabled(component.isEnabled())
+      .setAuthorizationUpdatedAt(component.getAuthorizationUpdatedAt())
+      .setCreatedAt(copy(component.getCreatedAt()))
+      .setUpdatedAt(copy(component.getUpdatedAt()));
+  }
+
+  @CheckForNull
+  private static Date copy(@Nullable Date date) {
+    return date != null ? new Date(date.getTime()) : null;
+  }
+}
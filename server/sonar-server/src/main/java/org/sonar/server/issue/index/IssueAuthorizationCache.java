@@ -0,0 +1,120 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.collect.Sets;
+import org.sonar.api.ServerComponent;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps in memory the UUIDs of the projects that a user and the groups they belong to are allowed to browse, so that
+ * issue searches do not have to join issues with the documents of type "authorization" on each request.
+ * <p/>
+ * Entries are invalidated by {@link IssueAuthorizationIndexer} each time permissions are re-indexed. A generation
+ * number is incremented on each invalidation : it prevents from storing a set computed before the invalidation
+ * and it is part of the key of the Elasticsearch filter cache.
+ * <p/>
+ * Memory is bounded by both the number of entries and the total number of UUIDs of the entries. All the entries are
+ * evicted when one of these limits is reached.
+ */
+public class IssueAuthorizationCache implements ServerComponent {
+
+  static final int MAX_ENTRIES = 1000;
+  static final int MAX_PROJECT_UUIDS = 100000;
+
+  private final ConcurrentMap<String, Set<String>> projectUuidsByKey = new ConcurrentHashMap<String, Set<String>>();
+  private final AtomicLong generation = new AtomicLong();
+
+  // guarded by this
+  private int projectUuidsCount = 0;
+
+  public long generation() {
+    return generation.get();
+  }
+
+  @CheckForNull
+  public Set<String> get(String key) {
+    return projectUuidsByKey.get(key);
+  }
+
+  /**
+   * Stores the project UUIDs computed for the given key. The set is ignored if the cache
+   * has been invalidated since {@code computedAtGeneration}, or if it is too large to be cached.
+   */
+  public synchronized void put(long computedAtGeneration, String key, Collection<String> projectUuids) {
+    if (computedAtGeneration != generation.get()) {
+      // permissions changed during computation
+      return;
+    }
+    Set<String> set = Collections.unmodifiableSet(Sets.newHashSet(projectUuids));
+    if (set.size() > MAX_PROJECT_UUIDS) {
+      return;
+    }
+    if (projectUuidsByKey.size() >= MAX_ENTRIES || projectUuidsCount + set.size() > MAX_PROJECT_UUIDS) {
+      evictAll();
+    }
+    Set<String> previous = projectUuidsByKey.put(key, set);
+    if (previous != null) {
+      projectUuidsCount -= previous.size();
+    }
+    projectUuidsCount += set.size();
+  }
+
+  public synchronized void clear() {
+    generation.incrementAndGet();
+    evictAll();
+  }
+
+  private void evictAll() {
+    projectUuidsByKey.clear();
+    projectUuidsCount = 0;
+  }
+
+  public int size() {
+    return projectUuidsByKey.size();
+  }
+
+  synchronized int projectUuidsCount() {
+    return projectUuidsCount;
+  }
+
+  /**
+   * Key of a user session, which does not depend on the order of groups
+   */
+  public static String key(@Nullable String login, Collection<String> groups) {
+    SortedSet<String> sortedGroups = Sets.newTreeSet(groups);
+    StringBuilder sb = new StringBuilder();
+    sb.append(login == null ? "" : login);
+    for (String group : sortedGroups) {
+      sb.append('\n').append(group);
+    }
+    return sb.toString();
+  }
+}
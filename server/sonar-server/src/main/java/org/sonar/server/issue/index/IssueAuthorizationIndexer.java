@@ -41,14 +41,17 @@ import java.util.Map;
  *   <li>index the projects with recent permission changes</li>
  *   <li>delete project orphans from index</li>
  * </ul>
+ * The authorized projects cached by {@link IssueAuthorizationCache} are invalidated on each change.
  */
 public class IssueAuthorizationIndexer extends BaseIndexer {
 
   private final DbClient dbClient;
+  private final IssueAuthorizationCache cache;
 
-  public IssueAuthorizationIndexer(DbClient dbClient, EsClient esClient) {
+  public IssueAuthorizationIndexer(DbClient dbClient, EsClient esClient, IssueAuthorizationCache cache) {
     super(esClient, 0L, IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION);
     this.dbClient = dbClient;
+    this.cache = cache;
   }
 
   @Override
@@ -84,6 +87,10 @@ public class IssueAuthorizationIndexer extends BaseIndexer {
       maxDate = Math.max(maxDate, authorization.getUpdatedAt());
     }
     bulk.stop();
+    if (!authorizations.isEmpty()) {
+      // projects visible by users are cached by IssueIndex
+      cache.clear();
+    }
     return maxDate;
   }
 
@@ -92,6 +99,7 @@ public class IssueAuthorizationIndexer extends BaseIndexer {
       .prepareDelete(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION, uuid)
       .setRefresh(refresh)
       .get();
+    cache.clear();
   }
 
   private ActionRequest newUpdateRequest(IssueAuthorizationDao.Dto dto) {
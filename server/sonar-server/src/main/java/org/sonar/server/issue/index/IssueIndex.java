@@ -36,6 +36,7 @@ import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.OrFilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
@@ -76,10 +77,14 @@ public class IssueIndex extends BaseIndex<Issue, FakeIssueDto, String> {
   private static final int DEFAULT_ISSUE_FACET_SIZE = 5;
   private static final int TAGS_FACET_SIZE = 10;
 
+  private static final int AUTHORIZATION_SCROLL_SIZE = 500;
+
   private final Sorting sorting;
+  private final IssueAuthorizationCache authorizationCache;
 
-  public IssueIndex(SearchClient client) {
+  public IssueIndex(SearchClient client, IssueAuthorizationCache authorizationCache) {
     super(IndexDefinition.ISSUES, null, client);
+    this.authorizationCache = authorizationCache;
 
     sorting = new Sorting();
     sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
@@ -301,6 +306,26 @@ public class IssueIndex extends BaseIndex<Issue, FakeIssueDto, String> {
   private FilterBuilder getAuthorizationFilter(QueryContext options) {
     String user = options.getUserLogin();
     Set<String> groups = options.getUserGroups();
+    String key = IssueAuthorizationCache.key(user, groups);
+    long generation = authorizationCache.generation();
+    Set<String> projectUuids = authorizationCache.get(key);
+    if (projectUuids == null) {
+      projectUuids = searchAuthorizedProjectUuids(user, groups);
+      authorizationCache.put(generation, key, projectUuids);
+    }
+    return FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, projectUuids)
+      .cache(true)
+      .cacheKey("issueAuthorization_" + generation + "_" + key);
+  }
+
+  /**
+   * UUIDs of the projects that can be browsed by the user or by at least one of the groups
+   */
+  private Set<String> searchAuthorizedProjectUuids(@Nullable String user, Set<String> groups) {
+    Set<String> projectUuids = Sets.newHashSet();
+    if (user == null && groups.isEmpty()) {
+      return projectUuids;
+    }
     OrFilterBuilder groupsAndUser = FilterBuilders.orFilter();
     if (user != null) {
       groupsAndUser.add(FilterBuilders.termFilter(IssueIndexDefinition.FIELD_AUTHORIZATION_USERS, user));
@@ -308,13 +333,29 @@ public class IssueIndex extends BaseIndex<Issue, FakeIssueDto, String> {
     for (String group : groups) {
       groupsAndUser.add(FilterBuilders.termFilter(IssueIndexDefinition.FIELD_AUTHORIZATION_GROUPS, group));
     }
-    return FilterBuilders.hasParentFilter(IssueIndexDefinition.TYPE_AUTHORIZATION,
-      QueryBuilders.filteredQuery(
-        QueryBuilders.matchAllQuery(),
-        FilterBuilders.boolFilter()
-          .must(groupsAndUser)
-          .cache(true))
-      );
+    SearchResponse response = getClient().prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_AUTHORIZATION)
+      .setSearchType(SearchType.SCAN)
+      .setScroll(TimeValue.timeValueSeconds(3L))
+      .setSize(AUTHORIZATION_SCROLL_SIZE)
+      .setNoFields()
+      .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), groupsAndUser))
+      .get();
+
+    while (true) {
+      response = getClient().prepareSearchScroll(response.getScrollId())
+        .setScroll(TimeValue.timeValueSeconds(3L))
+        .get();
+      SearchHit[] hits = response.getHits().getHits();
+      // document id is the project uuid
+      for (SearchHit hit : hits) {
+        projectUuids.add(hit.getId());
+      }
+      if (hits.length == 0) {
+        break;
+      }
+    }
+    return projectUuids;
   }
 
   private void addDatesFilter(Map<String, FilterBuilder> filters, IssueQuery query) {
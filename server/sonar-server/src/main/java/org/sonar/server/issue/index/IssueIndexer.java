@@ -58,6 +58,28 @@ public class IssueIndexer extends BaseIndexer {
     doIndex(createBulkIndexer(false), issues);
   }
 
+  /**
+   * Indexes the issues of a single project that have been updated since the last indexation
+   * of this project. Contrary to {@link #index()}, the issues of the other projects are not read
+   * and the indexation is executed in the calling thread, so several projects can be indexed
+   * concurrently.
+   */
+  public void indexProject(String projectUuid) {
+    long lastUpdatedAt = esClient.getLastUpdatedAt(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_ISSUE,
+      FilterBuilders.termFilter(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, projectUuid));
+    DbSession dbSession = dbClient.openSession(false);
+    Connection dbConnection = dbSession.getConnection();
+    try {
+      IssueResultSetIterator rowIt = IssueResultSetIterator.createForProject(dbClient, dbConnection, projectUuid, lastUpdatedAt);
+      doIndex(createBulkIndexer(false), rowIt);
+      rowIt.close();
+
+    } finally {
+      DbUtils.closeQuietly(dbConnection);
+      dbSession.close();
+    }
+  }
+
   private long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
     DbSession dbSession = dbClient.openSession(false);
     Connection dbConnection = dbSession.getConnection();
@@ -82,6 +82,10 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
 
   private static final String SQL_AFTER_DATE = SQL_ALL + " where i.updated_at>?";
 
+  private static final String SQL_PROJECT = SQL_ALL + " where root.uuid=?";
+
+  private static final String SQL_PROJECT_AFTER_DATE = SQL_PROJECT + " and i.updated_at>?";
+
   private static final Splitter TAGS_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
 
   static IssueResultSetIterator create(DbClient dbClient, Connection connection, long afterDate) {
@@ -97,6 +101,23 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
     }
   }
 
+  /**
+   * Issues of a single project (including its modules), optionally restricted to the ones updated after a given date
+   */
+  static IssueResultSetIterator createForProject(DbClient dbClient, Connection connection, String projectUuid, long afterDate) {
+    try {
+      String sql = afterDate > 0L ? SQL_PROJECT_AFTER_DATE : SQL_PROJECT;
+      PreparedStatement stmt = dbClient.newScrollingSelectStatement(connection, sql);
+      stmt.setString(1, projectUuid);
+      if (afterDate > 0L) {
+        stmt.setLong(2, afterDate);
+      }
+      return new IssueResultSetIterator(stmt);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request to select issues of project " + projectUuid, e);
+    }
+  }
+
   private IssueResultSetIterator(PreparedStatement stmt) throws SQLException {
     super(stmt);
   }
@@ -33,7 +33,6 @@ import org.sonar.api.server.ws.RequestHandler;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.user.User;
-import org.sonar.api.user.UserFinder;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.Duration;
 import org.sonar.api.utils.Durations;
@@ -46,10 +45,10 @@ import org.sonar.server.debt.DebtModelService;
 import org.sonar.server.issue.IssueChangelog;
 import org.sonar.server.issue.IssueChangelogService;
 import org.sonar.server.issue.IssueCommentService;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.issue.IssueService;
 import org.sonar.server.issue.actionplan.ActionPlanService;
 import org.sonar.server.rule.Rule;
-import org.sonar.server.rule.RuleService;
 import org.sonar.server.user.UserSession;
 
 import javax.annotation.CheckForNull;
@@ -58,8 +57,9 @@ import javax.annotation.Nullable;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
 
 public class IssueShowAction implements RequestHandler {
 
@@ -72,14 +72,13 @@ public class IssueShowAction implements RequestHandler {
   private final IssueCommentService commentService;
   private final IssueActionsWriter actionsWriter;
   private final ActionPlanService actionPlanService;
-  private final UserFinder userFinder;
   private final DebtModelService debtModel;
-  private final RuleService ruleService;
+  private final IssueReferentialsCache referentials;
   private final I18n i18n;
   private final Durations durations;
 
   public IssueShowAction(DbClient dbClient, IssueService issueService, IssueChangelogService issueChangelogService, IssueCommentService commentService,
-                         IssueActionsWriter actionsWriter, ActionPlanService actionPlanService, UserFinder userFinder, DebtModelService debtModel, RuleService ruleService,
+                         IssueActionsWriter actionsWriter, ActionPlanService actionPlanService, DebtModelService debtModel, IssueReferentialsCache referentials,
                          I18n i18n, Durations durations) {
     this.dbClient = dbClient;
     this.issueService = issueService;
@@ -87,9 +86,8 @@ public class IssueShowAction implements RequestHandler {
     this.commentService = commentService;
     this.actionsWriter = actionsWriter;
     this.actionPlanService = actionPlanService;
-    this.userFinder = userFinder;
     this.debtModel = debtModel;
-    this.ruleService = ruleService;
+    this.referentials = referentials;
     this.i18n = i18n;
     this.durations = durations;
   }
@@ -134,7 +132,7 @@ public class IssueShowAction implements RequestHandler {
     String actionPlanKey = issue.actionPlanKey();
     ActionPlan actionPlan = actionPlanKey != null ? actionPlanService.findByKey(actionPlanKey, UserSession.get()) : null;
     Duration debt = issue.debt();
-    Rule rule = ruleService.getNonNullByKey(issue.ruleKey());
+    Rule rule = referentials.ruleByKey(issue.ruleKey());
     Date updateDate = issue.updateDate();
     Date closeDate = issue.closeDate();
 
@@ -166,10 +164,10 @@ public class IssueShowAction implements RequestHandler {
   }
 
   private void addComponents(DbSession session, Issue issue, JsonWriter json) {
-    ComponentDto component = dbClient.componentDao().getByUuid(session, issue.componentUuid());
+    ComponentDto component = referentials.componentByUuid(session, issue.componentUuid());
     Long parentProjectId = component.parentProjectId();
     ComponentDto parentProject = parentProjectId != null ? dbClient.componentDao().getNullableById(parentProjectId, session) : null;
-    ComponentDto project = dbClient.componentDao().getByUuid(session, component.projectUuid());
+    ComponentDto project = referentials.componentByUuid(session, component.projectUuid());
 
     String projectName = project.longName() != null ? project.longName() : project.name();
     // Do not display sub project long name if sub project and project are the same
@@ -193,18 +191,14 @@ public class IssueShowAction implements RequestHandler {
     json.name("comments").beginArray();
     String login = UserSession.get().login();
 
-    Map<String, User> usersByLogin = newHashMap();
     List<DefaultIssueComment> comments = commentService.findComments(issue.key());
+    Set<String> userLogins = newHashSet();
     for (IssueComment comment : comments) {
-      String userLogin = comment.userLogin();
-      User user = usersByLogin.get(userLogin);
-      if (user == null) {
-        user = userFinder.findByLogin(userLogin);
-        if (user != null) {
-          usersByLogin.put(userLogin, user);
-        }
+      if (comment.userLogin() != null) {
+        userLogins.add(comment.userLogin());
       }
     }
+    Map<String, User> usersByLogin = referentials.usersByLogin(userLogins);
 
     for (IssueComment comment : comments) {
       String userLogin = comment.userLogin();
@@ -254,7 +248,7 @@ public class IssueShowAction implements RequestHandler {
 
   private void addUserWithLabel(@Nullable String value, String field, JsonWriter json) {
     if (value != null) {
-      User user = userFinder.findByLogin(value);
+      User user = referentials.userByLogin(value);
       json
         .prop(field, value)
         .prop(field + "Name", user != null ? user.name() : null);
@@ -37,7 +37,6 @@ import org.sonar.api.rule.Severity;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.user.User;
-import org.sonar.api.user.UserFinder;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.Duration;
 import org.sonar.api.utils.Durations;
@@ -45,16 +44,18 @@ import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.core.component.ComponentDto;
 import org.sonar.core.issue.db.IssueChangeDao;
 import org.sonar.core.persistence.DbSession;
+import org.sonar.core.profiling.Profiling;
+import org.sonar.core.profiling.StopWatch;
 import org.sonar.markdown.Markdown;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.issue.IssueQuery;
 import org.sonar.server.issue.IssueQueryService;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.issue.IssueService;
 import org.sonar.server.issue.actionplan.ActionPlanService;
 import org.sonar.server.issue.filter.IssueFilterParameters;
 import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.rule.Rule;
-import org.sonar.server.rule.RuleService;
 import org.sonar.server.search.FacetValue;
 import org.sonar.server.search.QueryContext;
 import org.sonar.server.search.Result;
@@ -89,6 +90,8 @@ public class SearchAction extends SearchRequestHandler<IssueQuery, Issue> {
 
   private static final String EXTRA_FIELDS_PARAM = "extra_fields";
 
+  private static final String PROFILING_DOMAIN = "ws";
+
   private static final String INTERNAL_PARAMETER_DISCLAIMER = "This parameter is mostly used by the Issues page, please prefer usage of the componentKeys parameter.";
 
   private final IssueChangeDao issueChangeDao;
@@ -96,28 +99,28 @@ public class SearchAction extends SearchRequestHandler<IssueQuery, Issue> {
   private final IssueActionsWriter actionsWriter;
 
   private final IssueQueryService issueQueryService;
-  private final RuleService ruleService;
+  private final IssueReferentialsCache referentials;
   private final DbClient dbClient;
   private final ActionPlanService actionPlanService;
-  private final UserFinder userFinder;
   private final I18n i18n;
   private final Durations durations;
   private final Languages languages;
+  private final Profiling profiling;
 
   public SearchAction(DbClient dbClient, IssueChangeDao issueChangeDao, IssueService service, IssueActionsWriter actionsWriter, IssueQueryService issueQueryService,
-    RuleService ruleService, ActionPlanService actionPlanService, UserFinder userFinder, I18n i18n, Durations durations, Languages languages) {
+    IssueReferentialsCache referentials, ActionPlanService actionPlanService, I18n i18n, Durations durations, Languages languages, Profiling profiling) {
     super(SEARCH_ACTION);
     this.dbClient = dbClient;
     this.issueChangeDao = issueChangeDao;
     this.service = service;
     this.actionsWriter = actionsWriter;
     this.issueQueryService = issueQueryService;
-    this.ruleService = ruleService;
+    this.referentials = referentials;
     this.actionPlanService = actionPlanService;
-    this.userFinder = userFinder;
     this.i18n = i18n;
     this.durations = durations;
     this.languages = languages;
+    this.profiling = profiling;
   }
 
   @Override
@@ -266,7 +269,10 @@ public class SearchAction extends SearchRequestHandler<IssueQuery, Issue> {
     if (components != null && components.size() == 1 && BooleanUtils.isTrue(query.ignorePaging())) {
       context.setShowFullResult(true);
     }
-    return service.search(query, context);
+    StopWatch watch = profiling.start(PROFILING_DOMAIN, Profiling.Level.BASIC);
+    Result<Issue> result = service.search(query, context);
+    watch.stop("issues/search - Elasticsearch request returning %d issues on %d", result.getHits().size(), result.getTotal());
+    return result;
   }
 
   @Override
@@ -295,18 +301,19 @@ public class SearchAction extends SearchRequestHandler<IssueQuery, Issue> {
 
   @Override
   protected void doContextResponse(Request request, QueryContext context, Result<Issue> result, JsonWriter json) {
+    StopWatch loadWatch = profiling.start(PROFILING_DOMAIN, Profiling.Level.BASIC);
     List<String> issueKeys = newArrayList();
     Set<RuleKey> ruleKeys = newHashSet();
     Set<String> projectUuids = newHashSet();
     Set<String> componentUuids = newHashSet();
     Set<String> actionPlanKeys = newHashSet();
     List<String> userLogins = newArrayList();
-    Map<String, User> usersByLogin = newHashMap();
+    Map<String, User> usersByLogin;
     Map<String, ComponentDto> componentsByUuid = newHashMap();
     Multimap<String, DefaultIssueComment> commentsByIssues = ArrayListMultimap.create();
     Collection<ComponentDto> componentDtos = newHashSet();
-    List<ComponentDto> projectDtos = newArrayList();
-    Map<String, ComponentDto> projectsByComponentUuid = newHashMap();
+    Collection<ComponentDto> projectDtos;
+    Map<String, ComponentDto> projectsByComponentUuid;
 
     for (Issue issue : result.getHits()) {
       IssueDoc issueDoc = (IssueDoc) issue;
@@ -339,40 +346,50 @@ public class SearchAction extends SearchRequestHandler<IssueQuery, Issue> {
         userLogins.add(issueComment.userLogin());
         commentsByIssues.put(issueComment.issueKey(), issueComment);
       }
-      usersByLogin = getUsersByLogin(userLogins);
+      usersByLogin = referentials.usersByLogin(userLogins);
 
-      List<ComponentDto> fileDtos = dbClient.componentDao().getByUuids(session, componentUuids);
-      List<ComponentDto> subProjectDtos = dbClient.componentDao().findSubProjectsByComponentUuids(session, componentUuids);
+      Collection<ComponentDto> fileDtos = referentials.componentsByUuid(session, componentUuids).values();
       componentDtos.addAll(fileDtos);
-      componentDtos.addAll(subProjectDtos);
+      // sub-projects are the direct modules of components
+      Set<String> subProjectUuids = newHashSet();
+      for (ComponentDto component : fileDtos) {
+        if (component.moduleUuid() != null) {
+          subProjectUuids.add(component.moduleUuid());
+        }
+      }
+      componentDtos.addAll(referentials.componentsByUuid(session, subProjectUuids).values());
       for (ComponentDto component : componentDtos) {
         projectUuids.add(component.projectUuid());
       }
 
-      projectDtos = dbClient.componentDao().getByUuids(session, projectUuids);
+      projectDtos = referentials.componentsByUuid(session, projectUuids).values();
       componentDtos.addAll(projectDtos);
       for (ComponentDto componentDto : componentDtos) {
         componentsByUuid.put(componentDto.uuid(), componentDto);
       }
       projectsByComponentUuid = getProjectsByComponentUuid(componentDtos, projectDtos);
-
-      writeProjects(json, projectDtos);
-      writeComponents(json, componentDtos, projectsByComponentUuid);
     } finally {
       session.close();
     }
 
     Map<String, ActionPlan> actionPlanByKeys = getActionPlanByKeys(actionPlanKeys);
+    Collection<Rule> rules = !request.mandatoryParamAsBoolean(IssueFilterParameters.HIDE_RULES) ? referentials.rulesByKey(ruleKeys).values() : Collections.<Rule>emptyList();
+    loadWatch.stop("issues/search - load of %d components, %d rules, %d users and %d action plans",
+      componentsByUuid.size(), rules.size(), usersByLogin.size(), actionPlanByKeys.size());
 
+    StopWatch writeWatch = profiling.start(PROFILING_DOMAIN, Profiling.Level.BASIC);
+    writeProjects(json, projectDtos);
+    writeComponents(json, componentDtos, projectsByComponentUuid);
     writeIssues(result, commentsByIssues, usersByLogin, actionPlanByKeys, componentsByUuid, projectsByComponentUuid,
       request.paramAsStrings(EXTRA_FIELDS_PARAM), json);
-    writeRules(json, !request.mandatoryParamAsBoolean(IssueFilterParameters.HIDE_RULES) ? ruleService.getByKeys(ruleKeys) : Collections.<Rule>emptyList());
+    writeRules(json, rules);
     writeUsers(json, usersByLogin);
     writeActionPlans(json, actionPlanByKeys.values());
     writeLanguages(json);
 
     // TODO remove legacy paging. Handled by the SearchRequestHandler
     writeLegacyPaging(context, json, result);
+    writeWatch.stop("issues/search - JSON of %d issues", result.getHits().size());
   }
 
   private void collectRuleKeys(Request request, Result<Issue> result, Set<RuleKey> ruleKeys) {
@@ -671,7 +688,7 @@ public class SearchAction extends SearchRequestHandler<IssueQuery, Issue> {
     json.endArray();
   }
 
-  private void writeProjects(JsonWriter json, List<ComponentDto> projects) {
+  private void writeProjects(JsonWriter json, Collection<ComponentDto> projects) {
     json.name("projects").beginArray();
     for (ComponentDto project : projects) {
       json.beginObject()
@@ -735,14 +752,6 @@ public class SearchAction extends SearchRequestHandler<IssueQuery, Issue> {
     }
   }
 
-  private Map<String, User> getUsersByLogin(List<String> userLogins) {
-    Map<String, User> usersByLogin = newHashMap();
-    for (User user : userFinder.findByLogins(userLogins)) {
-      usersByLogin.put(user.login(), user);
-    }
-    return usersByLogin;
-  }
-
   private Map<String, ActionPlan> getActionPlanByKeys(Collection<String> actionPlanKeys) {
     Map<String, ActionPlan> actionPlans = newHashMap();
     for (ActionPlan actionPlan : actionPlanService.findByKeys(actionPlanKeys)) {
@@ -26,6 +26,8 @@ import org.sonar.api.ServerComponent;
 import org.sonar.core.persistence.DatabaseVersion;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.persistence.MyBatis;
+import org.sonar.server.issue.IssueReferentialsCache;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
 import org.sonar.server.search.IndexDefinition;
 import org.sonar.server.search.SearchClient;
 
@@ -44,10 +46,14 @@ public class BackendCleanup implements ServerComponent {
   };
   private final SearchClient searchClient;
   private final MyBatis myBatis;
+  private final IssueAuthorizationCache issueAuthorizationCache;
+  private final IssueReferentialsCache issueReferentials;
 
-  public BackendCleanup(SearchClient searchClient, MyBatis myBatis) {
+  public BackendCleanup(SearchClient searchClient, MyBatis myBatis, IssueAuthorizationCache issueAuthorizationCache, IssueReferentialsCache issueReferentials) {
     this.searchClient = searchClient;
     this.myBatis = myBatis;
+    this.issueAuthorizationCache = issueAuthorizationCache;
+    this.issueReferentials = issueReferentials;
   }
 
   public void clearAll() {
@@ -73,6 +79,7 @@ public class BackendCleanup implements ServerComponent {
       DbUtils.closeQuietly(connection);
       MyBatis.closeQuietly(dbSession);
     }
+    issueReferentials.clear();
   }
 
   public void clearIndexes() {
@@ -88,6 +95,7 @@ public class BackendCleanup implements ServerComponent {
     searchClient.prepareFlush(searchClient.prepareState().get()
       .getState().getMetaData().concreteAllIndices())
       .get();
+    issueAuthorizationCache.clear();
   }
 
   /**
@@ -119,6 +127,8 @@ public class BackendCleanup implements ServerComponent {
 
       // Clear inspection indexes
       clearIndex(IndexDefinition.ISSUES);
+      issueAuthorizationCache.clear();
+      issueReferentials.clear();
 
     } finally {
       dbSession.close();
@@ -96,6 +96,7 @@ import org.sonar.server.computation.ws.ActiveAnalysisReportsAction;
 import org.sonar.server.computation.ws.AnalysisReportHistorySearchAction;
 import org.sonar.server.computation.ws.AnalysisReportWebService;
 import org.sonar.server.computation.ws.IsAnalysisReportQueueEmptyAction;
+import org.sonar.server.computation.ws.StatisticsAction;
 import org.sonar.server.config.ws.PropertiesWs;
 import org.sonar.server.dashboard.db.DashboardDao;
 import org.sonar.server.dashboard.db.WidgetDao;
@@ -273,6 +274,7 @@ class ServerComponents {
 
       // issues
       IssueNormalizer.class,
+      IssueAuthorizationCache.class,
       IssueIndex.class,
       IssueDao.class,
 
@@ -520,6 +522,7 @@ class ServerComponents {
     pico.addSingleton(IssueBulkChangeService.class);
     pico.addSingleton(IssueChangelogFormatter.class);
     pico.addSingleton(IssuesWs.class);
+    pico.addSingleton(IssueReferentialsCache.class);
     pico.addSingleton(IssueShowAction.class);
     pico.addSingleton(org.sonar.server.issue.ws.SearchAction.class);
     pico.addSingleton(org.sonar.server.issue.ws.TagsAction.class);
@@ -635,10 +638,12 @@ class ServerComponents {
     pico.addSingleton(AnalysisReportService.class);
     pico.addSingleton(AnalysisReportQueue.class);
     pico.addSingleton(AnalysisReportTaskLauncher.class);
+    pico.addSingleton(ComputationStatistics.class);
     pico.addSingleton(AnalysisReportWebService.class);
     pico.addSingleton(ActiveAnalysisReportsAction.class);
     pico.addSingleton(IsAnalysisReportQueueEmptyAction.class);
     pico.addSingleton(AnalysisReportHistorySearchAction.class);
+    pico.addSingleton(StatisticsAction.class);
     pico.addSingleton(DefaultPeriodCleaner.class);
     pico.addSingleton(DefaultPurgeTask.class);
     pico.addSingleton(ProjectCleaner.class);
@@ -22,6 +22,7 @@ package org.sonar.server.qualityprofile;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import org.sonar.api.ServerComponent;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.rule.RuleParamType;
 import org.sonar.core.activity.Activity;
 import org.sonar.core.persistence.DbSession;
@@ -94,6 +95,15 @@ public class RuleActivator implements ServerComponent {
   }
 
   private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context) {
+    return doActivate(dbSession, activation, context, null);
+  }
+
+  /**
+   * @param bulk if not null, then profiles and active rules are read from it instead of db, and the
+   *             profile dates are updated once at the end of the bulk change
+   */
+  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context,
+                                            @Nullable RuleActivatorBulkContext bulk) {
     context.verifyForActivation();
     List<ActiveRuleChange> changes = Lists.newArrayList();
     ActiveRuleChange change;
@@ -139,15 +149,22 @@ public class RuleActivator implements ServerComponent {
     if (change != null) {
       changes.add(change);
       persist(change, context, dbSession);
+      if (bulk != null) {
+        bulk.setActiveRule(context.activeRule(), context.activeRuleParamsAsMap().values());
+      }
     }
 
     if (!stopPropagation) {
-      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey()));
+      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey(), bulk));
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDate(dbSession, context);
-      previewCache.reportGlobalModification(dbSession);
+      if (bulk == null) {
+        updateProfileDate(dbSession, context);
+        previewCache.reportGlobalModification(dbSession);
+      } else {
+        bulk.setUpdated(context.profile());
+      }
     }
     return changes;
   }
@@ -220,14 +237,20 @@ public class RuleActivator implements ServerComponent {
     return null;
   }
 
-  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey) {
+  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey,
+                                                   @Nullable RuleActivatorBulkContext bulk) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
 
     // get all inherited profiles
-    List<QualityProfileDto> children = db.qualityProfileDao().findChildren(session, profileKey);
+    List<QualityProfileDto> children = bulk != null ? bulk.children(profileKey) : db.qualityProfileDao().findChildren(session, profileKey);
     for (QualityProfileDto child : children) {
       RuleActivation childActivation = new RuleActivation(activation).setCascade(true);
-      changes.addAll(activate(session, childActivation, child.getKey()));
+      if (bulk != null) {
+        RuleActivatorContext childContext = contextFactory.create(child.getKey(), activation.getRuleKey(), bulk);
+        changes.addAll(doActivate(session, childActivation, childContext, bulk));
+      } else {
+        changes.addAll(activate(session, childActivation, child.getKey()));
+      }
     }
     return changes;
   }
@@ -261,11 +284,13 @@ public class RuleActivator implements ServerComponent {
       activeRule.setInheritance(inheritance.name());
     }
     dao.insert(dbSession, activeRule);
+    context.setActiveRule(activeRule);
     for (Map.Entry<String, String> param : change.getParameters().entrySet()) {
       if (param.getValue() != null) {
         ActiveRuleParamDto paramDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
         paramDto.setValue(param.getValue());
         dao.addParam(dbSession, activeRule, paramDto);
+        context.activeRuleParamsAsMap().put(param.getKey(), paramDto);
       }
     }
     return activeRule;
@@ -292,6 +317,7 @@ public class RuleActivator implements ServerComponent {
           activeRuleParamDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
           activeRuleParamDto.setValue(param.getValue());
           dao.addParam(dbSession, activeRule, activeRuleParamDto);
+          context.activeRuleParamsAsMap().put(param.getKey(), activeRuleParamDto);
         }
       } else {
         if (param.getValue() != null) {
@@ -299,6 +325,7 @@ public class RuleActivator implements ServerComponent {
           dao.updateParam(dbSession, activeRule, activeRuleParamDto);
         } else {
           dao.deleteParam(dbSession, activeRule, activeRuleParamDto);
+          context.activeRuleParamsAsMap().remove(param.getKey());
         }
       }
     }
@@ -397,13 +424,20 @@ public class RuleActivator implements ServerComponent {
     try {
       Result<Rule> ruleSearchResult = ruleIndex.search(ruleQuery, new QueryContext().setScroll(true)
         .setFieldsToReturn(Arrays.asList(RuleNormalizer.RuleField.KEY.field())));
+      List<RuleKey> ruleKeys = Lists.newArrayList();
       Iterator<Rule> rules = ruleSearchResult.scroll();
       while (rules.hasNext()) {
-        Rule rule = rules.next();
+        ruleKeys.add(rules.next().key());
+      }
+
+      // profile tree, rules and active rules are loaded once instead of once per rule and per profile
+      RuleActivatorBulkContext bulk = contextFactory.createBulk(profileKey, ruleKeys, dbSession);
+      for (RuleKey ruleKey : ruleKeys) {
         try {
-          RuleActivation activation = new RuleActivation(rule.key());
+          RuleActivation activation = new RuleActivation(ruleKey);
           activation.setSeverity(severity);
-          List<ActiveRuleChange> changes = activate(dbSession, activation, profileKey);
+          RuleActivatorContext context = contextFactory.create(profileKey, ruleKey, bulk);
+          List<ActiveRuleChange> changes = doActivate(dbSession, activation, context, bulk);
           result.addChanges(changes);
           if (!changes.isEmpty()) {
             result.incrementSucceeded();
@@ -415,6 +449,13 @@ public class RuleActivator implements ServerComponent {
           result.getErrors().add(e.errors());
         }
       }
+      if (!bulk.updatedProfiles().isEmpty()) {
+        for (QualityProfileDto profile : bulk.updatedProfiles()) {
+          profile.setRulesUpdatedAtAsDate(bulk.getInitDate());
+          db.qualityProfileDao().update(dbSession, profile);
+        }
+        previewCache.reportGlobalModification(dbSession);
+      }
       dbSession.commit();
     } finally {
       dbSession.close();
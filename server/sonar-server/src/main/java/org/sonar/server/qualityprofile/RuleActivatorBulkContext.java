@@ -0,0 +1,144 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.qualityprofile.db.ActiveRuleDto;
+import org.sonar.core.qualityprofile.db.ActiveRuleKey;
+import org.sonar.core.qualityprofile.db.ActiveRuleParamDto;
+import org.sonar.core.qualityprofile.db.QualityProfileDto;
+import org.sonar.core.rule.RuleDto;
+import org.sonar.core.rule.RuleParamDto;
+import org.sonar.server.exceptions.BadRequestException;
+
+import javax.annotation.CheckForNull;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profiles, rules and active rules involved in a bulk activation. They are loaded once for
+ * the whole inheritance tree, then kept up-to-date with the changes persisted during the bulk.
+ */
+class RuleActivatorBulkContext {
+
+  private final Date initDate = new Date();
+  private final Map<String, QualityProfileDto> profilesByKey = Maps.newHashMap();
+  private final ListMultimap<String, QualityProfileDto> childrenByKey = ArrayListMultimap.create();
+  private final Map<String, QualityProfileDto> updatedProfilesByKey = Maps.newLinkedHashMap();
+  private final Map<RuleKey, RuleDto> rulesByKey = Maps.newHashMap();
+  private final ListMultimap<Integer, RuleParamDto> ruleParamsByRuleId = ArrayListMultimap.create();
+  private final Map<ActiveRuleKey, ActiveRuleDto> activeRulesByKey = Maps.newHashMap();
+  private final ListMultimap<Integer, ActiveRuleParamDto> activeRuleParamsByActiveRuleId = ArrayListMultimap.create();
+
+  Date getInitDate() {
+    return initDate;
+  }
+
+  RuleActivatorBulkContext addProfile(QualityProfileDto profile) {
+    profilesByKey.put(profile.getKey(), profile);
+    String parentKee = profile.getParentKee();
+    if (parentKee != null) {
+      childrenByKey.put(parentKee, profile);
+    }
+    return this;
+  }
+
+  QualityProfileDto profile(String profileKey) {
+    QualityProfileDto profile = profilesByKey.get(profileKey);
+    if (profile == null) {
+      throw new BadRequestException("Quality profile not found: " + profileKey);
+    }
+    return profile;
+  }
+
+  List<QualityProfileDto> children(String profileKey) {
+    return childrenByKey.get(profileKey);
+  }
+
+  RuleActivatorBulkContext addRules(Collection<RuleDto> rules) {
+    for (RuleDto rule : rules) {
+      rulesByKey.put(rule.getKey(), rule);
+    }
+    return this;
+  }
+
+  RuleActivatorBulkContext addRuleParams(Collection<RuleParamDto> ruleParams) {
+    for (RuleParamDto ruleParam : ruleParams) {
+      ruleParamsByRuleId.put(ruleParam.getRuleId(), ruleParam);
+    }
+    return this;
+  }
+
+  @CheckForNull
+  RuleDto rule(RuleKey ruleKey) {
+    return rulesByKey.get(ruleKey);
+  }
+
+  List<RuleParamDto> ruleParams(RuleDto rule) {
+    return ruleParamsByRuleId.get(rule.getId());
+  }
+
+  RuleActivatorBulkContext addActiveRules(Collection<ActiveRuleDto> activeRules) {
+    for (ActiveRuleDto activeRule : activeRules) {
+      activeRulesByKey.put(activeRule.getKey(), activeRule);
+    }
+    return this;
+  }
+
+  RuleActivatorBulkContext addActiveRuleParams(Collection<ActiveRuleParamDto> activeRuleParams) {
+    for (ActiveRuleParamDto activeRuleParam : activeRuleParams) {
+      activeRuleParamsByActiveRuleId.put(activeRuleParam.getActiveRuleId(), activeRuleParam);
+    }
+    return this;
+  }
+
+  @CheckForNull
+  ActiveRuleDto activeRule(ActiveRuleKey key) {
+    return activeRulesByKey.get(key);
+  }
+
+  List<ActiveRuleParamDto> activeRuleParams(ActiveRuleDto activeRule) {
+    return activeRuleParamsByActiveRuleId.get(activeRule.getId());
+  }
+
+  /**
+   * Registers the state of an active rule after it has been persisted, so that descendant profiles
+   * see it as their parent active rule.
+   */
+  void setActiveRule(ActiveRuleDto activeRule, Collection<ActiveRuleParamDto> activeRuleParams) {
+    activeRulesByKey.put(activeRule.getKey(), activeRule);
+    activeRuleParamsByActiveRuleId.replaceValues(activeRule.getId(), Lists.newArrayList(activeRuleParams));
+  }
+
+  void setUpdated(QualityProfileDto profile) {
+    updatedProfilesByKey.put(profile.getKey(), profile);
+  }
+
+  Collection<QualityProfileDto> updatedProfiles() {
+    return updatedProfilesByKey.values();
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.qualityprofile;
 
+import com.google.common.collect.Lists;
 import org.sonar.api.ServerComponent;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.core.persistence.DbSession;
@@ -31,6 +32,7 @@ import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.BadRequestException;
 
 import java.util.Collection;
+import java.util.List;
 
 public class RuleActivatorContextFactory implements ServerComponent {
 
@@ -64,6 +66,61 @@ public class RuleActivatorContextFactory implements ServerComponent {
     return create(ruleKey, session, new RuleActivatorContext().setProfile(profile));
   }
 
+  /**
+   * Loads in a few requests the profile, its parent, its descendants, their active rules and the given rules.
+   * Missing profile and rules are reported when creating the context of each rule.
+   */
+  RuleActivatorBulkContext createBulk(String profileKey, Collection<RuleKey> ruleKeys, DbSession session) {
+    RuleActivatorBulkContext bulk = new RuleActivatorBulkContext();
+    QualityProfileDto profile = db.qualityProfileDao().getByKey(session, profileKey);
+    if (profile != null) {
+      List<QualityProfileDto> profiles = Lists.newArrayList(profile);
+      profiles.addAll(db.qualityProfileDao().findDescendants(session, profileKey));
+      String parentKee = profile.getParentKee();
+      if (parentKee != null) {
+        QualityProfileDto parent = db.qualityProfileDao().getByKey(session, parentKee);
+        if (parent != null) {
+          profiles.add(parent);
+        }
+      }
+      for (QualityProfileDto dto : profiles) {
+        bulk.addProfile(dto);
+        bulk.addActiveRules(db.activeRuleDao().findByProfileKey(session, dto.getKey()));
+        bulk.addActiveRuleParams(db.activeRuleDao().findParamsByProfileKey(session, dto.getKey()));
+      }
+    }
+
+    List<RuleDto> rules = db.ruleDao().getByKeys(session, ruleKeys);
+    List<Integer> ruleIds = Lists.newArrayList();
+    for (RuleDto rule : rules) {
+      ruleIds.add(rule.getId());
+    }
+    bulk.addRules(rules);
+    bulk.addRuleParams(db.ruleDao().findRuleParamsByRuleIds(session, ruleIds));
+    return bulk;
+  }
+
+  RuleActivatorContext create(String profileKey, RuleKey ruleKey, RuleActivatorBulkContext bulk) {
+    RuleActivatorContext context = new RuleActivatorContext().setProfile(bulk.profile(profileKey));
+    RuleDto rule = bulk.rule(ruleKey);
+    if (rule == null) {
+      throw new BadRequestException("Rule not found: " + ruleKey);
+    }
+    context.setRule(rule);
+    context.setRuleParams(bulk.ruleParams(rule));
+
+    ActiveRuleDto activeRule = bulk.activeRule(ActiveRuleKey.of(profileKey, ruleKey));
+    context.setActiveRule(activeRule);
+    context.setActiveRuleParams(activeRule != null ? bulk.activeRuleParams(activeRule) : null);
+    String parentKee = context.profile().getParentKee();
+    if (parentKee != null) {
+      ActiveRuleDto parentActiveRule = bulk.activeRule(ActiveRuleKey.of(parentKee, ruleKey));
+      context.setParentActiveRule(parentActiveRule);
+      context.setParentActiveRuleParams(parentActiveRule != null ? bulk.activeRuleParams(parentActiveRule) : null);
+    }
+    return context;
+  }
+
   private RuleActivatorContext create(RuleKey ruleKey, DbSession session, RuleActivatorContext context) {
     initRule(ruleKey, context, session);
     initActiveRules(context.profile().getKey(), ruleKey, context, session, false);
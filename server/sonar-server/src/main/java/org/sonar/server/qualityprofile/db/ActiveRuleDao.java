@@ -187,6 +187,10 @@ public class ActiveRuleDao extends BaseDao<ActiveRuleMapper, ActiveRuleDto, Acti
    * Finder methods for ActiveRuleParams
    */
 
+  public List<ActiveRuleParamDto> findParamsByProfileKey(DbSession session, String profileKey) {
+    return mapper(session).selectParamsByProfileKey(profileKey);
+  }
+
   public List<ActiveRuleParamDto> findParamsByActiveRuleKey(DbSession session, ActiveRuleKey key) {
     Preconditions.checkNotNull(key, ACTIVE_RULE_KEY_CANNOT_BE_NULL);
     ActiveRuleDto activeRule = this.getByKey(session, key);
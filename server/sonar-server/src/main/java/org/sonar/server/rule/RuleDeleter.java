@@ -26,6 +26,7 @@ import org.sonar.api.rule.RuleStatus;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.rule.RuleDto;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.rule.index.RuleDoc;
 
@@ -33,10 +34,12 @@ public class RuleDeleter implements ServerComponent {
 
   private final DbClient dbClient;
   private final RuleActivator ruleActivator;
+  private final IssueReferentialsCache issueReferentials;
 
-  public RuleDeleter(DbClient dbClient, RuleActivator ruleActivator) {
+  public RuleDeleter(DbClient dbClient, RuleActivator ruleActivator, IssueReferentialsCache issueReferentials) {
     this.dbClient = dbClient;
     this.ruleActivator = ruleActivator;
+    this.issueReferentials = issueReferentials;
   }
 
   public void delete(RuleKey ruleKey) {
@@ -56,6 +59,7 @@ public class RuleDeleter implements ServerComponent {
       dbClient.ruleDao().update(dbSession, rule);
 
       dbSession.commit();
+      issueReferentials.clearRules();
     } finally {
       dbSession.close();
     }
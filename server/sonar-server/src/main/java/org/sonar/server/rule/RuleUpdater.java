@@ -37,6 +37,7 @@ import org.sonar.core.rule.RuleDto;
 import org.sonar.core.rule.RuleParamDto;
 import org.sonar.core.technicaldebt.db.CharacteristicDto;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.user.UserSession;
 
 import java.util.Collections;
@@ -50,10 +51,12 @@ public class RuleUpdater implements ServerComponent {
 
   private final DbClient dbClient;
   private final System2 system;
+  private final IssueReferentialsCache issueReferentials;
 
-  public RuleUpdater(DbClient dbClient, System2 system) {
+  public RuleUpdater(DbClient dbClient, System2 system, IssueReferentialsCache issueReferentials) {
     this.dbClient = dbClient;
     this.system = system;
+    this.issueReferentials = issueReferentials;
   }
 
   /**
@@ -72,6 +75,7 @@ public class RuleUpdater implements ServerComponent {
       dbClient.ruleDao().update(dbSession, context.rule);
       updateParameters(dbSession, update, context);
       dbSession.commit();
+      issueReferentials.clearRules();
       return true;
 
     } finally {
@@ -21,6 +21,7 @@ package org.sonar.server.rule.db;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.core.persistence.DbSession;
@@ -31,6 +32,8 @@ import org.sonar.server.db.BaseDao;
 import org.sonar.server.search.IndexDefinition;
 
 import javax.annotation.CheckForNull;
+
+import java.util.Collection;
 import java.util.List;
 
 public class RuleDao extends BaseDao<RuleMapper, RuleDto, RuleKey> {
@@ -49,6 +52,11 @@ public class RuleDao extends BaseDao<RuleMapper, RuleDto, RuleKey> {
     return mapper(session).selectByKey(key);
   }
 
+  @Override
+  protected List<RuleDto> doGetByKeys(DbSession session, Collection<RuleKey> keys) {
+    return mapper(session).selectByKeys(keys);
+  }
+
   public RuleDto getByName(String name, DbSession session) {
     return mapper(session).selectByName(name);
   }
@@ -139,6 +147,14 @@ public class RuleDao extends BaseDao<RuleMapper, RuleDto, RuleKey> {
     return mapper(session).selectParamsByRuleKey(key);
   }
 
+  public List<RuleParamDto> findRuleParamsByRuleIds(DbSession session, Collection<Integer> ruleIds) {
+    List<RuleParamDto> params = Lists.newArrayList();
+    for (List<Integer> partition : Lists.partition(Lists.newArrayList(ruleIds), 1000)) {
+      params.addAll(mapper(session).selectParamsByRuleIds(partition));
+    }
+    return params;
+  }
+
   public List<RuleDto> findRulesByDebtSubCharacteristicId(DbSession session, int id) {
     return mapper(session).selectBySubCharacteristicId(id);
   }
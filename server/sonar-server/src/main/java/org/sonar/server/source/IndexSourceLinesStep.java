@@ -34,7 +34,7 @@ public class IndexSourceLinesStep implements ComputationStep {
 
   @Override
   public void execute(DbSession session, ComputeEngineContext context) {
-    indexer.index();
+    indexer.indexProject(context.getProject().uuid());
   }
 
   @Override
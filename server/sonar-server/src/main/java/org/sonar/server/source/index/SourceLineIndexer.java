@@ -19,19 +19,29 @@
  */
 package org.sonar.server.source.index;
 
+import com.google.common.collect.Maps;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
 
+import javax.annotation.Nullable;
+
 import java.sql.Connection;
 import java.util.Iterator;
+import java.util.Map;
 
 import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_FILE_UUID;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_LINE;
 import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_PROJECT_UUID;
 
 public class SourceLineIndexer extends BaseIndexer {
@@ -52,7 +62,9 @@ public class SourceLineIndexer extends BaseIndexer {
     Connection dbConnection = dbSession.getConnection();
     try {
       SourceLineResultSetIterator rowIt = SourceLineResultSetIterator.create(dbClient, dbConnection, lastUpdatedAt);
-      long maxUpdatedAt = doIndex(bulk, rowIt);
+      // the number of lines already indexed is unknown, except when index is empty
+      Map<String, Integer> previousLineCounts = lastUpdatedAt == 0L ? Maps.<String, Integer>newHashMap() : null;
+      long maxUpdatedAt = doIndex(bulk, rowIt, previousLineCounts);
       rowIt.close();
       return maxUpdatedAt;
 
@@ -61,12 +73,68 @@ public class SourceLineIndexer extends BaseIndexer {
     }
   }
 
+  /**
+   * Indexes the sources of a single project that have been updated since the last indexation
+   * of this project. Contrary to {@link #index()}, the sources of the other projects are not read
+   * and the indexation is executed in the calling thread, so several projects can be indexed
+   * concurrently.
+   */
+  public void indexProject(String projectUuid) {
+    long lastUpdatedAt = esClient.getLastUpdatedAt(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE,
+      FilterBuilders.termFilter(FIELD_PROJECT_UUID, projectUuid));
+    BulkIndexer bulk = new BulkIndexer(esClient, SourceLineIndexDefinition.INDEX);
+
+    DbSession dbSession = dbClient.openSession(false);
+    Connection dbConnection = dbSession.getConnection();
+    try {
+      SourceLineResultSetIterator rowIt = SourceLineResultSetIterator.createForProject(dbClient, dbConnection, projectUuid, lastUpdatedAt);
+      Map<String, Integer> previousLineCounts = lastUpdatedAt == 0L ? Maps.<String, Integer>newHashMap() : loadLineCountsOfProject(projectUuid);
+      doIndex(bulk, rowIt, previousLineCounts);
+      rowIt.close();
+
+    } finally {
+      dbSession.close();
+    }
+  }
+
   public long index(Iterator<SourceLineResultSetIterator.SourceFile> sourceFiles) {
+    return index(sourceFiles, null);
+  }
+
+  /**
+   * @param previousLineCounts number of lines currently indexed per file UUID, as returned by
+   * {@link #loadLineCountsOfProject(String)}. Files that are not referenced are considered as
+   * not indexed yet. If null, then the lines removed from files are deleted by query, file per file.
+   */
+  public long index(Iterator<SourceLineResultSetIterator.SourceFile> sourceFiles, @Nullable Map<String, Integer> previousLineCounts) {
     final BulkIndexer bulk = new BulkIndexer(esClient, SourceLineIndexDefinition.INDEX);
-    return doIndex(bulk, sourceFiles);
+    return doIndex(bulk, sourceFiles, previousLineCounts);
   }
 
-  private long doIndex(BulkIndexer bulk, Iterator<SourceLineResultSetIterator.SourceFile> files) {
+  /**
+   * Number of lines indexed for each file of the project, loaded in a single request
+   */
+  public Map<String, Integer> loadLineCountsOfProject(String projectUuid) {
+    SearchResponse response = esClient.prepareSearch(SourceLineIndexDefinition.INDEX)
+      .setTypes(SourceLineIndexDefinition.TYPE)
+      .setRouting(projectUuid)
+      .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(),
+        FilterBuilders.termFilter(FIELD_PROJECT_UUID, projectUuid)))
+      .setSize(0)
+      .addAggregation(AggregationBuilders.terms(FIELD_FILE_UUID).field(FIELD_FILE_UUID).size(0)
+        .subAggregation(AggregationBuilders.max(FIELD_LINE).field(FIELD_LINE)))
+      .get();
+
+    Map<String, Integer> lineCounts = Maps.newHashMap();
+    Terms files = response.getAggregations().get(FIELD_FILE_UUID);
+    for (Terms.Bucket file : files.getBuckets()) {
+      Max maxLine = file.getAggregations().get(FIELD_LINE);
+      lineCounts.put(file.getKey(), (int) maxLine.getValue());
+    }
+    return lineCounts;
+  }
+
+  private long doIndex(BulkIndexer bulk, Iterator<SourceLineResultSetIterator.SourceFile> files, @Nullable Map<String, Integer> previousLineCounts) {
     long maxUpdatedAt = 0L;
     bulk.start();
     while (files.hasNext()) {
@@ -74,13 +142,37 @@ public class SourceLineIndexer extends BaseIndexer {
       for (SourceLineDoc line : file.getLines()) {
         bulk.add(newUpsertRequest(line));
       }
-      deleteLinesFromFileAbove(file.getFileUuid(), file.getLines().size());
+      if (previousLineCounts == null) {
+        deleteLinesFromFileAbove(file.getFileUuid(), file.getLines().size());
+      } else {
+        deleteRemovedLines(bulk, file, previousLineCounts.get(file.getFileUuid()));
+      }
       maxUpdatedAt = Math.max(maxUpdatedAt, file.getUpdatedAt());
     }
     bulk.stop();
     return maxUpdatedAt;
   }
 
+  /**
+   * Lines above the new number of lines are deleted through the bulk request, one delete
+   * request per line. Query is used only when all the lines of the file are removed.
+   */
+  private void deleteRemovedLines(BulkIndexer bulk, SourceLineResultSetIterator.SourceFile file, @Nullable Integer previousLineCount) {
+    int lineCount = file.getLines().size();
+    if (previousLineCount == null || previousLineCount <= lineCount) {
+      return;
+    }
+    if (lineCount == 0) {
+      deleteByFile(file.getFileUuid());
+      return;
+    }
+    String projectUuid = file.getLines().get(0).projectUuid();
+    for (int line = lineCount + 1; line <= previousLineCount; line++) {
+      bulk.add(new DeleteRequest(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE, SourceLineDoc.key(file.getFileUuid(), line))
+        .routing(projectUuid));
+    }
+  }
+
   private UpdateRequest newUpsertRequest(SourceLineDoc lineDoc) {
     String projectUuid = lineDoc.projectUuid();
     return new UpdateRequest(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE, lineDoc.key())
@@ -97,7 +189,7 @@ public class SourceLineIndexer extends BaseIndexer {
       .setTypes(SourceLineIndexDefinition.TYPE)
       .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), FilterBuilders.boolFilter()
         .must(FilterBuilders.termFilter(FIELD_FILE_UUID, fileUuid).cache(false))
-        .must(FilterBuilders.rangeFilter(SourceLineIndexDefinition.FIELD_LINE).gt(lastLine).cache(false))
+        .must(FilterBuilders.rangeFilter(FIELD_LINE).gt(lastLine).cache(false))
         )).get();
   }
 
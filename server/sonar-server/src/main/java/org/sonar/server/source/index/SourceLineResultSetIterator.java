@@ -28,6 +28,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
 import org.sonar.api.utils.DateUtils;
+import org.sonar.core.source.db.FileSourceDataCodec;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.db.ResultSetIterator;
 import org.sonar.server.db.migrations.SqlUtil;
@@ -46,8 +47,8 @@ import java.util.List;
 import java.util.StringTokenizer;
 
 /**
- * Scroll over table FILE_SOURCES and directly parse CSV field required to
- * populate the index sourcelines
+ * Scroll over table FILE_SOURCES and directly parse binary data (or CSV data of the files
+ * not analyzed since version 5.1) required to populate the index sourcelines
  */
 public class SourceLineResultSetIterator extends ResultSetIterator<SourceLineResultSetIterator.SourceFile> {
 
@@ -83,13 +84,18 @@ public class SourceLineResultSetIterator extends ResultSetIterator<SourceLineRes
     "project_uuid",
     "file_uuid",
     "updated_at",
-    "data"
+    "data",
+    "binary_data"
   };
 
   private static final String SQL_ALL = "select " + StringUtils.join(FIELDS, ",") + " from file_sources";
 
   private static final String SQL_AFTER_DATE = SQL_ALL + " where updated_at>?";
 
+  private static final String SQL_PROJECT = SQL_ALL + " where project_uuid=?";
+
+  private static final String SQL_PROJECT_AFTER_DATE = SQL_PROJECT + " and updated_at>?";
+
   public static SourceLineResultSetIterator create(DbClient dbClient, Connection connection, long afterDate) {
     try {
       String sql = afterDate > 0L ? SQL_AFTER_DATE : SQL_ALL;
@@ -104,6 +110,23 @@ public class SourceLineResultSetIterator extends ResultSetIterator<SourceLineRes
     }
   }
 
+  /**
+   * Sources of a single project, optionally restricted to the files updated after a given date
+   */
+  public static SourceLineResultSetIterator createForProject(DbClient dbClient, Connection connection, String projectUuid, long afterDate) {
+    try {
+      String sql = afterDate > 0L ? SQL_PROJECT_AFTER_DATE : SQL_PROJECT;
+      PreparedStatement stmt = dbClient.newScrollingSingleRowSelectStatement(connection, sql);
+      stmt.setString(1, projectUuid);
+      if (afterDate > 0L) {
+        stmt.setLong(2, afterDate);
+      }
+      return new SourceLineResultSetIterator(stmt);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request to select file sources of project " + projectUuid, e);
+    }
+  }
+
   private SourceLineResultSetIterator(PreparedStatement stmt) throws SQLException {
     super(stmt);
   }
@@ -119,6 +142,16 @@ public class SourceLineResultSetIterator extends ResultSetIterator<SourceLineRes
     Date updatedDate = new Date(updatedAt);
     SourceFile result = new SourceFile(fileUuid, updatedAt);
 
+    byte[] binaryData = rs.getBytes(5);
+    if (binaryData != null) {
+      int line = 1;
+      for (String[] values : FileSourceDataCodec.decode(binaryData)) {
+        result.addLine(toDoc(projectUuid, fileUuid, line, updatedDate, values));
+        line++;
+      }
+      return result;
+    }
+
     Reader csv = rs.getCharacterStream(4);
     if (csv == null) {
       return result;
@@ -130,34 +163,11 @@ public class SourceLineResultSetIterator extends ResultSetIterator<SourceLineRes
       csvParser = new CSVParser(csv, CSVFormat.DEFAULT);
 
       for (CSVRecord csvRecord : csvParser) {
-        SourceLineDoc doc = new SourceLineDoc(Maps.<String, Object>newHashMap());
-
-        doc.setProjectUuid(projectUuid);
-        doc.setFileUuid(fileUuid);
-        doc.setLine(line);
-        doc.setUpdateDate(updatedDate);
-        doc.setScmRevision(csvRecord.get(0));
-        doc.setScmAuthor(csvRecord.get(1));
-        doc.setScmDate(DateUtils.parseDateTimeQuietly(csvRecord.get(2)));
-        // UT
-        doc.setUtLineHits(parseIntegerFromRecord(csvRecord.get(3)));
-        doc.setUtConditions(parseIntegerFromRecord(csvRecord.get(4)));
-        doc.setUtCoveredConditions(parseIntegerFromRecord(csvRecord.get(5)));
-        // IT
-        doc.setItLineHits(parseIntegerFromRecord(csvRecord.get(6)));
-        doc.setItConditions(parseIntegerFromRecord(csvRecord.get(7)));
-        doc.setItCoveredConditions(parseIntegerFromRecord(csvRecord.get(8)));
-        // OVERALL
-        doc.setOverallLineHits(parseIntegerFromRecord(csvRecord.get(9)));
-        doc.setOverallConditions(parseIntegerFromRecord(csvRecord.get(10)));
-        doc.setOverallCoveredConditions(parseIntegerFromRecord(csvRecord.get(11)));
-        doc.setHighlighting(csvRecord.get(12));
-        doc.setSymbols(csvRecord.get(13));
-
-        doc.setDuplications(parseDuplications(csvRecord.get(14)));
-        doc.setSource(csvRecord.get(csvRecord.size() - 1));
-
-        result.addLine(doc);
+        String[] values = new String[csvRecord.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = csvRecord.get(i);
+        }
+        result.addLine(toDoc(projectUuid, fileUuid, line, updatedDate, values));
 
         line++;
       }
@@ -174,6 +184,40 @@ public class SourceLineResultSetIterator extends ResultSetIterator<SourceLineRes
     return result;
   }
 
+  /**
+   * @param values the columns of the line, as defined by {@link FileSourceDataCodec}
+   */
+  private SourceLineDoc toDoc(String projectUuid, String fileUuid, int line, Date updatedDate, String[] values) {
+    SourceLineDoc doc = new SourceLineDoc(Maps.<String, Object>newHashMap());
+
+    doc.setProjectUuid(projectUuid);
+    doc.setFileUuid(fileUuid);
+    doc.setLine(line);
+    doc.setUpdateDate(updatedDate);
+    // null values of binary format are converted to empty strings, as in CSV format
+    doc.setScmRevision(StringUtils.defaultString(values[0]));
+    doc.setScmAuthor(StringUtils.defaultString(values[1]));
+    doc.setScmDate(DateUtils.parseDateTimeQuietly(values[2]));
+    // UT
+    doc.setUtLineHits(parseIntegerFromRecord(values[3]));
+    doc.setUtConditions(parseIntegerFromRecord(values[4]));
+    doc.setUtCoveredConditions(parseIntegerFromRecord(values[5]));
+    // IT
+    doc.setItLineHits(parseIntegerFromRecord(values[6]));
+    doc.setItConditions(parseIntegerFromRecord(values[7]));
+    doc.setItCoveredConditions(parseIntegerFromRecord(values[8]));
+    // OVERALL
+    doc.setOverallLineHits(parseIntegerFromRecord(values[9]));
+    doc.setOverallConditions(parseIntegerFromRecord(values[10]));
+    doc.setOverallCoveredConditions(parseIntegerFromRecord(values[11]));
+    doc.setHighlighting(StringUtils.defaultString(values[12]));
+    doc.setSymbols(StringUtils.defaultString(values[13]));
+
+    doc.setDuplications(parseDuplications(values[14]));
+    doc.setSource(StringUtils.defaultString(values[values.length - 1]));
+    return doc;
+  }
+
   private List<Integer> parseDuplications(@Nullable String duplications) {
     List<Integer> dups = Lists.newArrayList();
     if (StringUtils.isNotEmpty(duplications)) {
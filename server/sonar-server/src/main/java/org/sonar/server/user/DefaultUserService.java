@@ -28,6 +28,7 @@ import org.sonar.api.user.UserQuery;
 import org.sonar.core.permission.GlobalPermissions;
 import org.sonar.core.user.UserDao;
 import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.user.index.UserDoc;
 import org.sonar.server.util.RubyUtils;
 
@@ -41,11 +42,13 @@ public class DefaultUserService implements RubyUserService {
   private final UserService userService;
   private final UserFinder finder;
   private final UserDao dao;
+  private final IssueReferentialsCache issueReferentials;
 
-  public DefaultUserService(UserService userService, UserFinder finder, UserDao dao) {
+  public DefaultUserService(UserService userService, UserFinder finder, UserDao dao, IssueReferentialsCache issueReferentials) {
     this.userService = userService;
     this.finder = finder;
     this.dao = dao;
+    this.issueReferentials = issueReferentials;
   }
 
   @Override
@@ -114,6 +117,7 @@ public class DefaultUserService implements RubyUserService {
       throw new BadRequestException("Self-deactivation is not possible");
     }
     dao.deactivateUserByLogin(login);
+    issueReferentials.clearUsers();
     userService.index();
   }
 
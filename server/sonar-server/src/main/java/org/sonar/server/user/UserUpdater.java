@@ -39,6 +39,7 @@ import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.Message;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.user.db.UserGroupDao;
 import org.sonar.server.util.Validation;
 
@@ -66,13 +67,16 @@ public class UserUpdater implements ServerComponent {
   private final UserGroupDao userGroupDao;
   private final DbClient dbClient;
   private final System2 system2;
+  private final IssueReferentialsCache issueReferentials;
 
-  public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, UserGroupDao userGroupDao, DbClient dbClient, System2 system2) {
+  public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, UserGroupDao userGroupDao, DbClient dbClient, System2 system2,
+    IssueReferentialsCache issueReferentials) {
     this.newUserNotifier = newUserNotifier;
     this.settings = settings;
     this.userGroupDao = userGroupDao;
     this.dbClient = dbClient;
     this.system2 = system2;
+    this.issueReferentials = issueReferentials;
   }
 
   /**
@@ -122,6 +126,7 @@ public class UserUpdater implements ServerComponent {
         throw new NotFoundException(String.format("User '%s' does not exists", updateUser.login()));
       }
       dbSession.commit();
+      issueReferentials.clearUsers();
       notifyNewUser(user.getLogin(), user.getName(), user.getEmail());
     } finally {
       dbSession.close();
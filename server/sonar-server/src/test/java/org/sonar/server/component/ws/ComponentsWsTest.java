@@ -28,6 +28,7 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.api.utils.Durations;
 import org.sonar.core.timemachine.Periods;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.issue.IssueService;
 import org.sonar.server.rule.RuleService;
 import org.sonar.server.ui.Views;
@@ -43,7 +44,7 @@ public class ComponentsWsTest {
   @Before
   public void setUp() throws Exception {
     WsTester tester = new WsTester(new ComponentsWs(new ComponentAppAction(mock(DbClient.class), mock(IssueService.class), mock(Views.class),
-      mock(RuleService.class), mock(Periods.class), mock(Durations.class), mock(I18n.class))));
+      mock(RuleService.class), mock(Periods.class), mock(Durations.class), mock(I18n.class), mock(IssueReferentialsCache.class))));
     controller = tester.controller("api/components");
   }
 
@@ -27,10 +27,13 @@ import org.junit.Test;
 import org.junit.rules.DisableOnDebug;
 import org.junit.rules.TestRule;
 import org.junit.rules.Timeout;
+import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
+import org.sonar.api.utils.System2;
 
 import java.util.concurrent.TimeUnit;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 public class AnalysisReportTaskLauncherTest {
@@ -55,7 +58,7 @@ public class AnalysisReportTaskLauncherTest {
 
   @Test
   public void call_findAndBook_when_launching_a_recurrent_task() throws Exception {
-    sut = new AnalysisReportTaskLauncher(service, queue, 0, 1, TimeUnit.MILLISECONDS);
+    sut = new AnalysisReportTaskLauncher(service, queue, new ComputationStatistics(), System2.INSTANCE, 1, 0, 1, TimeUnit.MILLISECONDS);
 
     sut.onServerStart(mock(Server.class));
 
@@ -66,7 +69,7 @@ public class AnalysisReportTaskLauncherTest {
 
   @Test
   public void call_findAndBook_when_executing_task_immediately() throws Exception {
-    sut = new AnalysisReportTaskLauncher(service, queue, 1, 1, TimeUnit.HOURS);
+    sut = new AnalysisReportTaskLauncher(service, queue, new ComputationStatistics(), System2.INSTANCE, 1, 1, 1, TimeUnit.HOURS);
     sut.start();
 
     sut.startAnalysisTaskNow();
@@ -76,6 +79,29 @@ public class AnalysisReportTaskLauncherTest {
     verify(queue, atLeastOnce()).bookNextAvailable();
   }
 
+  @Test
+  public void start_one_recurrent_task_per_worker() throws Exception {
+    sut = new AnalysisReportTaskLauncher(service, queue, new ComputationStatistics(), System2.INSTANCE, 3, 0, 1, TimeUnit.HOURS);
+
+    sut.onServerStart(mock(Server.class));
+
+    sleep();
+
+    verify(queue, times(3)).bookNextAvailable();
+  }
+
+  @Test
+  public void read_worker_count_from_settings() throws Exception {
+    Settings settings = new Settings();
+    sut = new AnalysisReportTaskLauncher(service, queue, new ComputationStatistics(), settings, System2.INSTANCE);
+    assertThat(sut.workerCount()).isEqualTo(AnalysisReportTaskLauncher.DEFAULT_WORKER_COUNT);
+    sut.stop();
+
+    settings.setProperty(AnalysisReportTaskLauncher.WORKER_COUNT_PROPERTY, 4);
+    sut = new AnalysisReportTaskLauncher(service, queue, new ComputationStatistics(), settings, System2.INSTANCE);
+    assertThat(sut.workerCount()).isEqualTo(4);
+  }
+
   private void sleep() throws InterruptedException {
     TimeUnit.MILLISECONDS.sleep(500L);
   }
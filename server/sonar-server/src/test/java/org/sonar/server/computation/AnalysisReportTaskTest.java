@@ -22,8 +22,10 @@ package org.sonar.server.computation;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.utils.System2;
 import org.sonar.core.computation.db.AnalysisReportDto;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
@@ -32,12 +34,16 @@ public class AnalysisReportTaskTest {
   private AnalysisReportTask sut;
   private ComputationService service;
   private AnalysisReportQueue queue;
+  private ComputationStatistics statistics;
+  private System2 system;
 
   @Before
   public void before() {
     this.service = mock(ComputationService.class);
     this.queue = mock(AnalysisReportQueue.class);
-    this.sut = new AnalysisReportTask(queue, service);
+    this.statistics = new ComputationStatistics();
+    this.system = mock(System2.class);
+    this.sut = new AnalysisReportTask(queue, service, statistics, system);
   }
 
   @Test
@@ -51,11 +57,50 @@ public class AnalysisReportTaskTest {
   @Test
   public void call_findAndBook_and_then_analyze_if_there_is_a_report() {
     AnalysisReportDto report = AnalysisReportDto.newForTests(1L);
-    when(queue.bookNextAvailable()).thenReturn(report);
+    when(queue.bookNextAvailable()).thenReturn(report, null);
 
     sut.run();
 
-    verify(queue).bookNextAvailable();
+    verify(queue, times(2)).bookNextAvailable();
     verify(service).analyzeReport(report);
+    verify(queue).remove(report);
+    assertThat(statistics.processedReports()).isEqualTo(1L);
+  }
+
+  @Test
+  public void process_all_available_reports() {
+    AnalysisReportDto firstReport = AnalysisReportDto.newForTests(1L);
+    AnalysisReportDto secondReport = AnalysisReportDto.newForTests(2L);
+    when(queue.bookNextAvailable()).thenReturn(firstReport, secondReport, null);
+
+    sut.run();
+
+    verify(service).analyzeReport(firstReport);
+    verify(service).analyzeReport(secondReport);
+    assertThat(statistics.processedReports()).isEqualTo(2L);
+  }
+
+  @Test
+  public void remove_report_from_queue_when_analysis_fails() {
+    AnalysisReportDto report = AnalysisReportDto.newForTests(1L);
+    when(queue.bookNextAvailable()).thenReturn(report, null);
+    doThrow(new IllegalStateException()).when(service).analyzeReport(report);
+
+    sut.run();
+
+    verify(queue).remove(report);
+    assertThat(statistics.processedReports()).isEqualTo(1L);
+  }
+
+  @Test
+  public void record_processing_time() {
+    AnalysisReportDto report = AnalysisReportDto.newForTests(1L);
+    when(queue.bookNextAvailable()).thenReturn(report, null);
+    when(system.now()).thenReturn(1000L, 1250L);
+
+    sut.run();
+
+    assertThat(statistics.workers()).hasSize(1);
+    assertThat(statistics.workers().iterator().next().processingTimeInMs()).isEqualTo(250L);
   }
 }
@@ -32,6 +32,7 @@ import org.sonar.server.component.db.ComponentDao;
 import org.sonar.server.computation.step.ComputationStep;
 import org.sonar.server.computation.step.ComputationStepRegistry;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.issue.IssueReferentialsCache;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
@@ -54,7 +55,7 @@ public class ComputationServiceTest {
     when(dbClient.componentDao()).thenReturn(componentDao);
     when(componentDao.getByKey(any(DbSession.class), anyString())).thenReturn(ComponentTesting.newProjectDto());
 
-    this.sut = new ComputationService(dbClient, stepRegistry, activityService);
+    this.sut = new ComputationService(dbClient, stepRegistry, activityService, mock(IssueReferentialsCache.class));
   }
 
   @Test
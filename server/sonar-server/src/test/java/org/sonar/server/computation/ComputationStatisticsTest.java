@@ -0,0 +1,63 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.computation;
+
+import org.junit.Test;
+import org.sonar.core.computation.db.AnalysisReportDto;
+
+import java.util.Date;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ComputationStatisticsTest {
+
+  ComputationStatistics sut = new ComputationStatistics();
+
+  @Test
+  public void no_statistics_by_default() {
+    assertThat(sut.workers()).isEmpty();
+    assertThat(sut.processedReports()).isEqualTo(0L);
+  }
+
+  @Test
+  public void aggregate_statistics_of_current_worker() {
+    sut.onReportProcessed(AnalysisReportDto.newForTests(1L).setCreatedAt(new Date(1000L)).setStartedAt(new Date(1500L)), 200L);
+    AnalysisReportDto failedReport = AnalysisReportDto.newForTests(2L).setCreatedAt(new Date(1000L)).setStartedAt(new Date(2000L));
+    failedReport.fail();
+    sut.onReportProcessed(failedReport, 300L);
+
+    assertThat(sut.processedReports()).isEqualTo(2L);
+    assertThat(sut.workers()).hasSize(1);
+    ComputationStatistics.WorkerStatistics worker = sut.workers().iterator().next();
+    assertThat(worker.name()).isEqualTo(Thread.currentThread().getName());
+    assertThat(worker.processedReports()).isEqualTo(2L);
+    assertThat(worker.failedReports()).isEqualTo(1L);
+    assertThat(worker.processingTimeInMs()).isEqualTo(500L);
+    assertThat(worker.waitingTimeInMs()).isEqualTo(1500L);
+  }
+
+  @Test
+  public void ignore_waiting_time_of_reports_without_dates() {
+    sut.onReportProcessed(AnalysisReportDto.newForTests(1L), 200L);
+
+    assertThat(sut.workers().iterator().next().waitingTimeInMs()).isEqualTo(0L);
+  }
+}
@@ -44,7 +44,7 @@ public class ActiveAnalysisReportsActionTest {
   public void setup() throws Exception {
     queue = mock(AnalysisReportQueue.class);
     tester = new WsTester(new AnalysisReportWebService(new ActiveAnalysisReportsAction(queue), new IsAnalysisReportQueueEmptyAction(queue),
-      mock(AnalysisReportHistorySearchAction.class)));
+      mock(AnalysisReportHistorySearchAction.class), mock(StatisticsAction.class)));
   }
 
   @Test
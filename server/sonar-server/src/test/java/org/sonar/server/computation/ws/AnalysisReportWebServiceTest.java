@@ -26,6 +26,8 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.server.activity.ActivityService;
 import org.sonar.server.activity.ws.ActivityMapping;
 import org.sonar.server.computation.AnalysisReportQueue;
+import org.sonar.server.computation.AnalysisReportTaskLauncher;
+import org.sonar.server.computation.ComputationStatistics;
 import org.sonar.server.ws.WsTester;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -38,7 +40,8 @@ public class AnalysisReportWebServiceTest {
   @Before
   public void setUp() throws Exception {
     this.tester = new WsTester(new AnalysisReportWebService(new ActiveAnalysisReportsAction(mock(AnalysisReportQueue.class)), new IsAnalysisReportQueueEmptyAction(
-      mock(AnalysisReportQueue.class)), new AnalysisReportHistorySearchAction(mock(ActivityService.class), mock(ActivityMapping.class))));
+      mock(AnalysisReportQueue.class)), new AnalysisReportHistorySearchAction(mock(ActivityService.class), mock(ActivityMapping.class)), new StatisticsAction(mock(AnalysisReportQueue.class),
+        mock(AnalysisReportTaskLauncher.class), new ComputationStatistics())));
   }
 
   @Test
@@ -47,6 +50,6 @@ public class AnalysisReportWebServiceTest {
 
     assertThat(controller).isNotNull();
     assertThat(controller.description()).isNotEmpty();
-    assertThat(controller.actions()).hasSize(3);
+    assertThat(controller.actions()).hasSize(4);
   }
 }
@@ -0,0 +1,74 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.computation.ws;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.core.computation.db.AnalysisReportDto;
+import org.sonar.server.computation.AnalysisReportQueue;
+import org.sonar.server.computation.AnalysisReportTaskLauncher;
+import org.sonar.server.computation.ComputationStatistics;
+import org.sonar.server.ws.WsTester;
+
+import java.util.Date;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.core.computation.db.AnalysisReportDto.Status.PENDING;
+import static org.sonar.core.computation.db.AnalysisReportDto.Status.WORKING;
+
+public class StatisticsActionTest {
+
+  WsTester tester;
+  AnalysisReportQueue queue;
+  ComputationStatistics statistics;
+
+  @Before
+  public void setup() throws Exception {
+    queue = mock(AnalysisReportQueue.class);
+    AnalysisReportTaskLauncher launcher = mock(AnalysisReportTaskLauncher.class);
+    when(launcher.workerCount()).thenReturn(4);
+    statistics = new ComputationStatistics();
+    tester = new WsTester(new AnalysisReportWebService(new ActiveAnalysisReportsAction(queue), new IsAnalysisReportQueueEmptyAction(queue),
+      mock(AnalysisReportHistorySearchAction.class), new StatisticsAction(queue, launcher, statistics)));
+  }
+
+  @Test
+  public void return_queue_size_and_worker_statistics() throws Exception {
+    when(queue.all()).thenReturn(Lists.newArrayList(
+      AnalysisReportDto.newForTests(1L).setStatus(PENDING),
+      AnalysisReportDto.newForTests(2L).setStatus(PENDING),
+      AnalysisReportDto.newForTests(3L).setStatus(WORKING)));
+    statistics.onReportProcessed(AnalysisReportDto.newForTests(4L).setCreatedAt(new Date(0L)).setStartedAt(new Date(100L)), 50L);
+    statistics.onReportProcessed(AnalysisReportDto.newForTests(5L).setCreatedAt(new Date(0L)).setStartedAt(new Date(300L)), 150L);
+
+    WsTester.TestRequest request = tester.newGetRequest(AnalysisReportWebService.API_ENDPOINT, "stats");
+    request.execute().assertJson("{\"queue\": {\"pending\": 2, \"working\": 1}, \"workerCount\": 4, " +
+      "\"workers\": [{\"name\": \"" + Thread.currentThread().getName() + "\", \"processed\": 2, \"failed\": 0, \"avgProcessingTimeMs\": 100, \"avgWaitingTimeMs\": 200}]}");
+  }
+
+  @Test
+  public void define() throws Exception {
+    assertThat(tester.controller(AnalysisReportWebService.API_ENDPOINT).action("stats")).isNotNull();
+  }
+}
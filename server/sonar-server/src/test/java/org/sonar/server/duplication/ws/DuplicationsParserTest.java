@@ -30,7 +30,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
 import org.sonar.core.component.ComponentDto;
+import org.sonar.core.duplication.DuplicationsDataCodec;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.server.component.ComponentTesting;
 import org.sonar.server.component.db.ComponentDao;
@@ -39,6 +41,7 @@ import javax.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -177,6 +180,48 @@ public class DuplicationsParserTest {
     assertThat(blocks.get(1).duplications().get(1).from()).isEqualTo(83);
   }
 
+  @Test
+  public void same_duplications_in_binary_and_legacy_xml() throws Exception {
+    String key = "org.codehaus.sonar:sonar-plugin-api:src/main/java/org/sonar/api/utils/command/CommandExecutor.java";
+    List<DuplicationGroup> groups = Arrays.asList(
+      new DuplicationGroup(new DuplicationGroup.Block(key, 31, 5)).addDuplicate(new DuplicationGroup.Block(key, 20, 5)));
+
+    List<DuplicationsParser.Block> xmlBlocks = parser.parse(currentFile, getData("duplication_on_same_file.xml"), session);
+    List<DuplicationsParser.Block> binaryBlocks = parser.parse(currentFile, DuplicationsDataCodec.toText(DuplicationsDataCodec.encode(groups)), session);
+
+    assertThat(binaryBlocks).hasSize(xmlBlocks.size());
+    List<DuplicationsParser.Duplication> xmlDuplications = xmlBlocks.get(0).duplications();
+    List<DuplicationsParser.Duplication> binaryDuplications = binaryBlocks.get(0).duplications();
+    assertThat(binaryDuplications).hasSize(xmlDuplications.size());
+    for (int i = 0; i < xmlDuplications.size(); i++) {
+      assertThat(binaryDuplications.get(i).file()).isEqualTo(xmlDuplications.get(i).file());
+      assertThat(binaryDuplications.get(i).from()).isEqualTo(xmlDuplications.get(i).from());
+      assertThat(binaryDuplications.get(i).size()).isEqualTo(xmlDuplications.get(i).size());
+    }
+  }
+
+  @Test
+  public void binary_duplications_on_many_blocks() throws Exception {
+    String currentKey = currentFile.key();
+    String otherKey = "com.sonarsource.orchestrator:sonar-orchestrator:src/main/java/com/sonar/orchestrator/util/CommandExecutor.java";
+    List<DuplicationGroup> groups = Arrays.asList(
+      new DuplicationGroup(new DuplicationGroup.Block(currentKey, 94, 101)).addDuplicate(new DuplicationGroup.Block(otherKey, 83, 101)),
+      new DuplicationGroup(new DuplicationGroup.Block(currentKey, 38, 40)).addDuplicate(new DuplicationGroup.Block(otherKey, 29, 39)));
+    String data = DuplicationsDataCodec.toText(DuplicationsDataCodec.encode(groups));
+
+    List<DuplicationsParser.Block> blocks = parser.parse(currentFile, data, session);
+    assertThat(blocks).hasSize(2);
+
+    assertThat(blocks.get(0).duplications().get(0).file()).isEqualTo(currentFile);
+    assertThat(blocks.get(0).duplications().get(0).from()).isEqualTo(38);
+    assertThat(blocks.get(0).duplications().get(0).size()).isEqualTo(40);
+    assertThat(blocks.get(0).duplications().get(1).from()).isEqualTo(29);
+
+    assertThat(blocks.get(1).duplications().get(0).from()).isEqualTo(94);
+    assertThat(blocks.get(1).duplications().get(1).from()).isEqualTo(83);
+    assertThat(blocks.get(1).duplications().get(1).size()).isEqualTo(101);
+  }
+
   @Test
   public void duplication_on_removed_file() throws Exception {
     List<DuplicationsParser.Block> blocks = parser.parse(currentFile, getData("duplication_on_removed_file.xml"), session);
@@ -0,0 +1,218 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.user.User;
+import org.sonar.api.user.UserFinder;
+import org.sonar.core.component.ComponentDto;
+import org.sonar.core.persistence.DbSession;
+import org.sonar.core.user.DefaultUser;
+import org.sonar.server.component.ComponentTesting;
+import org.sonar.server.component.db.ComponentDao;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.rule.Rule;
+import org.sonar.server.rule.RuleService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IssueReferentialsCacheTest {
+
+  @Mock
+  DbClient dbClient;
+
+  @Mock
+  ComponentDao componentDao;
+
+  @Mock
+  DbSession session;
+
+  @Mock
+  RuleService ruleService;
+
+  @Mock
+  UserFinder userFinder;
+
+  IssueReferentialsCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    when(dbClient.componentDao()).thenReturn(componentDao);
+    cache = new IssueReferentialsCache(dbClient, ruleService, userFinder);
+  }
+
+  @Test
+  public void load_only_missing_components() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto("P1");
+    ComponentDto file = ComponentTesting.newFileDto(project, "F1");
+    when(componentDao.getByUuids(session, Arrays.asList("P1"))).thenReturn(Arrays.asList(project));
+    when(componentDao.getByUuids(session, Arrays.asList("F1", "UNKNOWN"))).thenReturn(Arrays.asList(file));
+
+    assertThat(cache.componentsByUuid(session, Arrays.asList("P1")).keySet()).containsOnly("P1");
+    Map<String, ComponentDto> components = cache.componentsByUuid(session, Arrays.asList("P1", "F1", "UNKNOWN"));
+
+    assertThat(components).hasSize(2);
+    assertThat(components.get("P1").key()).isEqualTo(project.key());
+    assertThat(components.get("F1")).isSameAs(file);
+    verify(componentDao).getByUuids(session, Arrays.asList("P1"));
+    verify(componentDao).getByUuids(session, Arrays.asList("F1", "UNKNOWN"));
+
+    // all components are cached, except the unknown one
+    assertThat(cache.componentByUuid(session, "F1").key()).isEqualTo(file.key());
+    cache.componentsByUuid(session, Arrays.asList("P1", "F1"));
+    verify(componentDao, times(2)).getByUuids(any(DbSession.class), anyCollectionOf(String.class));
+  }
+
+  @Test
+  public void load_component_by_uuid() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto("P1");
+    when(componentDao.getByUuid(session, "P1")).thenReturn(project);
+
+    assertThat(cache.componentByUuid(session, "P1")).isSameAs(project);
+    assertThat(cache.componentByUuid(session, "P1").key()).isEqualTo(project.key());
+
+    verify(componentDao, times(1)).getByUuid(session, "P1");
+  }
+
+  @Test
+  public void cached_components_are_copied() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto("P1");
+    when(componentDao.getByUuid(session, "P1")).thenReturn(project);
+
+    cache.componentByUuid(session, "P1").setName("Changed by first request");
+    project.setName("Changed after load");
+    ComponentDto cachedProject = cache.componentByUuid(session, "P1");
+
+    assertThat(cachedProject).isNotSameAs(project);
+    assertThat(cachedProject.uuid()).isEqualTo("P1");
+    assertThat(cachedProject.key()).isEqualTo(project.key());
+    assertThat(cachedProject.name()).isEqualTo("NAME_P1");
+    assertThat(cache.componentsByUuid(session, Arrays.asList("P1")).get("P1")).isNotSameAs(cachedProject);
+    verify(componentDao, times(1)).getByUuid(session, "P1");
+  }
+
+  @Test
+  public void entries_expire() throws Exception {
+    cache = new IssueReferentialsCache(dbClient, ruleService, userFinder, 1L);
+    ComponentDto project = ComponentTesting.newProjectDto("P1");
+    when(componentDao.getByUuid(session, "P1")).thenReturn(project);
+    cache.componentByUuid(session, "P1");
+
+    Thread.sleep(50L);
+    cache.componentByUuid(session, "P1");
+    verify(componentDao, times(2)).getByUuid(session, "P1");
+  }
+
+  @Test
+  public void clear_components() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto("P1");
+    when(componentDao.getByUuid(session, "P1")).thenReturn(project);
+    cache.componentByUuid(session, "P1");
+
+    cache.clearComponents();
+    cache.componentByUuid(session, "P1");
+
+    verify(componentDao, times(2)).getByUuid(session, "P1");
+  }
+
+  @Test
+  public void load_only_missing_rules() throws Exception {
+    RuleKey key1 = RuleKey.of("squid", "S1");
+    RuleKey key2 = RuleKey.of("squid", "S2");
+    Rule rule1 = newRule(key1);
+    Rule rule2 = newRule(key2);
+    when(ruleService.getNonNullByKey(key1)).thenReturn(rule1);
+    when(ruleService.getByKeys(Arrays.asList(key2))).thenReturn(Arrays.asList(rule2));
+
+    assertThat(cache.ruleByKey(key1)).isSameAs(rule1);
+    Map<RuleKey, Rule> rules = cache.rulesByKey(Arrays.asList(key1, key2));
+
+    assertThat(rules).hasSize(2);
+    assertThat(rules.get(key2)).isSameAs(rule2);
+    verify(ruleService).getByKeys(Arrays.asList(key2));
+
+    cache.clearRules();
+    when(ruleService.getByKeys(anyCollectionOf(RuleKey.class))).thenReturn(Arrays.asList(rule1, rule2));
+    assertThat(cache.rulesByKey(Arrays.asList(key1, key2))).hasSize(2);
+  }
+
+  @Test
+  public void load_only_missing_users() throws Exception {
+    User john = new DefaultUser().setLogin("john").setName("John");
+    User max = new DefaultUser().setLogin("max").setName("Max");
+    when(userFinder.findByLogins(Arrays.asList("john", "max"))).thenReturn(Arrays.asList(john, max));
+    when(userFinder.findByLogin("max")).thenReturn(max);
+
+    assertThat(cache.usersByLogin(Arrays.asList("john", "max")).keySet()).containsOnly("john", "max");
+    assertThat(cache.usersByLogin(Arrays.asList("john", "max")).keySet()).containsOnly("john", "max");
+    assertThat(cache.userByLogin("max")).isSameAs(max);
+    verify(userFinder, times(1)).findByLogins(anyListOf(String.class));
+
+    cache.clearUsers();
+    assertThat(cache.userByLogin("max")).isSameAs(max);
+    assertThat(cache.userByLogin("unknown")).isNull();
+    verify(userFinder).findByLogin("max");
+  }
+
+  @Test
+  public void do_not_request_when_nothing_is_missing() throws Exception {
+    assertThat(cache.componentsByUuid(session, Collections.<String>emptyList())).isEmpty();
+    assertThat(cache.rulesByKey(Collections.<RuleKey>emptyList())).isEmpty();
+    assertThat(cache.usersByLogin(Collections.<String>emptyList())).isEmpty();
+
+    verifyZeroInteractions(componentDao, ruleService, userFinder);
+  }
+
+  @Test
+  public void clear_all() throws Exception {
+    User john = new DefaultUser().setLogin("john");
+    when(userFinder.findByLogin("john")).thenReturn(john);
+    cache.userByLogin("john");
+
+    cache.clear();
+    cache.userByLogin("john");
+
+    verify(userFinder, times(2)).findByLogin("john");
+  }
+
+  private static Rule newRule(RuleKey key) {
+    Rule rule = mock(Rule.class);
+    when(rule.key()).thenReturn(key);
+    return rule;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IssueAuthorizationCacheTest {
+
+  IssueAuthorizationCache cache = new IssueAuthorizationCache();
+
+  @Test
+  public void put_and_get() throws Exception {
+    assertThat(cache.get("guy")).isNull();
+
+    cache.put(cache.generation(), "guy", Arrays.asList("P1", "P2"));
+    assertThat(cache.get("guy")).containsOnly("P1", "P2");
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void clear_increments_generation() throws Exception {
+    long generation = cache.generation();
+    cache.put(generation, "guy", Arrays.asList("P1"));
+
+    cache.clear();
+
+    assertThat(cache.get("guy")).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(cache.generation()).isEqualTo(generation + 1);
+  }
+
+  @Test
+  public void ignore_projects_computed_before_invalidation() throws Exception {
+    long generation = cache.generation();
+    cache.clear();
+
+    cache.put(generation, "guy", Arrays.asList("P1"));
+
+    assertThat(cache.get("guy")).isNull();
+  }
+
+  @Test
+  public void evict_all_entries_when_full() throws Exception {
+    for (int i = 0; i < IssueAuthorizationCache.MAX_ENTRIES; i++) {
+      cache.put(cache.generation(), "user" + i, Collections.<String>emptyList());
+    }
+    assertThat(cache.size()).isEqualTo(IssueAuthorizationCache.MAX_ENTRIES);
+
+    cache.put(cache.generation(), "guy", Arrays.asList("P1"));
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.get("guy")).containsOnly("P1");
+  }
+
+  @Test
+  public void evict_all_entries_when_total_number_of_projects_is_reached() throws Exception {
+    cache.put(cache.generation(), "guy", projectUuids(IssueAuthorizationCache.MAX_PROJECT_UUIDS - 10));
+    cache.put(cache.generation(), "girl", projectUuids(10));
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.projectUuidsCount()).isEqualTo(IssueAuthorizationCache.MAX_PROJECT_UUIDS);
+
+    cache.put(cache.generation(), "boy", Arrays.asList("P1"));
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.projectUuidsCount()).isEqualTo(1);
+    assertThat(cache.get("boy")).containsOnly("P1");
+  }
+
+  @Test
+  public void replaced_entry_is_not_counted_twice() throws Exception {
+    cache.put(cache.generation(), "guy", Arrays.asList("P1", "P2", "P2"));
+    cache.put(cache.generation(), "guy", Arrays.asList("P1", "P2", "P3"));
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.projectUuidsCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void do_not_cache_too_many_projects() throws Exception {
+    cache.put(cache.generation(), "guy", Arrays.asList("P1"));
+
+    cache.put(cache.generation(), "admin", projectUuids(IssueAuthorizationCache.MAX_PROJECT_UUIDS + 1));
+
+    assertThat(cache.get("admin")).isNull();
+    assertThat(cache.get("guy")).containsOnly("P1");
+    assertThat(cache.projectUuidsCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void key_does_not_depend_on_order_of_groups() throws Exception {
+    assertThat(IssueAuthorizationCache.key("guy", Arrays.asList("sonar-users", "devs")))
+      .isEqualTo(IssueAuthorizationCache.key("guy", Arrays.asList("devs", "sonar-users")));
+    assertThat(IssueAuthorizationCache.key("guy", Arrays.asList("devs")))
+      .isNotEqualTo(IssueAuthorizationCache.key("guy", Arrays.asList("devs", "sonar-users")));
+    assertThat(IssueAuthorizationCache.key(null, Arrays.asList("devs")))
+      .isNotEqualTo(IssueAuthorizationCache.key("devs", Collections.<String>emptyList()));
+  }
+
+  private static List<String> projectUuids(int count) {
+    List<String> uuids = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      uuids.add("P" + i);
+    }
+    return uuids;
+  }
+}
@@ -31,6 +31,7 @@ import org.sonar.test.DbTests;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -44,6 +45,8 @@ public class IssueAuthorizationIndexerTest {
   @Rule
   public EsTester esTester = new EsTester().addDefinitions(new IssueIndexDefinition(new Settings()));
 
+  IssueAuthorizationCache cache = new IssueAuthorizationCache();
+
   @Test
   public void index_nothing() throws Exception {
     IssueAuthorizationIndexer indexer = createIndexer();
@@ -72,6 +75,25 @@ public class IssueAuthorizationIndexerTest {
     assertThat(esTester.countDocuments("issues", "issueAuthorization")).isZero();
   }
 
+  @Test
+  public void invalidate_cache_of_authorized_projects() throws Exception {
+    IssueAuthorizationIndexer indexer = createIndexer();
+    cache.put(cache.generation(), "guy", Arrays.asList("ABC"));
+
+    // nothing to index
+    indexer.index(Collections.<IssueAuthorizationDao.Dto>emptyList());
+    assertThat(cache.get("guy")).containsOnly("ABC");
+
+    IssueAuthorizationDao.Dto authorization = new IssueAuthorizationDao.Dto("ABC", System.currentTimeMillis());
+    authorization.addGroup("dev");
+    indexer.index(Arrays.asList(authorization));
+    assertThat(cache.get("guy")).isNull();
+
+    cache.put(cache.generation(), "guy", Arrays.asList("ABC"));
+    indexer.deleteProject("ABC", true);
+    assertThat(cache.get("guy")).isNull();
+  }
+
   @Test
   public void do_not_fail_when_deleting_unindexed_project() throws Exception {
     IssueAuthorizationIndexer indexer = createIndexer();
@@ -101,6 +123,6 @@ public class IssueAuthorizationIndexerTest {
   }
 
   private IssueAuthorizationIndexer createIndexer() {
-    return new IssueAuthorizationIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client());
+    return new IssueAuthorizationIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client(), cache);
   }
 }
@@ -757,6 +757,37 @@ public class IssueIndexMediumTest {
     assertThat(index.search(query.build(), new QueryContext()).getHits()).hasSize(1);
   }
 
+  @Test
+  public void authorized_issues_after_permission_change() throws Exception {
+    ComponentDto project1 = ComponentTesting.newProjectDto().setKey("project1");
+    ComponentDto file1 = ComponentTesting.newFileDto(project1).setKey("file1");
+    tester.get(ComponentDao.class).insert(session, project1, file1);
+
+    GroupDto userGroup = new GroupDto().setName("sonar-users");
+    db.groupDao().insert(session, userGroup);
+    db.issueDao().insert(session, IssueTesting.newDto(rule, file1, project1));
+    session.commit();
+    session.clearCache();
+    index();
+
+    IssueQuery query = IssueQuery.builder().build();
+    MockUserSession.set().setUserGroups("sonar-users");
+    assertThat(index.search(query, new QueryContext()).getHits()).isEmpty();
+
+    // authorized projects are cached until next change of permissions
+    PermissionChange change = new PermissionChange().setComponentKey(project1.getKey()).setGroup(userGroup.getName()).setPermission(UserRole.USER);
+    MockUserSession.set().setLogin("admin").setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
+    tester.get(InternalPermissionService.class).addPermission(change);
+    MockUserSession.set().setUserGroups("sonar-users");
+    assertThat(index.search(query, new QueryContext()).getHits()).hasSize(1);
+    assertThat(index.search(query, new QueryContext()).getHits()).hasSize(1);
+
+    MockUserSession.set().setLogin("admin").setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
+    tester.get(InternalPermissionService.class).removePermission(change);
+    MockUserSession.set().setUserGroups("sonar-users");
+    assertThat(index.search(query, new QueryContext()).getHits()).isEmpty();
+  }
+
   @Test
   public void list_assignees() throws Exception {
     db.issueDao().insert(session,
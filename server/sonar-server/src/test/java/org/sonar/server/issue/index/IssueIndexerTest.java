@@ -71,6 +71,20 @@ public class IssueIndexerTest {
     assertThat(esTester.countDocuments("issues", "issue")).isZero();
   }
 
+  @Test
+  public void index_project() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+
+    IssueIndexer indexer = createIndexer();
+    indexer.indexProject("OTHER_PROJECT");
+    assertThat(esTester.countDocuments("issues", "issue")).isZero();
+
+    indexer.indexProject("THE_PROJECT");
+    List<IssueDoc> docs = esTester.getDocuments("issues", "issue", IssueDoc.class);
+    assertThat(docs).hasSize(1);
+    assertThat(docs.get(0).projectUuid()).isEqualTo("THE_PROJECT");
+  }
+
   private IssueIndexer createIndexer() {
     return new IssueIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client());
   }
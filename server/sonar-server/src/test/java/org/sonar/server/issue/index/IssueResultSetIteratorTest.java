@@ -20,6 +20,7 @@
 package org.sonar.server.issue.index;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import org.apache.commons.dbutils.DbUtils;
 import org.junit.After;
@@ -100,4 +101,22 @@ public class IssueResultSetIteratorTest {
     assertThat(it.hasNext()).isFalse();
     it.close();
   }
+
+  @Test
+  public void select_issues_of_project() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    IssueResultSetIterator it = IssueResultSetIterator.createForProject(client, connection, "PROJECT1", 0L);
+    assertThat(Iterators.size(it)).isEqualTo(2);
+    it.close();
+
+    it = IssueResultSetIterator.createForProject(client, connection, "PROJECT1", 1420000000000L);
+    assertThat(it.hasNext()).isTrue();
+    assertThat(it.next().key()).isEqualTo("DEF");
+    assertThat(it.hasNext()).isFalse();
+    it.close();
+
+    it = IssueResultSetIterator.createForProject(client, connection, "UNKNOWN", 0L);
+    assertThat(it.hasNext()).isFalse();
+    it.close();
+  }
 }
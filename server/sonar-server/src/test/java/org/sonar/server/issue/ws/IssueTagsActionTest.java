@@ -48,7 +48,7 @@ public class IssueTagsActionTest {
   public void setUp() {
     tagsAction = new TagsAction(service);
     tester = new WsTester(
-      new IssuesWs(new IssueShowAction(null, null, null, null, null, null, null, null, null, null, null),
+      new IssuesWs(new IssueShowAction(null, null, null, null, null, null, null, null, null, null),
         new SearchAction(null, null, null, null, null, null, null, null, null, null,null),
         tagsAction, new SetTagsAction(null)));
   }
@@ -25,17 +25,17 @@ import org.sonar.api.i18n.I18n;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.server.ws.RailsHandler;
 import org.sonar.api.server.ws.WebService;
-import org.sonar.api.user.UserFinder;
 import org.sonar.api.utils.Durations;
 import org.sonar.core.issue.db.IssueChangeDao;
+import org.sonar.core.profiling.Profiling;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.debt.DebtModelService;
 import org.sonar.server.issue.IssueChangelogService;
 import org.sonar.server.issue.IssueCommentService;
 import org.sonar.server.issue.IssueQueryService;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.issue.IssueService;
 import org.sonar.server.issue.actionplan.ActionPlanService;
-import org.sonar.server.rule.RuleService;
 import org.sonar.server.ws.WsTester;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -56,11 +56,10 @@ public class IssuesWsTest {
     Durations durations = mock(Durations.class);
 
     showAction = new IssueShowAction(mock(DbClient.class), mock(IssueService.class), issueChangelogService, mock(IssueCommentService.class), actionsWriter,
-      mock(ActionPlanService.class), mock(UserFinder.class),
-      debtModelService, mock(RuleService.class), i18n, durations);
+      mock(ActionPlanService.class), debtModelService, mock(IssueReferentialsCache.class), i18n, durations);
     SearchAction searchAction = new SearchAction(mock(DbClient.class), mock(IssueChangeDao.class), mock(IssueService.class), mock(IssueActionsWriter.class),
-      mock(IssueQueryService.class), mock(RuleService.class),
-      mock(ActionPlanService.class), mock(UserFinder.class), mock(I18n.class), mock(Durations.class), mock(Languages.class));
+      mock(IssueQueryService.class), mock(IssueReferentialsCache.class),
+      mock(ActionPlanService.class), mock(I18n.class), mock(Durations.class), mock(Languages.class), mock(Profiling.class));
     tester = new WsTester(new IssuesWs(showAction, searchAction, new TagsAction(null), new SetTagsAction(null)));
   }
 
@@ -48,7 +48,7 @@ public class SetTagsActionTest {
   public void setUp() {
     setTagsAction = new SetTagsAction(service);
     tester = new WsTester(
-      new IssuesWs(new IssueShowAction(null, null, null, null, null, null, null, null, null, null, null),
+      new IssuesWs(new IssueShowAction(null, null, null, null, null, null, null, null, null, null),
         new SearchAction(null, null, null, null, null, null, null, null, null, null,null),
         new TagsAction(null), setTagsAction));
   }
@@ -183,6 +183,7 @@ public class ActiveRuleBackendMediumTest {
     List<ActiveRuleParamDto> persistedDtos =
       db.activeRuleDao().findParamsByActiveRuleKey(dbSession, activeRule.getKey());
     assertThat(persistedDtos).hasSize(2);
+    assertThat(db.activeRuleDao().findParamsByProfileKey(dbSession, profileDto.getKey())).hasSize(2);
 
     // verify es
     ActiveRule rule = index.get(ActiveRuleIndex.class).getByKey(activeRule.getKey());
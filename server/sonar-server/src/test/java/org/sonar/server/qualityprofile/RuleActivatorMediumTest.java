@@ -1029,6 +1029,34 @@ public class RuleActivatorMediumTest {
     verifyHasActiveRule(XOO_P3_KEY, RuleTesting.XOO_X2, Severity.BLOCKER, ActiveRuleDto.INHERITED, Collections.<String, String>emptyMap());
   }
 
+  @Test
+  public void bulk_activation_on_inherited_profiles() throws Exception {
+    createChildProfiles();
+
+    // x1 is already activated on child profile P2 (propagated to P3)
+    RuleActivation activation = new RuleActivation(RuleTesting.XOO_X1).setSeverity(Severity.BLOCKER);
+    activate(activation, XOO_P2_KEY);
+
+    RuleQuery query = new RuleQuery().setRepositories(Arrays.asList("xoo")).setIsTemplate(false);
+    BulkChangeResult result = ruleActivator.bulkActivate(query, XOO_P1_KEY, Severity.MINOR);
+    dbSession.clearCache();
+    assertThat(result.countSucceeded()).isEqualTo(3);
+    assertThat(result.countFailed()).isEqualTo(0);
+
+    verifyHasActiveRule(XOO_P1_KEY, RuleTesting.XOO_X1, Severity.MINOR, null, ImmutableMap.of("max", "10"));
+    verifyHasActiveRule(XOO_P1_KEY, RuleTesting.XOO_X2, Severity.MINOR, null, Collections.<String, String>emptyMap());
+    verifyHasActiveRule(XOO_P1_KEY, CUSTOM_RULE_KEY, Severity.MINOR, null, ImmutableMap.of("format", "txt"));
+
+    // propagation stops on P2 which already activated x1
+    verifyHasActiveRule(XOO_P2_KEY, RuleTesting.XOO_X1, Severity.BLOCKER, ActiveRuleDto.OVERRIDES, ImmutableMap.of("max", "10"));
+    verifyHasActiveRule(XOO_P3_KEY, RuleTesting.XOO_X1, Severity.BLOCKER, ActiveRuleDto.INHERITED, ImmutableMap.of("max", "10"));
+
+    verifyHasActiveRule(XOO_P2_KEY, RuleTesting.XOO_X2, Severity.MINOR, ActiveRuleDto.INHERITED, Collections.<String, String>emptyMap());
+    verifyHasActiveRule(XOO_P3_KEY, RuleTesting.XOO_X2, Severity.MINOR, ActiveRuleDto.INHERITED, Collections.<String, String>emptyMap());
+    verifyHasActiveRule(XOO_P3_KEY, CUSTOM_RULE_KEY, Severity.MINOR, ActiveRuleDto.INHERITED, ImmutableMap.of("format", "txt"));
+    assertThat(countActiveRules(XOO_P3_KEY)).isEqualTo(3);
+  }
+
   private int countActiveRules(String profileKey) {
     List<ActiveRuleDto> activeRuleDtos = db.activeRuleDao().findByProfileKey(dbSession, profileKey);
     List<ActiveRule> activeRules = index.findByProfile(profileKey);
@@ -36,6 +36,7 @@ import org.sonar.core.rule.RuleDto.Format;
 import org.sonar.core.rule.RuleParamDto;
 import org.sonar.server.rule.RuleTesting;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -133,6 +134,17 @@ public class RuleDaoTest extends AbstractDaoTestCase {
     assertThat(dao.getNullableByKey(session, RuleKey.of("Unknown", "AvoidComparison"))).isNull();
   }
 
+  @Test
+  public void select_by_rule_keys() throws Exception {
+    setupData("select_by_rule_key");
+    List<RuleDto> rules = dao.getByKeys(session, RuleKey.of("checkstyle", "AvoidComparison"), RuleKey.of("checkstyle", "AvoidNull"),
+      RuleKey.of("checkstyle", "Unknown"));
+
+    assertThat(rules).hasSize(2);
+    assertThat(rules.get(0).getKey().repository()).isEqualTo("checkstyle");
+    assertThat(dao.getByKeys(session, RuleKey.of("Unknown", "AvoidComparison"))).isEmpty();
+  }
+
   @Test
   public void select_by_name() throws Exception {
     setupData("select_by_name");
@@ -327,6 +339,16 @@ public class RuleDaoTest extends AbstractDaoTestCase {
     assertThat(ruleDto.getRuleId()).isEqualTo(1);
   }
 
+  @Test
+  public void select_parameters_by_rule_ids() throws Exception {
+    setupData("select_parameters_by_rule_ids");
+
+    assertThat(dao.findRuleParamsByRuleIds(session, Arrays.asList(1, 2))).hasSize(2);
+    List<RuleParamDto> ruleDtos = dao.findRuleParamsByRuleIds(session, Arrays.asList(1));
+    assertThat(ruleDtos).hasSize(1);
+    assertThat(ruleDtos.get(0).getName()).isEqualTo("myParameter");
+  }
+
   @Test
   public void insert_parameter() {
     setupData("insert_parameter");
@@ -22,6 +22,7 @@ package org.sonar.server.source.index;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
 import org.apache.commons.io.IOUtils;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
@@ -73,6 +74,17 @@ public class SourceLineIndexerTest {
     assertThat(countDocuments()).isEqualTo(2);
   }
 
+  @Test
+  public void index_source_lines_of_project() throws Exception {
+    db.prepareDbUnit(getClass(), "db.xml");
+
+    indexer.indexProject("uuid-OtherProject");
+    assertThat(countDocuments()).isEqualTo(0);
+
+    indexer.indexProject("uuid-MyProject");
+    assertThat(countDocuments()).isEqualTo(2);
+  }
+
   @Test
   public void update_already_indexed_lines() throws Exception {
     prepareIndex()
@@ -119,6 +131,35 @@ public class SourceLineIndexerTest {
       );
   }
 
+  @Test
+  public void load_line_counts_of_project() throws Exception {
+    addSource("line2.json");
+    addSource("line3.json");
+    addSource("line2_other_file.json");
+    addSource("line3_other_project.json");
+    es.client().prepareRefresh(INDEX).get();
+
+    assertThat(indexer.loadLineCountsOfProject("abcd")).hasSize(2).includes(
+      MapAssert.entry("efgh", 3),
+      MapAssert.entry("fdsq", 2));
+    assertThat(indexer.loadLineCountsOfProject("unknown")).isEmpty();
+  }
+
+  @Test
+  public void delete_removed_lines_when_line_counts_are_known() throws Exception {
+    indexer.index(Iterators.singletonIterator(newSourceFile("abcd", "efgh", 3)), ImmutableMap.<String, Integer>of());
+    indexer.index(Iterators.singletonIterator(newSourceFile("abcd", "fdsq", 2)), ImmutableMap.<String, Integer>of());
+    assertThat(countDocuments()).isEqualTo(5L);
+
+    Map<String, Integer> lineCounts = indexer.loadLineCountsOfProject("abcd");
+    indexer.index(Iterators.forArray(newSourceFile("abcd", "efgh", 1), newSourceFile("abcd", "fdsq", 0)), lineCounts);
+
+    List<SearchHit> hits = getDocuments();
+    assertThat(hits).hasSize(1);
+    assertThat(hits.get(0).getSource().get(FIELD_FILE_UUID)).isEqualTo("efgh");
+    assertThat(hits.get(0).getSource().get(FIELD_LINE)).isEqualTo(1);
+  }
+
   @Test
   public void delete_file_uuid() throws Exception {
     addSource("line2.json");
@@ -149,6 +190,20 @@ public class SourceLineIndexerTest {
     assertThat(document.get(FIELD_PROJECT_UUID)).isEqualTo("plmn");
   }
 
+  private SourceLineResultSetIterator.SourceFile newSourceFile(String projectUuid, String fileUuid, int lines) {
+    SourceLineResultSetIterator.SourceFile file = new SourceLineResultSetIterator.SourceFile(fileUuid, System.currentTimeMillis());
+    for (int line = 1; line <= lines; line++) {
+      SourceLineDoc doc = new SourceLineDoc(Maps.<String, Object>newHashMap());
+      doc.setProjectUuid(projectUuid);
+      doc.setFileUuid(fileUuid);
+      doc.setLine(line);
+      doc.setSource("line " + line);
+      doc.setUpdateDate(new Date());
+      file.addLine(doc);
+    }
+    return file;
+  }
+
   private void addSource(String fileName) throws Exception {
     prepareIndex()
       .setSource(IOUtils.toString(new FileInputStream(TestUtils.getResource(this.getClass(), fileName))))
@@ -25,11 +25,13 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.sonar.core.persistence.DbTester;
+import org.sonar.core.source.db.FileSourceDataCodec;
 import org.sonar.server.db.DbClient;
 import org.sonar.test.DbTests;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.Arrays;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
@@ -92,6 +94,46 @@ public class SourceLineResultSetIteratorTest {
     iterator.close();
   }
 
+  @Test
+  public void should_generate_source_line_documents_from_binary_data() throws Exception {
+    db.prepareDbUnit(getClass(), "shared.xml");
+    PreparedStatement stmt = connection.prepareStatement("UPDATE file_sources SET data = null, binary_data = ? WHERE id=1");
+    stmt.setBytes(1, FileSourceDataCodec.encode(Arrays.asList(
+      new String[] {"aef12a", "alice", "2014-04-25T12:34:56+0100", "1", "0", "0", "2", "0", "0", "3", "0", "0", "polop", "palap", "1,3", "class Foo {"},
+      new String[] {"abe465", "bob", "2014-07-25T12:34:56+0100", null, null, null, null, null, null, null, null, null, null, null, null, "  // Empty"})));
+    stmt.executeUpdate();
+    stmt.close();
+
+    SourceLineResultSetIterator iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L);
+    assertThat(iterator.hasNext()).isTrue();
+    SourceLineResultSetIterator.SourceFile file = iterator.next();
+    assertThat(file.getLines()).hasSize(2);
+    SourceLineDoc firstLine = file.getLines().get(0);
+    assertThat(firstLine.projectUuid()).isEqualTo("uuid-MyProject");
+    assertThat(firstLine.fileUuid()).isEqualTo("uuid-MyFile.xoo");
+    assertThat(firstLine.line()).isEqualTo(1);
+    assertThat(firstLine.scmRevision()).isEqualTo("aef12a");
+    assertThat(firstLine.scmAuthor()).isEqualTo("alice");
+    assertThat(firstLine.highlighting()).isEqualTo("polop");
+    assertThat(firstLine.symbols()).isEqualTo("palap");
+    assertThat(firstLine.duplications()).containsOnly(1, 3);
+    assertThat(firstLine.source()).isEqualTo("class Foo {");
+    assertThat(firstLine.utLineHits()).isEqualTo(1);
+    assertThat(firstLine.itLineHits()).isEqualTo(2);
+    assertThat(firstLine.overallLineHits()).isEqualTo(3);
+    assertThat(firstLine.overallConditions()).isEqualTo(0);
+
+    // null values are converted the same way than empty CSV values
+    SourceLineDoc secondLine = file.getLines().get(1);
+    assertThat(secondLine.line()).isEqualTo(2);
+    assertThat(secondLine.highlighting()).isEmpty();
+    assertThat(secondLine.symbols()).isEmpty();
+    assertThat(secondLine.duplications()).isEmpty();
+    assertThat(secondLine.utLineHits()).isNull();
+    assertThat(secondLine.source()).isEqualTo("  // Empty");
+    iterator.close();
+  }
+
   @Test
   public void should_ignore_lines_already_handled() throws Exception {
     db.prepareDbUnit(getClass(), "shared.xml");
@@ -34,6 +34,7 @@ import org.sonar.core.permission.GlobalPermissions;
 import org.sonar.core.user.UserDao;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.issue.IssueReferentialsCache;
 
 import java.util.Map;
 
@@ -50,7 +51,8 @@ public class DefaultUserServiceTest {
   UserService userService = mock(UserService.class);
   UserFinder finder = mock(UserFinder.class);
   UserDao dao = mock(UserDao.class);
-  DefaultUserService service = new DefaultUserService(userService, finder, dao);
+  IssueReferentialsCache issueReferentials = mock(IssueReferentialsCache.class);
+  DefaultUserService service = new DefaultUserService(userService, finder, dao, issueReferentials);
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
@@ -115,6 +117,7 @@ public class DefaultUserServiceTest {
     MockUserSession.set().setLogin("simon").setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
     service.deactivate("julien");
     verify(dao).deactivateUserByLogin("julien");
+    verify(issueReferentials).clearUsers();
     verify(userService).index();
   }
 
@@ -45,6 +45,7 @@ import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.Message;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.issue.IssueReferentialsCache;
 import org.sonar.server.user.db.GroupDao;
 import org.sonar.server.user.db.UserDao;
 import org.sonar.server.user.db.UserGroupDao;
@@ -70,6 +71,9 @@ public class UserUpdaterTest {
   @Mock
   NewUserNotifier newUserNotifier;
 
+  @Mock
+  IssueReferentialsCache issueReferentials;
+
   @Captor
   ArgumentCaptor<NewUserHandler.Context> newUserHandler;
 
@@ -91,7 +95,8 @@ public class UserUpdaterTest {
     GroupMembershipDao groupMembershipDao = new GroupMembershipDao(db.myBatis());
     groupMembershipFinder = new GroupMembershipFinder(userDao, groupMembershipDao);
 
-    userUpdater = new UserUpdater(newUserNotifier, settings, userGroupDao, new DbClient(db.database(), db.myBatis(), userDao, groupDao), system2);
+    userUpdater = new UserUpdater(newUserNotifier, settings, userGroupDao, new DbClient(db.database(), db.myBatis(), userDao, groupDao), system2,
+      issueReferentials);
   }
 
   @After
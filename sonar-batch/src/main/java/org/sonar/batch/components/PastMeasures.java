@@ -0,0 +1,130 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.components;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Values of past measures, indexed by resource id, metric id, characteristic id, person id and rule id.
+ * Keys are stored in a flat int array with open addressing, so that the measures of a whole module
+ * can be kept in memory without allocating an object per measure. Missing optional ids are stored as 0.
+ *
+ * @since 5.1
+ */
+public class PastMeasures {
+
+  private static final int KEY_LENGTH = 5;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int[] keys;
+  private double[] values;
+  private boolean[] used;
+  private int size = 0;
+
+  public PastMeasures() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  public void add(int resourceId, int metricId, @Nullable Integer characteristicId, @Nullable Integer personId, @Nullable Integer ruleId, double value) {
+    if ((size + 1) * 3 > used.length * 2) {
+      grow();
+    }
+    put(resourceId, metricId, toInt(characteristicId), toInt(personId), toInt(ruleId), value);
+  }
+
+  /**
+   * @return the past value, or null if the measure does not exist
+   */
+  @CheckForNull
+  public Double getValue(int resourceId, int metricId, @Nullable Integer characteristicId, @Nullable Integer personId, @Nullable Integer ruleId) {
+    int slot = find(resourceId, metricId, toInt(characteristicId), toInt(personId), toInt(ruleId));
+    return used[slot] ? values[slot] : null;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void put(int resourceId, int metricId, int characteristicId, int personId, int ruleId, double value) {
+    int slot = find(resourceId, metricId, characteristicId, personId, ruleId);
+    if (!used[slot]) {
+      int offset = slot * KEY_LENGTH;
+      keys[offset] = resourceId;
+      keys[offset + 1] = metricId;
+      keys[offset + 2] = characteristicId;
+      keys[offset + 3] = personId;
+      keys[offset + 4] = ruleId;
+      used[slot] = true;
+      size++;
+    }
+    values[slot] = value;
+  }
+
+  private int find(int resourceId, int metricId, int characteristicId, int personId, int ruleId) {
+    int mask = used.length - 1;
+    int slot = hash(resourceId, metricId, characteristicId, personId, ruleId) & mask;
+    while (used[slot] && !matches(slot, resourceId, metricId, characteristicId, personId, ruleId)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private boolean matches(int slot, int resourceId, int metricId, int characteristicId, int personId, int ruleId) {
+    int offset = slot * KEY_LENGTH;
+    return keys[offset] == resourceId && keys[offset + 1] == metricId && keys[offset + 2] == characteristicId
+      && keys[offset + 3] == personId && keys[offset + 4] == ruleId;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    double[] oldValues = values;
+    boolean[] oldUsed = used;
+    allocate(oldUsed.length * 2);
+    size = 0;
+    for (int slot = 0; slot < oldUsed.length; slot++) {
+      if (oldUsed[slot]) {
+        int offset = slot * KEY_LENGTH;
+        put(oldKeys[offset], oldKeys[offset + 1], oldKeys[offset + 2], oldKeys[offset + 3], oldKeys[offset + 4], oldValues[slot]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity * KEY_LENGTH];
+    values = new double[capacity];
+    used = new boolean[capacity];
+  }
+
+  private static int hash(int resourceId, int metricId, int characteristicId, int personId, int ruleId) {
+    int h = resourceId;
+    h = 31 * h + metricId;
+    h = 31 * h + characteristicId;
+    h = 31 * h + personId;
+    h = 31 * h + ruleId;
+    // spread the bits as the table size is a power of two
+    h ^= (h >>> 20) ^ (h >>> 12);
+    return h ^ (h >>> 7) ^ (h >>> 4);
+  }
+
+  private static int toInt(@Nullable Integer id) {
+    return id != null ? id : 0;
+  }
+}
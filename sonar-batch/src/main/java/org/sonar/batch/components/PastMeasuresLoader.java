@@ -29,10 +29,13 @@ import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.MetricFinder;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.persistence.Query;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -91,6 +94,39 @@ public class PastMeasuresLoader implements BatchExtension {
     return q.getResultList();
   }
 
+  /**
+   * Loads in a single query the past measures of the module analyzed in the given past snapshot and of
+   * its directories, unit test files and sub-modules. Measures are indexed by resource id.
+   *
+   * @since 5.1
+   */
+  public PastMeasures loadPastMeasures(@Nullable PastSnapshot projectPastSnapshot) {
+    PastMeasures pastMeasures = new PastMeasures();
+    if (projectPastSnapshot == null || projectPastSnapshot.getProjectSnapshot() == null) {
+      return pastMeasures;
+    }
+    Snapshot moduleSnapshot = projectPastSnapshot.getProjectSnapshot();
+    String sql = "select s.project_id, m.metric_id, m.characteristic_id, m.person_id, m.rule_id, m.value from project_measures m, snapshots s" +
+      " where m.snapshot_id=s.id and m.metric_id in (:metricIds) and m.value is not null" +
+      "       and (s.id=:moduleSnapshotId or (s.root_snapshot_id=:rootSnapshotId and s.path like :modulePath))" +
+      "       and s.status=:status and (s.scope in (:scopes) or s.qualifier=:unitTest)";
+    Query q = session.createNativeQuery(sql)
+      .setParameter("metricIds", metricByIds.keySet())
+      .setParameter("moduleSnapshotId", moduleSnapshot.getId())
+      .setParameter("rootSnapshotId", ObjectUtils.defaultIfNull(moduleSnapshot.getRootId(), moduleSnapshot.getId()))
+      .setParameter("modulePath", StringUtils.defaultString(moduleSnapshot.getPath()) + moduleSnapshot.getId() + ".%")
+      .setParameter("status", Snapshot.STATUS_PROCESSED)
+      .setParameter("scopes", Arrays.asList(Scopes.PROJECT, Scopes.DIRECTORY))
+      .setParameter("unitTest", Qualifiers.UNIT_TEST_FILE);
+    for (Object row : q.getResultList()) {
+      Object[] fields = (Object[]) row;
+      // numbers can be BigDecimal on Oracle
+      pastMeasures.add(((Number) fields[0]).intValue(), ((Number) fields[1]).intValue(), toInteger(fields[2]), toInteger(fields[3]), toInteger(fields[4]),
+        ((Number) fields[5]).doubleValue());
+    }
+    return pastMeasures;
+  }
+
   public static int getMetricId(Object[] row) {
     // can be BigDecimal on Oracle
     return ((Number) row[0]).intValue();
@@ -114,6 +150,11 @@ public class PastMeasuresLoader implements BatchExtension {
     return number != null ? number.intValue() : null;
   }
 
+  @CheckForNull
+  private static Integer toInteger(@Nullable Object number) {
+    return number != null ? ((Number) number).intValue() : null;
+  }
+
   public static boolean hasValue(Object[] row) {
     return row[4] != null;
   }
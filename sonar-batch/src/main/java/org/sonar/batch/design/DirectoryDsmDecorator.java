@@ -27,7 +27,6 @@ import org.sonar.api.resources.ResourceUtils;
 import org.sonar.graph.Cycle;
 import org.sonar.graph.Edge;
 import org.sonar.graph.IncrementalCyclesAndFESSolver;
-import org.sonar.graph.MinimumFeedbackEdgeSetSolver;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,11 +50,9 @@ public class DirectoryDsmDecorator extends DsmDecorator {
 
   @Override
   protected Set<Edge> doProcess(List<Resource> children, DecoratorContext context) {
-    IncrementalCyclesAndFESSolver<Resource> cycleDetector = new IncrementalCyclesAndFESSolver<Resource>(getIndex(), children);
-    Set<Cycle> cycles = cycleDetector.getCycles();
-
-    MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
-    Set<Edge> feedbackEdges = solver.getEdges();
+    IncrementalCyclesAndFESSolver<Resource> solver = new IncrementalCyclesAndFESSolver<Resource>(getIndex(), children);
+    Set<Cycle> cycles = solver.getCycles();
+    Set<Edge> feedbackEdges = solver.getFeedbackEdgeSet();
     int tangles = solver.getWeightOfFeedbackEdgeSet();
 
     savePositiveMeasure(context, CoreMetrics.FILE_CYCLES, cycles.size());
@@ -44,7 +44,7 @@ public abstract class DsmDecorator implements Decorator {
 
   private static final Logger LOG = LoggerFactory.getLogger(DsmDecorator.class);
 
-  private static final int MAX_DSM_DIMENSION = 200;
+  private static final int MAX_DSM_DIMENSION = 500;
   private SonarIndex index;
 
   public DsmDecorator(SonarIndex index) {
@@ -73,9 +73,10 @@ public abstract class DsmDecorator implements Decorator {
         LOG.warn("Too many components under resource '" + resource.getName() + "'. DSM will not be displayed.");
         return;
       }
-      Dsm<Resource> dsm = getDsm(children, feedbackEdges);
-      // Optimization, don't save DSM if there is no dependency at all
+      Dsm<Resource> dsm = new Dsm<Resource>(index, children, feedbackEdges);
+      // Optimization, don't sort nor save DSM if there is no dependency at all
       if (dsm.hasAtLeastOneDependency()) {
+        DsmTopologicalSorter.sort(dsm);
         saveDsm(context, dsm);
       }
     }
@@ -93,12 +94,6 @@ public abstract class DsmDecorator implements Decorator {
     context.saveMeasure(measure);
   }
 
-  protected final Dsm<Resource> getDsm(Collection<Resource> children, Set<Edge> feedbackEdges) {
-    Dsm<Resource> dsm = new Dsm<Resource>(index, children, feedbackEdges);
-    DsmTopologicalSorter.sort(dsm);
-    return dsm;
-  }
-
   protected final void savePositiveMeasure(DecoratorContext context, Metric<Integer> metric, double value) {
     if (value >= 0.0) {
       context.saveMeasure(new Measure(metric, value));
@@ -24,6 +24,10 @@ import org.sonar.api.resources.Resource;
 import org.sonar.graph.Dsm;
 import org.sonar.graph.DsmCell;
 
+/**
+ * Serializes the DSM in JSON, one object per row. Only the non-empty cells of a row are listed in the field "s",
+ * as arrays [column, dependency id, weight] followed by 1 if the dependency is a feedback edge.
+ */
 public final class DsmSerializer {
 
   private Dsm dsm;
@@ -61,29 +65,35 @@ public final class DsmSerializer {
       json.append(resource.getName());
       json.append("\",\"q\":\"");
       json.append(resource.getQualifier());
-      json.append("\",\"v\":[");
+      json.append("\",\"s\":[");
+      boolean first = true;
       for (int x = 0; x < dsm.getDimension(); x++) {
-        if (x > 0) {
-          json.append(',');
+        DsmCell cell = dsm.cell(x, y);
+        if (cell != null && cell.getEdge() != null && cell.getWeight() > 0) {
+          if (!first) {
+            json.append(',');
+          }
+          serializeCell(x, cell);
+          first = false;
         }
-        serializeCell(y, x);
       }
       json.append("]");
     }
     json.append("}");
   }
 
-  private void serializeCell(int y, int x) {
-    DsmCell cell = dsm.cell(x, y);
-    json.append('{');
-    if (cell != null && cell.getEdge() != null && cell.getWeight() > 0) {
-      Dependency dep = (Dependency) cell.getEdge();
-      json.append("\"i\":");
-      json.append(dep.getId());
-      json.append(",\"w\":");
-      json.append(cell.getWeight());
+  private void serializeCell(int x, DsmCell cell) {
+    Dependency dep = (Dependency) cell.getEdge();
+    json.append('[');
+    json.append(x);
+    json.append(',');
+    json.append(dep.getId());
+    json.append(',');
+    json.append(cell.getWeight());
+    if (cell.isFeedbackEdge()) {
+      json.append(",1");
     }
-    json.append('}');
+    json.append(']');
   }
 
   public static String serialize(Dsm<Resource> dsm) {
@@ -28,7 +28,6 @@ import org.sonar.api.resources.ResourceUtils;
 import org.sonar.graph.Cycle;
 import org.sonar.graph.Edge;
 import org.sonar.graph.IncrementalCyclesAndFESSolver;
-import org.sonar.graph.MinimumFeedbackEdgeSetSolver;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -52,11 +51,9 @@ public class SubProjectDsmDecorator extends DsmDecorator {
 
   @Override
   protected Set<Edge> doProcess(List<Resource> children, DecoratorContext context) {
-    IncrementalCyclesAndFESSolver<Resource> cycleDetector = new IncrementalCyclesAndFESSolver<Resource>(getIndex(), children);
-    Set<Cycle> cycles = cycleDetector.getCycles();
-
-    MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
-    Set<Edge> feedbackEdges = solver.getEdges();
+    IncrementalCyclesAndFESSolver<Resource> solver = new IncrementalCyclesAndFESSolver<Resource>(getIndex(), children);
+    Set<Cycle> cycles = solver.getCycles();
+    Set<Edge> feedbackEdges = solver.getFeedbackEdgeSet();
     int tangles = solver.getWeightOfFeedbackEdgeSet();
 
     savePositiveMeasure(context, CoreMetrics.DIRECTORY_CYCLES, cycles.size());
@@ -24,6 +24,7 @@ import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
 import org.sonar.batch.index.Cache;
 import org.sonar.batch.index.Cache.Entry;
 import org.sonar.batch.index.Caches;
+import org.sonar.core.duplication.DuplicationsDataCodec;
 
 import javax.annotation.CheckForNull;
 
@@ -31,27 +32,31 @@ import java.util.List;
 
 /**
  * Cache of duplication blocks. This cache is shared amongst all project modules.
+ * Duplications of each component are stored in the binary format of {@link DuplicationsDataCodec}.
  */
 public class DuplicationCache implements BatchComponent {
 
-  private final Cache<List<DuplicationGroup>> cache;
+  private final Cache<byte[]> cache;
 
   public DuplicationCache(Caches caches) {
-    caches.registerValueCoder(DuplicationGroup.class, new DuplicationGroupValueCoder());
     cache = caches.createCache("duplications");
   }
 
-  public Iterable<Entry<List<DuplicationGroup>>> entries() {
+  /**
+   * @return duplications of each component, encoded by {@link DuplicationsDataCodec#encode(List)}
+   */
+  public Iterable<Entry<byte[]>> entries() {
     return cache.entries();
   }
 
   @CheckForNull
   public List<DuplicationGroup> byComponent(String effectiveKey) {
-    return cache.get(effectiveKey);
+    byte[] data = cache.get(effectiveKey);
+    return data == null ? null : DuplicationsDataCodec.decode(data);
   }
 
   public DuplicationCache put(String effectiveKey, List<DuplicationGroup> blocks) {
-    cache.put(effectiveKey, blocks);
+    cache.put(effectiveKey, DuplicationsDataCodec.encode(blocks));
     return this;
   }
 
@@ -34,40 +34,51 @@ import java.util.Set;
 
 /**
  * <p>
- * This cache is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * This cache is thread-safe. A {@link com.persistit.Exchange}, which is not thread-safe, is lazily
+ * created for each thread accessing the cache. Iterables must be consumed by the thread
+ * that created them.
  * </p>
  */
 public class Cache<V> {
 
   private final String name;
-  private final Exchange exchange;
+  private final ThreadLocal<Exchange> exchanges;
 
-  Cache(String name, Exchange exchange) {
+  Cache(final String name, final ExchangeFactory exchangeFactory) {
     this.name = name;
-    this.exchange = exchange;
+    this.exchanges = new ThreadLocal<Exchange>() {
+      @Override
+      protected Exchange initialValue() {
+        try {
+          return exchangeFactory.create(name);
+        } catch (PersistitException e) {
+          throw new IllegalStateException("Fail to access cache " + name, e);
+        }
+      }
+    };
+  }
+
+  interface ExchangeFactory {
+    Exchange create(String cacheName) throws PersistitException;
   }
 
   public Cache<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(resetKey(key), value);
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return doPut(resetKey(firstKey, secondKey), value);
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return doPut(resetKey(firstKey, secondKey, thirdKey), value);
   }
 
   public Cache<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(resetKey(key), value);
   }
 
-  private Cache<V> doPut(V value) {
+  private Cache<V> doPut(Exchange exchange, V value) {
     try {
       exchange.getValue().put(value);
       exchange.store();
@@ -81,8 +92,7 @@ public class Cache<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return doGet(resetKey(key));
   }
 
   /**
@@ -90,8 +100,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return doGet(resetKey(firstKey, secondKey));
   }
 
   /**
@@ -99,8 +108,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return doGet(resetKey(firstKey, secondKey, thirdKey));
   }
 
   /**
@@ -108,13 +116,12 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
+    return doGet(resetKey(key));
   }
 
   @SuppressWarnings("unchecked")
   @CheckForNull
-  private V doGet() {
+  private V doGet(Exchange exchange) {
     try {
       exchange.fetch();
       if (!exchange.getValue().isDefined()) {
@@ -128,26 +135,22 @@ public class Cache<V> {
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return doContainsKey(resetKey(key));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return doContainsKey(resetKey(firstKey, secondKey));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return doContainsKey(resetKey(firstKey, secondKey, thirdKey));
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
+    return doContainsKey(resetKey(key));
   }
 
-  private boolean doContainsKey() {
+  private boolean doContainsKey(Exchange exchange) {
     try {
       exchange.fetch();
       return exchange.isValueDefined();
@@ -158,26 +161,22 @@ public class Cache<V> {
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(resetKey(key));
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return doRemove(resetKey(firstKey, secondKey));
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return doRemove(resetKey(firstKey, secondKey, thirdKey));
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(resetKey(key));
   }
 
-  private boolean doRemove() {
+  private boolean doRemove(Exchange exchange) {
     try {
       return exchange.remove();
     } catch (Exception e) {
@@ -192,26 +191,22 @@ public class Cache<V> {
    * @param group The group name.
    */
   public Cache<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return doClear(resetKey(key));
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return doClear(resetKey(firstKey, secondKey));
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return doClear(resetKey(firstKey, secondKey, thirdKey));
   }
 
   public Cache<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
+    return doClear(resetKey(key));
   }
 
-  private Cache<V> doClear() {
+  private Cache<V> doClear(Exchange exchange) {
     try {
       Key to = new Key(exchange.getKey());
       to.append(Key.AFTER);
@@ -227,6 +222,7 @@ public class Cache<V> {
    */
   public void clear() {
     try {
+      Exchange exchange = exchanges.get();
       exchange.clear();
       exchange.removeAll();
     } catch (Exception e) {
@@ -245,6 +241,7 @@ public class Cache<V> {
   public Set keySet(Object key) {
     try {
       Set<Object> keys = Sets.newLinkedHashSet();
+      Exchange exchange = exchanges.get();
       exchange.clear();
       Exchange iteratorExchange = new Exchange(exchange);
       iteratorExchange.append(key);
@@ -262,6 +259,7 @@ public class Cache<V> {
   public Set keySet(Object firstKey, Object secondKey) {
     try {
       Set<Object> keys = Sets.newLinkedHashSet();
+      Exchange exchange = exchanges.get();
       exchange.clear();
       Exchange iteratorExchange = new Exchange(exchange);
       iteratorExchange.append(firstKey);
@@ -284,6 +282,7 @@ public class Cache<V> {
   public Set<Object> keySet() {
     try {
       Set<Object> keys = Sets.newLinkedHashSet();
+      Exchange exchange = exchanges.get();
       exchange.clear();
       Exchange iteratorExchange = new Exchange(exchange);
       iteratorExchange.append(Key.BEFORE);
@@ -301,6 +300,7 @@ public class Cache<V> {
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
     try {
+      Exchange exchange = exchanges.get();
       exchange.clear();
       exchange.append(firstKey).append(secondKey).append(Key.BEFORE);
       Exchange iteratorExchange = new Exchange(exchange);
@@ -320,6 +320,7 @@ public class Cache<V> {
    */
   public Iterable<V> values(Object firstKey) {
     try {
+      Exchange exchange = exchanges.get();
       exchange.clear();
       exchange.append(firstKey).append(Key.BEFORE);
       Exchange iteratorExchange = new Exchange(exchange);
@@ -335,6 +336,7 @@ public class Cache<V> {
    */
   public Iterable<V> values() {
     try {
+      Exchange exchange = exchanges.get();
       exchange.clear().append(Key.BEFORE);
       Exchange iteratorExchange = new Exchange(exchange);
       KeyFilter filter = new KeyFilter().append(KeyFilter.ALL);
@@ -345,37 +347,47 @@ public class Cache<V> {
   }
 
   public Iterable<Entry<V>> entries() {
+    Exchange exchange = exchanges.get();
     exchange.clear().to(Key.BEFORE);
     KeyFilter filter = new KeyFilter().append(KeyFilter.ALL);
     return new EntryIterable<V>(new Exchange(exchange), filter);
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
+    Exchange exchange = exchanges.get();
     exchange.clear().append(firstKey).append(Key.BEFORE);
     KeyFilter filter = new KeyFilter().append(KeyFilter.simpleTerm(firstKey));
     return new EntryIterable<V>(new Exchange(exchange), filter);
   }
 
-  private void resetKey(Object key) {
+  private Exchange resetKey(Object key) {
+    Exchange exchange = exchanges.get();
     exchange.clear();
     exchange.append(key);
+    return exchange;
   }
 
-  private void resetKey(Object first, Object second) {
+  private Exchange resetKey(Object first, Object second) {
+    Exchange exchange = exchanges.get();
     exchange.clear();
     exchange.append(first).append(second);
+    return exchange;
   }
 
-  private void resetKey(Object first, Object second, Object third) {
+  private Exchange resetKey(Object first, Object second, Object third) {
+    Exchange exchange = exchanges.get();
     exchange.clear();
     exchange.append(first).append(second).append(third);
+    return exchange;
   }
 
-  private void resetKey(Object[] keys) {
+  private Exchange resetKey(Object[] keys) {
+    Exchange exchange = exchanges.get();
     exchange.clear();
     for (Object o : keys) {
       exchange.append(o);
     }
+    return exchange;
   }
 
   //
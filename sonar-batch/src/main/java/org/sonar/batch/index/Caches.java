@@ -21,6 +21,7 @@ package org.sonar.batch.index;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Sets;
+import com.persistit.BufferPool;
 import com.persistit.Exchange;
 import com.persistit.Persistit;
 import com.persistit.Value;
@@ -30,33 +31,79 @@ import com.persistit.encoding.ValueCoder;
 import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
 
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
 /**
- * Factory of caches
+ * Factory of caches.
+ * <p/>
+ * The Persistit buffer pool is sized from the maximum heap size, unless the property
+ * {@link #BUFFER_MEMORY_PROPERTY} is set. Caches are stored in a temporary volume, whose pages
+ * are written to disk only when they are evicted from the buffer pool. The caches of small
+ * projects are consequently kept in memory.
  *
  * @since 3.6
  */
 public class Caches implements BatchComponent, Startable {
 
+  /**
+   * Size of the buffer pool, in MB
+   */
+  static final String BUFFER_MEMORY_PROPERTY = "sonar.batch.cache.bufferMemoryInMB";
+
+  static final int PAGE_SIZE = 8192;
+  // at least 1MB, at most 512MB
+  static final int MIN_BUFFER_COUNT = 128;
+  static final int MAX_BUFFER_COUNT = 65536;
+  // percentage of the maximum heap size dedicated to buffer pool
+  static final int HEAP_PERCENT = 10;
+
   private final Set<String> cacheNames = Sets.newHashSet();
   private File tempDir;
   private Persistit persistit;
   private Volume volume;
   private final TempFolder tempFolder;
+  private final int bufferCount;
 
-  public Caches(TempFolder tempFolder) {
+  public Caches(TempFolder tempFolder, Settings settings) {
     this.tempFolder = tempFolder;
+    this.bufferCount = bufferCount(settings, Runtime.getRuntime().maxMemory());
     initPersistit();
   }
 
+  static int bufferCount(Settings settings, long maxHeapMemory) {
+    if (StringUtils.isNotBlank(settings.getString(BUFFER_MEMORY_PROPERTY))) {
+      long bytes = bufferMemoryInMB(settings) * 1024L * 1024L;
+      return (int) Math.max(MIN_BUFFER_COUNT, Math.min(Integer.MAX_VALUE, bytes / PAGE_SIZE));
+    }
+    long bytes = maxHeapMemory / 100L * HEAP_PERCENT;
+    return (int) Math.max(MIN_BUFFER_COUNT, Math.min(MAX_BUFFER_COUNT, bytes / PAGE_SIZE));
+  }
+
+  private static long bufferMemoryInMB(Settings settings) {
+    long value;
+    try {
+      value = settings.getLong(BUFFER_MEMORY_PROPERTY);
+    } catch (NumberFormatException e) {
+      throw MessageException.of("The property " + BUFFER_MEMORY_PROPERTY + " must be a non-negative number of MB and got " + settings.getString(BUFFER_MEMORY_PROPERTY));
+    }
+    if (value < 0L || value > Integer.MAX_VALUE) {
+      throw MessageException.of("The property " + BUFFER_MEMORY_PROPERTY + " must be a non-negative number of MB and got " + value);
+    }
+    return value;
+  }
+
   private void initPersistit() {
     try {
       tempDir = tempFolder.newDir("caches");
@@ -66,7 +113,7 @@ public class Caches implements BatchComponent, Startable {
       props.setProperty("datapath", tempDir.getAbsolutePath());
       props.setProperty("logpath", "${datapath}/log");
       props.setProperty("logfile", "${logpath}/persistit_${timestamp}.log");
-      props.setProperty("buffer.count.8192", "10");
+      props.setProperty("buffer.count." + PAGE_SIZE, String.valueOf(bufferCount));
       props.setProperty("journalpath", "${datapath}/journal");
       props.setProperty("tmpvoldir", "${datapath}");
       props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:8192,initialPages:10,extensionPages:100,maximumPages:25000");
@@ -84,13 +131,19 @@ public class Caches implements BatchComponent, Startable {
     cm.registerValueCoder(clazz, coder);
   }
 
-  public <V> Cache<V> createCache(String cacheName) {
+  public synchronized <V> Cache<V> createCache(String cacheName) {
     Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
     Preconditions.checkState(!cacheNames.contains(cacheName), "Cache is already created: " + cacheName);
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Cache<V> cache = new Cache<V>(cacheName, exchange);
+      // create the tree, then each thread accessing the cache gets its own exchange
+      Exchange exchange = newExchange(cacheName);
+      persistit.releaseExchange(exchange);
+      Cache<V> cache = new Cache<V>(cacheName, new Cache.ExchangeFactory() {
+        @Override
+        public Exchange create(String name) throws PersistitException {
+          return newExchange(name);
+        }
+      });
       cacheNames.add(cacheName);
       return cache;
     } catch (Exception e) {
@@ -98,13 +151,19 @@ public class Caches implements BatchComponent, Startable {
     }
   }
 
+  private Exchange newExchange(String cacheName) throws PersistitException {
+    Exchange exchange = persistit.getExchange(volume, cacheName, true);
+    exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+    return exchange;
+  }
+
   @Override
   public void start() {
     // already started in constructor
   }
 
   @Override
-  public void stop() {
+  public synchronized void stop() {
     if (persistit != null) {
       try {
         persistit.close(false);
@@ -119,6 +178,35 @@ public class Caches implements BatchComponent, Startable {
     cacheNames.clear();
   }
 
+  int bufferCount() {
+    return bufferCount;
+  }
+
+  /**
+   * Statistics of the buffer pool and size of the files on disk, for profiling
+   */
+  public synchronized Map<String, Long> statistics() {
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    if (persistit != null) {
+      long hits = 0L;
+      long misses = 0L;
+      long evictions = 0L;
+      for (BufferPool pool : persistit.getBufferPoolHashMap().values()) {
+        hits += pool.getHitCount();
+        misses += pool.getMissCount();
+        evictions += pool.getEvictCount();
+      }
+      stats.put("bufferPoolBytes", (long) bufferCount * PAGE_SIZE);
+      stats.put("hits", hits);
+      stats.put("misses", misses);
+      stats.put("evictions", evictions);
+    }
+    if (tempDir != null && tempDir.exists()) {
+      stats.put("bytesOnDisk", FileUtils.sizeOfDirectory(tempDir));
+    }
+    return stats;
+  }
+
   File tempDir() {
     return tempDir;
   }
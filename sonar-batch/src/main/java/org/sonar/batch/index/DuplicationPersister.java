@@ -19,7 +19,6 @@
  */
 package org.sonar.batch.index;
 
-import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
 import org.sonar.api.database.model.MeasureMapper;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.measures.CoreMetrics;
@@ -27,13 +26,11 @@ import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.batch.duplication.DuplicationCache;
-import org.sonar.batch.duplication.DuplicationUtils;
 import org.sonar.batch.index.Cache.Entry;
+import org.sonar.core.duplication.DuplicationsDataCodec;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.persistence.MyBatis;
 
-import java.util.List;
-
 public final class DuplicationPersister implements ScanPersister {
   private final MyBatis mybatis;
   private final RuleFinder ruleFinder;
@@ -57,9 +54,9 @@ public final class DuplicationPersister implements ScanPersister {
     try {
       MeasureMapper mapper = session.getMapper(MeasureMapper.class);
       org.sonar.api.measures.Metric duplicationMetricWithId = metricFinder.findByKey(CoreMetrics.DUPLICATIONS_DATA_KEY);
-      for (Entry<List<DuplicationGroup>> entry : duplicationCache.entries()) {
+      for (Entry<byte[]> entry : duplicationCache.entries()) {
         String effectiveKey = entry.key()[0].toString();
-        Measure measure = new Measure(duplicationMetricWithId, DuplicationUtils.toXml(entry.value())).setPersistenceMode(PersistenceMode.DATABASE);
+        Measure measure = new Measure(duplicationMetricWithId, DuplicationsDataCodec.toText(entry.value())).setPersistenceMode(PersistenceMode.DATABASE);
         BatchResource batchResource = resourceCache.get(effectiveKey);
 
         if (MeasurePersister.shouldPersistMeasure(batchResource.resource(), measure)) {
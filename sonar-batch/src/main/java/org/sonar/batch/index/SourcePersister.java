@@ -23,7 +23,6 @@ import com.google.common.base.CharMatcher;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.slf4j.Logger;
@@ -38,7 +37,6 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.api.utils.System2;
-import org.sonar.api.utils.text.CsvWriter;
 import org.sonar.batch.ProjectTree;
 import org.sonar.batch.duplication.DuplicationCache;
 import org.sonar.batch.highlighting.SyntaxHighlightingData;
@@ -50,6 +48,7 @@ import org.sonar.batch.symbol.SymbolData;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.persistence.MyBatis;
 import org.sonar.core.source.SnapshotDataTypes;
+import org.sonar.core.source.db.FileSourceDataCodec;
 import org.sonar.core.source.db.FileSourceDto;
 import org.sonar.core.source.db.FileSourceMapper;
 
@@ -57,7 +56,6 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -135,14 +133,14 @@ public class SourcePersister implements ScanPersister {
     org.sonar.api.resources.File file = (org.sonar.api.resources.File) resourceCache.get(inputFile.key()).resource();
     String fileUuid = file.getUuid();
     FileSourceDto previous = fileSourceDtoByFileUuid.get(fileUuid);
-    String newData = getSourceData(inputFile);
+    byte[] newData = getSourceData(inputFile);
     String newDataHash = newData != null ? DigestUtils.md5Hex(newData) : "0";
     Date now = system2.newDate();
     if (previous == null) {
       FileSourceDto newFileSource = new FileSourceDto()
         .setProjectUuid(projectTree.getRootProject().getUuid())
         .setFileUuid(fileUuid)
-        .setData(newData)
+        .setBinaryData(newData)
         .setDataHash(newDataHash)
         .setLineHashes(lineHashesAsMd5Hex(inputFile))
         .setCreatedAt(now.getTime())
@@ -152,7 +150,8 @@ public class SourcePersister implements ScanPersister {
     } else {
       if (!newDataHash.equals(previous.getDataHash())) {
         previous
-          .setData(newData)
+          .setData(null)
+          .setBinaryData(newData)
           .setLineHashes(lineHashesAsMd5Hex(inputFile))
           .setDataHash(newDataHash)
           .setUpdatedAt(now.getTime());
@@ -178,8 +177,11 @@ public class SourcePersister implements ScanPersister {
     return result.toString();
   }
 
+  /**
+   * @return the data encoded by {@link FileSourceDataCodec}, or null if the file is empty
+   */
   @CheckForNull
-  String getSourceData(DefaultInputFile file) {
+  byte[] getSourceData(DefaultInputFile file) {
     if (file.lines() == 0) {
       return null;
     }
@@ -210,15 +212,14 @@ public class SourcePersister implements ScanPersister {
     String[] symbolReferencesPerLine = computeSymbolReferencesPerLine(file, loadSymbolReferences(file));
     String[] duplicationsPerLine = computeDuplicationsPerLine(file, duplicationCache.byComponent(file.key()));
 
-    StringWriter writer = new StringWriter(file.lines() * 16);
-    CsvWriter csv = CsvWriter.of(writer);
+    List<String[]> rows = new ArrayList<String[]>(file.lines());
     for (int lineIdx = 1; lineIdx <= file.lines(); lineIdx++) {
-      csv.values(revisionsByLine.get(lineIdx), authorsByLine.get(lineIdx), datesByLine.get(lineIdx),
+      rows.add(new String[] {revisionsByLine.get(lineIdx), authorsByLine.get(lineIdx), datesByLine.get(lineIdx),
         utHitsByLine.get(lineIdx), utCondByLine.get(lineIdx), utCoveredCondByLine.get(lineIdx),
         itHitsByLine.get(lineIdx), itCondByLine.get(lineIdx), itCoveredCondByLine.get(lineIdx),
         overallHitsByLine.get(lineIdx), overallCondByLine.get(lineIdx), overallCoveredCondByLine.get(lineIdx),
         highlightingPerLine[lineIdx - 1], symbolReferencesPerLine[lineIdx - 1], duplicationsPerLine[lineIdx - 1],
-        CharMatcher.anyOf(BOM).removeFrom(lines.get(lineIdx - 1)));
+        CharMatcher.anyOf(BOM).removeFrom(lines.get(lineIdx - 1))});
       // Free memory
       revisionsByLine.remove(lineIdx);
       authorsByLine.remove(lineIdx);
@@ -237,8 +238,7 @@ public class SourcePersister implements ScanPersister {
       duplicationsPerLine[lineIdx - 1] = null;
       lines.set(lineIdx - 1, null);
     }
-    csv.close();
-    return StringUtils.defaultIfEmpty(writer.toString(), null);
+    return FileSourceDataCodec.encode(rows);
   }
 
   private String[] computeDuplicationsPerLine(DefaultInputFile file, List<DuplicationGroup> duplicationGroups) {
@@ -40,7 +40,9 @@ import org.sonar.core.resource.ResourceQuery;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ScanIssueStorage extends IssueStorage implements BatchComponent {
 
@@ -49,6 +51,12 @@ public class ScanIssueStorage extends IssueStorage implements BatchComponent {
   private final ProjectTree projectTree;
   private final UpdateConflictResolver conflictResolver = new UpdateConflictResolver();
 
+  // for profiling
+  private long insertCount = 0L;
+  private long updateCount = 0L;
+  private long conflictCount = 0L;
+  private long saveTimeMs = 0L;
+
   public ScanIssueStorage(MyBatis mybatis, RuleFinder ruleFinder, ResourceCache resourceCache, ResourceDao resourceDao, ProjectTree projectTree) {
     super(mybatis, ruleFinder);
     this.resourceCache = resourceCache;
@@ -56,6 +64,13 @@ public class ScanIssueStorage extends IssueStorage implements BatchComponent {
     this.projectTree = projectTree;
   }
 
+  @Override
+  public void save(Iterable<DefaultIssue> issues) {
+    long start = System.currentTimeMillis();
+    super.save(issues);
+    saveTimeMs += System.currentTimeMillis() - start;
+  }
+
   @Override
   protected void doInsert(DbSession session, long now, DefaultIssue issue) {
     IssueMapper issueMapper = session.getMapper(IssueMapper.class);
@@ -68,6 +83,7 @@ public class ScanIssueStorage extends IssueStorage implements BatchComponent {
     issue.setTags(allTags);
     IssueDto dto = IssueDto.toDtoForBatchInsert(issue, componentId, projectId, rule.getId(), now);
     issueMapper.insert(dto);
+    insertCount++;
   }
 
   @Override
@@ -79,13 +95,30 @@ public class ScanIssueStorage extends IssueStorage implements BatchComponent {
       issueMapper.update(dto);
 
     } else {
-      int count = issueMapper.updateIfBeforeSelectedDate(dto);
-      if (count == 0) {
-        // End-user and scan changed the issue at the same time.
-        // See https://jira.codehaus.org/browse/SONAR-4309
-        conflictResolver.resolve(issue, issueMapper);
-      }
+      // Conflicts are detected afterwards, see resolveConflicts()
+      issueMapper.updateIfBeforeSelectedDate(dto);
     }
+    updateCount++;
+  }
+
+  @Override
+  protected void resolveConflicts(DbSession session, long now, List<DefaultIssue> updatedIssues) {
+    // End-user and scan changed the same issues at the same time.
+    // See https://jira.codehaus.org/browse/SONAR-4309
+    conflictCount += conflictResolver.resolve(updatedIssues, now, session.getMapper(IssueMapper.class));
+  }
+
+  /**
+   * Number of saved issues and throughput, for profiling
+   */
+  public Map<String, Long> statistics() {
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put("insertedIssues", insertCount);
+    stats.put("updatedIssues", updateCount);
+    stats.put("conflicts", conflictCount);
+    stats.put("timeMs", saveTimeMs);
+    stats.put("issuesPerSecond", saveTimeMs > 0 ? (1000L * (insertCount + updateCount) / saveTimeMs) : 0L);
+    return stats;
   }
 
   @VisibleForTesting
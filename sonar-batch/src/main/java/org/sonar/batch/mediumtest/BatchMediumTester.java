@@ -64,6 +64,7 @@ import org.sonar.batch.scan2.ScanTaskObserver;
 import org.sonar.batch.symbol.SymbolData;
 import org.sonar.batch.test.TestCaseCoverageCache;
 import org.sonar.batch.test.TestCaseExecutionCache;
+import org.sonar.core.duplication.DuplicationsDataCodec;
 import org.sonar.core.plugins.DefaultPluginMetadata;
 import org.sonar.core.plugins.RemotePlugin;
 import org.sonar.core.source.SnapshotDataTypes;
@@ -287,9 +288,9 @@ public class BatchMediumTester {
 
     private void storeDuplication(ProjectScanContainer container) {
       DuplicationCache duplicationCache = container.getComponentByType(DuplicationCache.class);
-      for (Entry<List<DuplicationGroup>> entry : duplicationCache.entries()) {
+      for (Entry<byte[]> entry : duplicationCache.entries()) {
         String effectiveKey = entry.key()[0].toString();
-        duplications.put(effectiveKey, entry.value());
+        duplications.put(effectiveKey, DuplicationsDataCodec.decode(entry.value()));
       }
     }
 
@@ -42,6 +42,8 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.batch.bootstrap.BootstrapProperties;
 import org.sonar.batch.events.BatchStepHandler;
+import org.sonar.batch.index.Caches;
+import org.sonar.batch.issue.ScanIssueStorage;
 import org.sonar.batch.phases.Phases;
 import org.sonar.batch.phases.event.PersisterExecutionHandler;
 import org.sonar.batch.phases.event.PersistersPhaseHandler;
@@ -77,6 +79,8 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
   private DecoratorsProfiler decoratorsProfiler;
 
   private final System2 system;
+  private final Caches caches;
+  private final ScanIssueStorage issueStorage;
   private final File out;
 
   static void println(String msg) {
@@ -92,13 +96,19 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
     println(sb.toString());
   }
 
-  public PhasesSumUpTimeProfiler(System2 system, BootstrapProperties bootstrapProps) {
+  public PhasesSumUpTimeProfiler(System2 system, BootstrapProperties bootstrapProps, Caches caches) {
+    this(system, bootstrapProps, caches, null);
+  }
+
+  public PhasesSumUpTimeProfiler(System2 system, BootstrapProperties bootstrapProps, Caches caches, @Nullable ScanIssueStorage issueStorage) {
     String workingDirPath = StringUtils.defaultIfBlank(bootstrapProps.property(CoreProperties.WORKING_DIRECTORY), CoreProperties.WORKING_DIRECTORY_DEFAULT_VALUE);
     File workingDir = new File(workingDirPath).getAbsoluteFile();
     this.out = new File(workingDir, "profiling");
     this.out.mkdirs();
     this.totalProfiling = new ModuleProfiling(null, system);
     this.system = system;
+    this.caches = caches;
+    this.issueStorage = issueStorage;
   }
 
   @Override
@@ -125,7 +135,28 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
       if (module.isRoot() && !module.getModules().isEmpty()) {
         dumpTotalExecutionSummary();
       }
+      if (module.isRoot()) {
+        dumpStatistics("Caches", caches.statistics(), "caches-profiler.properties");
+        if (issueStorage != null) {
+          dumpStatistics("Issues persistence", issueStorage.statistics(), "issues-profiler.properties");
+        }
+      }
+    }
+  }
+
+  private void dumpStatistics(String title, Map<String, Long> statistics, String fileName) {
+    println("");
+    println(" ======== " + title + " ========");
+    println("");
+    Properties props = new Properties();
+    for (Map.Entry<String, Long> stat : statistics.entrySet()) {
+      println(StringUtils.rightPad("   o " + stat.getKey() + ": ", TEXT_RIGHT_PAD) + StringUtils.leftPad(String.valueOf(stat.getValue()), TIME_LEFT_PAD));
+      props.setProperty(stat.getKey(), String.valueOf(stat.getValue()));
     }
+    println("");
+    println(" ======== End of " + StringUtils.lowerCase(title) + " ========");
+    println("");
+    dumpToFile(props, fileName);
   }
 
   private void dumpTotalExecutionSummary() {
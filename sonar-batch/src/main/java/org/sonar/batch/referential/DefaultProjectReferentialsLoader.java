@@ -19,7 +19,10 @@
  */
 package org.sonar.batch.referential;
 
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
@@ -31,6 +34,7 @@ import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.batch.bootstrap.AnalysisMode;
 import org.sonar.batch.bootstrap.ServerClient;
@@ -83,51 +87,61 @@ public class DefaultProjectReferentialsLoader implements ProjectReferentialsLoad
     url += "&preview=" + analysisMode.isPreview();
     ProjectReferentials ref = ProjectReferentials.fromJson(serverClient.request(url));
 
+    Table<String, String, String> scmDataByFileKey = null;
     for (ProjectDefinition module : reactor.getProjects()) {
-
-      for (Map.Entry<String, String> hashByPaths : hashByRelativePath(module.getKeyWithBranch()).entrySet()) {
+      String moduleKey = module.getKeyWithBranch();
+      Map<String, String> hashByRelativePath = hashByRelativePath(moduleKey);
+      if (hashByRelativePath.isEmpty()) {
+        continue;
+      }
+      if (scmDataByFileKey == null) {
+        // SCM measures of all the files of the project are loaded at once
+        scmDataByFileKey = scmDataByFileKey(projectKey);
+      }
+      for (Map.Entry<String, String> hashByPaths : hashByRelativePath.entrySet()) {
         String path = hashByPaths.getKey();
-        String hash = hashByPaths.getValue();
-        String lastCommits = null;
-        String revisions = null;
-        String authors = null;
-        List<Object[]> measuresByKey = query(projectKey + ":" + path, CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE_KEY, CoreMetrics.SCM_REVISIONS_BY_LINE_KEY,
-          CoreMetrics.SCM_AUTHORS_BY_LINE_KEY);
-        for (Object[] measureByKey : measuresByKey) {
-          if (measureByKey[0].equals(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE_KEY)) {
-            lastCommits = ((MeasureModel) measureByKey[1]).getData(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE);
-          } else if (measureByKey[0].equals(CoreMetrics.SCM_REVISIONS_BY_LINE_KEY)) {
-            revisions = ((MeasureModel) measureByKey[1]).getData(CoreMetrics.SCM_REVISIONS_BY_LINE);
-          } else if (measureByKey[0].equals(CoreMetrics.SCM_AUTHORS_BY_LINE_KEY)) {
-            authors = ((MeasureModel) measureByKey[1]).getData(CoreMetrics.SCM_AUTHORS_BY_LINE);
-          }
-        }
-        ref.addFileData(module.getKeyWithBranch(), path, new FileData(hash, lastCommits, revisions, authors));
+        String fileKey = moduleKey + ":" + path;
+        ref.addFileData(moduleKey, path, new FileData(hashByPaths.getValue(),
+          scmDataByFileKey.get(fileKey, CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE_KEY),
+          scmDataByFileKey.get(fileKey, CoreMetrics.SCM_REVISIONS_BY_LINE_KEY),
+          scmDataByFileKey.get(fileKey, CoreMetrics.SCM_AUTHORS_BY_LINE_KEY)));
       }
     }
     ref.setLastAnalysisDate(lastSnapshotCreationDate(projectKey));
     return ref;
   }
 
-  public Map<String, String> hashByRelativePath(String projectKey) {
-    Map<String, String> map = Maps.newHashMap();
-    Collection<SnapshotDataDto> selectSnapshotData = dao.selectSnapshotDataByComponentKey(
-      projectKey,
-      Arrays.asList(SnapshotDataTypes.FILE_HASHES)
-      );
-    if (!selectSnapshotData.isEmpty()) {
-      SnapshotDataDto snapshotDataDto = selectSnapshotData.iterator().next();
-      String data = snapshotDataDto.getData();
-      map = KeyValueFormat.parse(data);
+  /**
+   * Data of SCM measures of the last analysis, by file key and metric key
+   */
+  private Table<String, String, String> scmDataByFileKey(String projectKey) {
+    Table<String, String, String> result = HashBasedTable.create();
+    List<Object[]> rows = queryFileMeasures(projectKey, CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE, CoreMetrics.SCM_REVISIONS_BY_LINE,
+      CoreMetrics.SCM_AUTHORS_BY_LINE);
+    Map<String, Metric> metricsByKey = Maps.newHashMap();
+    metricsByKey.put(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE_KEY, CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE);
+    metricsByKey.put(CoreMetrics.SCM_REVISIONS_BY_LINE_KEY, CoreMetrics.SCM_REVISIONS_BY_LINE);
+    metricsByKey.put(CoreMetrics.SCM_AUTHORS_BY_LINE_KEY, CoreMetrics.SCM_AUTHORS_BY_LINE);
+    for (Object[] row : rows) {
+      String fileKey = (String) row[0];
+      String metricKey = (String) row[1];
+      String data = ((MeasureModel) row[2]).getData(metricsByKey.get(metricKey));
+      if (data != null) {
+        result.put(fileKey, metricKey, data);
+      }
     }
-    return map;
+    return result;
   }
 
-  public List<Object[]> query(String resourceKey, String... metricKeys) {
+  /**
+   * Returns the measures of all the files of the project in a single query. Each row contains
+   * the file key, the metric key and the {@link MeasureModel}.
+   */
+  List<Object[]> queryFileMeasures(String projectKey, Metric... metrics) {
     StringBuilder sb = new StringBuilder();
     Map<String, Object> params = Maps.newHashMap();
 
-    sb.append("SELECT met.key, m");
+    sb.append("SELECT r.key, met.key, m");
     sb.append(" FROM ")
       .append(MeasureModel.class.getSimpleName())
       .append(" m, ")
@@ -135,21 +149,25 @@ public class DefaultProjectReferentialsLoader implements ProjectReferentialsLoad
       .append(" met, ")
       .append(ResourceModel.class.getSimpleName())
       .append(" r, ")
+      .append(ResourceModel.class.getSimpleName())
+      .append(" p, ")
       .append(Snapshot.class.getSimpleName())
-      .append(" s WHERE met.id=m.metricId AND m.snapshotId=s.id AND s.resourceId=r.id AND r.key=:kee AND s.status=:status AND s.qualifier<>:lib");
-    params.put("kee", resourceKey);
+      .append(" s WHERE met.id=m.metricId AND m.snapshotId=s.id AND s.resourceId=r.id AND s.rootProjectId=p.id AND p.key=:kee")
+      .append(" AND s.status=:status AND s.scope=:scope");
+    params.put("kee", projectKey);
     params.put("status", Snapshot.STATUS_PROCESSED);
-    params.put("lib", Qualifiers.LIBRARY);
+    params.put("scope", Scopes.FILE);
 
     sb.append(" AND m.characteristicId IS NULL");
     sb.append(" AND m.personId IS NULL");
     sb.append(" AND m.ruleId IS NULL AND m.rulePriority IS NULL");
-    if (metricKeys.length > 0) {
-      sb.append(" AND met.key IN (:metricKeys) ");
-      params.put("metricKeys", Arrays.asList(metricKeys));
+    List<String> metricKeys = Lists.newArrayList();
+    for (Metric metric : metrics) {
+      metricKeys.add(metric.getKey());
     }
+    sb.append(" AND met.key IN (:metricKeys) ");
+    params.put("metricKeys", metricKeys);
     sb.append(" AND s.last=true ");
-    sb.append(" ORDER BY s.createdAt ");
 
     Query jpaQuery = session.createQuery(sb.toString());
 
@@ -159,6 +177,20 @@ public class DefaultProjectReferentialsLoader implements ProjectReferentialsLoad
     return jpaQuery.getResultList();
   }
 
+  public Map<String, String> hashByRelativePath(String projectKey) {
+    Map<String, String> map = Maps.newHashMap();
+    Collection<SnapshotDataDto> selectSnapshotData = dao.selectSnapshotDataByComponentKey(
+      projectKey,
+      Arrays.asList(SnapshotDataTypes.FILE_HASHES)
+      );
+    if (!selectSnapshotData.isEmpty()) {
+      SnapshotDataDto snapshotDataDto = selectSnapshotData.iterator().next();
+      String data = snapshotDataDto.getData();
+      map = KeyValueFormat.parse(data);
+    }
+    return map;
+  }
+
   @CheckForNull
   Date lastSnapshotCreationDate(String resourceKey) {
     StringBuilder sb = new StringBuilder();
@@ -67,6 +67,7 @@ import org.sonar.batch.phases.GraphPersister;
 import org.sonar.batch.profiling.PhasesSumUpTimeProfiler;
 import org.sonar.batch.referential.ProjectReferentialsProvider;
 import org.sonar.batch.rule.RulesProvider;
+import org.sonar.batch.scan.filesystem.FileIndexerExecutor;
 import org.sonar.batch.scan.filesystem.InputPathCache;
 import org.sonar.batch.scan.maven.FakeMavenPluginExecutor;
 import org.sonar.batch.scan.maven.MavenPluginExecutor;
@@ -156,6 +157,7 @@ public class ProjectScanContainer extends ComponentContainer {
       // file system
       InputPathCache.class,
       PathResolver.class,
+      FileIndexerExecutor.class,
 
       // issues
       IssueUpdater.class,
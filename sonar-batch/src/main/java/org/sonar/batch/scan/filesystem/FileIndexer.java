@@ -19,10 +19,6 @@
  */
 package org.sonar.batch.scan.filesystem;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.FileFilterUtils;
-import org.apache.commons.io.filefilter.HiddenFileFilter;
-import org.apache.commons.io.filefilter.IOFileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
@@ -36,43 +32,58 @@ import org.sonar.api.batch.fs.internal.DeprecatedDefaultInputFile;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.utils.MessageException;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
  * Index input files into {@link InputPathCache}.
+ * <p/>
+ * Files are discovered by walking the source directories. Each file accepted by {@link ExclusionFilters}
+ * is immediately given to {@link FileIndexerExecutor} in order to compute its metadata, while the walk
+ * goes on. The completed files are added to the file system by the thread walking the directories,
+ * which also verifies that files are not indexed twice. The number of files being processed is bounded.
  */
 public class FileIndexer implements BatchComponent {
 
   private static final Logger LOG = LoggerFactory.getLogger(FileIndexer.class);
 
-  private static final IOFileFilter DIR_FILTER = FileFilterUtils.and(HiddenFileFilter.VISIBLE, FileFilterUtils.notFileFilter(FileFilterUtils.prefixFileFilter(".")));
-  private static final IOFileFilter FILE_FILTER = HiddenFileFilter.VISIBLE;
+  private static final int MAX_FILES_IN_PROGRESS_PER_THREAD = 100;
 
   private final List<InputFileFilter> filters;
   private final boolean isAggregator;
   private final ExclusionFilters exclusionFilters;
   private final InputFileBuilderFactory inputFileBuilderFactory;
+  private final FileIndexerExecutor executor;
 
   public FileIndexer(List<InputFileFilter> filters, ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory,
-    ProjectDefinition def) {
-    this(filters, exclusionFilters, inputFileBuilderFactory, !def.getSubProjects().isEmpty());
+    FileIndexerExecutor executor, ProjectDefinition def) {
+    this(filters, exclusionFilters, inputFileBuilderFactory, executor, !def.getSubProjects().isEmpty());
   }
 
   private FileIndexer(List<InputFileFilter> filters, ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory,
-    boolean isAggregator) {
+    FileIndexerExecutor executor, boolean isAggregator) {
     this.filters = filters;
     this.exclusionFilters = exclusionFilters;
     this.inputFileBuilderFactory = inputFileBuilderFactory;
+    this.executor = executor;
     this.isAggregator = isAggregator;
   }
 
@@ -84,46 +95,18 @@ public class FileIndexer implements BatchComponent {
     LOG.info("Index files");
     exclusionFilters.prepare();
 
-    Progress progress = new Progress();
+    Progress progress = new Progress(fileSystem, executor.threads() * MAX_FILES_IN_PROGRESS_PER_THREAD);
 
     InputFileBuilder inputFileBuilder = inputFileBuilderFactory.create(fileSystem);
     indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.sources(), InputFile.Type.MAIN);
     indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.tests(), InputFile.Type.TEST);
 
-    indexAllConcurrently(progress);
-
-    // Populate FS in a synchronous way because PersistIt Exchange is not concurrent
-    for (InputFile indexed : progress.indexed) {
-      fileSystem.add(indexed);
-    }
-    for (InputDir indexed : progress.indexedDir) {
-      fileSystem.add(indexed);
-    }
+    progress.awaitCompletion();
 
     LOG.info(String.format("%d files indexed", progress.count()));
 
   }
 
-  private void indexAllConcurrently(Progress progress) {
-    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() + 1);
-    try {
-      List<Future<Void>> all = executor.invokeAll(progress.indexingTasks);
-      for (Future<Void> future : all) {
-        future.get();
-      }
-    } catch (InterruptedException e) {
-      throw new IllegalStateException("FileIndexer was interrupted", e);
-    } catch (ExecutionException e) {
-      Throwable cause = e.getCause();
-      if (cause instanceof RuntimeException) {
-        throw (RuntimeException) cause;
-      } else {
-        throw new IllegalStateException("Error during file indexing", e);
-      }
-    }
-    executor.shutdown();
-  }
-
   private void indexFiles(DefaultModuleFileSystem fileSystem, Progress progress, InputFileBuilder inputFileBuilder, List<File> sources, InputFile.Type type) {
     for (File dirOrFile : sources) {
       if (dirOrFile.isDirectory()) {
@@ -134,13 +117,44 @@ public class FileIndexer implements BatchComponent {
     }
   }
 
-  private void indexDirectory(InputFileBuilder inputFileBuilder, DefaultModuleFileSystem fileSystem, Progress status, File dirToIndex, InputFile.Type type) {
-    Collection<File> files = FileUtils.listFiles(dirToIndex, FILE_FILTER, DIR_FILTER);
-    for (File file : files) {
-      indexFile(inputFileBuilder, fileSystem, status, file, type);
+  private void indexDirectory(final InputFileBuilder inputFileBuilder, final DefaultModuleFileSystem fileSystem, final Progress status,
+    final File dirToIndex, final InputFile.Type type) {
+    final Path root = dirToIndex.toPath();
+    try {
+      Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+          if (!dir.equals(root) && isHidden(dir)) {
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (!attrs.isDirectory() && !Files.isHidden(file)) {
+            indexFile(inputFileBuilder, fileSystem, status, file.toFile(), type);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          // unreadable files and directories, or cycles of symbolic links
+          LOG.debug("Ignore file that can't be read: " + file, e);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to index files of directory " + dirToIndex, e);
     }
   }
 
+  private static boolean isHidden(Path dir) throws IOException {
+    Path name = dir.getFileName();
+    return Files.isHidden(dir) || (name != null && name.toString().startsWith("."));
+  }
+
   private void indexFile(InputFileBuilder inputFileBuilder, DefaultModuleFileSystem fileSystem, Progress progress, File sourceFile, InputFile.Type type) {
     DeprecatedDefaultInputFile inputFile = inputFileBuilder.create(sourceFile);
     if (inputFile != null && exclusionFilters.accept(inputFile, type)) {
@@ -151,20 +165,20 @@ public class FileIndexer implements BatchComponent {
   private void indexFile(final InputFileBuilder inputFileBuilder, final DefaultModuleFileSystem fs,
     final Progress status, final DeprecatedDefaultInputFile inputFile, final InputFile.Type type) {
 
-    Callable<Void> task = new Callable<Void>() {
+    Callable<IndexedFile> task = new Callable<IndexedFile>() {
 
       @Override
-      public Void call() throws Exception {
+      public IndexedFile call() throws Exception {
         DefaultInputFile completedFile = inputFileBuilder.complete(inputFile, type);
         if (completedFile != null && accept(completedFile)) {
-          status.markAsIndexed(inputFile);
           File parentDir = inputFile.file().getParentFile();
           String relativePath = new PathResolver().relativePath(fs.baseDir(), parentDir);
+          DefaultInputDir inputDir = null;
           if (relativePath != null) {
-            DefaultInputDir inputDir = new DefaultInputDir(fs.moduleKey(), relativePath);
+            inputDir = new DefaultInputDir(fs.moduleKey(), relativePath);
             inputDir.setFile(parentDir);
-            status.markAsIndexed(inputDir);
           }
+          return new IndexedFile(inputFile, inputDir);
         }
         return null;
       }
@@ -182,31 +196,102 @@ public class FileIndexer implements BatchComponent {
     return true;
   }
 
-  private static class Progress {
+  private static class IndexedFile {
+    private final InputFile inputFile;
+    private final InputDir inputDir;
+
+    IndexedFile(InputFile inputFile, @Nullable InputDir inputDir) {
+      this.inputFile = inputFile;
+      this.inputDir = inputDir;
+    }
+  }
+
+  /**
+   * Not thread-safe. Used by the thread walking the directories only.
+   */
+  private class Progress {
+    private final DefaultModuleFileSystem fileSystem;
     private final Set<InputFile> indexed;
     private final Set<InputDir> indexedDir;
-    private final List<Callable<Void>> indexingTasks;
+    private final CompletionService<IndexedFile> completionService;
+    private final int maxInProgress;
+    private int inProgress = 0;
 
-    Progress() {
+    Progress(DefaultModuleFileSystem fileSystem, int maxInProgress) {
+      this.fileSystem = fileSystem;
       this.indexed = new HashSet<InputFile>();
       this.indexedDir = new HashSet<InputDir>();
-      this.indexingTasks = new ArrayList<Callable<Void>>();
+      this.maxInProgress = maxInProgress;
+      this.completionService = executor.newCompletionService(new ArrayBlockingQueue<Future<IndexedFile>>(maxInProgress));
     }
 
-    void planForIndexing(Callable<Void> indexingTask) {
-      this.indexingTasks.add(indexingTask);
+    void planForIndexing(Callable<IndexedFile> indexingTask) {
+      if (inProgress >= maxInProgress) {
+        complete(take());
+      }
+      completionService.submit(indexingTask);
+      inProgress++;
+      Future<IndexedFile> done = completionService.poll();
+      while (done != null) {
+        complete(done);
+        done = completionService.poll();
+      }
     }
 
-    synchronized void markAsIndexed(InputFile inputFile) {
+    void awaitCompletion() {
+      while (inProgress > 0) {
+        complete(take());
+      }
+    }
+
+    private Future<IndexedFile> take() {
+      try {
+        return completionService.take();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException("FileIndexer was interrupted", e);
+      }
+    }
+
+    private void complete(Future<IndexedFile> future) {
+      inProgress--;
+      IndexedFile indexedFile = get(future);
+      if (indexedFile != null) {
+        markAsIndexed(indexedFile.inputFile);
+        if (indexedFile.inputDir != null) {
+          markAsIndexed(indexedFile.inputDir);
+        }
+      }
+    }
+
+    @CheckForNull
+    private IndexedFile get(Future<IndexedFile> future) {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException("FileIndexer was interrupted", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else {
+          throw new IllegalStateException("Error during file indexing", e);
+        }
+      }
+    }
+
+    private void markAsIndexed(InputFile inputFile) {
       if (indexed.contains(inputFile)) {
         throw MessageException.of("File " + inputFile + " can't be indexed twice. Please check that inclusion/exclusion patterns produce "
           + "disjoint sets for main and test files");
       }
       indexed.add(inputFile);
+      fileSystem.add(inputFile);
     }
 
-    synchronized void markAsIndexed(InputDir inputDir) {
-      indexedDir.add(inputDir);
+    private void markAsIndexed(InputDir inputDir) {
+      if (indexedDir.add(inputDir)) {
+        fileSystem.add(inputDir);
+      }
     }
 
     int count() {
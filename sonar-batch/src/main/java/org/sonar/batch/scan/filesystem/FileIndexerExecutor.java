@@ -0,0 +1,78 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.scan.filesystem;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.picocontainer.Startable;
+import org.sonar.api.BatchComponent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Pool of threads computing the metadata of input files. It is shared by the {@link FileIndexer}
+ * of all the modules of the project.
+ *
+ * @since 5.1
+ */
+public class FileIndexerExecutor implements BatchComponent, Startable {
+
+  private final int threads;
+  private ExecutorService executor;
+
+  public FileIndexerExecutor() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  FileIndexerExecutor(int threads) {
+    this.threads = threads;
+  }
+
+  @Override
+  public void start() {
+    executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("FileIndexer-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  int threads() {
+    return threads;
+  }
+
+  /**
+   * @param completionQueue the queue of completed tasks
+   */
+  <T> CompletionService<T> newCompletionService(BlockingQueue<Future<T>> completionQueue) {
+    return new ExecutorCompletionService<T>(executor, completionQueue);
+  }
+}
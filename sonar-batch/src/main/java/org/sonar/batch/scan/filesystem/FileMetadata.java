@@ -19,23 +19,23 @@
  */
 package org.sonar.batch.scan.filesystem;
 
-import com.google.common.base.Charsets;
-import com.google.common.primitives.Longs;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -47,88 +47,207 @@ class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
   private static final char BOM = '\uFEFF';
+  private static final char NO_CHAR = (char) -1;
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  /**
+   * Buffers are reused by all the files read by a thread. Files are read in parallel
+   * by {@link FileIndexer}.
+   */
+  private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+    @Override
+    protected Buffers initialValue() {
+      return new Buffers();
+    }
+  };
 
   /**
    * Compute hash of a file ignoring line ends differences.
    * Maximum performance is needed.
    */
   Metadata read(File file, Charset encoding) {
-    Reader reader = null;
-    long currentOriginalOffset = 0;
-    List<Long> originalLineOffsets = new ArrayList<Long>();
-    List<Object> lineHashes = new ArrayList<Object>();
-    int lines = 0;
-    char c = (char) -1;
+    FileInputStream input = null;
     try {
-      MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
-      MessageDigest lineMd5Digest = DigestUtils.getMd5Digest();
-      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding));
-      int i = reader.read();
-      boolean afterCR = false;
-      // First offset of first line is always 0
-      originalLineOffsets.add(0L);
-      boolean blankline = true;
-      while (i != -1) {
-        c = (char) i;
-        if (c == BOM) {
-          // Ignore
-          i = reader.read();
-          continue;
-        }
-        currentOriginalOffset++;
-        if (afterCR) {
-          afterCR = false;
-          if (c == LINE_FEED) {
-            originalLineOffsets.set(originalLineOffsets.size() - 1, originalLineOffsets.get(originalLineOffsets.size() - 1) + 1);
-            // Ignore
-            i = reader.read();
-            continue;
-          }
-        }
-        if (c == CARRIAGE_RETURN) {
-          afterCR = true;
-          c = LINE_FEED;
-        }
+      input = new FileInputStream(file);
+      Buffers buffers = BUFFERS.get();
+      MetadataBuilder builder = new MetadataBuilder(buffers);
+      decode(input.getChannel(), encoding, buffers, builder);
+      return builder.build();
+
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  /**
+   * Same decoding than {@link java.io.InputStreamReader}: malformed and unmappable inputs are replaced.
+   */
+  private static void decode(FileChannel channel, Charset encoding, Buffers buffers, MetadataBuilder builder) throws IOException {
+    CharsetDecoder decoder = encoding.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    ByteBuffer bytes = buffers.bytes;
+    CharBuffer chars = buffers.chars;
+    bytes.clear();
+    boolean endOfInput = false;
+    CoderResult result;
+    do {
+      if (!endOfInput && channel.read(bytes) < 0) {
+        endOfInput = true;
+      }
+      bytes.flip();
+      chars.clear();
+      result = decoder.decode(bytes, chars, endOfInput);
+      bytes.compact();
+      builder.process(chars.array(), chars.position());
+    } while (!endOfInput || result.isOverflow());
+
+    do {
+      chars.clear();
+      result = decoder.flush(chars);
+      builder.process(chars.array(), chars.position());
+    } while (result.isOverflow());
+  }
+
+  private static class Buffers {
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    // a char is encoded to at most 3 bytes
+    private final byte[] globalBytes = new byte[3 * BUFFER_SIZE];
+    private final byte[] lineBytes = new byte[3 * BUFFER_SIZE];
+  }
+
+  /**
+   * Consumes the decoded chars. Chars are encoded to UTF-8 into buffers, which are given to digests
+   * in a single call.
+   */
+  private static class MetadataBuilder {
+    private final MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
+    private final MessageDigest lineMd5Digest = DigestUtils.getMd5Digest();
+    private final byte[] globalBytes;
+    private final byte[] lineBytes;
+    private int globalLength = 0;
+    private int lineLength = 0;
+
+    private long currentOriginalOffset = 0;
+    // First offset of first line is always 0
+    private long[] originalLineOffsets = new long[64];
+    private int originalLineOffsetCount = 1;
+    private final List<byte[]> lineHashes = new ArrayList<byte[]>();
+    private int lines = 0;
+    private char lastChar = NO_CHAR;
+    private boolean afterCR = false;
+    private boolean blankline = true;
+
+    MetadataBuilder(Buffers buffers) {
+      this.globalBytes = buffers.globalBytes;
+      this.lineBytes = buffers.lineBytes;
+    }
+
+    void process(char[] chars, int length) {
+      for (int i = 0; i < length; i++) {
+        process(chars[i]);
+      }
+      // length is lower than buffer size, so there's enough room for the chars of next call
+      flushGlobal();
+      flushLine();
+    }
+
+    private void process(char read) {
+      lastChar = read;
+      if (read == BOM) {
+        // Ignore
+        return;
+      }
+      char c = read;
+      currentOriginalOffset++;
+      if (afterCR) {
+        afterCR = false;
         if (c == LINE_FEED) {
-          lines++;
-          originalLineOffsets.add(currentOriginalOffset);
-          lineHashes.add(blankline ? null : lineMd5Digest.digest());
-          blankline = true;
-        } else {
-          if (!Character.isWhitespace(c)) {
-            blankline = false;
-            updateDigestUTF8Char(c, lineMd5Digest);
-          }
+          originalLineOffsets[originalLineOffsetCount - 1]++;
+          // Ignore
+          return;
         }
-        updateDigestUTF8Char(c, globalMd5Digest);
-        i = reader.read();
       }
-      if (c != (char) -1) {
+      if (c == CARRIAGE_RETURN) {
+        afterCR = true;
+        c = LINE_FEED;
+      }
+      if (c == LINE_FEED) {
+        lines++;
+        addOriginalLineOffset(currentOriginalOffset);
+        addLineHash();
+        blankline = true;
+      } else if (!Character.isWhitespace(c)) {
+        blankline = false;
+        lineLength = encodeUTF8(c, lineBytes, lineLength);
+      }
+      globalLength = encodeUTF8(c, globalBytes, globalLength);
+    }
+
+    private void addOriginalLineOffset(long offset) {
+      if (originalLineOffsetCount == originalLineOffsets.length) {
+        originalLineOffsets = Arrays.copyOf(originalLineOffsets, originalLineOffsets.length * 2);
+      }
+      originalLineOffsets[originalLineOffsetCount] = offset;
+      originalLineOffsetCount++;
+    }
+
+    private void addLineHash() {
+      flushLine();
+      lineHashes.add(blankline ? null : lineMd5Digest.digest());
+    }
+
+    private void flushGlobal() {
+      globalMd5Digest.update(globalBytes, 0, globalLength);
+      globalLength = 0;
+    }
+
+    private void flushLine() {
+      lineMd5Digest.update(lineBytes, 0, lineLength);
+      lineLength = 0;
+    }
+
+    Metadata build() {
+      if (lastChar != NO_CHAR) {
         // Last line
         lines++;
-        lineHashes.add(blankline ? null : lineMd5Digest.digest());
+        addLineHash();
       }
+      flushGlobal();
       String filehash = Hex.encodeHexString(globalMd5Digest.digest());
-      return new Metadata(lines, filehash, originalLineOffsets, lineHashes.toArray(new byte[0][]));
-
-    } catch (IOException e) {
-      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
-    } finally {
-      IOUtils.closeQuietly(reader);
+      return new Metadata(lines, filehash, Arrays.copyOf(originalLineOffsets, originalLineOffsetCount), lineHashes.toArray(new byte[0][]));
     }
   }
 
-  private void updateDigestUTF8Char(char c, MessageDigest md5Digest) {
-    CharBuffer cb = CharBuffer.allocate(1);
-    cb.put(c);
-    cb.flip();
-    ByteBuffer bb = Charsets.UTF_8.encode(cb);
-    byte[] array = bb.array();
-    for (int i = 0; i < array.length; i++) {
-      if (array[i] != 0) {
-        md5Digest.update(array[i]);
-      }
+  /**
+   * Encodes a single char to UTF-8 without any allocation. For backward-compatibility of hashes, the result
+   * is the same than encoding the char alone with {@link java.nio.charset.Charset#encode(java.nio.CharBuffer)},
+   * ignoring zero bytes: the null char is ignored and each half of a surrogate pair is replaced by '?'.
+   *
+   * @return the new length of buffer
+   */
+  static int encodeUTF8(char c, byte[] buffer, int length) {
+    int l = length;
+    if (c == 0) {
+      return l;
+    }
+    if (c < 0x80) {
+      buffer[l++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[l++] = (byte) (0xC0 | (c >> 6));
+      buffer[l++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isSurrogate(c)) {
+      buffer[l++] = '?';
+    } else {
+      buffer[l++] = (byte) (0xE0 | (c >> 12));
+      buffer[l++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buffer[l++] = (byte) (0x80 | (c & 0x3F));
     }
+    return l;
   }
 
   static class Metadata {
@@ -137,10 +256,10 @@ class FileMetadata {
     final long[] originalLineOffsets;
     final byte[][] lineHashes;
 
-    private Metadata(int lines, String hash, List<Long> originalLineOffsets, byte[][] lineHashes) {
+    private Metadata(int lines, String hash, long[] originalLineOffsets, byte[][] lineHashes) {
       this.lines = lines;
       this.hash = hash;
-      this.originalLineOffsets = Longs.toArray(originalLineOffsets);
+      this.originalLineOffsets = originalLineOffsets;
       this.lineHashes = lineHashes;
     }
   }
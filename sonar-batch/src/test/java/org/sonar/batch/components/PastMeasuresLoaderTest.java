@@ -22,6 +22,7 @@ package org.sonar.batch.components;
 import org.junit.Test;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.measures.Metric;
+import org.sonar.api.database.DatabaseSession;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
 import java.util.Arrays;
@@ -31,6 +32,10 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.hasItems;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class PastMeasuresLoaderTest extends AbstractDbUnitTestCase {
 
@@ -86,6 +91,35 @@ public class PastMeasuresLoaderTest extends AbstractDbUnitTestCase {
     assertThat(PastMeasuresLoader.getValue(pastMeasure), is(80.0));
   }
 
+  @Test
+  public void shouldLoadPastMeasuresOfModuleInOneQuery() {
+    setupData("shared");
+
+    List<Metric> metrics = selectMetrics();
+    Snapshot projectSnapshot = getSession().getSingleResult(Snapshot.class, "id", PROJECT_SNAPSHOT_ID);
+    DatabaseSession session = spy(getSession());
+
+    PastMeasuresLoader loader = new PastMeasuresLoader(session, metrics);
+    PastMeasures measures = loader.loadPastMeasures(new PastSnapshot("days", null, projectSnapshot));
+
+    verify(session, times(1)).createNativeQuery(anyString());
+    // measures of files are not loaded
+    assertThat(measures.size(), is(4));
+    assertThat(measures.getValue(1, 1, null, null, null), is(60.0));
+    assertThat(measures.getValue(1, 2, null, null, null), is(80.0));
+    assertThat(measures.getValue(2, 1, null, null, null), is(20.0));
+    assertThat(measures.getValue(2, 2, null, null, null), is(70.0));
+    assertThat(measures.getValue(3, 1, null, null, null), nullValue());
+  }
+
+  @Test
+  public void shouldLoadNothingWithoutPastSnapshot() {
+    PastMeasuresLoader loader = new PastMeasuresLoader(getSession(), selectMetrics());
+
+    assertThat(loader.loadPastMeasures(null).size(), is(0));
+    assertThat(loader.loadPastMeasures(new PastSnapshot("days", null, null)).size(), is(0));
+  }
+
   @Test
   public void shouldKeepOnlyNumericalMetrics() {
     Metric ncloc = new Metric("ncloc", Metric.ValueType.INT);
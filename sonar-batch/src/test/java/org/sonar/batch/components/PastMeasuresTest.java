@@ -0,0 +1,73 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.components;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PastMeasuresTest {
+
+  @Test
+  public void add_and_get_values() {
+    PastMeasures measures = new PastMeasures();
+    measures.add(1, 10, null, null, null, 3.0);
+    measures.add(1, 10, 5, null, null, 4.0);
+    measures.add(1, 10, null, 6, null, 5.0);
+    measures.add(1, 10, null, null, 7, 6.0);
+    measures.add(2, 10, null, null, null, 7.0);
+
+    assertThat(measures.size()).isEqualTo(5);
+    assertThat(measures.getValue(1, 10, null, null, null)).isEqualTo(3.0);
+    assertThat(measures.getValue(1, 10, 5, null, null)).isEqualTo(4.0);
+    assertThat(measures.getValue(1, 10, null, 6, null)).isEqualTo(5.0);
+    assertThat(measures.getValue(1, 10, null, null, 7)).isEqualTo(6.0);
+    assertThat(measures.getValue(2, 10, null, null, null)).isEqualTo(7.0);
+    assertThat(measures.getValue(3, 10, null, null, null)).isNull();
+    assertThat(measures.getValue(1, 11, null, null, null)).isNull();
+  }
+
+  @Test
+  public void last_value_wins() {
+    PastMeasures measures = new PastMeasures();
+    measures.add(1, 10, null, null, null, 3.0);
+    measures.add(1, 10, null, null, null, 4.0);
+
+    assertThat(measures.size()).isEqualTo(1);
+    assertThat(measures.getValue(1, 10, null, null, null)).isEqualTo(4.0);
+  }
+
+  @Test
+  public void grow() {
+    PastMeasures measures = new PastMeasures();
+    for (int resourceId = 1; resourceId <= 1000; resourceId++) {
+      for (int metricId = 1; metricId <= 20; metricId++) {
+        measures.add(resourceId, metricId, null, null, null, resourceId * metricId);
+      }
+    }
+
+    assertThat(measures.size()).isEqualTo(20000);
+    for (int resourceId = 1; resourceId <= 1000; resourceId++) {
+      for (int metricId = 1; metricId <= 20; metricId++) {
+        assertThat(measures.getValue(resourceId, metricId, null, null, null)).isEqualTo((double) resourceId * metricId);
+      }
+    }
+  }
+}
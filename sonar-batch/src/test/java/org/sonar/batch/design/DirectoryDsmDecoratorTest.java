@@ -124,21 +124,21 @@ public class DirectoryDsmDecoratorTest {
 
     verify(dirContext).saveMeasure(
       isMeasureWithValue(CoreMetrics.DEPENDENCY_MATRIX,
-        "[{\"i\":1,\"n\":\"Foo1.java\",\"q\":\"FIL\",\"v\":[{},{}]},{\"i\":2,\"n\":\"Foo2.java\",\"q\":\"FIL\",\"v\":[{\"i\":51,\"w\":1},{}]}]"));
+        "[{\"i\":1,\"n\":\"Foo1.java\",\"q\":\"FIL\",\"s\":[]},{\"i\":2,\"n\":\"Foo2.java\",\"q\":\"FIL\",\"s\":[[0,51,1]]}]"));
   }
 
   @Test
-  public void testDirectoryDsmDecoratorNoDSMIfMoreThan200Components() {
+  public void testDirectoryDsmDecoratorNoDSMIfMoreThan500Components() {
     Dependency dependency = new Dependency(file1, file2).setWeight(1).setId(51L);
     when(index.getEdge(file1, file2)).thenReturn(dependency);
     when(index.hasEdge(file1, file2)).thenReturn(true);
     when(index.getOutgoingEdges(file1)).thenReturn(Arrays.asList(dependency));
     when(index.getIncomingEdges(file2)).thenReturn(Arrays.asList(dependency));
 
-    List<DecoratorContext> contexts = new ArrayList<DecoratorContext>(201);
+    List<DecoratorContext> contexts = new ArrayList<DecoratorContext>(501);
     contexts.add(file1Context);
     contexts.add(file2Context);
-    for (int i = 0; i < 199; i++) {
+    for (int i = 0; i < 499; i++) {
       DecoratorContext fileContext = mock(DecoratorContext.class);
       when(fileContext.getResource()).thenReturn(File.create("file" + i));
       contexts.add(fileContext);
@@ -180,7 +180,7 @@ public class DirectoryDsmDecoratorTest {
 
     verify(dirContext).saveMeasure(
       isMeasureWithValue(CoreMetrics.DEPENDENCY_MATRIX,
-        "[{\"i\":2,\"n\":\"Foo2.java\",\"q\":\"FIL\",\"v\":[{},{\"i\":50,\"w\":1}]},{\"i\":1,\"n\":\"Foo1.java\",\"q\":\"FIL\",\"v\":[{\"i\":51,\"w\":2},{}]}]"));
+        "[{\"i\":2,\"n\":\"Foo2.java\",\"q\":\"FIL\",\"s\":[[1,50,1,1]]},{\"i\":1,\"n\":\"Foo1.java\",\"q\":\"FIL\",\"s\":[[0,51,2]]}]"));
   }
 
   Measure isMeasureWithValue(Metric metric, Double value) {
@@ -115,7 +115,7 @@ public class ProjectDsmDecoratorTest {
 
     verify(rootContext).saveMeasure(
       isMeasureWithValue(CoreMetrics.DEPENDENCY_MATRIX,
-        "[{\"i\":1,\"n\":\"Module1\",\"q\":\"BRC\",\"v\":[{},{}]},{\"i\":2,\"n\":\"Module2\",\"q\":\"BRC\",\"v\":[{\"i\":51,\"w\":1},{}]}]"));
+        "[{\"i\":1,\"n\":\"Module1\",\"q\":\"BRC\",\"s\":[]},{\"i\":2,\"n\":\"Module2\",\"q\":\"BRC\",\"s\":[[0,51,1]]}]"));
   }
 
   Measure isMeasureWithValue(Metric metric, Double value) {
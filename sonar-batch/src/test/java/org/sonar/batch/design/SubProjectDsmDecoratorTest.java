@@ -123,7 +123,7 @@ public class SubProjectDsmDecoratorTest {
 
     verify(moduleContext).saveMeasure(
       isMeasureWithValue(CoreMetrics.DEPENDENCY_MATRIX,
-        "[{\"i\":1,\"n\":\"src/foo1\",\"q\":\"DIR\",\"v\":[{},{}]},{\"i\":2,\"n\":\"src/foo2\",\"q\":\"DIR\",\"v\":[{\"i\":51,\"w\":1},{}]}]"));
+        "[{\"i\":1,\"n\":\"src/foo1\",\"q\":\"DIR\",\"s\":[]},{\"i\":2,\"n\":\"src/foo2\",\"q\":\"DIR\",\"s\":[[0,51,1]]}]"));
   }
 
   Measure isMeasureWithValue(Metric metric, Double value) {
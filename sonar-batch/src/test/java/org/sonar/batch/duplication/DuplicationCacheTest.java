@@ -78,6 +78,8 @@ public class DuplicationCacheTest {
 
     List<DuplicationGroup> entry = cache.byComponent("foo");
     assertThat(entry.get(0).originBlock().resourceKey()).isEqualTo("foo");
+    assertThat(entry).isEqualTo(Arrays.asList(group1, group2));
+    assertThat(cache.byComponent("other")).isNull();
 
   }
 
@@ -0,0 +1,88 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.duplication;
+
+import com.google.common.base.Charsets;
+import org.junit.Test;
+import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
+import org.sonar.core.duplication.DuplicationsDataCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Compares encoding of duplications in XML and in binary format, on files with a lot of duplications.
+ */
+public class DuplicationsDataEncodingTest {
+
+  private static final int FILES = 200;
+  private static final int GROUPS_PER_FILE = 20;
+  private static final int DUPLICATES_PER_GROUP = 5;
+  private static final int RELATED_FILES = 5;
+
+  @Test
+  public void binary_text_is_smaller_than_xml() {
+    for (List<DuplicationGroup> groups : fixture(new Random(1))) {
+      int xmlSize = DuplicationUtils.toXml(groups).getBytes(Charsets.UTF_8).length;
+      byte[] data = DuplicationsDataCodec.encode(groups);
+
+      assertThat(data.length).isLessThan(xmlSize / 10);
+      assertThat(DuplicationsDataCodec.toText(data).length()).isLessThan(xmlSize / 5);
+    }
+  }
+
+  @Test
+  public void decoded_text_is_equal_to_encoded_duplications() {
+    for (List<DuplicationGroup> groups : fixture(new Random(1))) {
+      String text = DuplicationsDataCodec.toText(DuplicationsDataCodec.encode(groups));
+
+      assertThat(DuplicationsDataCodec.isBinaryText(text)).isTrue();
+      assertThat(DuplicationsDataCodec.decodeText(text)).isEqualTo(groups);
+    }
+  }
+
+  /**
+   * Each file is duplicated with a few related files of the same module, with long component keys.
+   */
+  private static List<List<DuplicationGroup>> fixture(Random random) {
+    List<List<DuplicationGroup>> files = new ArrayList<List<DuplicationGroup>>(FILES);
+    for (int f = 0; f < FILES; f++) {
+      List<DuplicationGroup> groups = new ArrayList<DuplicationGroup>(GROUPS_PER_FILE);
+      for (int g = 0; g < GROUPS_PER_FILE; g++) {
+        int length = 10 + random.nextInt(50);
+        DuplicationGroup group = new DuplicationGroup(new DuplicationGroup.Block(key(f), 1 + random.nextInt(2000), length));
+        for (int d = 0; d < DUPLICATES_PER_GROUP; d++) {
+          group.addDuplicate(new DuplicationGroup.Block(key((f + 1 + random.nextInt(RELATED_FILES)) % FILES), 1 + random.nextInt(2000), length));
+        }
+        groups.add(group);
+      }
+      files.add(groups);
+    }
+    return files;
+  }
+
+  private static String key(int file) {
+    return "org.codehaus.sonar:sonar-batch:src/main/java/org/sonar/batch/duplication/generated/package" + (file % 50) + "/File" + file + ".java";
+  }
+
+}
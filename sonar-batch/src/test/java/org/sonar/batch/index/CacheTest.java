@@ -26,6 +26,14 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 public class CacheTest {
@@ -254,4 +262,96 @@ public class CacheTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void concurrent_access() throws Exception {
+    final Cache<String> cache = caches.createCache("concurrent");
+    final int threadCount = 8;
+    final int valuesPerThread = 2000;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+    for (int t = 0; t < threadCount; t++) {
+      final int thread = t;
+      futures.add(executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          start.await();
+          int errors = 0;
+          for (int i = 0; i < valuesPerThread; i++) {
+            cache.put(thread, i, "value" + thread + "-" + i);
+            // read own values and values of other threads
+            if (!("value" + thread + "-" + i).equals(cache.get(thread, i))) {
+              errors++;
+            }
+            String other = cache.get((thread + 1) % threadCount, i);
+            if (other != null && !other.equals("value" + ((thread + 1) % threadCount) + "-" + i)) {
+              errors++;
+            }
+            if (i % 2 == 0) {
+              cache.remove(thread, i);
+            }
+          }
+          return errors;
+        }
+      }));
+    }
+    start.countDown();
+    for (Future<Integer> future : futures) {
+      assertThat(future.get()).isEqualTo(0);
+    }
+    executor.shutdown();
+
+    for (int t = 0; t < threadCount; t++) {
+      assertThat(cache.keySet(t)).hasSize(valuesPerThread / 2);
+      assertThat(Iterables.size(cache.values(t))).isEqualTo(valuesPerThread / 2);
+    }
+  }
+
+  @Test
+  public void concurrently_written_values_are_read_back_intact() throws Exception {
+    final Cache<String> cache = caches.createCache("intact");
+    final int threadCount = 8;
+    final int valuesPerThread = 2000;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    List<Callable<Void>> writers = new ArrayList<Callable<Void>>();
+    for (int t = 0; t < threadCount; t++) {
+      final int thread = t;
+      writers.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int i = 0; i < valuesPerThread; i++) {
+            cache.put(thread, i, "value" + thread + "-" + i);
+          }
+          return null;
+        }
+      });
+    }
+    for (Future<Void> future : executor.invokeAll(writers)) {
+      future.get();
+    }
+
+    // every thread reads back the values written by all the threads
+    List<Callable<Integer>> readers = new ArrayList<Callable<Integer>>();
+    for (int t = 0; t < threadCount; t++) {
+      readers.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          int intact = 0;
+          for (int writer = 0; writer < threadCount; writer++) {
+            for (int i = 0; i < valuesPerThread; i++) {
+              if (("value" + writer + "-" + i).equals(cache.get(writer, i))) {
+                intact++;
+              }
+            }
+          }
+          return intact;
+        }
+      });
+    }
+    for (Future<Integer> future : executor.invokeAll(readers)) {
+      assertThat(future.get()).isEqualTo(threadCount * valuesPerThread);
+    }
+    executor.shutdown();
+  }
 }
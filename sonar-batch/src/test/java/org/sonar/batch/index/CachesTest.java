@@ -26,12 +26,15 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.batch.bootstrap.BootstrapProperties;
 import org.sonar.batch.bootstrap.TempFolderProvider;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
@@ -44,7 +47,7 @@ public class CachesTest {
   public static Caches createCacheOnTemp(TemporaryFolder temp) {
     try {
       BootstrapProperties bootstrapProps = new BootstrapProperties(ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.newFolder().getAbsolutePath()));
-      return new Caches(new TempFolderProvider().provide(bootstrapProps));
+      return new Caches(new TempFolderProvider().provide(bootstrapProps), new Settings());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -95,6 +98,62 @@ public class CachesTest {
     }
   }
 
+  @Test
+  public void size_buffer_pool_from_heap() throws Exception {
+    // 10% of heap
+    assertThat(Caches.bufferCount(new Settings(), 800L * 1024 * 1024)).isEqualTo(80 * 128);
+    // lower and upper bounds
+    assertThat(Caches.bufferCount(new Settings(), 1024L * 1024)).isEqualTo(Caches.MIN_BUFFER_COUNT);
+    assertThat(Caches.bufferCount(new Settings(), 64L * 1024 * 1024 * 1024)).isEqualTo(Caches.MAX_BUFFER_COUNT);
+    // blank property
+    Settings settings = new Settings().setProperty(Caches.BUFFER_MEMORY_PROPERTY, " ");
+    assertThat(Caches.bufferCount(settings, 800L * 1024 * 1024)).isEqualTo(80 * 128);
+  }
+
+  @Test
+  public void size_buffer_pool_from_property() throws Exception {
+    Settings settings = new Settings();
+    settings.setProperty(Caches.BUFFER_MEMORY_PROPERTY, "100");
+    assertThat(Caches.bufferCount(settings, 800L * 1024 * 1024)).isEqualTo(100 * 128);
+    settings.setProperty(Caches.BUFFER_MEMORY_PROPERTY, "0");
+    assertThat(Caches.bufferCount(settings, 800L * 1024 * 1024)).isEqualTo(Caches.MIN_BUFFER_COUNT);
+  }
+
+  @Test
+  public void fail_if_buffer_memory_property_is_not_a_number() throws Exception {
+    Settings settings = new Settings().setProperty(Caches.BUFFER_MEMORY_PROPERTY, "100MB");
+    try {
+      Caches.bufferCount(settings, 800L * 1024 * 1024);
+      fail();
+    } catch (MessageException e) {
+      assertThat(e).hasMessage("The property sonar.batch.cache.bufferMemoryInMB must be a non-negative number of MB and got 100MB");
+    }
+  }
+
+  @Test
+  public void fail_if_buffer_memory_property_is_negative() throws Exception {
+    Settings settings = new Settings().setProperty(Caches.BUFFER_MEMORY_PROPERTY, "-1");
+    try {
+      Caches.bufferCount(settings, 800L * 1024 * 1024);
+      fail();
+    } catch (MessageException e) {
+      assertThat(e).hasMessage("The property sonar.batch.cache.bufferMemoryInMB must be a non-negative number of MB and got -1");
+    }
+  }
+
+  @Test
+  public void should_give_statistics() throws Exception {
+    caches.start();
+    Cache<String> cache = caches.createCache("foo");
+    cache.put("foo", "bar");
+    cache.get("foo");
+
+    Map<String, Long> statistics = caches.statistics();
+    assertThat(statistics.keySet()).containsOnly("bufferPoolBytes", "hits", "misses", "evictions", "bytesOnDisk");
+    assertThat(statistics.get("bufferPoolBytes")).isEqualTo((long) caches.bufferCount() * Caches.PAGE_SIZE);
+    assertThat(statistics.get("hits")).isGreaterThan(0L);
+  }
+
   static class Element implements Serializable {
 
   }
@@ -29,10 +29,10 @@ import org.sonar.api.measures.MetricFinder;
 import org.sonar.api.resources.File;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.batch.duplication.DuplicationCache;
+import org.sonar.core.duplication.DuplicationsDataCodec;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 
 import java.util.Arrays;
-import java.util.List;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -77,7 +77,7 @@ public class DuplicationPersisterTest extends AbstractDaoTestCase {
       .addDuplicate(new DuplicationGroup.Block("foo:org/foo/Foo.java", 5, 9));
 
     when(duplicationCache.entries()).thenReturn(
-      Arrays.<Cache.Entry<List<DuplicationGroup>>>asList(new Cache.Entry(new String[] {"foo:org/foo/Bar.java"}, Arrays.asList(group))));
+      Arrays.<Cache.Entry<byte[]>>asList(new Cache.Entry(new String[] {"foo:org/foo/Bar.java"}, DuplicationsDataCodec.encode(Arrays.asList(group)))));
 
     duplicationPersister.persist();
 
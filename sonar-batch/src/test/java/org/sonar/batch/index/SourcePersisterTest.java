@@ -36,6 +36,7 @@ import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.text.CsvWriter;
 import org.sonar.batch.ProjectTree;
 import org.sonar.batch.duplication.DuplicationCache;
 import org.sonar.batch.highlighting.SyntaxHighlightingData;
@@ -47,9 +48,11 @@ import org.sonar.batch.symbol.DefaultSymbolTableBuilder;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.source.SnapshotDataTypes;
 import org.sonar.core.source.db.FileSourceDao;
+import org.sonar.core.source.db.FileSourceDataCodec;
 import org.sonar.core.source.db.FileSourceDto;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -101,7 +104,8 @@ public class SourcePersisterTest extends AbstractDaoTestCase {
   @Test
   public void testPersistDontTouchUnchanged() throws Exception {
     setupData("file_sources");
-    when(system2.newDate()).thenReturn(DateUtils.parseDateTime("2014-10-29T16:44:02+0100"));
+    Date firstAnalysis = DateUtils.parseDateTime("2014-10-29T16:44:02+0100");
+    when(system2.newDate()).thenReturn(firstAnalysis);
 
     String relativePathSame = "src/same.java";
     java.io.File sameFile = new java.io.File(basedir, relativePathSame);
@@ -113,7 +117,41 @@ public class SourcePersisterTest extends AbstractDaoTestCase {
     mockResourceCache(relativePathSame, PROJECT_KEY, "uuidsame");
 
     sourcePersister.persist();
-    checkTables("testPersistDontTouchUnchanged", "file_sources");
+    FileSourceDto firstDto = new FileSourceDao(getMyBatis()).select("uuidsame");
+
+    when(system2.newDate()).thenReturn(DateUtils.parseDateTime("2014-10-30T16:44:02+0100"));
+    sourcePersister.persist();
+
+    FileSourceDto fileSourceDto = new FileSourceDao(getMyBatis()).select("uuidsame");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(firstAnalysis.getTime());
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(firstDto.getDataHash());
+    assertThat(fileSourceDto.getBinaryData()).isEqualTo(firstDto.getBinaryData());
+  }
+
+  @Test
+  public void testPersistRewriteCsvData() throws Exception {
+    // file analyzed before 5.1, when data was stored in CSV format
+    setupData("file_sources");
+    Date now = DateUtils.parseDateTime("2014-10-29T16:44:02+0100");
+    when(system2.newDate()).thenReturn(now);
+
+    String relativePathSame = "src/same.java";
+    java.io.File sameFile = new java.io.File(basedir, relativePathSame);
+    FileUtils.write(sameFile, "unchanged\ncontent");
+    DefaultInputFile inputFileNew = new DefaultInputFile(PROJECT_KEY, relativePathSame).setLines(2).setAbsolutePath(sameFile.getAbsolutePath())
+      .setLineHashes(new byte[][] {md5("unchanged"), md5("ncontent")});
+    when(inputPathCache.all()).thenReturn(Arrays.<InputPath>asList(inputFileNew));
+
+    mockResourceCache(relativePathSame, PROJECT_KEY, "uuidsame");
+
+    sourcePersister.persist();
+
+    FileSourceDto fileSourceDto = new FileSourceDao(getMyBatis()).select("uuidsame");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(now.getTime());
+    assertThat(fileSourceDto.getData()).isNull();
+    assertThat(toCsv(fileSourceDto.getBinaryData())).isEqualTo(
+      ",,,,,,,,,,,,,,,unchanged\r\n,,,,,,,,,,,,,,,content\r\n");
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(DigestUtils.md5Hex(fileSourceDto.getBinaryData()));
   }
 
   @Test
@@ -137,10 +175,10 @@ public class SourcePersisterTest extends AbstractDaoTestCase {
     FileSourceDto fileSourceDto = new FileSourceDao(getMyBatis()).select("uuidsame");
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(DateUtils.parseDateTime("2014-10-10T16:44:02+0200").getTime());
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(now.getTime());
-    assertThat(fileSourceDto.getData()).isEqualTo(
+    assertThat(toCsv(fileSourceDto.getBinaryData())).isEqualTo(
       ",,,,,,,,,,,,,,,changed\r\n,,,,,,,,,,,,,,,content\r\n");
     assertThat(fileSourceDto.getLineHashes()).isEqualTo(md5Hex("changed") + "\n" + md5Hex("content"));
-    assertThat(fileSourceDto.getDataHash()).isEqualTo("d1a4dd62422639f665a8d80b37c59f8d");
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(DigestUtils.md5Hex(fileSourceDto.getBinaryData()));
   }
 
   @Test
@@ -181,10 +219,10 @@ public class SourcePersisterTest extends AbstractDaoTestCase {
     FileSourceDto fileSourceDto = new FileSourceDao(getMyBatis()).select("uuidnew");
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(now.getTime());
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(now.getTime());
-    assertThat(fileSourceDto.getData()).isEqualTo(
+    assertThat(toCsv(fileSourceDto.getBinaryData())).isEqualTo(
       ",,,,,,,,,,,,,,,foo\r\n,,,,,,,,,,,,,,,bar\r\n,,,,,,,,,,,,,,,biz\r\n");
     assertThat(fileSourceDto.getLineHashes()).isEqualTo(md5Hex("foo") + "\n" + md5Hex("bar") + "\n" + md5Hex("biz"));
-    assertThat(fileSourceDto.getDataHash()).isEqualTo("a34ed99cc7d27150c82f5cba2b22b665");
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(DigestUtils.md5Hex(fileSourceDto.getBinaryData()));
 
   }
 
@@ -266,11 +304,11 @@ public class SourcePersisterTest extends AbstractDaoTestCase {
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(now.getTime());
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(now.getTime());
     assertThat(fileSourceDto.getLineHashes()).isEqualTo(md5Hex("foo") + "\n" + md5Hex("bar") + "\n" + md5Hex("biz"));
-    assertThat(fileSourceDto.getData()).isEqualTo(
+    assertThat(toCsv(fileSourceDto.getBinaryData())).isEqualTo(
       "123,julien,2014-10-11T16:44:02+0100,1,4,2,2,5,3,3,6,4,\"0,3,a\",\"1,2,1;0,2,2\",\"1,3\",foo\r\n"
         + "234,simon,2014-10-12T16:44:02+0100,,,,,,,,,,\"0,1,cd\",\"0,1,1;0,2,2\",3,bar\r\n"
         + "345,julien,2014-10-13T16:44:02+0100,0,,,0,,,0,,,\"0,9,c\",\"4,5,1;0,2,2\",2,biz\r\n");
-    assertThat(fileSourceDto.getDataHash()).isEqualTo("26930cf0250d525b04083185ff24a046");
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(DigestUtils.md5Hex(fileSourceDto.getBinaryData()));
   }
 
   @Test
@@ -395,4 +433,14 @@ public class SourcePersisterTest extends AbstractDaoTestCase {
     return DigestUtils.md5Hex(string);
   }
 
+  private static String toCsv(byte[] binaryData) {
+    StringWriter writer = new StringWriter();
+    CsvWriter csv = CsvWriter.of(writer);
+    for (String[] values : FileSourceDataCodec.decode(binaryData)) {
+      csv.values(values);
+    }
+    csv.close();
+    return writer.toString();
+  }
+
 }
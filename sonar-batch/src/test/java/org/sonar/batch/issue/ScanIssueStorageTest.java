@@ -225,6 +225,8 @@ public class ScanIssueStorageTest extends AbstractDaoTestCase {
     storage.save(issue);
 
     checkTables("should_resolve_conflicts_on_updates", new String[] {"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues");
+    assertThat(storage.statistics().get("updatedIssues")).isEqualTo(1L);
+    assertThat(storage.statistics().get("conflicts")).isEqualTo(1L);
   }
 
   static class FakeRuleFinder implements RuleFinder {
@@ -19,6 +19,7 @@
  */
 package org.sonar.batch.profiling;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import org.junit.Before;
 import org.junit.Rule;
@@ -49,17 +50,23 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.bootstrap.BootstrapProperties;
 import org.sonar.batch.events.BatchStepEvent;
+import org.sonar.batch.index.Caches;
 import org.sonar.batch.index.ScanPersister;
+import org.sonar.batch.issue.ScanIssueStorage;
 import org.sonar.batch.phases.Phases.Phase;
 import org.sonar.batch.phases.event.PersisterExecutionHandler;
 import org.sonar.batch.phases.event.PersistersPhaseHandler;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
@@ -70,13 +77,18 @@ public class PhasesSumUpTimeProfilerTest {
 
   private MockedSystem clock;
   private PhasesSumUpTimeProfiler profiler;
+  private Caches caches;
+  private File workingDir;
 
   @Before
   public void prepare() throws Exception {
     clock = new MockedSystem();
     Map<String, String> props = Maps.newHashMap();
-    props.put(CoreProperties.WORKING_DIRECTORY, temp.newFolder().getAbsolutePath());
-    profiler = new PhasesSumUpTimeProfiler(clock, new BootstrapProperties(props));
+    workingDir = temp.newFolder();
+    props.put(CoreProperties.WORKING_DIRECTORY, workingDir.getAbsolutePath());
+    caches = mock(Caches.class);
+    when(caches.statistics()).thenReturn(ImmutableMap.of("hits", 12L, "misses", 3L));
+    profiler = new PhasesSumUpTimeProfiler(clock, new BootstrapProperties(props), caches);
   }
 
   @Test
@@ -97,6 +109,49 @@ public class PhasesSumUpTimeProfilerTest {
 
   }
 
+  @Test
+  public void dump_caches_statistics_at_the_end_of_analysis() throws Exception {
+    final Project project = mockProject("project", true);
+    when(project.getModules()).thenReturn(Collections.<Project>emptyList());
+
+    fakeAnalysis(profiler, project);
+
+    File statistics = new File(workingDir, "profiling/caches-profiler.properties");
+    assertThat(statistics).exists();
+    Properties props = new Properties();
+    FileInputStream input = new FileInputStream(statistics);
+    try {
+      props.load(input);
+    } finally {
+      input.close();
+    }
+    assertThat(props.getProperty("hits")).isEqualTo("12");
+    assertThat(props.getProperty("misses")).isEqualTo("3");
+  }
+
+  @Test
+  public void dump_issues_statistics_at_the_end_of_analysis() throws Exception {
+    ScanIssueStorage issueStorage = mock(ScanIssueStorage.class);
+    when(issueStorage.statistics()).thenReturn(ImmutableMap.of("updatedIssues", 100000L, "issuesPerSecond", 5000L));
+    profiler = new PhasesSumUpTimeProfiler(clock, new BootstrapProperties(ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, workingDir.getAbsolutePath())),
+      caches, issueStorage);
+    final Project project = mockProject("project", true);
+    when(project.getModules()).thenReturn(Collections.<Project>emptyList());
+
+    fakeAnalysis(profiler, project);
+
+    File statistics = new File(workingDir, "profiling/issues-profiler.properties");
+    Properties props = new Properties();
+    FileInputStream input = new FileInputStream(statistics);
+    try {
+      props.load(input);
+    } finally {
+      input.close();
+    }
+    assertThat(props.getProperty("updatedIssues")).isEqualTo("100000");
+    assertThat(props.getProperty("issuesPerSecond")).isEqualTo("5000");
+  }
+
   @Test
   public void testMultimoduleProject() throws InterruptedException {
     final Project project = mockProject("project root", true);
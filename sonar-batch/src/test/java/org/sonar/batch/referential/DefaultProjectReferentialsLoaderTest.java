@@ -19,28 +19,45 @@
  */
 package org.sonar.batch.referential;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.bootstrap.ProjectReactor;
 import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.database.model.MeasureModel;
+import org.sonar.api.measures.CoreMetrics;
 import org.sonar.batch.bootstrap.AnalysisMode;
 import org.sonar.batch.bootstrap.ServerClient;
 import org.sonar.batch.bootstrap.TaskProperties;
+import org.sonar.batch.protocol.input.FileData;
+import org.sonar.batch.protocol.input.ProjectReferentials;
 import org.sonar.batch.rule.ModuleQProfiles;
 import org.sonar.core.source.db.SnapshotDataDao;
+import org.sonar.core.source.db.SnapshotDataDto;
 
+import javax.persistence.Query;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultProjectReferentialsLoaderTest {
 
   private DefaultProjectReferentialsLoader loader;
+  private DatabaseSession session;
+  private SnapshotDataDao dao;
   private ServerClient serverClient;
   private AnalysisMode analysisMode;
   private ProjectReactor reactor;
@@ -50,7 +67,9 @@ public class DefaultProjectReferentialsLoaderTest {
   public void prepare() {
     serverClient = mock(ServerClient.class);
     analysisMode = mock(AnalysisMode.class);
-    loader = new DefaultProjectReferentialsLoader(mock(DatabaseSession.class), serverClient, analysisMode, mock(SnapshotDataDao.class));
+    session = mock(DatabaseSession.class);
+    dao = mock(SnapshotDataDao.class);
+    loader = new DefaultProjectReferentialsLoader(session, serverClient, analysisMode, dao);
     loader = spy(loader);
     doReturn(null).when(loader).lastSnapshotCreationDate(anyString());
     when(serverClient.request(anyString())).thenReturn("{}");
@@ -84,4 +103,46 @@ public class DefaultProjectReferentialsLoaderTest {
     verify(serverClient).request("/batch/project?key=foo&profile=my-profile%232&preview=false");
   }
 
+  @Test
+  public void load_scm_data_of_all_files_in_a_single_query() {
+    ProjectDefinition root = ProjectDefinition.create().setKey("foo");
+    root.addSubProject(ProjectDefinition.create().setKey("foo:module"));
+    reactor = new ProjectReactor(root);
+    mockFileHashes("foo", "src/A.java=h1;src/B.java=h2");
+    mockFileHashes("foo:module", "src/C.java=h3");
+
+    Query query = mock(Query.class);
+    when(session.createQuery(anyString())).thenReturn(query);
+    List<Object[]> rows = Lists.newArrayList();
+    rows.add(new Object[] {"foo:src/A.java", CoreMetrics.SCM_AUTHORS_BY_LINE_KEY, newMeasure("1=julien")});
+    rows.add(new Object[] {"foo:src/A.java", CoreMetrics.SCM_REVISIONS_BY_LINE_KEY, newMeasure("1=123")});
+    rows.add(new Object[] {"foo:module:src/C.java", CoreMetrics.SCM_AUTHORS_BY_LINE_KEY, newMeasure("1=simon")});
+    when(query.getResultList()).thenReturn(rows);
+
+    ProjectReferentials ref = loader.load(reactor, taskProperties);
+
+    // number of queries does not depend on number of files
+    verify(session, times(1)).createQuery(anyString());
+    FileData fileA = ref.fileData("foo", "src/A.java");
+    assertThat(fileA.hash()).isEqualTo("h1");
+    assertThat(fileA.scmAuthorsByLine()).isEqualTo("1=julien");
+    assertThat(fileA.scmRevisionsByLine()).isEqualTo("1=123");
+    assertThat(fileA.scmLastCommitDatetimesByLine()).isNull();
+    FileData fileB = ref.fileData("foo", "src/B.java");
+    assertThat(fileB.hash()).isEqualTo("h2");
+    assertThat(fileB.scmAuthorsByLine()).isNull();
+    assertThat(ref.fileData("foo:module", "src/C.java").scmAuthorsByLine()).isEqualTo("1=simon");
+  }
+
+  private void mockFileHashes(String moduleKey, String hashes) {
+    SnapshotDataDto dto = new SnapshotDataDto();
+    dto.setData(hashes);
+    when(dao.selectSnapshotDataByComponentKey(eq(moduleKey), anyList())).thenReturn(Arrays.asList(dto));
+  }
+
+  private MeasureModel newMeasure(String data) {
+    MeasureModel measure = new MeasureModel();
+    measure.setTextValue(data);
+    return measure;
+  }
 }
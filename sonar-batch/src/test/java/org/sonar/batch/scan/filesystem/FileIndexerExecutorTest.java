@@ -0,0 +1,57 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.scan.filesystem;
+
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FileIndexerExecutorTest {
+
+  @Test
+  public void execute_tasks_until_stopped() throws Exception {
+    FileIndexerExecutor executor = new FileIndexerExecutor(2);
+    executor.start();
+    assertThat(executor.threads()).isEqualTo(2);
+
+    CompletionService<String> completionService = executor.newCompletionService(new ArrayBlockingQueue<Future<String>>(10));
+    completionService.submit(new Callable<String>() {
+      @Override
+      public String call() {
+        return Thread.currentThread().getName();
+      }
+    });
+    assertThat(completionService.take().get()).startsWith("FileIndexer-");
+
+    executor.stop();
+    // can be stopped twice
+    executor.stop();
+  }
+
+  @Test
+  public void default_number_of_threads_is_number_of_processors() {
+    assertThat(new FileIndexerExecutor().threads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+  }
+}
@@ -241,4 +241,49 @@ public class FileMetadataTest {
     assertThat(hash1).isNotEqualTo(hash2);
   }
 
+  @Test
+  public void supplementary_characters_are_hashed_as_replacement_chars() throws Exception {
+    // hash is kept compatible with previous versions, which encoded UTF-16 chars one by one
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "foo\uD83D\uDE00\nbar", Charsets.UTF_8, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().read(tempFile, Charsets.UTF_8);
+    assertThat(metadata.lines).isEqualTo(2);
+    assertThat(metadata.hash).isEqualTo(md5Hex("foo??\nbar"));
+    assertThat(metadata.lineHashes[0]).containsOnly(md5("foo??"));
+  }
+
+  @Test
+  public void read_file_larger_than_buffers() throws Exception {
+    StringBuilder content = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      content.append("line é ").append(i).append("\r\n");
+      expected.append("line é ").append(i).append("\n");
+    }
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, content.toString(), Charsets.UTF_8, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().read(tempFile, Charsets.UTF_8);
+    assertThat(metadata.lines).isEqualTo(10001);
+    assertThat(metadata.hash).isEqualTo(md5Hex(expected.toString()));
+    assertThat(metadata.originalLineOffsets).hasSize(10001);
+    assertThat(metadata.originalLineOffsets[9999]).isEqualTo(content.lastIndexOf("line"));
+    assertThat(metadata.lineHashes[9999]).containsOnly(md5("lineé9999"));
+    assertThat(metadata.lineHashes[10000]).isNull();
+  }
+
+  @Test
+  public void same_hashes_whatever_the_encoding() throws Exception {
+    File utf8 = temp.newFile();
+    FileUtils.write(utf8, "föo\nbàr\n", Charsets.UTF_8, true);
+    File latin1 = temp.newFile();
+    FileUtils.write(latin1, "föo\nbàr\n", Charsets.ISO_8859_1, true);
+
+    FileMetadata.Metadata utf8Metadata = new FileMetadata().read(utf8, Charsets.UTF_8);
+    FileMetadata.Metadata latin1Metadata = new FileMetadata().read(latin1, Charsets.ISO_8859_1);
+    assertThat(latin1Metadata.hash).isEqualTo(utf8Metadata.hash);
+    assertThat(latin1Metadata.lineHashes[0]).isEqualTo(utf8Metadata.lineHashes[0]);
+    assertThat(latin1Metadata.originalLineOffsets).isEqualTo(utf8Metadata.originalLineOffsets);
+  }
 }
@@ -19,12 +19,15 @@
  */
 package org.sonar.core.duplication;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 import org.sonar.api.BatchComponent;
 import org.sonar.api.ServerComponent;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.persistence.MyBatis;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.List;
 
@@ -46,6 +49,22 @@ public class DuplicationDao implements BatchComponent, ServerComponent {
     }
   }
 
+  /**
+   * Streams the blocks of the last analysis of other projects that have the same hash as a block of the given module snapshot.
+   * Handler receives instances of {@link DuplicationUnitDto}.
+   *
+   * @since 5.1
+   */
+  public void selectModuleCandidates(int projectSnapshotId, @Nullable Integer lastSnapshotId, String language, ResultHandler handler) {
+    SqlSession session = mybatis.openSession(false);
+    try {
+      DuplicationMapper mapper = session.getMapper(DuplicationMapper.class);
+      mapper.selectModuleCandidates(projectSnapshotId, lastSnapshotId, language, handler);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
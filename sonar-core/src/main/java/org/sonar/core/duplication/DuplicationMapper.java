@@ -20,6 +20,7 @@
 package org.sonar.core.duplication;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -30,6 +31,12 @@ public interface DuplicationMapper {
       @Param("last_project_snapshot_id") Integer lastSnapshotId,
       @Param("language") String language);
 
+  void selectModuleCandidates(
+      @Param("project_snapshot_id") int projectSnapshotId,
+      @Param("last_project_snapshot_id") Integer lastSnapshotId,
+      @Param("language") String language,
+      ResultHandler handler);
+
   void batchInsert(DuplicationUnitDto unit);
 
 }
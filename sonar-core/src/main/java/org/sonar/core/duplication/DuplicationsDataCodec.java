@@ -0,0 +1,201 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.duplication;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.codec.binary.Base64;
+import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of the duplications of a file, used by the batch cache of duplications and by the measure
+ * duplications_data :
+ * <ul>
+ *   <li>the format version</li>
+ *   <li>the dictionary of component keys, so that each key is stored only once</li>
+ *   <li>the number of groups, then for each group the number of blocks followed by the blocks, origin block first.
+ *   A block is the index of its component key in the dictionary, its start line and its length.</li>
+ * </ul>
+ * All integers are variable-length encoded.
+ * <p/>
+ * Measures are stored as text, so the text form is the Base64 encoding of the binary format, prefixed by the version
+ * (for example "v1:"). Measures stored before version 5.1 have an XML format, which starts with '&lt;'. Readers of the
+ * measure must still support it, as it is not migrated.
+ *
+ * @since 5.1
+ */
+public class DuplicationsDataCodec {
+
+  public static final int VERSION = 1;
+
+  /**
+   * Prefix of the text form of the current version
+   */
+  public static final String TEXT_PREFIX = "v" + VERSION + ":";
+
+  private DuplicationsDataCodec() {
+    // only static methods
+  }
+
+  public static byte[] encode(List<DuplicationGroup> groups) {
+    try {
+      Map<String, Integer> indexByKey = new HashMap<String, Integer>();
+      List<String> keys = new ArrayList<String>();
+      ByteArrayOutputStream body = new ByteArrayOutputStream(groups.size() * 16);
+      writeVarInt(body, groups.size());
+      for (DuplicationGroup group : groups) {
+        writeVarInt(body, group.duplicates().size() + 1);
+        writeBlock(body, group.originBlock(), indexByKey, keys);
+        for (DuplicationGroup.Block block : group.duplicates()) {
+          writeBlock(body, block, indexByKey, keys);
+        }
+      }
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + keys.size() * 32);
+      bytes.write(VERSION);
+      writeVarInt(bytes, keys.size());
+      for (String key : keys) {
+        byte[] utf8 = key.getBytes(Charsets.UTF_8);
+        writeVarInt(bytes, utf8.length);
+        bytes.write(utf8);
+      }
+      body.writeTo(bytes);
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to encode duplications", e);
+    }
+  }
+
+  public static List<DuplicationGroup> decode(byte[] data) {
+    try {
+      ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+      int version = bytes.read();
+      if (version != VERSION) {
+        throw new IllegalStateException("Unsupported version of duplications data: " + version);
+      }
+      String[] keys = new String[readVarInt(bytes)];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = readUtf8(bytes, readVarInt(bytes));
+      }
+      int groupCount = readVarInt(bytes);
+      List<DuplicationGroup> groups = new ArrayList<DuplicationGroup>(groupCount);
+      for (int i = 0; i < groupCount; i++) {
+        int blockCount = readVarInt(bytes);
+        DuplicationGroup group = new DuplicationGroup(readBlock(bytes, keys));
+        List<DuplicationGroup.Block> duplicates = new ArrayList<DuplicationGroup.Block>(blockCount - 1);
+        for (int j = 1; j < blockCount; j++) {
+          duplicates.add(readBlock(bytes, keys));
+        }
+        group.setDuplicates(duplicates);
+        groups.add(group);
+      }
+      return groups;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to decode duplications", e);
+    }
+  }
+
+  /**
+   * @return the value of the measure duplications_data
+   */
+  public static String toText(byte[] data) {
+    return TEXT_PREFIX + Base64.encodeBase64String(data);
+  }
+
+  /**
+   * @return false if the value of the measure duplications_data has the XML format of versions prior to 5.1
+   */
+  public static boolean isBinaryText(String text) {
+    return text.startsWith(TEXT_PREFIX);
+  }
+
+  public static List<DuplicationGroup> decodeText(String text) {
+    if (!isBinaryText(text)) {
+      throw new IllegalArgumentException("Duplications data does not start with '" + TEXT_PREFIX + "'. Data of versions prior to 5.1 are XML.");
+    }
+    return decode(Base64.decodeBase64(text.substring(TEXT_PREFIX.length())));
+  }
+
+  private static void writeBlock(OutputStream output, DuplicationGroup.Block block, Map<String, Integer> indexByKey, List<String> keys) throws IOException {
+    Integer index = indexByKey.get(block.resourceKey());
+    if (index == null) {
+      index = keys.size();
+      keys.add(block.resourceKey());
+      indexByKey.put(block.resourceKey(), index);
+    }
+    writeVarInt(output, index);
+    writeVarInt(output, block.startLine());
+    writeVarInt(output, block.length());
+  }
+
+  private static DuplicationGroup.Block readBlock(InputStream input, String[] keys) throws IOException {
+    String key = keys[readVarInt(input)];
+    int startLine = readVarInt(input);
+    int length = readVarInt(input);
+    return new DuplicationGroup.Block(key, startLine, length);
+  }
+
+  private static String readUtf8(InputStream input, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    int offset = 0;
+    while (offset < length) {
+      int read = input.read(bytes, offset, length - offset);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      offset += read;
+    }
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static void writeVarInt(OutputStream output, int value) throws IOException {
+    int v = value;
+    while ((v & ~0x7F) != 0) {
+      output.write((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    output.write(v);
+  }
+
+  private static int readVarInt(InputStream input) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = input.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IllegalStateException("Malformed variable-length integer");
+  }
+}
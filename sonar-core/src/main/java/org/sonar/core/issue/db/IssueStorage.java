@@ -71,58 +71,48 @@ public abstract class IssueStorage {
   }
 
   private void doSave(DbSession session, Iterable<DefaultIssue> issues) {
-    // Batch session can not be used for updates. It does not return the number of updated rows,
-    // required for detecting conflicts.
+    // Issues are streamed, and updates are batched like inserts. As a batch session does not return
+    // the number of updated rows, conflicts are detected afterwards on each batch of updated issues.
     long now = System.currentTimeMillis();
-    List<DefaultIssue> toBeUpdated = batchInsertAndReturnIssuesToUpdate(session, issues, now);
-    update(toBeUpdated, now);
-    doAfterSave();
-  }
-
-  protected void doAfterSave() {
-    // overridden on server-side to index ES
-  }
-
-  private List<DefaultIssue> batchInsertAndReturnIssuesToUpdate(DbSession session, Iterable<DefaultIssue> issues, long now) {
-    List<DefaultIssue> toBeUpdated = newArrayList();
-    int count = 0;
     IssueChangeMapper issueChangeMapper = session.getMapper(IssueChangeMapper.class);
+    List<DefaultIssue> updatedIssues = newArrayList();
     for (DefaultIssue issue : issues) {
       if (issue.isNew()) {
         doInsert(session, now, issue);
         insertChanges(issueChangeMapper, issue);
-        if (count > BatchSession.MAX_BATCH_SIZE) {
-          session.commit();
-        }
-        count++;
       } else if (issue.isChanged()) {
-        toBeUpdated.add(issue);
+        doUpdate(session, now, issue);
+        insertChanges(issueChangeMapper, issue);
+        updatedIssues.add(issue);
+        if (updatedIssues.size() >= BatchSession.MAX_BATCH_SIZE) {
+          resolveConflicts(session, now, updatedIssues);
+          updatedIssues.clear();
+        }
       }
     }
+    if (!updatedIssues.isEmpty()) {
+      resolveConflicts(session, now, updatedIssues);
+    }
     session.commit();
-    return toBeUpdated;
+    doAfterSave();
   }
 
-  protected abstract void doInsert(DbSession batchSession, long now, DefaultIssue issue);
-
-  private void update(List<DefaultIssue> toBeUpdated, long now) {
-    if (!toBeUpdated.isEmpty()) {
-      DbSession session = mybatis.openSession(false);
-      try {
-        IssueChangeMapper issueChangeMapper = session.getMapper(IssueChangeMapper.class);
-        for (DefaultIssue issue : toBeUpdated) {
-          doUpdate(session, now, issue);
-          insertChanges(issueChangeMapper, issue);
-        }
-        session.commit();
-      } finally {
-        MyBatis.closeQuietly(session);
-      }
-    }
+  protected void doAfterSave() {
+    // overridden on server-side to index ES
   }
 
+  protected abstract void doInsert(DbSession batchSession, long now, DefaultIssue issue);
+
   protected abstract void doUpdate(DbSession batchSession, long now, DefaultIssue issue);
 
+  /**
+   * Called after each batch of updates, with the issues just updated at date <code>now</code>.
+   * Overridden when updates are conditional, to resolve the issues which have not been updated.
+   */
+  protected void resolveConflicts(DbSession batchSession, long now, List<DefaultIssue> updatedIssues) {
+    // updates are not conditional
+  }
+
   private void insertChanges(IssueChangeMapper mapper, DefaultIssue issue) {
     for (IssueComment comment : issue.comments()) {
       DefaultIssueComment c = (DefaultIssueComment) comment;
@@ -20,10 +20,14 @@
 package org.sonar.core.issue.db;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.issue.internal.DefaultIssue;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * See https://jira.codehaus.org/browse/SONAR-4309
  *
@@ -38,9 +42,37 @@ public class UpdateConflictResolver {
 
     IssueDto dbIssue = mapper.selectByKey(issue.key());
     if (dbIssue != null) {
-      mergeFields(dbIssue, issue);
-      mapper.update(IssueDto.toDtoForUpdate(issue, dbIssue.getProjectId(), System.currentTimeMillis()));
+      resolve(issue, dbIssue, mapper);
+    }
+  }
+
+  /**
+   * Resolves conflicts on issues updated in a batch, where the number of updated rows is unknown. Issues
+   * which have not been updated at <code>updatedAt</code> have been changed by end-users in the meantime.
+   *
+   * @return the number of conflicts
+   * @since 5.1
+   */
+  public int resolve(Collection<DefaultIssue> updatedIssues, long updatedAt, IssueMapper mapper) {
+    Map<String, DefaultIssue> issuesByKey = Maps.newHashMap();
+    for (DefaultIssue issue : updatedIssues) {
+      issuesByKey.put(issue.key(), issue);
     }
+    int conflicts = 0;
+    for (IssueDto dbIssue : mapper.selectByKeys(issuesByKey.keySet())) {
+      if (dbIssue.getUpdatedAt() != updatedAt) {
+        DefaultIssue issue = issuesByKey.get(dbIssue.getKee());
+        LOG.debug("Resolve conflict on issue " + issue.key());
+        resolve(issue, dbIssue, mapper);
+        conflicts++;
+      }
+    }
+    return conflicts;
+  }
+
+  private void resolve(DefaultIssue issue, IssueDto dbIssue, IssueMapper mapper) {
+    mergeFields(dbIssue, issue);
+    mapper.update(IssueDto.toDtoForUpdate(issue, dbIssue.getProjectId(), System.currentTimeMillis()));
   }
 
   @VisibleForTesting
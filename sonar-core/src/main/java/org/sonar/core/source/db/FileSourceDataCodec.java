@@ -0,0 +1,304 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.core.source.db;
+
+import com.google.common.base.Charsets;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary format of the column FILE_SOURCES.BINARY_DATA. It contains the same columns than the CSV
+ * format of FILE_SOURCES.DATA:
+ * <ol>
+ *   <li>SCM revision, SCM author and SCM date</li>
+ *   <li>hits, conditions and covered conditions for unit tests, integration tests and overall coverage</li>
+ *   <li>highlighting, symbols and duplications</li>
+ *   <li>source</li>
+ * </ol>
+ * <p/>
+ * Data is stored column per column, so that similar values are contiguous :
+ * <ul>
+ *   <li>a header with the format version and the number of lines, not compressed</li>
+ *   <li>for each column, its type followed by the values of all the lines. The body is compressed with deflate.</li>
+ * </ul>
+ * Columns are either dictionary-encoded (values repeated across lines, like SCM authors), integers
+ * (coverage) or length-prefixed UTF-8 strings. Null values are kept.
+ *
+ * @since 5.1
+ */
+public class FileSourceDataCodec {
+
+  public static final int VERSION = 1;
+  public static final int COLUMNS = 16;
+
+  private static final int[] DICTIONARY_COLUMNS = {0, 1, 2};
+  private static final int FIRST_INTEGER_COLUMN = 3;
+  private static final int LAST_INTEGER_COLUMN = 11;
+
+  private static final int TYPE_DICTIONARY = 1;
+  private static final int TYPE_INTEGER = 2;
+  private static final int TYPE_STRING = 3;
+
+  private FileSourceDataCodec() {
+    // only static methods
+  }
+
+  /**
+   * @param lines values of each line. All arrays must have {@link #COLUMNS} elements.
+   */
+  public static byte[] encode(List<String[]> lines) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(lines.size() * 32);
+      bytes.write(VERSION);
+      writeVarInt(bytes, lines.size());
+      DeflaterOutputStream body = new DeflaterOutputStream(bytes);
+      for (int column = 0; column < COLUMNS; column++) {
+        if (isDictionaryColumn(column)) {
+          writeDictionaryColumn(body, lines, column);
+        } else if (column >= FIRST_INTEGER_COLUMN && column <= LAST_INTEGER_COLUMN && isIntegerColumn(lines, column)) {
+          writeIntegerColumn(body, lines, column);
+        } else {
+          writeStringColumn(body, lines, column);
+        }
+      }
+      body.close();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to encode source data", e);
+    }
+  }
+
+  /**
+   * @return values of each line, as arrays of {@link #COLUMNS} elements. Missing values are null.
+   */
+  public static List<String[]> decode(byte[] data) {
+    try {
+      ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+      int version = bytes.read();
+      if (version != VERSION) {
+        throw new IllegalStateException("Unsupported version of source data: " + version);
+      }
+      int lineCount = readVarInt(bytes);
+      List<String[]> lines = new ArrayList<String[]>(lineCount);
+      for (int i = 0; i < lineCount; i++) {
+        lines.add(new String[COLUMNS]);
+      }
+      DataInputStream body = new DataInputStream(new InflaterInputStream(bytes));
+      for (int column = 0; column < COLUMNS; column++) {
+        int type = body.read();
+        switch (type) {
+          case TYPE_DICTIONARY:
+            readDictionaryColumn(body, lines, column);
+            break;
+          case TYPE_INTEGER:
+            readIntegerColumn(body, lines, column);
+            break;
+          case TYPE_STRING:
+            readStringColumn(body, lines, column);
+            break;
+          default:
+            throw new IllegalStateException(String.format("Unsupported type of column %d: %d", column, type));
+        }
+      }
+      return lines;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to decode source data", e);
+    }
+  }
+
+  private static boolean isDictionaryColumn(int column) {
+    for (int dictionaryColumn : DICTIONARY_COLUMNS) {
+      if (dictionaryColumn == column) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isIntegerColumn(List<String[]> lines, int column) {
+    for (String[] line : lines) {
+      String value = line[column];
+      if (value != null && !isInteger(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isInteger(String value) {
+    // leading zeros, signs and overflows are not supported in order to guarantee that values are restored as is
+    int length = value.length();
+    if (length == 0 || length > 9 || (length > 1 && value.charAt(0) == '0')) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeDictionaryColumn(OutputStream output, List<String[]> lines, int column) throws IOException {
+    Map<String, Integer> indexByValue = new HashMap<String, Integer>();
+    List<String> dictionary = new ArrayList<String>();
+    int[] indexes = new int[lines.size()];
+    for (int i = 0; i < lines.size(); i++) {
+      String value = lines.get(i)[column];
+      if (value != null) {
+        Integer index = indexByValue.get(value);
+        if (index == null) {
+          dictionary.add(value);
+          index = dictionary.size();
+          indexByValue.put(value, index);
+        }
+        indexes[i] = index;
+      }
+    }
+    output.write(TYPE_DICTIONARY);
+    writeVarInt(output, dictionary.size());
+    for (String value : dictionary) {
+      writeString(output, value);
+    }
+    for (int index : indexes) {
+      // 0 is null
+      writeVarInt(output, index);
+    }
+  }
+
+  private static void readDictionaryColumn(InputStream input, List<String[]> lines, int column) throws IOException {
+    int size = readVarInt(input);
+    String[] dictionary = new String[size];
+    for (int i = 0; i < size; i++) {
+      dictionary[i] = readString(input);
+    }
+    for (String[] line : lines) {
+      int index = readVarInt(input);
+      line[column] = index == 0 ? null : dictionary[index - 1];
+    }
+  }
+
+  private static void writeIntegerColumn(OutputStream output, List<String[]> lines, int column) throws IOException {
+    output.write(TYPE_INTEGER);
+    for (String[] line : lines) {
+      String value = line[column];
+      // 0 is null
+      writeVarInt(output, value == null ? 0 : (Integer.parseInt(value) + 1));
+    }
+  }
+
+  private static void readIntegerColumn(InputStream input, List<String[]> lines, int column) throws IOException {
+    for (String[] line : lines) {
+      int value = readVarInt(input);
+      line[column] = value == 0 ? null : String.valueOf(value - 1);
+    }
+  }
+
+  private static void writeStringColumn(OutputStream output, List<String[]> lines, int column) throws IOException {
+    output.write(TYPE_STRING);
+    for (String[] line : lines) {
+      writeNullableString(output, line[column]);
+    }
+  }
+
+  private static void readStringColumn(DataInputStream input, List<String[]> lines, int column) throws IOException {
+    for (String[] line : lines) {
+      line[column] = readNullableString(input);
+    }
+  }
+
+  private static void writeString(OutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    writeVarInt(output, bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(InputStream input) throws IOException {
+    return readUtf8(input, readVarInt(input));
+  }
+
+  private static void writeNullableString(OutputStream output, @Nullable String value) throws IOException {
+    if (value == null) {
+      writeVarInt(output, 0);
+    } else {
+      byte[] bytes = value.getBytes(Charsets.UTF_8);
+      writeVarInt(output, bytes.length + 1);
+      output.write(bytes);
+    }
+  }
+
+  private static String readNullableString(InputStream input) throws IOException {
+    int length = readVarInt(input);
+    return length == 0 ? null : readUtf8(input, length - 1);
+  }
+
+  private static String readUtf8(InputStream input, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    int offset = 0;
+    while (offset < length) {
+      int read = input.read(bytes, offset, length - offset);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      offset += read;
+    }
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  static void writeVarInt(OutputStream output, int value) throws IOException {
+    int v = value;
+    while ((v & ~0x7F) != 0) {
+      output.write((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    output.write(v);
+  }
+
+  static int readVarInt(InputStream input) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = input.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IllegalStateException("Malformed variable-length integer");
+  }
+}
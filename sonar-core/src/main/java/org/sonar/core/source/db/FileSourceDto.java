@@ -29,6 +29,7 @@ public class FileSourceDto {
   private long createdAt;
   private long updatedAt;
   private String data;
+  private byte[] binaryData;
   private String lineHashes;
   private String dataHash;
 
@@ -69,6 +70,19 @@ public class FileSourceDto {
     return this;
   }
 
+  /**
+   * Data encoded with {@link FileSourceDataCodec}. It replaces the CSV {@link #getData()} since version 5.1.
+   */
+  @CheckForNull
+  public byte[] getBinaryData() {
+    return binaryData;
+  }
+
+  public FileSourceDto setBinaryData(@Nullable byte[] binaryData) {
+    this.binaryData = binaryData;
+    return this;
+  }
+
   @CheckForNull
   public String getLineHashes() {
     return lineHashes;
@@ -0,0 +1,103 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.duplication;
+
+import org.junit.Test;
+import org.sonar.api.batch.sensor.duplication.DuplicationGroup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class DuplicationsDataCodecTest {
+
+  @Test
+  public void encode_and_decode() throws Exception {
+    List<DuplicationGroup> groups = Arrays.asList(
+      new DuplicationGroup(new DuplicationGroup.Block("foo:Bar.java", 1, 4))
+        .addDuplicate(new DuplicationGroup.Block("foo:Foo.java", 5, 9))
+        .addDuplicate(new DuplicationGroup.Block("foo:Bar.java", 200, 4)),
+      new DuplicationGroup(new DuplicationGroup.Block("foo:Bar.java", 100000, 300))
+        .addDuplicate(new DuplicationGroup.Block("été:日本.java", 12, 300)));
+
+    List<DuplicationGroup> decoded = DuplicationsDataCodec.decode(DuplicationsDataCodec.encode(groups));
+
+    assertThat(decoded).isEqualTo(groups);
+  }
+
+  @Test
+  public void encode_and_decode_no_groups() throws Exception {
+    assertThat(DuplicationsDataCodec.decode(DuplicationsDataCodec.encode(Collections.<DuplicationGroup>emptyList()))).isEmpty();
+  }
+
+  @Test
+  public void store_component_keys_once() throws Exception {
+    String key = "org.codehaus.sonar:sonar-plugin-api:src/main/java/org/sonar/api/utils/command/CommandExecutor.java";
+    DuplicationGroup group = new DuplicationGroup(new DuplicationGroup.Block(key, 10, 20));
+    for (int i = 0; i < 100; i++) {
+      group.addDuplicate(new DuplicationGroup.Block(key, 100 + i, 20));
+    }
+
+    byte[] data = DuplicationsDataCodec.encode(Arrays.asList(group));
+
+    assertThat(data.length).isLessThan(key.length() + 101 * 4);
+  }
+
+  @Test
+  public void encode_and_decode_text() throws Exception {
+    List<DuplicationGroup> groups = Arrays.asList(new DuplicationGroup(new DuplicationGroup.Block("foo:Bar.java", 1, 4))
+      .addDuplicate(new DuplicationGroup.Block("foo:Foo.java", 5, 9)));
+
+    String text = DuplicationsDataCodec.toText(DuplicationsDataCodec.encode(groups));
+
+    assertThat(text).startsWith("v1:");
+    assertThat(DuplicationsDataCodec.isBinaryText(text)).isTrue();
+    assertThat(DuplicationsDataCodec.decodeText(text)).isEqualTo(groups);
+  }
+
+  @Test
+  public void recognize_xml_of_previous_versions() throws Exception {
+    assertThat(DuplicationsDataCodec.isBinaryText("<duplications><g><b s=\"1\" l=\"4\" r=\"foo:Bar.java\"/></g></duplications>")).isFalse();
+  }
+
+  @Test
+  public void fail_to_decode_xml_of_previous_versions_as_text() throws Exception {
+    try {
+      DuplicationsDataCodec.decodeText("<duplications><g><b s=\"1\" l=\"4\" r=\"foo:Bar.java\"/></g></duplications>");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("v1:");
+    }
+  }
+
+  @Test
+  public void fail_on_unsupported_version() throws Exception {
+    try {
+      DuplicationsDataCodec.decode(new byte[] {42, 0, 0});
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Unsupported version of duplications data: 42");
+    }
+  }
+
+}
@@ -27,6 +27,8 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.DateUtils;
 
+import java.util.Arrays;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -66,6 +68,30 @@ public class UpdateConflictResolverTest {
     assertThat(updatedIssue.getAssignee()).isEqualTo("arthur");
   }
 
+  @Test
+  public void should_resolve_conflicts_on_issues_not_updated_in_batch() throws Exception {
+    long now = 1500000000000L;
+    DefaultIssue updated = new DefaultIssue().setKey("ABCDE").setRuleKey(RuleKey.of("squid", "AvoidCycles")).setNew(false).setStatus(Issue.STATUS_OPEN);
+    DefaultIssue notUpdated = new DefaultIssue().setKey("FGHIJ").setRuleKey(RuleKey.of("squid", "AvoidCycles")).setNew(false).setStatus(Issue.STATUS_OPEN);
+
+    IssueMapper mapper = mock(IssueMapper.class);
+    when(mapper.selectByKeys(anyCollectionOf(String.class))).thenReturn(Arrays.asList(
+      new IssueDto().setKee("ABCDE").setRuleKey("squid", "AvoidCycles").setStatus(Issue.STATUS_OPEN).setUpdatedAt(now),
+      // changed by user after the loading by scan
+      new IssueDto().setKee("FGHIJ").setRuleKey("squid", "AvoidCycles").setStatus(Issue.STATUS_OPEN).setUpdatedAt(now + 10L).setAssignee("arthur")
+      ));
+
+    int conflicts = new UpdateConflictResolver().resolve(Arrays.asList(updated, notUpdated), now, mapper);
+
+    assertThat(conflicts).isEqualTo(1);
+    ArgumentCaptor<IssueDto> argument = ArgumentCaptor.forClass(IssueDto.class);
+    verify(mapper).update(argument.capture());
+    assertThat(argument.getValue().getKee()).isEqualTo("FGHIJ");
+    assertThat(argument.getValue().getAssignee()).isEqualTo("arthur");
+    assertThat(notUpdated.assignee()).isEqualTo("arthur");
+    assertThat(updated.assignee()).isNull();
+  }
+
   @Test
   public void should_keep_changes_made_by_user() throws Exception {
     DefaultIssue issue = new DefaultIssue()
@@ -26,6 +26,7 @@ import org.sonar.api.utils.DateUtils;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.persistence.DbSession;
 
+import java.util.Arrays;
 import java.util.Date;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -86,4 +87,19 @@ public class FileSourceDaoTest extends AbstractDaoTestCase {
 
     checkTable("update", "file_sources");
   }
+
+  @Test
+  public void insert_and_select_binary_data() throws Exception {
+    byte[] data = FileSourceDataCodec.encode(Arrays.<String[]>asList(
+      new String[] {"aef12a", "alice", "2014-04-25T12:34:56+0100", "1", null, null, null, null, null, "1", null, null, null, null, null, "class Foo"}));
+    dao.insert(new FileSourceDto().setProjectUuid("prj").setFileUuid("file").setBinaryData(data)
+      .setDataHash("hash2")
+      .setLineHashes("foo")
+      .setCreatedAt(DateUtils.parseDateTime("2014-10-31T16:44:02+0100").getTime())
+      .setUpdatedAt(DateUtils.parseDateTime("2014-10-31T16:44:02+0100").getTime()));
+
+    FileSourceDto fileSourceDto = dao.select("file");
+    assertThat(fileSourceDto.getData()).isNull();
+    assertThat(fileSourceDto.getBinaryData()).isEqualTo(data);
+  }
 }
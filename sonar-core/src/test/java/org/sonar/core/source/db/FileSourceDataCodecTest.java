@@ -0,0 +1,121 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.source.db;
+
+import org.junit.Test;
+import org.sonar.api.utils.text.CsvWriter;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class FileSourceDataCodecTest {
+
+  @Test
+  public void encode_and_decode() throws Exception {
+    List<String[]> lines = Arrays.asList(
+      new String[] {"aef12a", "alice", "2014-04-25T12:34:56+0100", "1", "4", "2", "2", "5", "3", "3", "6", "4", "0,3,a", "1,2,1;0,2,2", "1,3", "class Foo {"},
+      new String[] {"abe465", "bob", "2014-07-25T12:34:56+0100", null, null, null, null, null, null, null, null, null, null, null, null, "  // Empty"},
+      new String[] {"aef12a", "alice", "2014-04-25T12:34:56+0100", "0", null, null, "0", null, null, "0", null, null, "", "", "", "}"});
+
+    List<String[]> decoded = FileSourceDataCodec.decode(FileSourceDataCodec.encode(lines));
+
+    assertThat(decoded).hasSize(3);
+    for (int i = 0; i < lines.size(); i++) {
+      assertThat(decoded.get(i)).isEqualTo(lines.get(i));
+    }
+  }
+
+  @Test
+  public void encode_and_decode_empty_file() throws Exception {
+    assertThat(FileSourceDataCodec.decode(FileSourceDataCodec.encode(Collections.<String[]>emptyList()))).isEmpty();
+  }
+
+  @Test
+  public void keep_values_of_coverage_columns_that_are_not_integers() throws Exception {
+    List<String[]> lines = new ArrayList<String[]>();
+    lines.add(line("1", "foo"));
+    lines.add(line("007", "bar"));
+    lines.add(line("-2", "baz"));
+    lines.add(line("12345678901", "qix"));
+    lines.add(line("", "qux"));
+
+    List<String[]> decoded = FileSourceDataCodec.decode(FileSourceDataCodec.encode(lines));
+
+    assertThat(decoded.get(0)[3]).isEqualTo("1");
+    assertThat(decoded.get(1)[3]).isEqualTo("007");
+    assertThat(decoded.get(2)[3]).isEqualTo("-2");
+    assertThat(decoded.get(3)[3]).isEqualTo("12345678901");
+    assertThat(decoded.get(4)[3]).isEqualTo("");
+    assertThat(decoded.get(4)[15]).isEqualTo("qux");
+  }
+
+  @Test
+  public void keep_unicode_characters() throws Exception {
+    List<String[]> lines = new ArrayList<String[]>();
+    lines.add(line(null, "String s = \"été 日本\";"));
+
+    assertThat(FileSourceDataCodec.decode(FileSourceDataCodec.encode(lines)).get(0)[15]).isEqualTo("String s = \"été 日本\";");
+  }
+
+  @Test
+  public void fail_to_decode_unsupported_version() throws Exception {
+    byte[] data = FileSourceDataCodec.encode(Arrays.asList(line("1", "foo")));
+    data[0] = (byte) (FileSourceDataCodec.VERSION + 1);
+
+    try {
+      FileSourceDataCodec.decode(data);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Unsupported version of source data: " + (FileSourceDataCodec.VERSION + 1));
+    }
+  }
+
+  @Test
+  public void binary_data_is_smaller_than_csv() throws Exception {
+    List<String[]> lines = new ArrayList<String[]>();
+    for (int i = 0; i < 1000; i++) {
+      String hits = String.valueOf(i % 7);
+      lines.add(new String[] {"rev" + (i % 5), "author" + (i % 3), "2014-04-25T12:34:56+0100", hits, "2", "1", hits, "2", "1", hits, "2", "1",
+        "0,6,k;7,20,s", "4,10," + i, "", "    private static final int CONSTANT_" + i + " = " + i + ";"});
+    }
+
+    StringWriter csv = new StringWriter();
+    CsvWriter csvWriter = CsvWriter.of(csv);
+    for (String[] line : lines) {
+      csvWriter.values(line);
+    }
+    csvWriter.close();
+
+    assertThat(FileSourceDataCodec.encode(lines).length).isLessThan(csv.toString().length() / 4);
+  }
+
+  private static String[] line(String utHits, String source) {
+    String[] line = new String[FileSourceDataCodec.COLUMNS];
+    line[3] = utHits;
+    line[15] = source;
+    return line;
+  }
+}
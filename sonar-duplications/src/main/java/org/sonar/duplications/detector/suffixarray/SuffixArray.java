@@ -0,0 +1,167 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixarray;
+
+import java.util.Arrays;
+
+/**
+ * <a href="http://en.wikipedia.org/wiki/Suffix_array">Suffix array</a> and array of longest common prefixes
+ * for a text over integer alphabet.
+ * <p>
+ * Suffix array is constructed by prefix doubling with radix sort - O(N*log(L)), where L is the length of longest repeated substring,
+ * and array of longest common prefixes by algorithm of Kasai et al. - O(N).
+ * Both use only arrays of integers, so memory consumption is linear.
+ * </p>
+ */
+final class SuffixArray {
+
+  private final int[] text;
+  private final int[] suffixes;
+  private final int[] lcp;
+
+  /**
+   * @param text symbols, each of them must be in range from 0 (inclusive) to {@code alphabetSize} (exclusive)
+   */
+  SuffixArray(int[] text, int alphabetSize) {
+    this.text = text;
+    this.suffixes = sort(text, alphabetSize);
+    this.lcp = lcp(text, suffixes);
+  }
+
+  int length() {
+    return text.length;
+  }
+
+  int symbolAt(int index) {
+    return text[index];
+  }
+
+  /**
+   * @return start position of i-th suffix in lexicographical order
+   */
+  int suffix(int i) {
+    return suffixes[i];
+  }
+
+  /**
+   * @return length of longest common prefix of (i-1)-th and i-th suffixes in lexicographical order, or 0 for first suffix
+   */
+  int lcp(int i) {
+    return lcp[i];
+  }
+
+  private static int[] sort(int[] text, int alphabetSize) {
+    int n = text.length;
+    int[] sa = new int[n];
+    int[] rank = new int[n];
+    int[] tmp = new int[n];
+    int[] count = new int[Math.max(alphabetSize, n) + 1];
+
+    // sort by first symbol
+    for (int i = 0; i < n; i++) {
+      count[text[i]]++;
+    }
+    int classes = 0;
+    for (int c = 0; c < alphabetSize; c++) {
+      if (count[c] > 0) {
+        classes++;
+      }
+    }
+    for (int c = 0; c < alphabetSize; c++) {
+      count[c + 1] += count[c];
+    }
+    for (int i = n - 1; i >= 0; i--) {
+      sa[--count[text[i]]] = i;
+    }
+    System.arraycopy(text, 0, rank, 0, n);
+
+    for (int k = 1; classes < n; k <<= 1) {
+      // order by rank of suffix starting at i + k - suffixes shorter than k go first
+      int p = 0;
+      for (int i = n - k; i < n; i++) {
+        tmp[p++] = i;
+      }
+      for (int j = 0; j < n; j++) {
+        if (sa[j] >= k) {
+          tmp[p++] = sa[j] - k;
+        }
+      }
+
+      // stable sort by rank of suffix starting at i
+      int maxRank = Math.max(alphabetSize, n);
+      Arrays.fill(count, 0, maxRank + 1, 0);
+      for (int i = 0; i < n; i++) {
+        count[rank[i]]++;
+      }
+      for (int r = 0; r < maxRank; r++) {
+        count[r + 1] += count[r];
+      }
+      for (int j = n - 1; j >= 0; j--) {
+        sa[--count[rank[tmp[j]]]] = tmp[j];
+      }
+
+      // compute new ranks
+      tmp[sa[0]] = 0;
+      classes = 1;
+      for (int j = 1; j < n; j++) {
+        int a = sa[j - 1];
+        int b = sa[j];
+        if (rank[a] != rank[b] || secondRank(rank, a + k) != secondRank(rank, b + k)) {
+          classes++;
+        }
+        tmp[b] = classes - 1;
+      }
+      int[] swap = rank;
+      rank = tmp;
+      tmp = swap;
+    }
+    return sa;
+  }
+
+  private static int secondRank(int[] rank, int index) {
+    return index < rank.length ? rank[index] : -1;
+  }
+
+  private static int[] lcp(int[] text, int[] sa) {
+    int n = text.length;
+    int[] rank = new int[n];
+    for (int i = 0; i < n; i++) {
+      rank[sa[i]] = i;
+    }
+    int[] result = new int[n];
+    int h = 0;
+    for (int i = 0; i < n; i++) {
+      if (rank[i] > 0) {
+        int j = sa[rank[i] - 1];
+        while (i + h < n && j + h < n && text[i + h] == text[j + h]) {
+          h++;
+        }
+        result[rank[i]] = h;
+        if (h > 0) {
+          h--;
+        }
+      } else {
+        h = 0;
+      }
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixarray;
+
+import com.google.common.collect.Maps;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.detector.suffixtree.DuplicationsCollector;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.detector.suffixtree.TextSet;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.CloneIndex;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Produces the same {@link CloneGroup}s as {@link SuffixTreeCloneDetectionAlgorithm}, but without construction of suffix-tree.
+ * <p>
+ * Each inner node of suffix-tree corresponds to an interval of suffix array, where longest common prefix of all suffixes
+ * is equal to depth of node. Those intervals are enumerated in one pass over array of longest common prefixes,
+ * so memory consumption is linear and does not depend on number of repetitions, which makes it suitable for very large files.
+ * </p>
+ * <p>
+ * Only intervals, which correspond to left-maximal repetitions (not all occurrences are preceded by the same symbol) are reported,
+ * because group of any other repetition is fully covered by group of longer repetition, and so would be removed by {@link DuplicationsCollector}.
+ * Groups might be returned in an order different from {@link SuffixTreeCloneDetectionAlgorithm}.
+ * </p>
+ */
+public final class SuffixArrayCloneDetectionAlgorithm {
+
+  /**
+   * Left context of suffix, which starts at the beginning of text.
+   */
+  private static final int NO_SYMBOL = -1;
+
+  /**
+   * Left context of interval, where suffixes are preceded by different symbols.
+   */
+  private static final int DIFFERENT_SYMBOLS = -2;
+
+  public static List<CloneGroup> detect(CloneIndex cloneIndex, Collection<Block> fileBlocks) {
+    if (fileBlocks.isEmpty()) {
+      return Collections.EMPTY_LIST;
+    }
+    TextSet text = SuffixTreeCloneDetectionAlgorithm.createTextSet(cloneIndex, fileBlocks);
+    if (text == null) {
+      return Collections.EMPTY_LIST;
+    }
+    DuplicationsCollector reporter = new DuplicationsCollector(text);
+    new SuffixArrayCloneDetectionAlgorithm(text).search(reporter);
+    return reporter.getResult();
+  }
+
+  private final TextSet text;
+  private final SuffixArray suffixArray;
+
+  /**
+   * Reported intervals - depth, index of first and index of last suffix.
+   */
+  private int[] depths;
+  private int[] firsts;
+  private int[] lasts;
+  private int count;
+
+  private SuffixArrayCloneDetectionAlgorithm(TextSet text) {
+    this.text = text;
+    this.suffixArray = createSuffixArray(text);
+  }
+
+  /**
+   * Terminators are unique, so each of them is mapped to its own symbol.
+   */
+  private static SuffixArray createSuffixArray(TextSet text) {
+    int n = text.length();
+    int[] symbols = new int[n];
+    Map<Object, Integer> ids = Maps.newHashMap();
+    for (int i = 0; i < n; i++) {
+      Object symbol = text.symbolAt(i);
+      Integer id = ids.get(symbol);
+      if (id == null) {
+        id = ids.size();
+        ids.put(symbol, id);
+      }
+      symbols[i] = id;
+    }
+    return new SuffixArray(symbols, ids.size());
+  }
+
+  private void search(DuplicationsCollector reporter) {
+    collectIntervals();
+    sortIntervalsByDepth();
+    for (int i = 0; i < count; i++) {
+      int depth = depths[i];
+      reporter.startOfGroup(lasts[i] - firsts[i] + 1, depth);
+      for (int j = firsts[i]; j <= lasts[i]; j++) {
+        int start = suffixArray.suffix(j);
+        reporter.part(start, start + depth);
+      }
+      reporter.endOfGroup();
+    }
+  }
+
+  /**
+   * Bottom-up traversal of intervals. For each interval on stack we keep its depth, its first suffix,
+   * its left context and minimal start position of its suffixes, which allows to check presence of origin.
+   */
+  private void collectIntervals() {
+    int n = suffixArray.length();
+    depths = new int[16];
+    firsts = new int[16];
+    lasts = new int[16];
+    count = 0;
+
+    int[] stackDepth = new int[n + 1];
+    int[] stackFirst = new int[n + 1];
+    int[] stackLeft = new int[n + 1];
+    int[] stackMinStart = new int[n + 1];
+    int top = 0;
+    stackDepth[0] = 0;
+    stackFirst[0] = 0;
+    stackLeft[0] = leftSymbol(suffixArray.suffix(0));
+    stackMinStart[0] = suffixArray.suffix(0);
+
+    for (int i = 1; i <= n; i++) {
+      int lcp = i < n ? suffixArray.lcp(i) : 0;
+      int first = i - 1;
+      int left = leftSymbol(suffixArray.suffix(i - 1));
+      int minStart = suffixArray.suffix(i - 1);
+      while (lcp < stackDepth[top]) {
+        // interval ends at i - 1
+        first = stackFirst[top];
+        left = stackLeft[top];
+        minStart = stackMinStart[top];
+        if (left == DIFFERENT_SYMBOLS && text.isInsideOrigin(minStart + stackDepth[top])) {
+          addInterval(stackDepth[top], first, i - 1);
+        }
+        top--;
+        stackLeft[top] = merge(stackLeft[top], left);
+        stackMinStart[top] = Math.min(stackMinStart[top], minStart);
+      }
+      if (lcp > stackDepth[top]) {
+        // new interval starts at first, it contains suffix i - 1 or interval, which was just removed from stack
+        top++;
+        stackDepth[top] = lcp;
+        stackFirst[top] = first;
+        stackLeft[top] = left;
+        stackMinStart[top] = minStart;
+      }
+      if (i < n) {
+        int start = suffixArray.suffix(i);
+        stackLeft[top] = merge(stackLeft[top], leftSymbol(start));
+        stackMinStart[top] = Math.min(stackMinStart[top], start);
+      }
+    }
+  }
+
+  private int leftSymbol(int start) {
+    return start == 0 ? NO_SYMBOL : suffixArray.symbolAt(start - 1);
+  }
+
+  private static int merge(int left1, int left2) {
+    return left1 == left2 ? left1 : DIFFERENT_SYMBOLS;
+  }
+
+  private void addInterval(int depth, int first, int last) {
+    if (count == depths.length) {
+      int newCapacity = count * 2;
+      depths = Arrays.copyOf(depths, newCapacity);
+      firsts = Arrays.copyOf(firsts, newCapacity);
+      lasts = Arrays.copyOf(lasts, newCapacity);
+    }
+    depths[count] = depth;
+    firsts[count] = first;
+    lasts[count] = last;
+    count++;
+  }
+
+  /**
+   * {@link DuplicationsCollector} requires groups in descending order of length. Counting sort, because depth is bounded by length of text.
+   */
+  private void sortIntervalsByDepth() {
+    int maxDepth = 0;
+    for (int i = 0; i < count; i++) {
+      maxDepth = Math.max(maxDepth, depths[i]);
+    }
+    int[] positions = new int[maxDepth + 2];
+    for (int i = 0; i < count; i++) {
+      positions[maxDepth - depths[i] + 1]++;
+    }
+    for (int d = 1; d <= maxDepth + 1; d++) {
+      positions[d] += positions[d - 1];
+    }
+    int[] sortedDepths = new int[count];
+    int[] sortedFirsts = new int[count];
+    int[] sortedLasts = new int[count];
+    for (int i = 0; i < count; i++) {
+      int p = positions[maxDepth - depths[i]]++;
+      sortedDepths[p] = depths[i];
+      sortedFirsts[p] = firsts[i];
+      sortedLasts[p] = lasts[i];
+    }
+    depths = sortedDepths;
+    firsts = sortedFirsts;
+    lasts = sortedLasts;
+  }
+
+}
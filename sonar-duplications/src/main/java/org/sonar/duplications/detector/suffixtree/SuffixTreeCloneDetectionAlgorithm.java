@@ -46,7 +46,13 @@ public final class SuffixTreeCloneDetectionAlgorithm {
   private SuffixTreeCloneDetectionAlgorithm() {
   }
 
-  private static TextSet createTextSet(CloneIndex index, Collection<Block> fileBlocks) {
+  /**
+   * Creates generalised text from blocks of file and blocks with same hashes from index.
+   * First text is the file itself, followed by runs of consecutive blocks of other resources.
+   *
+   * @return null if there is no duplications
+   */
+  public static TextSet createTextSet(CloneIndex index, Collection<Block> fileBlocks) {
     Set<ByteArray> hashes = Sets.newHashSet();
     for (Block fileBlock : fileBlocks) {
       hashes.add(fileBlock.getBlockHash());
@@ -0,0 +1,143 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixarray;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.detector.DetectorTestCase;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.MemoryCloneIndex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Each test from {@link DetectorTestCase} is executed by both algorithms, and results must be the same.
+ */
+public class SuffixArrayCloneDetectionAlgorithmTest extends DetectorTestCase {
+
+  /**
+   * Overridden, because index is queried by both algorithms in {@link #detect(CloneIndex, Block[])}.
+   */
+  @Override
+  @Test
+  public void only_one_query_of_index_for_each_unique_hash() {
+    CloneIndex index = spy(createIndex());
+    SuffixArrayCloneDetectionAlgorithm.detect(index, Arrays.asList(newBlocks("a", "1 2 1 2")));
+
+    verify(index).getBySequenceHash(new ByteArray("01"));
+    verify(index).getBySequenceHash(new ByteArray("02"));
+    verifyNoMoreInteractions(index);
+  }
+
+  @Test
+  public void noDuplications() {
+    CloneIndex index = createIndex();
+    Block[] fileBlocks = newBlocks("a", "1 2 3");
+    List<CloneGroup> result = detect(index, fileBlocks);
+    assertThat(result, sameInstance(Collections.EMPTY_LIST));
+  }
+
+  @Test
+  public void huge() {
+    CloneIndex index = createIndex();
+    Block[] fileBlocks = new Block[5000];
+    for (int i = 0; i < 5000; i++) {
+      fileBlocks[i] = newBlock("x", new ByteArray("01"), i);
+    }
+    List<CloneGroup> result = detect(index, fileBlocks);
+
+    assertEquals(1, result.size());
+  }
+
+  /**
+   * Given:
+   * <pre>
+   * x: a 2 b 2 c 2 2 2
+   * </pre>
+   * Expected same as for suffix-tree:
+   * <pre>
+   * x-x (2 2)
+   * x-x-x-x-x (2)
+   * <pre>
+   */
+  @Test
+  public void overlapping_repetitions() {
+    CloneIndex index = createIndex();
+    List<CloneGroup> result = detect(index, newBlocks("x", "a 2 b 2 c 2 2 2"));
+    assertEquals(2, result.size());
+  }
+
+  @Test
+  public void same_result_as_suffix_tree_for_random_texts() {
+    Random random = new Random(42);
+    for (int iteration = 0; iteration < 2000; iteration++) {
+      int alphabetSize = 1 + random.nextInt(6);
+      CloneIndex index = new MemoryCloneIndex();
+      int files = random.nextInt(4);
+      for (int f = 0; f < files; f++) {
+        insert(index, randomBlocks(random, "y" + f, random.nextInt(15), alphabetSize));
+      }
+      Block[] fileBlocks = randomBlocks(random, "x", random.nextInt(20), alphabetSize);
+      if (random.nextBoolean()) {
+        insert(index, fileBlocks);
+      }
+      detect(index, fileBlocks);
+    }
+  }
+
+  private static Block[] randomBlocks(Random random, String resourceId, int size, int alphabetSize) {
+    Block[] blocks = new Block[size];
+    for (int i = 0; i < size; i++) {
+      blocks[i] = newBlock(resourceId, new ByteArray(new byte[] {(byte) random.nextInt(alphabetSize)}), i);
+    }
+    return blocks;
+  }
+
+  private static void insert(CloneIndex index, Block[] blocks) {
+    for (Block block : blocks) {
+      index.insert(block);
+    }
+  }
+
+  @Override
+  protected List<CloneGroup> detect(CloneIndex index, Block[] fileBlocks) {
+    List<Block> blocks = Arrays.asList(fileBlocks);
+    List<CloneGroup> expected = SuffixTreeCloneDetectionAlgorithm.detect(index, blocks);
+    List<CloneGroup> actual = SuffixArrayCloneDetectionAlgorithm.detect(index, blocks);
+    assertEquals(expected.size(), actual.size());
+    assertEquals(Sets.newHashSet(expected), Sets.newHashSet(actual));
+    return actual;
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixarray;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SuffixArrayTest {
+
+  /**
+   * Text "banana$", where $ is the smallest symbol.
+   */
+  @Test
+  public void banana() {
+    SuffixArray suffixArray = new SuffixArray(new int[] {1, 0, 2, 0, 2, 0, 3}, 4);
+
+    int[] suffixes = new int[7];
+    int[] lcp = new int[7];
+    for (int i = 0; i < 7; i++) {
+      suffixes[i] = suffixArray.suffix(i);
+      lcp[i] = suffixArray.lcp(i);
+    }
+    // anana$, ana$, a$, banana$, nana$, na$, $ - with a=0, b=1, n=2, $=3
+    assertThat(suffixes).isEqualTo(new int[] {1, 3, 5, 0, 2, 4, 6});
+    assertThat(lcp).isEqualTo(new int[] {0, 3, 1, 0, 0, 2, 0});
+  }
+
+  @Test
+  public void same_order_as_naive_sort() {
+    Random random = new Random(42);
+    for (int iteration = 0; iteration < 500; iteration++) {
+      int alphabetSize = 1 + random.nextInt(4);
+      final int[] text = new int[1 + random.nextInt(50)];
+      for (int i = 0; i < text.length; i++) {
+        text[i] = random.nextInt(alphabetSize);
+      }
+      SuffixArray suffixArray = new SuffixArray(text, alphabetSize);
+
+      Integer[] expected = new Integer[text.length];
+      for (int i = 0; i < text.length; i++) {
+        expected[i] = i;
+      }
+      Arrays.sort(expected, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+          return compareSuffixes(text, o1, o2);
+        }
+      });
+      for (int i = 0; i < text.length; i++) {
+        assertThat(suffixArray.suffix(i)).isEqualTo(expected[i]);
+        int lcp = i == 0 ? 0 : commonPrefix(text, expected[i - 1], expected[i]);
+        assertThat(suffixArray.lcp(i)).isEqualTo(lcp);
+      }
+    }
+  }
+
+  private static int compareSuffixes(int[] text, int i, int j) {
+    int l = commonPrefix(text, i, j);
+    if (i + l == text.length) {
+      return -1;
+    }
+    if (j + l == text.length) {
+      return 1;
+    }
+    return text[i + l] - text[j + l];
+  }
+
+  private static int commonPrefix(int[] text, int i, int j) {
+    int l = 0;
+    while (i + l < text.length && j + l < text.length && text[i + l] == text[j + l]) {
+      l++;
+    }
+    return l;
+  }
+
+}
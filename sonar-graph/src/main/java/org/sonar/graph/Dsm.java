@@ -23,20 +23,30 @@ import javax.annotation.CheckForNull;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Only the non-empty cells are stored. They are indexed by the initial positions of their vertices,
+ * so that permutations do not move any cell.
+ */
 public class Dsm<V> {
 
   private final V[] vertices;
-  private final DsmCell[][] cells;
+  private final int[] initialPositions;
+  private final Map<Long, DsmCell> cells;
   private final int dimension;
   private final DirectedGraphAccessor<V, ? extends Edge<V>> graph;
-  private boolean atLeastOneDependency = false;
 
   public Dsm(DirectedGraphAccessor<V, ? extends Edge<V>> graph, Collection<V> vertices, Set<Edge> feedbackEdges) {
     this.graph = graph;
     this.dimension = vertices.size();
     this.vertices = initVertices(vertices);
+    this.initialPositions = new int[dimension];
+    for (int i = 0; i < dimension; i++) {
+      initialPositions[i] = i;
+    }
     this.cells = initCells(feedbackEdges);
   }
 
@@ -48,24 +58,32 @@ public class Dsm<V> {
     this(acyclicGraph, acyclicGraph.getVertices(), Collections.<Edge>emptySet());
   }
 
-  private DsmCell[][] initCells(Set<Edge> feedbackEdges) {
-    DsmCell[][] result = new DsmCell[dimension][dimension];
+  private Map<Long, DsmCell> initCells(Set<Edge> feedbackEdges) {
+    Map<V, Integer> positionsByVertex = new HashMap<V, Integer>();
+    for (int i = 0; i < dimension; i++) {
+      positionsByVertex.put(vertices[i], i);
+    }
+    Map<Long, DsmCell> result = new HashMap<Long, DsmCell>();
     for (int x = 0; x < dimension; x++) {
-      for (int y = 0; y < dimension; y++) {
-        V from = vertices[x];
-        V to = vertices[y];
-
-        Edge<V> edge = graph.getEdge(from, to);
-        if (edge != null) {
-          atLeastOneDependency = true;
+      Collection<? extends Edge<V>> outgoingEdges = graph.getOutgoingEdges(vertices[x]);
+      if (outgoingEdges == null) {
+        continue;
+      }
+      for (Edge<V> edge : outgoingEdges) {
+        Integer y = positionsByVertex.get(edge.getTo());
+        if (y != null) {
           boolean isFeedbackEdge = feedbackEdges.contains(edge);
-          result[x][y] = new DsmCell(edge, isFeedbackEdge);
+          result.put(key(x, y), new DsmCell(edge, isFeedbackEdge));
         }
       }
     }
     return result;
   }
 
+  private long key(int initialX, int initialY) {
+    return (long) initialX * dimension + initialY;
+  }
+
   private V[] initVertices(Collection<V> verticesCol) {
     V[] result = (V[]) new Object[dimension];
     int i = 0;
@@ -88,8 +106,6 @@ public class Dsm<V> {
     if (fromIndex != toIndex) {
       checkIndicesBoudaries(fromIndex, toIndex);
       permuteVertice(fromIndex, toIndex);
-      permuteColumns(fromIndex, toIndex);
-      permuteRows(fromIndex, toIndex);
     }
   }
 
@@ -111,31 +127,15 @@ public class Dsm<V> {
     V toVertex = vertices[toIndex];
     vertices[fromIndex] = toVertex;
     vertices[toIndex] = fromVertex;
-  }
-
-  private void permuteRows(int fromYIndex, int toYIndex) {
-    for (int x = 0; x < dimension; x++) {
-      permuteCells(x, fromYIndex, x, toYIndex);
-    }
-  }
-
-  private void permuteColumns(int fromXIndex, int toXIndex) {
-    for (int y = 0; y < dimension; y++) {
-      permuteCells(fromXIndex, y, toXIndex, y);
-    }
-  }
-
-  private void permuteCells(int fromXIndex, int fromYIndex, int toXIndex, int toYIndex) {
-    DsmCell fromCell = cells[fromXIndex][fromYIndex];
-    DsmCell toCell = cells[toXIndex][toYIndex];
-    cells[toXIndex][toYIndex] = fromCell;
-    cells[fromXIndex][fromYIndex] = toCell;
+    int fromPosition = initialPositions[fromIndex];
+    initialPositions[fromIndex] = initialPositions[toIndex];
+    initialPositions[toIndex] = fromPosition;
   }
 
   public int getNumberOfIncomingEdges(int y, int from, int to) {
     int incomingEdges = 0;
     for (int x = from; x <= to; x++) {
-      DsmCell cell = cells[x][y];
+      DsmCell cell = cell(x, y);
       if (cell != null && cell.getWeight() != 0 && !cell.isFeedbackEdge()) {
         incomingEdges++;
       }
@@ -146,7 +146,7 @@ public class Dsm<V> {
   public int getNumberOfOutgoingEdges(int x, int from, int to) {
     int outgoingEdges = 0;
     for (int y = from; y <= to; y++) {
-      DsmCell cell = cells[x][y];
+      DsmCell cell = cell(x, y);
       if (cell != null && cell.getWeight() != 0 && !cell.isFeedbackEdge()) {
         outgoingEdges++;
       }
@@ -159,7 +159,7 @@ public class Dsm<V> {
    */
   @Deprecated
   public DsmCell getCell(int x, int y) {
-    DsmCell cell = cells[x][y];
+    DsmCell cell = cell(x, y);
     return cell != null ? cell : new DsmCell(null, false);
   }
 
@@ -168,14 +168,14 @@ public class Dsm<V> {
    */
   @CheckForNull
   public DsmCell cell(int x, int y) {
-    return cells[x][y];
+    return cells.get(key(initialPositions[x], initialPositions[y]));
   }
 
   /**
    * @since 5.0
    */
   public boolean hasAtLeastOneDependency() {
-    return atLeastOneDependency;
+    return !cells.isEmpty();
   }
 
   public V[] getVertices() {
@@ -19,8 +19,12 @@
  */
 package org.sonar.graph;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class IncrementalCyclesAndFESSolver<V> {
@@ -38,9 +42,10 @@ public class IncrementalCyclesAndFESSolver<V> {
 
   public IncrementalCyclesAndFESSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, int maxSearchDepthAtFirst,
     int maxCyclesToFoundByIteration) {
+    List<V> searchedVertices = verticesWhichCanReachCycle(graph, vertices);
 
     iterations++;
-    CycleDetector<V> cycleDetector = new CycleDetector<V>(graph, vertices);
+    CycleDetector<V> cycleDetector = new CycleDetector<V>(graph, searchedVertices);
     cycleDetector.detectCyclesWithMaxSearchDepth(maxSearchDepthAtFirst);
     searchCyclesCalls += cycleDetector.getSearchCyclesCalls();
     cycles.addAll(cycleDetector.getCycles());
@@ -49,7 +54,7 @@ public class IncrementalCyclesAndFESSolver<V> {
 
     do {
       iterations++;
-      cycleDetector = new CycleDetector<V>(graph, vertices, edgesToExclude);
+      cycleDetector = new CycleDetector<V>(graph, searchedVertices, edgesToExclude);
       cycleDetector.detectCyclesWithUpperLimit(maxCyclesToFoundByIteration);
       searchCyclesCalls += cycleDetector.getSearchCyclesCalls();
       cycles.addAll(cycleDetector.getCycles());
@@ -58,6 +63,63 @@ public class IncrementalCyclesAndFESSolver<V> {
     } while (!cycleDetector.getCycles().isEmpty());
   }
 
+  /**
+   * A vertex which can't reach a cycle changes neither the cycles found nor the order in which they are found, so such
+   * vertices are not searched. Strongly connected components are returned in reverse topological order, so the
+   * successors of a component are known before the component itself.
+   */
+  private static <V> List<V> verticesWhichCanReachCycle(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices) {
+    List<V> indexedVertices = new ArrayList<V>(new LinkedHashSet<V>(vertices));
+    Map<V, Integer> indexes = new HashMap<V, Integer>();
+    for (V vertex : indexedVertices) {
+      indexes.put(vertex, indexes.size());
+    }
+    int[][] successors = new int[indexedVertices.size()][];
+    for (int from = 0; from < successors.length; from++) {
+      List<Integer> targets = new ArrayList<Integer>();
+      for (Edge<V> edge : graph.getOutgoingEdges(indexedVertices.get(from))) {
+        Integer to = indexes.get(edge.getTo());
+        if (to != null) {
+          targets.add(to);
+        }
+      }
+      successors[from] = new int[targets.size()];
+      for (int i = 0; i < successors[from].length; i++) {
+        successors[from][i] = targets.get(i);
+      }
+    }
+
+    boolean[] canReachCycle = new boolean[successors.length];
+    for (int[] component : StronglyConnectedComponents.compute(successors)) {
+      boolean reachCycle = component.length > 1 || hasLoop(successors, component[0]);
+      for (int i = 0; i < component.length && !reachCycle; i++) {
+        for (int successor : successors[component[i]]) {
+          reachCycle |= canReachCycle[successor];
+        }
+      }
+      for (int vertex : component) {
+        canReachCycle[vertex] = reachCycle;
+      }
+    }
+
+    List<V> result = new ArrayList<V>();
+    for (int i = 0; i < canReachCycle.length; i++) {
+      if (canReachCycle[i]) {
+        result.add(indexedVertices.get(i));
+      }
+    }
+    return result;
+  }
+
+  private static boolean hasLoop(int[][] successors, int vertex) {
+    for (int successor : successors[vertex]) {
+      if (successor == vertex) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public int getWeightOfFeedbackEdgeSet() {
     return solver.getWeightOfFeedbackEdgeSet();
   }
@@ -19,8 +19,13 @@
  */
 package org.sonar.graph;
 
+import com.google.common.primitives.Ints;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class MinimumFeedbackEdgeSetSolver {
@@ -72,9 +77,8 @@ public class MinimumFeedbackEdgeSetSolver {
   }
 
   private void run() {
-    Set<FeedbackEdge> pendingFeedbackEdges = new LinkedHashSet<FeedbackEdge>();
     if (cyclesNumber < maxNumberCyclesForSearchingMinimumFeedback) {
-      searchFeedbackEdges(0, 0, pendingFeedbackEdges);
+      new Search().searchFeedbackEdges(0, 0);
     } else {
       lightResearchForFeedbackEdges();
     }
@@ -94,58 +98,89 @@ public class MinimumFeedbackEdgeSetSolver {
     }
   }
 
-  private void searchFeedbackEdges(int level, int pendingWeight, Set<FeedbackEdge> pendingFeedbackEdges) {
-    if (numberOfLoops++ > maximumNumberOfLoops) {
-      return;
+  /**
+   * Exhaustive search of the minimum feedback edge set. Edges are identified by integers so that the
+   * millions of loops do not compute hash codes of edges.
+   */
+  private class Search {
+    private final FeedbackEdge[] edgesById;
+    private final int[][] cycleEdgeIds;
+    private final boolean[] pending;
+    private final int[] pendingStack;
+    private int pendingSize = 0;
+
+    Search() {
+      Map<FeedbackEdge, Integer> idsByEdge = new HashMap<FeedbackEdge, Integer>();
+      List<FeedbackEdge> edges = new ArrayList<FeedbackEdge>();
+      cycleEdgeIds = new int[feedbackCycles.size()][];
+      for (int level = 0; level < cycleEdgeIds.length; level++) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (FeedbackEdge feedbackEdge : feedbackCycles.get(level)) {
+          Integer id = idsByEdge.get(feedbackEdge);
+          if (id == null) {
+            id = edges.size();
+            idsByEdge.put(feedbackEdge, id);
+            edges.add(feedbackEdge);
+          }
+          ids.add(id);
+        }
+        cycleEdgeIds[level] = Ints.toArray(ids);
+      }
+      edgesById = edges.toArray(new FeedbackEdge[edges.size()]);
+      pending = new boolean[edgesById.length];
+      pendingStack = new int[edgesById.length];
     }
 
-    if (pendingWeight >= minimumFeedbackEdgesWeight) {
-      return;
-    }
+    private void searchFeedbackEdges(int level, int pendingWeight) {
+      if (numberOfLoops++ > maximumNumberOfLoops) {
+        return;
+      }
 
-    if (level == cyclesNumber) {
-      minimumFeedbackEdgesWeight = pendingWeight;
-      feedbackEdges = new LinkedHashSet<FeedbackEdge>(pendingFeedbackEdges);
-      return;
-    }
+      if (pendingWeight >= minimumFeedbackEdgesWeight) {
+        return;
+      }
 
-    FeedbackCycle feedbackCycle = feedbackCycles.get(level);
+      if (level == cyclesNumber) {
+        minimumFeedbackEdgesWeight = pendingWeight;
+        feedbackEdges = new LinkedHashSet<FeedbackEdge>();
+        for (int i = 0; i < pendingSize; i++) {
+          feedbackEdges.add(edgesById[pendingStack[i]]);
+        }
+        return;
+      }
 
-    if (doesFeedbackEdgesContainAnEdgeOfTheCycle(pendingFeedbackEdges, feedbackCycle)) {
-      searchFeedbackEdges(level + 1, pendingWeight, pendingFeedbackEdges);
-    } else {
-      boolean hasAnEdgeWithOccurrenceOfOneBeenUsed = false;
-      for (FeedbackEdge feedbackEdge : feedbackCycle) {
-        if (feedbackEdge.getOccurences() == 1) {
-          if (hasAnEdgeWithOccurrenceOfOneBeenUsed) {
-            continue;
-          } else {
-            hasAnEdgeWithOccurrenceOfOneBeenUsed = true;
+      int[] cycle = cycleEdgeIds[level];
+
+      if (doesFeedbackEdgesContainAnEdgeOfTheCycle(cycle)) {
+        searchFeedbackEdges(level + 1, pendingWeight);
+      } else {
+        boolean hasAnEdgeWithOccurrenceOfOneBeenUsed = false;
+        for (int edgeId : cycle) {
+          FeedbackEdge feedbackEdge = edgesById[edgeId];
+          if (feedbackEdge.getOccurences() == 1) {
+            if (hasAnEdgeWithOccurrenceOfOneBeenUsed) {
+              continue;
+            } else {
+              hasAnEdgeWithOccurrenceOfOneBeenUsed = true;
+            }
           }
-        }
-        int edgeWeight = addNewEdge(feedbackEdge, pendingFeedbackEdges);
-        pendingWeight += edgeWeight;
+          pending[edgeId] = true;
+          pendingStack[pendingSize++] = edgeId;
 
-        searchFeedbackEdges(level + 1, pendingWeight, pendingFeedbackEdges);
-        pendingWeight -= edgeWeight;
-        pendingFeedbackEdges.remove(feedbackEdge);
+          searchFeedbackEdges(level + 1, pendingWeight + feedbackEdge.getWeight());
+          pendingSize--;
+          pending[edgeId] = false;
+        }
       }
     }
-  }
 
-  private boolean doesFeedbackEdgesContainAnEdgeOfTheCycle(Set<FeedbackEdge> pendingFeedbackEdges, FeedbackCycle cycle) {
-    boolean contains = false;
-    for (FeedbackEdge feedbackEdge : cycle) {
-      if (pendingFeedbackEdges.contains(feedbackEdge)) {
-        contains = true;
-        break;
+    private boolean doesFeedbackEdgesContainAnEdgeOfTheCycle(int[] cycle) {
+      for (int edgeId : cycle) {
+        if (pending[edgeId]) {
+          return true;
+        }
       }
+      return false;
     }
-    return contains;
-  }
-
-  private int addNewEdge(FeedbackEdge feedbackEdge, Set<FeedbackEdge> pendingFeedbackEdges) {
-    pendingFeedbackEdges.add(feedbackEdge);
-    return feedbackEdge.getWeight();
   }
 }
@@ -0,0 +1,101 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tarjan's algorithm on a graph whose vertices are the indexes 0..n-1. The depth-first search uses explicit
+ * stacks, so that large tangles do not overflow the thread stack.
+ */
+final class StronglyConnectedComponents {
+
+  private StronglyConnectedComponents() {
+    // only static methods
+  }
+
+  /**
+   * @param successors successors[v] are the vertices targeted by the outgoing edges of v
+   * @return the components in reverse topological order. Each component lists its vertices.
+   */
+  static List<int[]> compute(int[][] successors) {
+    int n = successors.length;
+    int[] index = new int[n];
+    Arrays.fill(index, -1);
+    int[] lowLink = new int[n];
+    boolean[] onStack = new boolean[n];
+    int[] stack = new int[n];
+    int stackSize = 0;
+    int[] callStack = new int[n];
+    int[] nextSuccessor = new int[n];
+    int nextIndex = 0;
+    List<int[]> components = new ArrayList<int[]>();
+
+    for (int root = 0; root < n; root++) {
+      if (index[root] != -1) {
+        continue;
+      }
+      int depth = 0;
+      callStack[depth] = root;
+      index[root] = nextIndex;
+      lowLink[root] = nextIndex;
+      nextIndex++;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+
+      while (depth >= 0) {
+        int v = callStack[depth];
+        if (nextSuccessor[v] < successors[v].length) {
+          int w = successors[v][nextSuccessor[v]];
+          nextSuccessor[v]++;
+          if (index[w] == -1) {
+            index[w] = nextIndex;
+            lowLink[w] = nextIndex;
+            nextIndex++;
+            stack[stackSize++] = w;
+            onStack[w] = true;
+            depth++;
+            callStack[depth] = w;
+          } else if (onStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], index[w]);
+          }
+        } else {
+          if (lowLink[v] == index[v]) {
+            int start = stackSize;
+            do {
+              start--;
+              onStack[stack[start]] = false;
+            } while (stack[start] != v);
+            components.add(Arrays.copyOfRange(stack, start, stackSize));
+            stackSize = start;
+          }
+          depth--;
+          if (depth >= 0) {
+            int parent = callStack[depth];
+            lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+          }
+        }
+      }
+    }
+    return components;
+  }
+}
@@ -69,4 +69,33 @@ public class IncrementalCyclesAndFESSolverTest {
     cyclesAndFESSolver.getFeedbackEdgeSet();
   }
 
+  @Test
+  public void vertices_which_can_not_reach_a_cycle_are_not_searched() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "A");
+    dcg.addEdge("B", "A");
+    dcg.addEdge("X", "A");
+    IncrementalCyclesAndFESSolver<String> reference = new IncrementalCyclesAndFESSolver<String>(dcg, dcg.getVertices());
+
+    // dead ends, reached from the tangle or not
+    dcg.addEdge("C", "D").addEdge("D", "E").addEdge("E", "F");
+    dcg.addEdge("X", "Y").addEdge("Y", "Z");
+    IncrementalCyclesAndFESSolver<String> cyclesAndFESSolver = new IncrementalCyclesAndFESSolver<String>(dcg, dcg.getVertices());
+
+    assertThat(cyclesAndFESSolver.getCycles(), is(reference.getCycles()));
+    assertThat(cyclesAndFESSolver.getFeedbackEdgeSet(), is(reference.getFeedbackEdgeSet()));
+    assertThat(cyclesAndFESSolver.getSearchCyclesCalls(), is(reference.getSearchCyclesCalls()));
+  }
+
+  @Test
+  public void testAcyclicGraph() {
+    DirectedGraph<String, StringEdge> dag = DirectedGraph.createStringDirectedGraph();
+    dag.addEdge("A", "B").addEdge("B", "C").addEdge("A", "C");
+
+    IncrementalCyclesAndFESSolver<String> cyclesAndFESSolver = new IncrementalCyclesAndFESSolver<String>(dag, dag.getVertices());
+    assertThat(cyclesAndFESSolver.isAcyclicGraph(), is(true));
+    assertThat(cyclesAndFESSolver.getSearchCyclesCalls(), is(0L));
+    assertThat(cyclesAndFESSolver.getWeightOfFeedbackEdgeSet(), is(0));
+  }
+
 }
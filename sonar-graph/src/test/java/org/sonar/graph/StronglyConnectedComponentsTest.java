@@ -0,0 +1,57 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class StronglyConnectedComponentsTest {
+
+  @Test
+  public void compute_components() {
+    // 0 -> 1 -> 2 -> 0, 2 -> 3, 3 -> 4 -> 3, 5
+    int[][] successors = {{1}, {2}, {0, 3}, {4}, {3}, {}};
+
+    List<int[]> components = StronglyConnectedComponents.compute(successors);
+
+    assertThat(components).hasSize(3);
+    // reverse topological order
+    assertThat(components.get(0)).containsOnly(3, 4);
+    assertThat(components.get(1)).containsOnly(0, 1, 2);
+    assertThat(components.get(2)).containsOnly(5);
+  }
+
+  @Test
+  public void no_stack_overflow_on_long_paths() {
+    int size = 100000;
+    int[][] successors = new int[size][];
+    for (int i = 0; i < size; i++) {
+      successors[i] = new int[] {(i + 1) % size};
+    }
+
+    List<int[]> components = StronglyConnectedComponents.compute(successors);
+
+    assertThat(components).hasSize(1);
+    assertThat(components.get(0)).hasSize(size);
+  }
+}